@@ -0,0 +1,793 @@
+package generator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Makes up the tables of the wine market, as WineMarket_Schema.ddl defines
+ * them, at any scale. Scale factor 1 has {@value #WINEMAKERS} winemakers,
+ * {@value #WINES} wines, {@value #MERCHANTS} merchants and about 4 merchant
+ * prices per wine, and every table but the fixed ones (countries, wine
+ * colours and ratings) grows with the scale factor.<br/>
+ * <br/>
+ * The same seed and settings always make the same tables, and each table
+ * is made from a seed of its own, so changing one table's settings leaves
+ * the others alone. Every reference is to a row that exists, and no
+ * merchant lists a wine twice. Which row a reference picks follows a Zipf
+ * distribution of the given skew over the referenced rows, shuffled so
+ * that the popular rows aren't just the first ones, so some countries,
+ * winemakers and merchants have far more rows than others; a skew of 0
+ * picks evenly. The references the schema lets be <code>NULL</code> are
+ * left empty at the rate given for each.<br/>
+ * <br/>
+ * The tables are written to a directory, for the DBMS and for SQL:
+ * <ul>
+ * <li>a headed csv file per table, named after it, with the prices in
+ * cents, since the DBMS only has ints and Strings;</li>
+ * <li>{@value #SCRIPT}, the commands defining and loading those tables,
+ * which are run from the same directory;</li>
+ * <li>{@value #SQL}, the rows as batches of multi-row inserts, in an order
+ * that satisfies the schema's foreign keys.</li>
+ * </ul>
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public final class WineMarketGenerator {
+
+	/**
+	 * The number of winemakers at scale factor 1.
+	 */
+	static final int WINEMAKERS = 500;
+
+	/**
+	 * The number of wines at scale factor 1.
+	 */
+	static final int WINES = 10000;
+
+	/**
+	 * The number of merchants at scale factor 1.
+	 */
+	static final int MERCHANTS = 100;
+
+	/**
+	 * The most merchants that list any one wine.
+	 */
+	static final int MOST_MERCHANTS = 7;
+
+	/**
+	 * The file holding the DBMS commands that define and load the tables.
+	 */
+	static final String SCRIPT = "winemarket.txt";
+
+	/**
+	 * The file holding the SQL inserts.
+	 */
+	static final String SQL = "winemarket.sql";
+
+	/**
+	 * The columns the schema lets be <code>NULL</code>, as
+	 * <code>table.column</code>.
+	 */
+	static final String[] NULLABLE = {"winemakers.cid", "wine.wcid",
+		"wine.rid", "wine.wmid"};
+
+	/**
+	 * The countries, which don't grow with the scale factor.
+	 */
+	private static final String[] COUNTRIES = {"France", "Italy", "Spain",
+		"United States", "Argentina", "Chile", "Australia", "South Africa",
+		"Germany", "Portugal", "New Zealand", "Austria", "Greece", "Hungary",
+		"Canada", "Romania", "Georgia", "Moldova", "Brazil", "Uruguay",
+		"Bulgaria", "Croatia", "Slovenia", "Lebanon", "Israel"};
+
+	/**
+	 * The colours of wine, as the schema names them.
+	 */
+	private static final String[] COLOURS = {"Red", "White", "Rose"};
+
+	/**
+	 * How common each colour is.
+	 */
+	private static final double[] COLOUR_WEIGHTS = {0.5, 0.35, 0.15};
+
+	/**
+	 * The description of each rating, from 1 to 5.
+	 */
+	private static final String[] RATINGS = {"Poor", "Fair", "Good",
+		"Very good", "Excellent"};
+
+	/**
+	 * How common each rating is.
+	 */
+	private static final double[] RATING_WEIGHTS = {0.05, 0.15, 0.35, 0.3,
+		0.15};
+
+	/**
+	 * The words a winemaker's name starts with.
+	 */
+	private static final String[] ESTATES = {"Chateau", "Domaine", "Bodega",
+		"Tenuta", "Weingut", "Quinta", "Clos", "Cantina", "Vina", "Estate"};
+
+	/**
+	 * The syllables the rest of a winemaker's name is made of.
+	 */
+	private static final String[] SYLLABLES = {"ba", "bel", "ca", "cor",
+		"do", "di", "fon", "gra", "la", "lu", "mar", "mon", "ne", "or", "pe",
+		"ri", "ro", "sa", "ta", "ver", "vil", "za"};
+
+	/**
+	 * The grapes a wine's name starts with.
+	 */
+	private static final String[] GRAPES = {"Cabernet", "Merlot", "Pinot",
+		"Syrah", "Malbec", "Tempranillo", "Sangiovese", "Riesling",
+		"Chardonnay", "Sauvignon", "Grenache", "Zinfandel", "Gamay",
+		"Viognier", "Nebbiolo"};
+
+	/**
+	 * The words a wine's name ends with.
+	 */
+	private static final String[] STYLES = {"Reserve", "Classic", "Estate",
+		"Old Vines", "Cuvee", "Grand Cru", "Vieilles", "Selection",
+		"Riserva", "Brut", "Nouveau", "Single Vineyard"};
+
+	/**
+	 * The merchants' names, numbered once they run out.
+	 */
+	private static final String[] MERCHANT_NAMES = {"Wine Rack",
+		"WineOnline", "Vintages", "Cellar Door", "The Wine Shop",
+		"Grape Escape", "Corks", "Bottle Shop", "Uncorked", "Decanter"};
+
+	/**
+	 * The longest a String column of the schema can be.
+	 */
+	private static final int NAME_LENGTH = 20;
+
+	/**
+	 * The seed all the tables are made from.
+	 */
+	private final long seed;
+
+	/**
+	 * The number the sizes of the growing tables are multiplied by.
+	 */
+	private final double scale;
+
+	/**
+	 * The exponent of the Zipf distribution references follow.
+	 */
+	private final double skew;
+
+	/**
+	 * The rate at which each nullable column is <code>NULL</code>.
+	 */
+	private final Map<String, Double> nullRates =
+			new HashMap<String, Double>();
+
+	/**
+	 * The most rows an insert has.
+	 */
+	private int batchSize = 1000;
+
+	/**
+	 * Creates a generator of tables with no <code>NULL</code>s.
+	 *
+	 * @param seed the seed the tables are made from
+	 * @param scale the scale factor, which may be under 1
+	 * @param skew the exponent of the Zipf distribution references follow,
+	 *            0 to pick evenly
+	 * @throws IllegalArgumentException if the scale factor isn't positive or
+	 *             the skew is negative
+	 */
+	public WineMarketGenerator(long seed, double scale, double skew) {
+		if (!(scale > 0) || !(skew >= 0)) {
+			throw new IllegalArgumentException("The scale factor must be "
+					+ "positive and the skew can't be negative.");
+		}
+		this.seed = seed;
+		this.scale = scale;
+		this.skew = skew;
+		for (String column : NULLABLE) {
+			nullRates.put(column, 0.0);
+		}
+	}
+
+	/**
+	 * Sets the rate at which a nullable column is <code>NULL</code>.
+	 *
+	 * @param column the column, as <code>table.column</code>, or
+	 *            <code>null</code> for every nullable column
+	 * @param rate the share of rows whose column is <code>NULL</code>
+	 * @throws IllegalArgumentException if the column can't be
+	 *             <code>NULL</code> or the rate isn't between 0 and 1
+	 */
+	public void setNullRate(String column, double rate) {
+		if (!(rate >= 0 && rate <= 1)) {
+			throw new IllegalArgumentException("The null rate " + rate
+					+ " isn't between 0 and 1.");
+		}
+		if (column == null) {
+			for (String c : NULLABLE) {
+				nullRates.put(c, rate);
+			}
+		} else if (nullRates.containsKey(column)) {
+			nullRates.put(column, rate);
+		} else {
+			throw new IllegalArgumentException("The column " + column
+					+ " can't be NULL; only " + Arrays.toString(NULLABLE)
+					+ " can.");
+		}
+	}
+
+	/**
+	 * Sets the most rows an insert has.
+	 *
+	 * @param batchSize the number of rows, at least 1
+	 * @throws IllegalArgumentException if it's under 1
+	 */
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("An insert has at least one "
+					+ "row.");
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Returns the number of rows of a growing table at this scale factor.
+	 *
+	 * @param base the number of rows at scale factor 1
+	 * @return the number of rows, at least 1
+	 */
+	int rows(int base) {
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+				Math.round(base * scale)));
+	}
+
+	/**
+	 * Makes up the tables and writes them to the given directory.
+	 *
+	 * @param dir the directory, made if it doesn't exist
+	 * @throws IOException if a file can't be written
+	 */
+	public void generate(File dir) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Can't make the directory " + dir);
+		}
+		PrintWriter script = new PrintWriter(new BufferedWriter(
+				new FileWriter(new File(dir, SCRIPT))));
+		PrintWriter sql = new PrintWriter(new BufferedWriter(
+				new FileWriter(new File(dir, SQL))));
+		try {
+			int winemakers = rows(WINEMAKERS);
+			int wines = rows(WINES);
+			int merchants = rows(MERCHANTS);
+			countries(open(dir, script, sql, "countries", "cid:i",
+					"cname:s"));
+			winemakers(open(dir, script, sql, "winemakers", "wmid:i",
+					"wmname:s", "cid:i"), winemakers);
+			winecolours(open(dir, script, sql, "winecolours", "wcid:i",
+					"wcname:s"));
+			ratings(open(dir, script, sql, "ratings", "rid:i", "rating:i",
+					"description:s"));
+			int[][] made = wine(open(dir, script, sql, "wine", "wid:i",
+					"wcid:i", "rid:i", "wmid:i", "wname:s", "wyear:i",
+					"bestbeforeny:i", "msrp:m"), wines, winemakers);
+			merchants(open(dir, script, sql, "merchants", "mid:i",
+					"mname:s"), merchants);
+			pricelist(open(dir, script, sql, "pricelist", "wid:i", "mid:i",
+					"startyear:i", "startmonth:i", "endyear:i", "endmonth:i",
+					"price:m"), made[0], made[1], merchants);
+		} finally {
+			script.close();
+			sql.close();
+		}
+		if (script.checkError() || sql.checkError()) {
+			throw new IOException("Couldn't write to " + dir);
+		}
+	}
+
+	/**
+	 * Starts writing a table, adding the commands that define and load it
+	 * to the script.
+	 *
+	 * @param dir the directory the csv file goes in
+	 * @param script the DBMS script
+	 * @param sql the SQL inserts
+	 * @param name the name of the table
+	 * @param columns each column's name, a colon, and its type:
+	 *            <code>i</code> for an int, <code>s</code> for a String, or
+	 *            <code>m</code> for an amount of money in cents
+	 * @return the table's output
+	 * @throws IOException if the csv file can't be made
+	 */
+	private Output open(File dir, PrintWriter script, PrintWriter sql,
+			String name, String... columns) throws IOException {
+		Output out = new Output(new File(dir, name + ".csv"), sql, name,
+				columns);
+		StringBuilder define = new StringBuilder("define ").append(name)
+				.append(" (");
+		for (int c = 0; c < columns.length; c++) {
+			define.append(c == 0 ? "" : ", ")
+					.append(out.types[c] == 's' ? "String" : "Int");
+		}
+		script.println(define.append(')'));
+		script.println("load headed " + name + " from " + name + ".csv");
+		return out;
+	}
+
+	/**
+	 * Returns the source of random numbers of a table.
+	 *
+	 * @param table the number of the table, in the order they're made
+	 * @param purpose what the numbers are for, 0 for the values and 1 for
+	 *            the <code>NULL</code>s
+	 * @return a source of its own for that table and purpose
+	 */
+	private Random random(int table, int purpose) {
+		return new Random(seed * 1000003L + table * 2 + purpose);
+	}
+
+	/**
+	 * Returns a value, or <code>NULL</code> at the rate given for a column.
+	 *
+	 * @param value the value
+	 * @param column the column, as <code>table.column</code>
+	 * @param nulls the source of random numbers for <code>NULL</code>s
+	 * @return the value or <code>null</code>
+	 */
+	private Integer nullable(int value, String column, Random nulls) {
+		return nulls.nextDouble() < nullRates.get(column) ? null
+				: Integer.valueOf(value);
+	}
+
+	/**
+	 * Writes the countries.
+	 *
+	 * @param out the table's output
+	 * @throws IOException if it can't be written
+	 */
+	private void countries(Output out) throws IOException {
+		for (int c = 0; c < COUNTRIES.length; c++) {
+			out.row(c + 1, COUNTRIES[c]);
+		}
+		out.close();
+	}
+
+	/**
+	 * Writes the winemakers, each in a country.
+	 *
+	 * @param out the table's output
+	 * @param winemakers the number of winemakers
+	 * @throws IOException if it can't be written
+	 */
+	private void winemakers(Output out, int winemakers) throws IOException {
+		Random random = random(1, 0);
+		Random nulls = random(1, 1);
+		Distribution countries = Distribution.zipf(COUNTRIES.length, skew,
+				random);
+		for (int wm = 1; wm <= winemakers; wm++) {
+			StringBuilder name = new StringBuilder(
+					ESTATES[random.nextInt(ESTATES.length)]).append(' ');
+			int syllables = 2 + random.nextInt(2);
+			for (int s = 0; s < syllables; s++) {
+				name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+			}
+			int space = name.indexOf(" ") + 1;
+			name.setCharAt(space, Character.toUpperCase(name.charAt(space)));
+			out.row(wm, name.toString(), nullable(countries.next(random),
+					"winemakers.cid", nulls));
+		}
+		out.close();
+	}
+
+	/**
+	 * Writes the colours of wine.
+	 *
+	 * @param out the table's output
+	 * @throws IOException if it can't be written
+	 */
+	private void winecolours(Output out) throws IOException {
+		for (int c = 0; c < COLOURS.length; c++) {
+			out.row(c + 1, COLOURS[c]);
+		}
+		out.close();
+	}
+
+	/**
+	 * Writes the ratings, 1 to 5.
+	 *
+	 * @param out the table's output
+	 * @throws IOException if it can't be written
+	 */
+	private void ratings(Output out) throws IOException {
+		for (int r = 0; r < RATINGS.length; r++) {
+			out.row(r + 1, r + 1, RATINGS[r]);
+		}
+		out.close();
+	}
+
+	/**
+	 * Writes the wines, each of a colour, rating and winemaker, the better
+	 * rated ones costing more.
+	 *
+	 * @param out the table's output
+	 * @param wines the number of wines
+	 * @param winemakers the number of winemakers
+	 * @return the year each wine was made in and its price in cents, by
+	 *         wine id less 1
+	 * @throws IOException if it can't be written
+	 */
+	private int[][] wine(Output out, int wines, int winemakers)
+			throws IOException {
+		Random random = random(4, 0);
+		Random nulls = random(4, 1);
+		Distribution colours = new Distribution(COLOUR_WEIGHTS, null);
+		Distribution ratings = new Distribution(RATING_WEIGHTS, null);
+		Distribution makers = Distribution.zipf(winemakers, skew, random);
+		int[] years = new int[wines];
+		int[] prices = new int[wines];
+		for (int w = 0; w < wines; w++) {
+			int rating = ratings.next(random);
+			String name = GRAPES[random.nextInt(GRAPES.length)] + " "
+					+ STYLES[random.nextInt(STYLES.length)];
+			years[w] = 1985 + random.nextInt(28);
+			prices[w] = (int) Math.max(300, Math.round(100 * StrictMath.exp(
+					2.6 + 0.5 * random.nextGaussian() + 0.2 * (rating - 3))));
+			out.row(w + 1, nullable(colours.next(random), "wine.wcid", nulls),
+					nullable(rating, "wine.rid", nulls),
+					nullable(makers.next(random), "wine.wmid", nulls),
+					name.length() > NAME_LENGTH ? name.substring(0,
+							NAME_LENGTH).trim() : name,
+					years[w], 1 + random.nextInt(15), prices[w]);
+		}
+		out.close();
+		return new int[][] {years, prices};
+	}
+
+	/**
+	 * Writes the merchants.
+	 *
+	 * @param out the table's output
+	 * @param merchants the number of merchants
+	 * @throws IOException if it can't be written
+	 */
+	private void merchants(Output out, int merchants) throws IOException {
+		for (int m = 0; m < merchants; m++) {
+			String name = MERCHANT_NAMES[m % MERCHANT_NAMES.length];
+			if (m >= MERCHANT_NAMES.length) {
+				name += " " + (m / MERCHANT_NAMES.length + 1);
+			}
+			out.row(m + 1, name);
+		}
+		out.close();
+	}
+
+	/**
+	 * Writes the prices merchants list wines at, from some time after each
+	 * wine was made, around its suggested price. A wine is listed by up to
+	 * {@value #MOST_MERCHANTS} merchants, each at most once.
+	 *
+	 * @param out the table's output
+	 * @param years the year each wine was made in
+	 * @param msrps the suggested price of each wine, in cents
+	 * @param merchants the number of merchants
+	 * @throws IOException if it can't be written
+	 */
+	private void pricelist(Output out, int[] years, int[] msrps,
+			int merchants) throws IOException {
+		Random random = random(6, 0);
+		Distribution sellers = Distribution.zipf(merchants, skew, random);
+		int[] listed = new int[MOST_MERCHANTS];
+		for (int w = 0; w < years.length; w++) {
+			int count = Math.min(merchants,
+					1 + random.nextInt(MOST_MERCHANTS));
+			for (int k = 0; k < count; k++) {
+				listed[k] = sellers.next(random);
+				for (int j = 0; j < k; j++) {
+					if (listed[j] == listed[k]) { //taken, try the next one
+						listed[k] = listed[k] % merchants + 1;
+						j = -1;
+					}
+				}
+				int start = (years[w] + 1 + random.nextInt(3)) * 12
+						+ random.nextInt(12);
+				int end = start + 1 + random.nextInt(36);
+				out.row(w + 1, listed[k], start / 12, start % 12 + 1,
+						end / 12, end % 12 + 1,
+						msrps[w] * (70 + random.nextInt(60)) / 100);
+			}
+		}
+		out.close();
+	}
+
+	/**
+	 * Makes up the tables from the settings on the command line:
+	 * <pre>
+	 * [-sf scale] [-seed seed] [-skew skew] [-nulls [table.column=]rate]...
+	 * [-batch rows] [-out directory]
+	 * </pre>
+	 * The defaults are scale factor 1, seed 0, skew 1, no
+	 * <code>NULL</code>s, 1000 rows an insert and the current directory.
+	 *
+	 * @param args the command line
+	 * @throws IOException if a file can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+		Map<String, String> settings = new HashMap<String, String>();
+		Map<String, Double> nulls = new HashMap<String, Double>();
+		try {
+			for (int i = 0; i < args.length; i += 2) {
+				String option = args[i];
+				if (i + 1 >= args.length || !option.matches("-(sf|seed|skew"
+						+ "|nulls|batch|out)")) {
+					throw new IllegalArgumentException("Unknown option "
+							+ option);
+				}
+				String value = args[i + 1];
+				if (option.equals("-nulls")) {
+					int equals = value.indexOf('=');
+					nulls.put(equals < 0 ? null : value.substring(0, equals),
+							Double.valueOf(value.substring(equals + 1)));
+				} else {
+					settings.put(option, value);
+				}
+			}
+			WineMarketGenerator generator = new WineMarketGenerator(
+					Long.parseLong(setting(settings, "-seed", "0")),
+					Double.parseDouble(setting(settings, "-sf", "1")),
+					Double.parseDouble(setting(settings, "-skew", "1")));
+			if (nulls.containsKey(null)) { //every column, then the exceptions
+				generator.setNullRate(null, nulls.remove(null));
+			}
+			for (Map.Entry<String, Double> rate : nulls.entrySet()) {
+				generator.setNullRate(rate.getKey(), rate.getValue());
+			}
+			generator.setBatchSize(Integer.parseInt(setting(settings,
+					"-batch", "1000")));
+			File dir = new File(setting(settings, "-out", "."));
+			generator.generate(dir);
+			System.out.println("The wine market is in " + dir + ".");
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.out.println("Usage: [-sf scale] [-seed seed] [-skew skew]"
+					+ " [-nulls [table.column=]rate]... [-batch rows]"
+					+ " [-out directory]");
+		}
+	}
+
+	/**
+	 * Returns a setting from the command line.
+	 *
+	 * @param settings the settings given, by option
+	 * @param option the option
+	 * @param otherwise the setting if it isn't given
+	 * @return the setting
+	 */
+	private static String setting(Map<String, String> settings,
+			String option, String otherwise) {
+		return settings.containsKey(option) ? settings.get(option)
+				: otherwise;
+	}
+
+	/**
+	 * A distribution over the ids of a table's rows, 1 and up, that picks
+	 * each with a given weight.
+	 */
+	static final class Distribution {
+
+		/**
+		 * The sum of the weights of the first ranks, up to 1.
+		 */
+		private final double[] cumulative;
+
+		/**
+		 * The id picked at each rank.
+		 */
+		private final int[] ids;
+
+		/**
+		 * Creates a distribution.
+		 *
+		 * @param weights the weight of each rank
+		 * @param ids the id at each rank, or <code>null</code> for id 1 at
+		 *            the first rank, 2 at the second and so on
+		 */
+		Distribution(double[] weights, int[] ids) {
+			double total = 0;
+			for (double w : weights) {
+				total += w;
+			}
+			cumulative = new double[weights.length];
+			double sum = 0;
+			for (int r = 0; r < weights.length; r++) {
+				sum += weights[r];
+				cumulative[r] = sum / total;
+			}
+			cumulative[weights.length - 1] = 1;
+			this.ids = ids;
+		}
+
+		/**
+		 * Creates a Zipf distribution, which picks the id at rank
+		 * <code>r</code>, from 1, with a weight of
+		 * <code>1 / r<sup>skew</sup></code>. The ids are ranked at random.
+		 *
+		 * @param n the number of ids
+		 * @param skew the exponent, 0 to pick evenly
+		 * @param random the source of the order of the ids
+		 * @return the distribution
+		 */
+		static Distribution zipf(int n, double skew, Random random) {
+			double[] weights = new double[n];
+			int[] ids = new int[n];
+			for (int r = 0; r < n; r++) {
+				weights[r] = 1 / StrictMath.pow(r + 1, skew);
+				ids[r] = r + 1;
+			}
+			for (int r = n - 1; r > 0; r--) {
+				int other = random.nextInt(r + 1);
+				int id = ids[r];
+				ids[r] = ids[other];
+				ids[other] = id;
+			}
+			return new Distribution(weights, ids);
+		}
+
+		/**
+		 * Picks an id.
+		 *
+		 * @param random the source of the pick
+		 * @return the id
+		 */
+		int next(Random random) {
+			int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+			rank = rank < 0 ? -rank - 1 : rank + 1;
+			rank = Math.min(rank, cumulative.length - 1);
+			return ids == null ? rank + 1 : ids[rank];
+		}
+	}
+
+	/**
+	 * Writes the rows of a table to its csv file and as inserts to the SQL
+	 * file.
+	 */
+	private final class Output {
+
+		/**
+		 * The type of each column: <code>i</code>, <code>s</code> or
+		 * <code>m</code>.
+		 */
+		final char[] types;
+
+		/**
+		 * The csv file.
+		 */
+		private final Writer csv;
+
+		/**
+		 * The SQL inserts.
+		 */
+		private final PrintWriter sql;
+
+		/**
+		 * The start of each insert, up to its values.
+		 */
+		private final String insert;
+
+		/**
+		 * The rows in the current insert.
+		 */
+		private int batched;
+
+		/**
+		 * Creates the output of a table and writes its header.
+		 *
+		 * @param file the csv file
+		 * @param sql the SQL inserts
+		 * @param name the name of the table
+		 * @param columns each column's name and type
+		 * @throws IOException if the file can't be made
+		 */
+		Output(File file, PrintWriter sql, String name, String[] columns)
+				throws IOException {
+			this.sql = sql;
+			csv = new BufferedWriter(new FileWriter(file));
+			types = new char[columns.length];
+			StringBuilder header = new StringBuilder();
+			for (int c = 0; c < columns.length; c++) {
+				String[] column = columns[c].split(":");
+				types[c] = column[1].charAt(0);
+				header.append(c == 0 ? "" : ",").append(column[0]);
+			}
+			insert = "INSERT INTO " + name + " ("
+					+ header.toString().replace(",", ", ") + ") VALUES\n";
+			csv.write(header.append('\n').toString());
+		}
+
+		/**
+		 * Writes a row.
+		 *
+		 * @param values the value of each column, an Integer or a String,
+		 *            or <code>null</code>
+		 * @throws IOException if it can't be written
+		 */
+		void row(Object... values) throws IOException {
+			StringBuilder line = new StringBuilder();
+			StringBuilder tuple = new StringBuilder(batched == 0 ? insert
+					: ",\n").append('(');
+			for (int c = 0; c < values.length; c++) {
+				Object v = values[c];
+				line.append(c == 0 ? "" : ",");
+				tuple.append(c == 0 ? "" : ", ");
+				if (v == null) {
+					tuple.append("NULL");
+				} else if (types[c] == 's') {
+					line.append(csvField((String) v));
+					tuple.append('\'').append(((String) v).replace("'", "''"))
+							.append('\'');
+				} else if (types[c] == 'm') {
+					int cents = (Integer) v;
+					line.append(cents);
+					tuple.append(String.format(Locale.ROOT, "%d.%02d",
+							cents / 100, cents % 100));
+				} else {
+					line.append(v);
+					tuple.append(v);
+				}
+			}
+			csv.write(line.append('\n').toString());
+			sql.print(tuple.append(')'));
+			if (++batched == batchSize) {
+				endInsert();
+			}
+		}
+
+		/**
+		 * Ends the current insert, if there is one.
+		 */
+		private void endInsert() {
+			if (batched > 0) {
+				sql.println(";");
+				batched = 0;
+			}
+		}
+
+		/**
+		 * Ends the last insert and closes the csv file.
+		 *
+		 * @throws IOException if it can't be written
+		 */
+		void close() throws IOException {
+			endInsert();
+			sql.println();
+			csv.close();
+		}
+
+		/**
+		 * Quotes a String field if it has a comma, quote or line break.
+		 *
+		 * @param s the field
+		 * @return the field as it is written to a csv file
+		 */
+		private String csvField(String s) {
+			if (s.matches("[^,\"\r\n]*")) {
+				return s;
+			}
+			return '"' + s.replace("\"", "\"\"") + '"';
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package parser;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks named on the command line, or all of them, with the
+ * options JMH takes there, always along with the gc profiler, so that each
+ * result comes with the bytes allocated per operation,
+ * <code>gc.alloc.rate.norm</code>, next to its throughput.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public final class Benchmarks {
+
+	/**
+	 * There is nothing to create.
+	 */
+	private Benchmarks() {
+	}
+
+	/**
+	 * Runs the benchmarks.
+	 *
+	 * @param args the JMH command line, such as
+	 *            <code>-p rows=1000 join</code>
+	 * @throws CommandLineOptionException if the command line isn't one
+	 * @throws RunnerException if a benchmark fails
+	 */
+	public static void main(String[] args) throws CommandLineOptionException,
+	RunnerException {
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
@@ -0,0 +1,327 @@
+package parser;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import elements.Table;
+
+/**
+ * Measures the commands of the {@link Database} over tables made up for
+ * each combination of parameters:
+ * <ul>
+ * <li><code>fact</code>, <code>rows</code> rows of a key, a value and a
+ * label, whose keys are spread over a tenth more values than
+ * <code>dim</code> has, so that joins and checks see rows without a
+ * match;</li>
+ * <li><code>dim</code>, a row for each of <code>keys</code> keys, with a
+ * code;</li>
+ * <li><code>small</code>, ten rows to take the product of
+ * <code>fact</code> with.</li>
+ * </ul>
+ * The keys are ints or strings, as <code>keyType</code> says. The data is
+ * made from a fixed seed, so every run measures the same tables.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DatabaseBenchmark {
+
+	/**
+	 * The seed the tables are made from.
+	 */
+	private static final long SEED = 20160401L;
+
+	/**
+	 * The number of rows of <code>fact</code>.
+	 */
+	@Param({"1000", "100000"})
+	public int rows;
+
+	/**
+	 * The number of distinct keys of <code>dim</code>.
+	 */
+	@Param({"10", "1000"})
+	public int keys;
+
+	/**
+	 * The type of the keys, <code>int</code> or <code>string</code>.
+	 */
+	@Param({"int", "string"})
+	public String keyType;
+
+	/**
+	 * The database holding the tables.
+	 */
+	private Database db;
+
+	/**
+	 * The csv file <code>fact</code> was loaded from, which load measures
+	 * loading again.
+	 */
+	private File csv;
+
+	/**
+	 * The file save writes <code>fact</code> to.
+	 */
+	private File saved;
+
+	/**
+	 * The standard output, put back once the benchmarks are done, since
+	 * check prints what it finds.
+	 */
+	private PrintStream out;
+
+	/**
+	 * Makes up the tables and loads them.
+	 *
+	 * @throws Exception if they can't be written or loaded
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		boolean intKeys = keyType.equals("int");
+		Random random = new Random(SEED);
+		db = new Database();
+
+		csv = File.createTempFile("fact", ".csv");
+		PrintWriter fact = new PrintWriter(new FileWriter(csv));
+		fact.println("key,value,label");
+		int spread = keys + Math.max(1, keys / 10);
+		for (int i = 0; i < rows; i++) {
+			fact.println(key(random.nextInt(spread), intKeys) + ","
+					+ random.nextInt(1000) + ",label"
+					+ random.nextInt(100));
+		}
+		fact.close();
+		load("fact", csv, intKeys, true, false);
+
+		File file = File.createTempFile("dim", ".csv");
+		PrintWriter dim = new PrintWriter(new FileWriter(file));
+		dim.println("key,code");
+		for (int k = 0; k < keys; k++) {
+			dim.println(key(k, intKeys) + ",code" + k);
+		}
+		dim.close();
+		load("dim", file, intKeys, false);
+		file.delete();
+
+		file = File.createTempFile("small", ".csv");
+		PrintWriter small = new PrintWriter(new FileWriter(file));
+		small.println("id,name");
+		for (int i = 0; i < 10; i++) {
+			small.println(i + ",name" + i);
+		}
+		small.close();
+		load("small", file, true, false);
+		file.delete();
+
+		saved = File.createTempFile("saved", ".csv");
+		out = System.out;
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		}));
+	}
+
+	/**
+	 * Puts the standard output back and removes the files.
+	 */
+	@TearDown
+	public void tearDown() {
+		System.setOut(out);
+		csv.delete();
+		saved.delete();
+	}
+
+	/**
+	 * Writes a key as a field of a csv file.
+	 *
+	 * @param k the key
+	 * @param intKeys whether keys are ints
+	 * @return the field
+	 */
+	private static String key(int k, boolean intKeys) {
+		return intKeys ? Integer.toString(k) : "key" + k;
+	}
+
+	/**
+	 * Defines a table whose first column is a key, and loads it.
+	 *
+	 * @param name the name of the table
+	 * @param file the csv file to load
+	 * @param intKeys whether its keys are ints
+	 * @param types whether each of the other columns is an int
+	 * @throws Exception if it can't be loaded
+	 */
+	private void load(String name, File file, boolean intKeys,
+			Boolean... types) throws Exception {
+		Boolean[] defn = new Boolean[types.length + 1];
+		defn[0] = intKeys;
+		System.arraycopy(types, 0, defn, 1, types.length);
+		db.add(name, new Table(Arrays.asList(defn)));
+		db.load(true, name, file.getPath());
+	}
+
+	/**
+	 * Loads <code>fact</code> from its csv file.
+	 *
+	 * @return the loaded table
+	 * @throws IOException if the file can't be read
+	 * @throws NoSuchTableException never
+	 */
+	@Benchmark
+	public Table load() throws IOException, NoSuchTableException {
+		db.add("loaded", new Table(Arrays.asList(keyType.equals("int"), true,
+				false)));
+		db.load(true, "loaded", csv.getPath());
+		return db.getTable("loaded");
+	}
+
+	/**
+	 * Saves <code>fact</code> to a csv file.
+	 *
+	 * @return the length of the file
+	 * @throws NoSuchTableException never
+	 */
+	@Benchmark
+	public long save() throws NoSuchTableException {
+		db.save("fact", saved.getPath());
+		return saved.length();
+	}
+
+	/**
+	 * Selects the rows of <code>fact</code> whose value is under 100, a
+	 * tenth of them.
+	 *
+	 * @return the rows
+	 * @throws Exception never
+	 */
+	@Benchmark
+	public Table rows() throws Exception {
+		return db.rows("fact, 1, <, 100");
+	}
+
+	/**
+	 * Selects the value and key columns of <code>fact</code>.
+	 *
+	 * @return the columns
+	 * @throws Exception never
+	 */
+	@Benchmark
+	public Table columns() throws Exception {
+		return db.columns("fact, 1, 0");
+	}
+
+	/**
+	 * Pairs every row of <code>small</code> with every row of
+	 * <code>fact</code>.
+	 *
+	 * @return the pairs
+	 * @throws Exception never
+	 */
+	@Benchmark
+	public Table product() throws Exception {
+		return db.product("small, fact");
+	}
+
+	/**
+	 * Joins <code>fact</code> to <code>dim</code> on their keys.
+	 *
+	 * @return the joined rows
+	 * @throws Exception never
+	 */
+	@Benchmark
+	public Table join() throws Exception {
+		return db.join("fact, dim, 0, 0");
+	}
+
+	/**
+	 * Joins <code>fact</code> to <code>dim</code> on their columns of the
+	 * same name, their keys.
+	 *
+	 * @return the joined rows
+	 * @throws Exception never
+	 */
+	@Benchmark
+	public Table naturalJoin() throws Exception {
+		return db.naturalJoin("fact, dim", false);
+	}
+
+	/**
+	 * Joins <code>fact</code> to <code>dim</code> on their keys, keeping the
+	 * rows of <code>fact</code> without a match.
+	 *
+	 * @return the joined rows
+	 * @throws Exception never
+	 */
+	@Benchmark
+	public Table outerJoin() throws Exception {
+		return db.outerJoin("fact, dim, 0, 0");
+	}
+
+	/**
+	 * Checks that the keys of <code>fact</code> reference those of
+	 * <code>dim</code>, which about a tenth of them don't.
+	 *
+	 * @throws Exception never
+	 */
+	@Benchmark
+	public void check() throws Exception {
+		db.check(new String[] {"fact(0)", "references", "dim(0)"});
+	}
+
+	/**
+	 * Sorts <code>fact</code> by its keys.
+	 *
+	 * @return the sorted copy
+	 * @throws Exception never
+	 */
+	@Benchmark
+	public Table orderBy() throws Exception {
+		return db.orderBy("fact, 0");
+	}
+
+	/**
+	 * Finds the first 100 rows of <code>fact</code> by its keys.
+	 *
+	 * @return the rows
+	 * @throws Exception never
+	 */
+	@Benchmark
+	public Table top() throws Exception {
+		return db.evaluate("top(fact, 0, 100)");
+	}
+}
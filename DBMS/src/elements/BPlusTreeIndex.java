@@ -0,0 +1,426 @@
+package elements;
+
+import java.util.Arrays;
+
+/**
+ * A B+tree over a column of numbers, which finds the rows with a value in a
+ * range by walking only the leaves holding that range.<br/>
+ * <br/>
+ * Each entry of the tree is a value and its row packed into a
+ * <code>long</code>, the value in the high half and the row in the low one,
+ * so entries with equal values are still all different and are ordered by
+ * row. Leaves hold up to {@link #ORDER} entries and are linked in order;
+ * an inner node holds up to {@link #ORDER} separating entries, each the
+ * smallest entry under the child to its right. Empty values are only
+ * counted.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public final class BPlusTreeIndex extends ColumnIndex {
+
+	/**
+	 * The most entries a node holds.
+	 */
+	static final int ORDER = 128;
+
+	/**
+	 * The top node of the tree.
+	 */
+	private Node root;
+
+	/**
+	 * The number of rows with an empty value.
+	 */
+	private int nulls;
+
+	/**
+	 * The separating entry handed up by the last split of a node.
+	 */
+	private long promoted;
+
+	/**
+	 * Builds the tree for the given column, sorting its entries and filling
+	 * the leaves and then every level above them at once.
+	 *
+	 * @param column the column to index
+	 * @throws IllegalArgumentException if the column isn't a number column
+	 */
+	public BPlusTreeIndex(Column column) {
+		if (!(column instanceof IntColumn)) {
+			throw new IllegalArgumentException(
+					"Only number columns can have a B+tree index");
+		}
+		IntColumn ints = (IntColumn) column;
+		long[] sorted = new long[ints.size()];
+		int n = 0;
+		for (int row = 0; row < ints.size(); row++) {
+			if (ints.isNull(row)) {
+				nulls++;
+			} else {
+				sorted[n++] = entry(ints.getInt(row), row);
+			}
+		}
+		Arrays.sort(sorted, 0, n);
+		build(sorted, n);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.ColumnIndex#add(elements.Cell, int)
+	 */
+	@Override
+	public void add(Cell key, int row) {
+		if (key.isNull()) {
+			nulls++;
+			return;
+		}
+		Node split = insert(root, entry(((NumberCell) key).getCell(), row));
+		if (split != null) { //the root was split, so grow a new one
+			Inner newRoot = new Inner();
+			newRoot.children[0] = root;
+			newRoot.children[1] = split;
+			newRoot.keys[0] = promoted;
+			newRoot.count = 1;
+			root = newRoot;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.ColumnIndex#find(boolean, boolean, boolean, elements.Cell)
+	 */
+	@Override
+	public int[] find(boolean equal, boolean less, boolean greater,
+			Cell value) {
+		//a range over empty values is left to the scan, which decides
+		//what comparing them means
+		if (!(value instanceof NumberCell) || value.isNull()
+				|| ((less || greater) && nulls > 0)) {
+			return null;
+		}
+		int v = ((NumberCell) value).getCell();
+
+		//the first entry to look at, and the largest value to keep
+		long from;
+		long max;
+		if (greater) {
+			from = equal ? entry(v, 0) : entry(v, -1);
+			max = Long.MAX_VALUE;
+		} else if (less) {
+			from = Long.MIN_VALUE;
+			max = equal ? v : (long) v - 1;
+		} else {
+			from = entry(v, 0);
+			max = v;
+		}
+
+		Node node = root;
+		while (node instanceof Inner) {
+			Inner inner = (Inner) node;
+			node = inner.children[upperBound(inner.keys, inner.count, from)];
+		}
+		Leaf leaf = (Leaf) node;
+		int at = lowerBound(leaf.entries, leaf.count, from);
+
+		int[] rows = new int[16];
+		int n = 0;
+		collect:
+		for (; leaf != null; leaf = leaf.next, at = 0) {
+			for (; at < leaf.count; at++) {
+				long e = leaf.entries[at];
+				if ((e >> 32) > max) {
+					break collect;
+				}
+				if (n == rows.length) {
+					rows = Arrays.copyOf(rows, n * 2);
+				}
+				rows[n++] = (int) e;
+			}
+		}
+
+		//entries of one value are already in row order, ranges are not
+		if (less || greater) {
+			Arrays.sort(rows, 0, n);
+		}
+		return Arrays.copyOf(rows, n);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.ColumnIndex#memoryBytes()
+	 */
+	@Override
+	public long memoryBytes() {
+		return memoryBytes(root);
+	}
+
+	/**
+	 * Returns about how many bytes a node and everything under it take up,
+	 * counting 16 bytes for each object header and 4 for each reference.
+	 *
+	 * @param node the node to measure
+	 * @return the memory footprint of the subtree
+	 */
+	private static long memoryBytes(Node node) {
+		if (node instanceof Leaf) {
+			return 16 + 4 + 4 + 16 + 8L * ORDER;
+		}
+		Inner inner = (Inner) node;
+		long bytes = 16 + 4 + 16 + 8L * ORDER + 16 + 4L * (ORDER + 1);
+		for (int i = 0; i <= inner.count; i++) {
+			bytes += memoryBytes(inner.children[i]);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the number of levels of this tree, 1 if it is a single leaf.
+	 *
+	 * @return the height of the tree
+	 */
+	int height() {
+		int height = 1;
+		for (Node node = root; node instanceof Inner; height++) {
+			node = ((Inner) node).children[0];
+		}
+		return height;
+	}
+
+	/**
+	 * Fills the tree with sorted entries, spreading them evenly over as few
+	 * leaves as will hold them, and then doing the same with each level of
+	 * inner nodes until one node is left.
+	 *
+	 * @param sorted the entries, in increasing order
+	 * @param n the number of entries
+	 */
+	private void build(long[] sorted, int n) {
+		int count = Math.max(1, (n + ORDER - 1) / ORDER);
+		Node[] level = new Node[count];
+		long[] lows = new long[count];
+		Leaf last = null;
+		for (int i = 0, from = 0; i < count; i++) {
+			int to = (int) ((long) n * (i + 1) / count);
+			Leaf leaf = new Leaf();
+			System.arraycopy(sorted, from, leaf.entries, 0, to - from);
+			leaf.count = to - from;
+			if (last != null) {
+				last.next = leaf;
+			}
+			level[i] = leaf;
+			lows[i] = leaf.count == 0 ? 0 : leaf.entries[0];
+			last = leaf;
+			from = to;
+		}
+
+		while (count > 1) {
+			int parents = (count + ORDER) / (ORDER + 1);
+			Node[] up = new Node[parents];
+			long[] upLows = new long[parents];
+			for (int i = 0, from = 0; i < parents; i++) {
+				int to = (int) ((long) count * (i + 1) / parents);
+				Inner inner = new Inner();
+				for (int c = from; c < to; c++) {
+					inner.children[c - from] = level[c];
+					if (c > from) {
+						inner.keys[c - from - 1] = lows[c];
+					}
+				}
+				inner.count = to - from - 1;
+				up[i] = inner;
+				upLows[i] = lows[from];
+				from = to;
+			}
+			level = up;
+			lows = upLows;
+			count = parents;
+		}
+		root = level[0];
+	}
+
+	/**
+	 * Inserts an entry under the given node.
+	 *
+	 * @param node the node to insert under
+	 * @param e the entry to insert
+	 * @return the new right half of <code>node</code> if it had to be
+	 *         split, with {@link #promoted} set to its smallest entry, or
+	 *         <code>null</code>
+	 */
+	private Node insert(Node node, long e) {
+		if (node instanceof Leaf) {
+			Leaf leaf = (Leaf) node;
+			int at = lowerBound(leaf.entries, leaf.count, e);
+			if (leaf.count < ORDER) {
+				System.arraycopy(leaf.entries, at, leaf.entries, at + 1,
+						leaf.count - at);
+				leaf.entries[at] = e;
+				leaf.count++;
+				return null;
+			}
+
+			//move the upper half to a new leaf, then insert into one half
+			int mid = ORDER / 2;
+			Leaf right = new Leaf();
+			System.arraycopy(leaf.entries, mid, right.entries, 0,
+					ORDER - mid);
+			right.count = ORDER - mid;
+			leaf.count = mid;
+			right.next = leaf.next;
+			leaf.next = right;
+			insert(at <= mid ? leaf : right, e);
+			promoted = right.entries[0];
+			return right;
+		}
+
+		Inner inner = (Inner) node;
+		int child = upperBound(inner.keys, inner.count, e);
+		Node split = insert(inner.children[child], e);
+		if (split == null) {
+			return null;
+		}
+		long key = promoted;
+		if (inner.count < ORDER) {
+			System.arraycopy(inner.keys, child, inner.keys, child + 1,
+					inner.count - child);
+			System.arraycopy(inner.children, child + 1, inner.children,
+					child + 2, inner.count - child);
+			inner.keys[child] = key;
+			inner.children[child + 1] = split;
+			inner.count++;
+			return null;
+		}
+
+		//lay the full node out with the new child, then halve it
+		long[] keys = new long[ORDER + 1];
+		Node[] children = new Node[ORDER + 2];
+		System.arraycopy(inner.keys, 0, keys, 0, child);
+		keys[child] = key;
+		System.arraycopy(inner.keys, child, keys, child + 1, ORDER - child);
+		System.arraycopy(inner.children, 0, children, 0, child + 1);
+		children[child + 1] = split;
+		System.arraycopy(inner.children, child + 1, children, child + 2,
+				ORDER - child);
+
+		int mid = (ORDER + 1) / 2;
+		Inner right = new Inner();
+		System.arraycopy(keys, mid + 1, right.keys, 0, ORDER - mid);
+		System.arraycopy(children, mid + 1, right.children, 0,
+				ORDER + 1 - mid);
+		right.count = ORDER - mid;
+		System.arraycopy(keys, 0, inner.keys, 0, mid);
+		System.arraycopy(children, 0, inner.children, 0, mid + 1);
+		Arrays.fill(inner.children, mid + 1, ORDER + 1, null);
+		inner.count = mid;
+		promoted = keys[mid];
+		return right;
+	}
+
+	/**
+	 * Packs a value and its row into an entry.
+	 *
+	 * @param key the value
+	 * @param row the row of the value
+	 * @return the entry for <code>key</code> at <code>row</code>
+	 */
+	private static long entry(int key, int row) {
+		return ((long) key << 32) | (row & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the index of the first of the sorted entries that is at least
+	 * <code>e</code>.
+	 *
+	 * @param entries the sorted entries
+	 * @param count the number of entries
+	 * @param e the entry to look for
+	 * @return the index of the first entry not less than <code>e</code>, or
+	 *         <code>count</code>
+	 */
+	private static int lowerBound(long[] entries, int count, long e) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (entries[mid] < e) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the number of the sorted entries that are at most
+	 * <code>e</code>, which is the index of the child of an inner node that
+	 * <code>e</code> belongs under.
+	 *
+	 * @param entries the sorted entries
+	 * @param count the number of entries
+	 * @param e the entry to look for
+	 * @return the index of the first entry greater than <code>e</code>, or
+	 *         <code>count</code>
+	 */
+	private static int upperBound(long[] entries, int count, long e) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (entries[mid] <= e) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * A node of the tree.
+	 */
+	private abstract static class Node {
+
+		/**
+		 * The number of entries in this node.
+		 */
+		int count;
+	}
+
+	/**
+	 * A leaf, holding entries.
+	 */
+	private static final class Leaf extends Node {
+
+		/**
+		 * The entries of this leaf, in increasing order.
+		 */
+		final long[] entries = new long[ORDER];
+
+		/**
+		 * The leaf after this one, or <code>null</code>.
+		 */
+		Leaf next;
+	}
+
+	/**
+	 * An inner node, holding one more child than separating entries.
+	 */
+	private static final class Inner extends Node {
+
+		/**
+		 * The smallest entry under each child but the first.
+		 */
+		final long[] keys = new long[ORDER];
+
+		/**
+		 * The children of this node.
+		 */
+		final Node[] children = new Node[ORDER + 1];
+	}
+}
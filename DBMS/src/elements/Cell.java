@@ -43,6 +43,13 @@ public abstract class Cell implements Comparable<Cell>, Cloneable {
         return this instanceof NumberCell;
     }
 
+    /**
+     * Returns whether or not this Cell is empty, i.e. holds no value at all.
+     *
+     * @return whether or not this Cell is empty.
+     */
+    public abstract boolean isNull();
+
     /*(non-Javadoc)
      * @see java.lang.Comparable#compareTo(java.lang.Object)
      */
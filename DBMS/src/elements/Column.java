@@ -0,0 +1,187 @@
+package elements;
+
+/**
+ * A single column of a {@link Table}, storing its values directly instead of
+ * as one {@link Cell} per Row. Subclasses hold the values of a NumberCell or a
+ * StringCell column, and can hand them out as Cells when a {@link Row} view
+ * is needed.<br/>
+ * <br/>
+ * Every row of a column is either a value or <code>null</code>, which is what
+ * the empty cells of an outer join hold.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public abstract class Column implements Cloneable {
+
+	/**
+	 * The number of values in this column.
+	 */
+	protected int size;
+
+	/**
+	 * Creates an empty column of the given type.
+	 *
+	 * @param isNumber <code>true</code> for a column of NumberCells,
+	 *            <code>false</code> for one of StringCells
+	 * @param capacity the number of values to make room for
+	 * @return the new column
+	 */
+	public static Column create(boolean isNumber, int capacity) {
+		return isNumber ? new IntColumn(capacity) : new StringColumn(capacity);
+	}
+
+	/**
+	 * Returns the number of values in this column.
+	 *
+	 * @return the number of values in this column
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns whether or not this column holds NumberCells.
+	 *
+	 * @return <code>true</code> if this is a column of NumberCells
+	 */
+	public abstract boolean isNumberColumn();
+
+	/**
+	 * Returns whether or not the value at the given row is empty.
+	 *
+	 * @param row the row to look at
+	 * @return <code>true</code> if there's no value at <code>row</code>
+	 */
+	public abstract boolean isNull(int row);
+
+	/**
+	 * Creates a {@link Cell} holding the value at the given row.
+	 *
+	 * @param row the row to look at
+	 * @return a new Cell with the value at <code>row</code>
+	 */
+	public abstract Cell getCell(int row);
+
+	/**
+	 * Adds the value of the given Cell to the end of this column.
+	 *
+	 * @param c the Cell to add, of the same type as this column
+	 */
+	public abstract void add(Cell c);
+
+	/**
+	 * Adds every value of the given column, in order, to the end of this
+	 * one.
+	 *
+	 * @param other a column of the same type as this one
+	 */
+	public void addAll(Column other) {
+		for (int i = 0; i < other.size; i++) {
+			add(other.getCell(i));
+		}
+	}
+
+	/**
+	 * Returns a hash code for the value at the given row. Rows that
+	 * {@link #matches(int, Column, int)} each other have the same hash code.
+	 *
+	 * @param row the row to hash
+	 * @return the hash code of the value at <code>row</code>
+	 */
+	public abstract int hash(int row);
+
+	/**
+	 * Returns whether or not the value at <code>row</code> is equal to the
+	 * value at <code>otherRow</code> of <code>other</code>, in the sense of
+	 * {@link Cell#equals(Object)}.
+	 *
+	 * @param row the row of this column
+	 * @param other the column to compare with
+	 * @param otherRow the row of <code>other</code>
+	 * @return whether or not the two values are equal
+	 */
+	public abstract boolean matches(int row, Column other, int otherRow);
+
+	/**
+	 * Returns whether or not the value at <code>row</code> is equal to the
+	 * given Cell, in the sense of {@link Cell#equals(Object)}.
+	 *
+	 * @param row the row of this column
+	 * @param c the Cell to compare with
+	 * @return whether or not the value is equal to <code>c</code>
+	 */
+	public abstract boolean matches(int row, Cell c);
+
+	/**
+	 * Compares the value at <code>row</code> to the given Cell, in the sense
+	 * of {@link Cell#compareTo(Cell)}.
+	 *
+	 * @param row the row of this column
+	 * @param c the Cell to compare with
+	 * @return a negative number, zero or a positive number as the value is
+	 *         less than, equal to or greater than <code>c</code>
+	 */
+	public abstract int compare(int row, Cell c);
+
+	/**
+	 * Compares the values at two rows of this column, in the sense of
+	 * {@link Cell#compareTo(Cell)}, without making Cells of them. An empty
+	 * value of a NumberCell column comes before any number, and one of a
+	 * StringCell column is compared as <code>""</code>.
+	 *
+	 * @param row a row of this column
+	 * @param otherRow another row of this column
+	 * @return a negative number, zero or a positive number as the value at
+	 *         <code>row</code> is less than, equal to or greater than the
+	 *         one at <code>otherRow</code>
+	 */
+	public abstract int compareRows(int row, int otherRow);
+
+	/**
+	 * Returns a column with the same values as this one, laid out so it can
+	 * be matched against <code>other</code> as cheaply as possible. By
+	 * default that is this column itself.
+	 *
+	 * @param other the column this one is going to be matched against
+	 * @return a column equal to this one
+	 */
+	public Column alignTo(Column other) {
+		return this;
+	}
+
+	/**
+	 * Creates a new column holding the values at the given rows, in the given
+	 * order. A negative row stands for an empty value.
+	 *
+	 * @param rows the rows to take the values from
+	 * @param count how many entries of <code>rows</code> to use
+	 * @return the new column
+	 */
+	public abstract Column select(int[] rows, int count);
+
+	/**
+	 * Copies this column.
+	 *
+	 * @return a copy of this column, which can be added to independently
+	 */
+	@Override
+	public abstract Column clone();
+
+	/**
+	 * Returns a new capacity, at least <code>needed</code>, for an array that
+	 * is currently <code>capacity</code> long.
+	 *
+	 * @param capacity the current length of the array
+	 * @param needed the smallest length that will do
+	 * @return the new length of the array
+	 */
+	static int grow(int capacity, int needed) {
+		int newCapacity = capacity + (capacity >> 1) + 1;
+		return newCapacity < needed ? needed : newCapacity;
+	}
+}
@@ -0,0 +1,48 @@
+package elements;
+
+/**
+ * An index over one column of a {@link Table}, which finds the rows whose
+ * value meets a condition without looking at every row. An index is kept
+ * by its Table, which adds every Row appended to it, so it always covers
+ * the whole column.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public abstract class ColumnIndex {
+
+	/**
+	 * Adds the value of a row appended to the indexed column.
+	 *
+	 * @param key the value of the new row
+	 * @param row the index of the new row
+	 */
+	public abstract void add(Cell key, int row);
+
+	/**
+	 * Finds the rows whose value compares to <code>value</code> as a rows
+	 * command would keep them.
+	 *
+	 * @param equal whether values equal to <code>value</code> are kept
+	 * @param less whether values less than <code>value</code> are kept
+	 * @param greater whether values greater than <code>value</code> are kept
+	 * @param value the value to compare with
+	 * @return the kept rows in increasing order, or <code>null</code> if this
+	 *         index can't answer the condition and the column has to be
+	 *         scanned
+	 */
+	public abstract int[] find(boolean equal, boolean less, boolean greater,
+			Cell value);
+
+	/**
+	 * Returns about how many bytes this index takes up, leaving out the
+	 * column it indexes.
+	 *
+	 * @return the memory footprint of this index in bytes
+	 */
+	public abstract long memoryBytes();
+}
@@ -0,0 +1,333 @@
+package elements;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Summarises the values of a {@link Column} for estimating how many rows a
+ * command will produce, without looking at the rows themselves. It keeps the
+ * number of rows and of empty values, the smallest and largest value, an
+ * approximate number of distinct values and, for a column of numbers, an
+ * equi-depth histogram.<br/>
+ * <br/>
+ * The statistics are kept up to date as the column grows: each call to
+ * {@link #update(Column)} only reads the rows added since the one before.
+ * The distinct values are counted exactly while there are only a few, by
+ * their hashes, and then with a HyperLogLog sketch, to within a few
+ * percent. The histogram is built from a fixed size random sample
+ * of the values, so neither grows with the column.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public final class ColumnStatistics {
+
+	/**
+	 * The number of buckets of the histogram.
+	 */
+	public static final int BUCKETS = 16;
+
+	/**
+	 * The number of bits of a hash that pick its register of the sketch.
+	 */
+	private static final int REGISTER_BITS = 10;
+
+	/**
+	 * The most values kept in the sample the histogram is built from.
+	 */
+	private static final int SAMPLE_SIZE = 1024;
+
+	/**
+	 * The most distinct hashes counted exactly.
+	 */
+	private static final int EXACT_LIMIT = 256;
+
+	/**
+	 * The number of rows read so far.
+	 */
+	private int rows;
+
+	/**
+	 * The number of empty values read so far.
+	 */
+	private int nulls;
+
+	/**
+	 * The smallest value read so far, or <code>null</code> if there is none.
+	 */
+	private Cell min;
+
+	/**
+	 * The largest value read so far, or <code>null</code> if there is none.
+	 */
+	private Cell max;
+
+	/**
+	 * The HyperLogLog registers: the most leading zeros plus one seen among
+	 * the hashes that pick each register.
+	 */
+	private final byte[] registers = new byte[1 << REGISTER_BITS];
+
+	/**
+	 * The distinct hashes seen so far, as an open addressing hash set with 0
+	 * marking a free place, or <code>null</code> once there are too many to
+	 * count exactly.
+	 */
+	private int[] exact = new int[EXACT_LIMIT * 2];
+
+	/**
+	 * The number of hashes in {@link #exact}.
+	 */
+	private int exactCount;
+
+	/**
+	 * A uniform sample of the numbers read so far, or <code>null</code> for
+	 * a column of Strings.
+	 */
+	private int[] sample;
+
+	/**
+	 * The number of values in {@link #sample}.
+	 */
+	private int sampled;
+
+	/**
+	 * The number of numbers offered to the sample so far.
+	 */
+	private int offered;
+
+	/**
+	 * Picks which values replace ones in the sample, seeded so that the
+	 * same column always gives the same statistics.
+	 */
+	private final Random random = new Random(SAMPLE_SIZE);
+
+	/**
+	 * The bounds of the histogram buckets, or <code>null</code> if they
+	 * have to be worked out again.
+	 */
+	private int[] histogram;
+
+	/**
+	 * Reads the rows of the given column that have been added since the
+	 * last update.
+	 *
+	 * @param column the column these statistics are of, which may only have
+	 *            grown since the last update
+	 */
+	public void update(Column column) {
+		if (sample == null && column.isNumberColumn()) {
+			sample = new int[SAMPLE_SIZE];
+		}
+		IntColumn numbers = column instanceof IntColumn
+				? (IntColumn) column : null;
+		for (int row = rows; row < column.size(); row++) {
+			if (column.isNull(row)) {
+				nulls++;
+				continue;
+			}
+			if (min == null || column.compare(row, min) < 0) {
+				min = column.getCell(row);
+			}
+			if (max == null || column.compare(row, max) > 0) {
+				max = column.getCell(row);
+			}
+			addHash(column.hash(row));
+			if (sample != null) {
+				sample(numbers != null ? numbers.getInt(row)
+						: ((NumberCell) column.getCell(row)).getCell());
+			}
+		}
+		rows = column.size();
+	}
+
+	/**
+	 * Adds a hash to the sketch of the distinct values.
+	 *
+	 * @param hash the hash of a value
+	 */
+	private void addHash(int hash) {
+		//spread the bits, since a number hashes to itself
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+
+		if (exact != null) {
+			addExact(hash == 0 ? 1 : hash);
+		}
+		int register = hash >>> (32 - REGISTER_BITS);
+		int rank = Integer.numberOfLeadingZeros(
+				(hash << REGISTER_BITS) | (1 << (REGISTER_BITS - 1))) + 1;
+		if (rank > registers[register]) {
+			registers[register] = (byte) rank;
+		}
+	}
+
+	/**
+	 * Adds a hash to the set of distinct hashes, giving the set up if it
+	 * grows too big.
+	 *
+	 * @param hash the spread hash of a value, which isn't 0
+	 */
+	private void addExact(int hash) {
+		int mask = exact.length - 1;
+		int i = hash & mask;
+		while (exact[i] != 0) {
+			if (exact[i] == hash) {
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		if (exactCount == EXACT_LIMIT) {
+			exact = null;
+			return;
+		}
+		exact[i] = hash;
+		exactCount++;
+	}
+
+	/**
+	 * Adds a number to the sample, by reservoir sampling.
+	 *
+	 * @param value the number
+	 */
+	private void sample(int value) {
+		offered++;
+		if (sampled < SAMPLE_SIZE) {
+			sample[sampled++] = value;
+		} else {
+			int replaced = random.nextInt(offered);
+			if (replaced < SAMPLE_SIZE) {
+				sample[replaced] = value;
+			}
+		}
+		histogram = null;
+	}
+
+	/**
+	 * Returns the number of rows of the column.
+	 *
+	 * @return the number of rows read
+	 */
+	public int getRowCount() {
+		return rows;
+	}
+
+	/**
+	 * Returns the number of empty values of the column.
+	 *
+	 * @return the number of empty values read
+	 */
+	public int getNullCount() {
+		return nulls;
+	}
+
+	/**
+	 * Returns the smallest value of the column.
+	 *
+	 * @return the smallest value, or <code>null</code> if every value is
+	 *         empty
+	 */
+	public Cell getMin() {
+		return min;
+	}
+
+	/**
+	 * Returns the largest value of the column.
+	 *
+	 * @return the largest value, or <code>null</code> if every value is
+	 *         empty
+	 */
+	public Cell getMax() {
+		return max;
+	}
+
+	/**
+	 * Estimates the number of distinct values of the column, not counting
+	 * the empty value.
+	 *
+	 * @return the approximate number of distinct values, which is never
+	 *         more than the number of values that aren't empty
+	 */
+	public int getDistinctCount() {
+		if (exact != null) {
+			return exactCount;
+		}
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte r : registers) {
+			sum += 1.0 / (1L << r);
+			if (r == 0) {
+				zeros++;
+			}
+		}
+		double estimate = 0.7213 / (1 + 1.079 / m) * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0) { //few values: linear counting
+			estimate = m * Math.log((double) m / zeros);
+		}
+		int values = rows - nulls;
+		return (int) Math.min(Math.max(Math.round(estimate),
+				values > 0 ? 1 : 0), values);
+	}
+
+	/**
+	 * Returns the bounds of an equi-depth histogram of the column: bucket
+	 * <code>k</code> runs from bound <code>k</code> to bound
+	 * <code>k + 1</code>, and each holds about as many values as the next.
+	 *
+	 * @return {@link #BUCKETS} + 1 ascending bounds, the first and last
+	 *         being the smallest and largest value sampled, or
+	 *         <code>null</code> for a column of Strings or with no numbers
+	 */
+	public int[] getHistogram() {
+		if (sample == null || sampled == 0) {
+			return null;
+		}
+		if (histogram == null) {
+			int[] sorted = Arrays.copyOf(sample, sampled);
+			Arrays.sort(sorted);
+			histogram = new int[BUCKETS + 1];
+			for (int k = 0; k <= BUCKETS; k++) {
+				histogram[k] = sorted[(int) ((long) k * (sampled - 1)
+						/ BUCKETS)];
+			}
+		}
+		return histogram.clone();
+	}
+
+	/**
+	 * Estimates the fraction of the values that aren't empty which are
+	 * smaller than a number, from the histogram, assuming the values of
+	 * each bucket are spread evenly over it.
+	 *
+	 * @param value the number
+	 * @return the approximate fraction of the values below
+	 *         <code>value</code>, or -1 if the column has no histogram
+	 */
+	public double fractionBelow(int value) {
+		int[] bounds = getHistogram();
+		if (bounds == null) {
+			return -1;
+		}
+		if (value <= bounds[0]) {
+			return 0;
+		}
+		if (value > bounds[BUCKETS]) {
+			return 1;
+		}
+		int k = 0;
+		while (k < BUCKETS - 1 && value > bounds[k + 1]) {
+			k++;
+		}
+		double width = (double) bounds[k + 1] - bounds[k];
+		double within = width == 0 ? 1 : (value - bounds[k]) / width;
+		return (k + within) / BUCKETS;
+	}
+}
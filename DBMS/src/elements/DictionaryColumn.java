@@ -0,0 +1,381 @@
+package elements;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Column} of StringCells that stores each value as an
+ * <code>int</code> code into a {@link StringDictionary}, so a column with few
+ * distinct values takes about four bytes a row, and two values of columns
+ * sharing a dictionary are equal exactly when their codes are.<br/>
+ * <br/>
+ * An empty value has the code -1. A column that has been recoded to another
+ * column's dictionary, by {@link #alignTo(Column)}, gives the values that are
+ * missing from that dictionary the code <code>-2 - c</code>, where
+ * <code>c</code> is their code in the original one.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public final class DictionaryColumn extends Column {
+
+	/**
+	 * The code of an empty value.
+	 */
+	public static final int NULL = -1;
+
+	/**
+	 * The dictionary of the codes of this column.
+	 */
+	private final StringDictionary dictionary;
+
+	/**
+	 * The dictionary of the values missing from <code>dictionary</code>, or
+	 * <code>null</code> if there are none.
+	 */
+	private final StringDictionary missing;
+
+	/**
+	 * The code of the value at each row.
+	 */
+	private int[] codes;
+
+	/**
+	 * Creates an empty column with a new dictionary, and room for
+	 * <code>capacity</code> values.
+	 *
+	 * @param capacity the number of values to make room for
+	 */
+	public DictionaryColumn(int capacity) {
+		this(new StringDictionary(), null, new int[capacity]);
+	}
+
+	/**
+	 * Creates a column out of the given codes, which are used as they are
+	 * rather than copied.
+	 *
+	 * @param dictionary the dictionary of the codes
+	 * @param codes the codes of the values, {@link #NULL} where empty
+	 * @param size the number of values in the column
+	 */
+	public DictionaryColumn(StringDictionary dictionary, int[] codes,
+			int size) {
+		this(dictionary, null, codes);
+		this.size = size;
+	}
+
+	/**
+	 * Creates a column out of the given codes.
+	 *
+	 * @param dictionary the dictionary of the codes
+	 * @param missing the dictionary of the codes below -1, if any
+	 * @param codes the codes of the values
+	 */
+	private DictionaryColumn(StringDictionary dictionary,
+			StringDictionary missing, int[] codes) {
+		this.dictionary = dictionary;
+		this.missing = missing;
+		this.codes = codes;
+	}
+
+	/**
+	 * Returns the dictionary this column's codes refer to.
+	 *
+	 * @return the dictionary of this column
+	 */
+	public StringDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Returns whether or not every value of this column is in its
+	 * dictionary, which is only not the case for a column made by
+	 * {@link #alignTo(Column)}.
+	 *
+	 * @return <code>true</code> if every code is {@link #NULL} or a code of
+	 *         the dictionary
+	 */
+	public boolean isSelfContained() {
+		return missing == null;
+	}
+
+	/**
+	 * Returns the code of the value at the given row.
+	 *
+	 * @param row the row to look at
+	 * @return the code of the value at <code>row</code>
+	 */
+	public int getCode(int row) {
+		return codes[row];
+	}
+
+	/**
+	 * Returns the value at the given row.
+	 *
+	 * @param row the row to look at
+	 * @return the value at <code>row</code>, or <code>null</code> if empty
+	 */
+	public String getString(int row) {
+		int code = codes[row];
+		if (code >= 0) {
+			return dictionary.get(code);
+		}
+		return code == NULL ? null : missing.get(-2 - code);
+	}
+
+	/**
+	 * Adds a value to the end of this column, adding it to the dictionary if
+	 * need be.
+	 *
+	 * @param value the value to add, <code>null</code> for an empty one
+	 */
+	public void addString(String value) {
+		addCode(value == null ? NULL : dictionary.intern(value));
+	}
+
+	/**
+	 * Adds a value to the end of this column by its code.
+	 *
+	 * @param code a code of this column's dictionary, or {@link #NULL}
+	 */
+	public void addCode(int code) {
+		if (size == codes.length) {
+			codes = Arrays.copyOf(codes, grow(codes.length, size + 1));
+		}
+		codes[size++] = code;
+	}
+
+	/**
+	 * Copies this column into a plain {@link StringColumn}, for when there
+	 * are too many distinct values for the dictionary to pay off.
+	 *
+	 * @return a StringColumn with the same values
+	 */
+	public StringColumn decode() {
+		StringColumn decoded = new StringColumn(size);
+		for (int i = 0; i < size; i++) {
+			decoded.addString(getString(i));
+		}
+		return decoded;
+	}
+
+	/**
+	 * Returns this column with its codes translated to the dictionary of
+	 * <code>other</code>, if that is a DictionaryColumn with a different
+	 * dictionary. Each distinct value is looked up only once, and
+	 * {@link #matches(int, Column, int)} on the result compares codes.
+	 *
+	 * @param other the column this one is going to be matched against
+	 * @return a column equal to this one, sharing <code>other</code>'s
+	 *         dictionary if possible
+	 */
+	@Override
+	public Column alignTo(Column other) {
+		if (!(other instanceof DictionaryColumn) || missing != null) {
+			return this;
+		}
+		StringDictionary target = ((DictionaryColumn) other).dictionary;
+		if (target == dictionary) {
+			return this;
+		}
+
+		int[] translation = new int[dictionary.size()];
+		for (int code = 0; code < translation.length; code++) {
+			int translated = target.lookup(dictionary.get(code));
+			translation[code] = translated >= 0 ? translated : -2 - code;
+		}
+		int[] translatedCodes = new int[size];
+		for (int i = 0; i < size; i++) {
+			translatedCodes[i] = codes[i] == NULL
+					? NULL : translation[codes[i]];
+		}
+		DictionaryColumn aligned = new DictionaryColumn(target, dictionary,
+				translatedCodes);
+		aligned.size = size;
+		return aligned;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#isNumberColumn()
+	 */
+	@Override
+	public boolean isNumberColumn() {
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#isNull(int)
+	 */
+	@Override
+	public boolean isNull(int row) {
+		return codes[row] == NULL;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#getCell(int)
+	 */
+	@Override
+	public StringCell getCell(int row) {
+		return new StringCell(getString(row));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#add(elements.Cell)
+	 */
+	@Override
+	public void add(Cell c) {
+		addString(((StringCell) c).getCell());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#addAll(elements.Column)
+	 */
+	@Override
+	public void addAll(Column other) {
+		if (!(other instanceof DictionaryColumn)) {
+			super.addAll(other);
+			return;
+		}
+		DictionaryColumn o = (DictionaryColumn) other;
+		if (size + o.size > codes.length) {
+			codes = Arrays.copyOf(codes, grow(codes.length, size + o.size));
+		}
+		if (o.dictionary == dictionary && o.missing == null) {
+			System.arraycopy(o.codes, 0, codes, size, o.size);
+			size += o.size;
+			return;
+		}
+
+		//intern each distinct value of other once, then copy the codes over
+		int[] translation = new int[o.dictionary.size()];
+		for (int code = 0; code < translation.length; code++) {
+			translation[code] = dictionary.intern(o.dictionary.get(code));
+		}
+		for (int i = 0; i < o.size; i++) {
+			int code = o.codes[i];
+			codes[size++] = code >= 0 ? translation[code]
+					: code == NULL ? NULL
+					: dictionary.intern(o.getString(i));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#hash(int)
+	 */
+	@Override
+	public int hash(int row) {
+		int code = codes[row];
+		if (code >= 0) {
+			return dictionary.hash(code);
+		}
+		return code == NULL ? 0 : missing.hash(-2 - code);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#matches(int, elements.Column, int)
+	 */
+	@Override
+	public boolean matches(int row, Column other, int otherRow) {
+		if (other instanceof DictionaryColumn) {
+			DictionaryColumn o = (DictionaryColumn) other;
+			int code = codes[row];
+			int otherCode = o.codes[otherRow];
+			if (o.dictionary == dictionary && code >= NULL
+					&& otherCode >= NULL) {
+				return code == otherCode;
+			}
+			return equal(getString(row), o.getString(otherRow));
+		}
+		if (other instanceof StringColumn) {
+			return equal(getString(row),
+					((StringColumn) other).getString(otherRow));
+		}
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#matches(int, elements.Cell)
+	 */
+	@Override
+	public boolean matches(int row, Cell c) {
+		return c instanceof StringCell
+				&& equal(getString(row), ((StringCell) c).getCell());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#compare(int, elements.Cell)
+	 */
+	@Override
+	public int compare(int row, Cell c) {
+		//a StringCell is always compared as a String, empty ones as ""
+		String value = getString(row);
+		return (value == null ? "" : value).compareTo(c.toString());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#compareRows(int, int)
+	 */
+	@Override
+	public int compareRows(int row, int otherRow) {
+		if (codes[row] == codes[otherRow]) {
+			return 0; //the same value, or both empty
+		}
+		String value = getString(row);
+		String other = getString(otherRow);
+		return (value == null ? "" : value).compareTo(
+				other == null ? "" : other);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#select(int[], int)
+	 */
+	@Override
+	public DictionaryColumn select(int[] rows, int count) {
+		int[] selectedCodes = new int[count];
+		for (int i = 0; i < count; i++) {
+			selectedCodes[i] = rows[i] < 0 ? NULL : codes[rows[i]];
+		}
+		DictionaryColumn selected = new DictionaryColumn(dictionary, missing,
+				selectedCodes);
+		selected.size = count;
+		return selected;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#clone()
+	 */
+	@Override
+	public DictionaryColumn clone() {
+		//the dictionary only grows, so it can be shared with the copy
+		DictionaryColumn copy = new DictionaryColumn(dictionary, missing,
+				Arrays.copyOf(codes, size));
+		copy.size = size;
+		return copy;
+	}
+
+	/**
+	 * Returns whether or not two possibly empty values are equal.
+	 *
+	 * @param s a value, or <code>null</code>
+	 * @param o another value, or <code>null</code>
+	 * @return whether or not <code>s</code> and <code>o</code> are equal
+	 */
+	private static boolean equal(String s, String o) {
+		return s == null ? o == null : s.equals(o);
+	}
+}
@@ -0,0 +1,238 @@
+package elements;
+
+import java.util.Arrays;
+
+/**
+ * A hash table over a column of any type, which finds the rows equal to a
+ * value by looking at only the rows with the same hash. Rows are chained
+ * through primitive arrays and every chain lists its rows in increasing
+ * order, so the rows equal to a value come out in table order.<br/>
+ * <br/>
+ * Besides rows commands comparing with <code>==</code>, a HashIndex can be
+ * probed row by row with the key column of another table, which is how a
+ * join uses an index that is already built instead of hashing a table.
+ * The indexed column is shared with its table until a row is added, when
+ * the index takes a copy of it to add to.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public final class HashIndex extends ColumnIndex {
+
+	/**
+	 * The indexed column.
+	 */
+	private Column keys;
+
+	/**
+	 * Whether or not <code>keys</code> is this index's own copy.
+	 */
+	private boolean ownsKeys;
+
+	/**
+	 * The first row of each bucket, or -1 if the bucket is empty.
+	 */
+	private int[] heads;
+
+	/**
+	 * The last row of each bucket, or -1 if the bucket is empty.
+	 */
+	private int[] tails;
+
+	/**
+	 * The row after each row in its bucket, or -1 at the end of the bucket.
+	 */
+	private int[] next;
+
+	/**
+	 * The hash of each row's value.
+	 */
+	private int[] hashes;
+
+	/**
+	 * The number of rows in this index.
+	 */
+	private int size;
+
+	/**
+	 * Hashes every row of the given column.
+	 *
+	 * @param column the column to index
+	 */
+	public HashIndex(Column column) {
+		keys = column;
+		size = column.size();
+		next = new int[Math.max(size, 16)];
+		hashes = new int[next.length];
+		for (int row = 0; row < size; row++) {
+			hashes[row] = hash(column.hash(row));
+		}
+		rehash(Integer.highestOneBit(Math.max(size, 8) * 2 - 1) << 1);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.ColumnIndex#add(elements.Cell, int)
+	 */
+	@Override
+	public void add(Cell key, int row) {
+		if (!ownsKeys) { //the table's column mustn't be added to
+			keys = keys.clone();
+			ownsKeys = true;
+		}
+		keys.add(key);
+		if (size == next.length) {
+			next = Arrays.copyOf(next, Column.grow(next.length, size + 1));
+			hashes = Arrays.copyOf(hashes, next.length);
+		}
+		int h = hash(keys.hash(row));
+		hashes[row] = h;
+		next[row] = -1;
+		int bucket = h & (heads.length - 1);
+		if (heads[bucket] < 0) {
+			heads[bucket] = row;
+		} else {
+			next[tails[bucket]] = row;
+		}
+		tails[bucket] = row;
+		size++;
+		if (size > heads.length) {
+			rehash(heads.length * 2);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.ColumnIndex#find(boolean, boolean, boolean, elements.Cell)
+	 */
+	@Override
+	public int[] find(boolean equal, boolean less, boolean greater,
+			Cell value) {
+		//only equality can be hashed, and only with a value of the same type
+		if (!equal || less || greater
+				|| value.isNumberCell() != keys.isNumberColumn()) {
+			return null;
+		}
+		Column probe = Column.create(keys.isNumberColumn(), 1);
+		probe.add(value);
+		probe = align(probe);
+
+		int[] rows = new int[16];
+		int n = 0;
+		for (int row = first(probe, 0); row >= 0; row = next(row, probe, 0)) {
+			if (n == rows.length) {
+				rows = Arrays.copyOf(rows, n * 2);
+			}
+			rows[n++] = row;
+		}
+		return Arrays.copyOf(rows, n);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.ColumnIndex#memoryBytes()
+	 */
+	@Override
+	public long memoryBytes() {
+		long bytes = 4L * (heads.length + tails.length + next.length
+				+ hashes.length);
+		//a copied column is counted at about four bytes a row
+		return ownsKeys ? bytes + 4L * keys.size() : bytes;
+	}
+
+	/**
+	 * Returns the given column made ready to probe this index with, by
+	 * {@link Column#alignTo(Column)}, so that dictionary encoded values are
+	 * matched by code.
+	 *
+	 * @param probe the key column of the probing table
+	 * @return the column to pass to {@link #first(Column, int)}
+	 */
+	public Column align(Column probe) {
+		return probe.alignTo(keys);
+	}
+
+	/**
+	 * Finds the first indexed row whose value matches the value at
+	 * <code>row</code> of the <code>probe</code> column.
+	 *
+	 * @param probe the key column of the probing table
+	 * @param row the probing row
+	 * @return the first matching row, or -1 if there is none
+	 */
+	public int first(Column probe, int row) {
+		int h = hash(probe.hash(row));
+		return scan(heads[h & (heads.length - 1)], h, probe, row);
+	}
+
+	/**
+	 * Finds the next indexed row, after <code>match</code>, whose value
+	 * matches the value at <code>row</code> of the <code>probe</code>
+	 * column.
+	 *
+	 * @param match the last match found
+	 * @param probe the key column of the probing table
+	 * @param row the probing row
+	 * @return the next matching row, or -1 if there is none
+	 */
+	public int next(int match, Column probe, int row) {
+		return scan(next[match], hashes[match], probe, row);
+	}
+
+	/**
+	 * Walks a bucket from <code>candidate</code> on, until a row matching
+	 * the probing row is found.
+	 *
+	 * @param candidate the first row to try
+	 * @param h the hash of the probing value
+	 * @param probe the key column of the probing table
+	 * @param row the probing row
+	 * @return the first matching row, or -1 if there is none
+	 */
+	private int scan(int candidate, int h, Column probe, int row) {
+		while (candidate >= 0) {
+			if (hashes[candidate] == h
+					&& keys.matches(candidate, probe, row)) {
+				return candidate;
+			}
+			candidate = next[candidate];
+		}
+		return -1;
+	}
+
+	/**
+	 * Chains every row again into the given number of buckets, going
+	 * backwards so that every bucket ends up in increasing order.
+	 *
+	 * @param buckets the number of buckets, a power of two
+	 */
+	private void rehash(int buckets) {
+		heads = new int[buckets];
+		tails = new int[buckets];
+		Arrays.fill(heads, -1);
+		int mask = buckets - 1;
+		for (int row = size - 1; row >= 0; row--) {
+			int bucket = hashes[row] & mask;
+			if (heads[bucket] < 0) {
+				tails[bucket] = row;
+			}
+			next[row] = heads[bucket];
+			heads[bucket] = row;
+		}
+	}
+
+	/**
+	 * Spreads the high bits of a column's hash over the low ones, which
+	 * pick the bucket.
+	 *
+	 * @param h the hash of a value
+	 * @return the spread hash
+	 */
+	private static int hash(int h) {
+		return h ^ (h >>> 16);
+	}
+}
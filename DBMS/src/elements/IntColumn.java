@@ -0,0 +1,256 @@
+package elements;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Column} of NumberCells, storing its values in an <code>int</code>
+ * array and its empty values in a bitmap next to it.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public final class IntColumn extends Column {
+
+	/**
+	 * The values of this column; undefined where the value is empty.
+	 */
+	private int[] values;
+
+	/**
+	 * One bit per row, set where the value is empty.
+	 */
+	private long[] nulls;
+
+	/**
+	 * Creates an empty column with room for <code>capacity</code> values.
+	 *
+	 * @param capacity the number of values to make room for
+	 */
+	public IntColumn(int capacity) {
+		values = new int[capacity];
+		nulls = new long[(capacity + 63) >>> 6];
+	}
+
+	/**
+	 * Creates a column out of the given arrays, which are used as they are
+	 * rather than copied.
+	 *
+	 * @param values the values of the column, undefined where empty
+	 * @param nulls one bit per row, set where the value is empty, with room
+	 *            for at least <code>values.length</code> bits
+	 * @param size the number of values in the column
+	 */
+	public IntColumn(int[] values, long[] nulls, int size) {
+		this.values = values;
+		this.nulls = nulls;
+		this.size = size;
+	}
+
+	/**
+	 * Returns the value at the given row, which must not be empty.
+	 *
+	 * @param row the row to look at
+	 * @return the value at <code>row</code>
+	 */
+	public int getInt(int row) {
+		return values[row];
+	}
+
+	/**
+	 * Adds a value to the end of this column.
+	 *
+	 * @param value the value to add
+	 */
+	public void addInt(int value) {
+		ensureCapacity(size + 1);
+		values[size++] = value;
+	}
+
+	/**
+	 * Adds an empty value to the end of this column.
+	 */
+	public void addNull() {
+		ensureCapacity(size + 1);
+		nulls[size >>> 6] |= 1L << size;
+		size++;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#isNumberColumn()
+	 */
+	@Override
+	public boolean isNumberColumn() {
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#isNull(int)
+	 */
+	@Override
+	public boolean isNull(int row) {
+		return (nulls[row >>> 6] & (1L << row)) != 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#getCell(int)
+	 */
+	@Override
+	public NumberCell getCell(int row) {
+		return new NumberCell(isNull(row) ? null : Integer.valueOf(values[row]));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#add(elements.Cell)
+	 */
+	@Override
+	public void add(Cell c) {
+		NumberCell n = (NumberCell) c;
+		if (n.isNull()) {
+			addNull();
+		} else {
+			addInt(n.getCell());
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#addAll(elements.Column)
+	 */
+	@Override
+	public void addAll(Column other) {
+		IntColumn o = (IntColumn) other;
+		ensureCapacity(size + o.size);
+		System.arraycopy(o.values, 0, values, size, o.size);
+		for (int i = 0; i < o.size; i++) {
+			if (o.isNull(i)) {
+				nulls[(size + i) >>> 6] |= 1L << (size + i);
+			}
+		}
+		size += o.size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#hash(int)
+	 */
+	@Override
+	public int hash(int row) {
+		return isNull(row) ? 0 : values[row];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#matches(int, elements.Column, int)
+	 */
+	@Override
+	public boolean matches(int row, Column other, int otherRow) {
+		if (!(other instanceof IntColumn)) {
+			return false;
+		}
+		IntColumn o = (IntColumn) other;
+		if (isNull(row) || o.isNull(otherRow)) {
+			return isNull(row) == o.isNull(otherRow);
+		}
+		return values[row] == o.values[otherRow];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#matches(int, elements.Cell)
+	 */
+	@Override
+	public boolean matches(int row, Cell c) {
+		if (!(c instanceof NumberCell)) {
+			return false;
+		}
+		NumberCell n = (NumberCell) c;
+		if (isNull(row) || n.isNull()) {
+			return isNull(row) == n.isNull();
+		}
+		return values[row] == n.getCell();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#compare(int, elements.Cell)
+	 */
+	@Override
+	public int compare(int row, Cell c) {
+		if (c.isNumberCell()) { //empty numbers first, as in compareRows
+			boolean empty = isNull(row);
+			if (empty || c.isNull()) {
+				return empty == c.isNull() ? 0 : empty ? -1 : 1;
+			}
+			return Integer.compare(values[row], ((NumberCell) c).getCell());
+		}
+		//anything unusual is left to the Cells themselves
+		return getCell(row).compareTo(c);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#compareRows(int, int)
+	 */
+	@Override
+	public int compareRows(int row, int otherRow) {
+		boolean empty = isNull(row);
+		if (empty || isNull(otherRow)) {
+			return empty == isNull(otherRow) ? 0 : empty ? -1 : 1;
+		}
+		return Integer.compare(values[row], values[otherRow]);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#select(int[], int)
+	 */
+	@Override
+	public IntColumn select(int[] rows, int count) {
+		IntColumn selected = new IntColumn(count);
+		for (int i = 0; i < count; i++) {
+			int row = rows[i];
+			if (row < 0 || isNull(row)) {
+				selected.nulls[i >>> 6] |= 1L << i;
+			} else {
+				selected.values[i] = values[row];
+			}
+		}
+		selected.size = count;
+		return selected;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#clone()
+	 */
+	@Override
+	public IntColumn clone() {
+		IntColumn copy = new IntColumn(0);
+		copy.values = Arrays.copyOf(values, size);
+		copy.nulls = Arrays.copyOf(nulls, (size + 63) >>> 6);
+		copy.size = size;
+		return copy;
+	}
+
+	/**
+	 * Makes sure there's room for at least <code>capacity</code> values.
+	 *
+	 * @param capacity the number of values to make room for
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity > values.length) {
+			values = Arrays.copyOf(values, grow(values.length, capacity));
+		}
+		if (capacity > nulls.length << 6) {
+			nulls = Arrays.copyOf(nulls, (values.length + 63) >>> 6);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package elements;
+
+import java.util.Arrays;
+
+/**
+ * Sorts rows by an int key without comparing cells, for
+ * {@link Table#sort(int)}. The keys and the rows they belong to are held in
+ * two parallel arrays, which are sorted together, rows with equal keys
+ * staying in the order they came in.<br/>
+ * <br/>
+ * Up to {@link #PARALLEL_THRESHOLD} rows are sorted with an LSD radix
+ * sort, a byte of the keys at a time, skipping the bytes all the keys
+ * share. Larger tables have each key packed with its row into a long, the
+ * key in the high half, and the longs sorted with
+ * {@link Arrays#parallelSort(long[])}; since the rows come in increasing
+ * order, equal keys are then ordered by row, which keeps the sort stable.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class IntKeySort {
+
+	/**
+	 * The number of rows from which they are sorted in parallel.
+	 */
+	static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	/**
+	 * The number of bits of a key sorted on in each radix pass.
+	 */
+	private static final int BITS = 8;
+
+	/**
+	 * The number of buckets of each radix pass.
+	 */
+	private static final int BUCKETS = 1 << BITS;
+
+	/**
+	 * Not to be created.
+	 */
+	private IntKeySort() {
+	}
+
+	/**
+	 * Sorts the first <code>count</code> keys, and the rows alongside
+	 * them, by key.
+	 *
+	 * @param keys the keys
+	 * @param rows the row of each key, in increasing order
+	 * @param count the number of keys to sort
+	 */
+	static void sort(int[] keys, int[] rows, int count) {
+		if (count < 2) {
+			return;
+		}
+		if (count >= PARALLEL_THRESHOLD) {
+			packedSort(keys, rows, count);
+		} else {
+			radixSort(keys, rows, count);
+		}
+	}
+
+	/**
+	 * Sorts the keys and rows with an LSD radix sort.
+	 *
+	 * @param keys the keys
+	 * @param rows the row of each key
+	 * @param count the number of keys to sort
+	 */
+	private static void radixSort(int[] keys, int[] rows, int count) {
+		int[] keysFrom = keys;
+		int[] rowsFrom = rows;
+		int[] keysTo = new int[count];
+		int[] rowsTo = new int[count];
+		int[] starts = new int[BUCKETS];
+		for (int shift = 0; shift < Integer.SIZE; shift += BITS) {
+			Arrays.fill(starts, 0);
+			for (int i = 0; i < count; i++) {
+				starts[bucket(keysFrom[i], shift)]++;
+			}
+			if (starts[bucket(keysFrom[0], shift)] == count) {
+				continue; //every key has this byte, so it's in order
+			}
+			int start = 0;
+			for (int b = 0; b < BUCKETS; b++) {
+				int size = starts[b];
+				starts[b] = start;
+				start += size;
+			}
+			for (int i = 0; i < count; i++) {
+				int to = starts[bucket(keysFrom[i], shift)]++;
+				keysTo[to] = keysFrom[i];
+				rowsTo[to] = rowsFrom[i];
+			}
+			int[] swap = keysFrom;
+			keysFrom = keysTo;
+			keysTo = swap;
+			swap = rowsFrom;
+			rowsFrom = rowsTo;
+			rowsTo = swap;
+		}
+		if (keysFrom != keys) {
+			System.arraycopy(keysFrom, 0, keys, 0, count);
+			System.arraycopy(rowsFrom, 0, rows, 0, count);
+		}
+	}
+
+	/**
+	 * Returns the bucket of a key in a radix pass, with the sign bit
+	 * flipped so negative keys come first.
+	 *
+	 * @param key the key
+	 * @param shift the lowest bit of the key sorted on in the pass
+	 * @return its bucket
+	 */
+	private static int bucket(int key, int shift) {
+		return ((key ^ Integer.MIN_VALUE) >>> shift) & (BUCKETS - 1);
+	}
+
+	/**
+	 * Sorts the keys and rows as longs packing both, in parallel.
+	 *
+	 * @param keys the keys
+	 * @param rows the row of each key, in increasing order
+	 * @param count the number of keys to sort
+	 */
+	private static void packedSort(int[] keys, int[] rows, int count) {
+		long[] packed = new long[count];
+		for (int i = 0; i < count; i++) {
+			//a row is never negative, so it doesn't spill into the key
+			packed[i] = (long) keys[i] << Integer.SIZE | rows[i];
+		}
+		Arrays.parallelSort(packed);
+		for (int i = 0; i < count; i++) {
+			keys[i] = (int) (packed[i] >> Integer.SIZE);
+			rows[i] = (int) packed[i];
+		}
+	}
+}
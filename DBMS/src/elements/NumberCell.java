@@ -50,6 +50,15 @@ public final class NumberCell extends Cell {
        return cell;
    }
 
+   /*
+    * (non-Javadoc)
+    * @see elements.Cell#isNull()
+    */
+   @Override
+   public boolean isNull() {
+       return cell == null;
+   }
+
    /*
     * (non-Javadoc)
     * @see java.lang.Object#hashCode()
@@ -193,12 +193,15 @@ import parser.ColumnIndexOutOfBoundsException;
      */
     @Override
     public String toString() {
-        String s = "";
+        StringBuilder s = new StringBuilder();
 		java.util.Iterator<Cell> it = row.iterator();
         while (it.hasNext()) {
-            s += it.next().toString() + (it.hasNext() ? "," : "");
+            s.append(it.next().toString());
+            if (it.hasNext()) {
+                s.append(',');
+            }
         }
-        return s;
+        return s.toString();
     }
 
     /* Getters and Setters Past this Point */
@@ -0,0 +1,245 @@
+package elements;
+
+import java.util.Arrays;
+
+/**
+ * The keys of the rows of a table for a sort by several columns, each
+ * ascending or descending, for {@link Table#sort(int[], boolean[])}. The
+ * values a row is sorted by are written one after another into a single
+ * array of bytes, in a form whose bytes, compared as unsigned numbers from
+ * the first, order the rows as the values would, so two rows are compared
+ * in one loop over their keys whatever the columns and their types.<br/>
+ * <br/>
+ * Each value is written as
+ * <ul>
+ * <li>for a number, a <code>0</code> byte if it's empty, and otherwise a
+ * <code>1</code> byte and its four bytes, the highest first, with the sign
+ * bit flipped so negative numbers come first;</li>
+ * <li>for a String, taken as <code>""</code> if empty, its chars, then a
+ * <code>0</code> byte, so a String comes before the ones it starts. A char
+ * below <code>0x7f</code> is the single byte one above it, and any other
+ * is three bytes from <code>0x80</code> up, six bits at a time, so no char
+ * is ever a <code>0</code> byte, and chars keep their order.</li>
+ * </ul>
+ * The bytes of a value sorted descending are all inverted. No value is a
+ * prefix of another, so neither is a row's key, short of being equal.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class SortKeys {
+
+	/**
+	 * The number of rows from which a range is merge sorted, rather than
+	 * sorted by insertion.
+	 */
+	private static final int INSERTION_THRESHOLD = 16;
+
+	/**
+	 * The keys of every row, one after another.
+	 */
+	private byte[] bytes;
+
+	/**
+	 * Where the key of each row starts, and after the last row, where the
+	 * keys end.
+	 */
+	private final int[] starts;
+
+	/**
+	 * The number of rows.
+	 */
+	private final int size;
+
+	/**
+	 * Writes the keys of the rows of some columns.
+	 *
+	 * @param columns the columns to sort by, all of the same size, first
+	 *            the one compared first
+	 * @param descending whether each column is sorted descending
+	 */
+	SortKeys(Column[] columns, boolean[] descending) {
+		size = columns.length == 0 ? 0 : columns[0].size();
+		starts = new int[size + 1];
+		bytes = new byte[(int) Math.min(Integer.MAX_VALUE - 8,
+				Math.max(16, 5L * size * columns.length))];
+		int end = 0;
+		for (int row = 0; row < size; row++) {
+			starts[row] = end;
+			for (int c = 0; c < columns.length; c++) {
+				int start = end;
+				if (columns[c] instanceof IntColumn) {
+					end = writeInt((IntColumn) columns[c], row, end);
+				} else {
+					end = writeString(string(columns[c], row), end);
+				}
+				if (descending[c]) {
+					for (int b = start; b < end; b++) {
+						bytes[b] = (byte) ~bytes[b];
+					}
+				}
+			}
+		}
+		starts[size] = end;
+	}
+
+	/**
+	 * Returns the order a stable sort by the keys puts the rows in.
+	 *
+	 * @return the rows, in order
+	 */
+	int[] order() {
+		int[] rows = new int[size];
+		for (int i = 0; i < size; i++) {
+			rows[i] = i;
+		}
+		mergeSort(rows.clone(), rows, 0, size);
+		return rows;
+	}
+
+	/**
+	 * Compares the keys of two rows, byte by byte.
+	 *
+	 * @param row a row
+	 * @param other another row
+	 * @return a negative number if <code>row</code> comes first, a positive
+	 *         one if <code>other</code> does, and <code>0</code> if their
+	 *         keys are equal
+	 */
+	int compare(int row, int other) {
+		int at = starts[row];
+		int end = starts[row + 1];
+		int otherAt = starts[other];
+		int otherEnd = starts[other + 1];
+		for (; at < end && otherAt < otherEnd; at++, otherAt++) {
+			int c = (bytes[at] & 0xff) - (bytes[otherAt] & 0xff);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return (end - at) - (otherEnd - otherAt);
+	}
+
+	/**
+	 * Sorts a range of rows from one array into another, which hold the
+	 * same rows in that range to start with, merging sorted halves sorted
+	 * the other way round. Rows with equal keys keep their order.
+	 *
+	 * @param from the rows to sort
+	 * @param to where the rows are put in order
+	 * @param low the first row of the range, inclusive
+	 * @param high the last row of the range, exclusive
+	 */
+	private void mergeSort(int[] from, int[] to, int low, int high) {
+		if (high - low < INSERTION_THRESHOLD) {
+			for (int i = low + 1; i < high; i++) {
+				int row = to[i];
+				int j = i;
+				for (; j > low && compare(to[j - 1], row) > 0; j--) {
+					to[j] = to[j - 1];
+				}
+				to[j] = row;
+			}
+			return;
+		}
+		int middle = (low + high) >>> 1;
+		mergeSort(to, from, low, middle);
+		mergeSort(to, from, middle, high);
+		if (compare(from[middle - 1], from[middle]) <= 0) {
+			//the halves are in order already
+			System.arraycopy(from, low, to, low, high - low);
+			return;
+		}
+		int i = low;
+		int j = middle;
+		for (int k = low; k < high; k++) {
+			if (j >= high || i < middle && compare(from[i], from[j]) <= 0) {
+				to[k] = from[i++];
+			} else {
+				to[k] = from[j++];
+			}
+		}
+	}
+
+	/**
+	 * Writes a number of a column.
+	 *
+	 * @param column the column
+	 * @param row the row of the number
+	 * @param at where to write it
+	 * @return where it ends
+	 */
+	private int writeInt(IntColumn column, int row, int at) {
+		ensure(at + 5);
+		if (column.isNull(row)) {
+			bytes[at] = 0;
+			return at + 1;
+		}
+		int value = column.getInt(row) ^ Integer.MIN_VALUE;
+		bytes[at] = 1;
+		bytes[at + 1] = (byte) (value >>> 24);
+		bytes[at + 2] = (byte) (value >>> 16);
+		bytes[at + 3] = (byte) (value >>> 8);
+		bytes[at + 4] = (byte) value;
+		return at + 5;
+	}
+
+	/**
+	 * Writes a String.
+	 *
+	 * @param value the String
+	 * @param at where to write it
+	 * @return where it ends
+	 */
+	private int writeString(String value, int at) {
+		ensure(at + 3 * value.length() + 1);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x7f) {
+				bytes[at++] = (byte) (c + 1);
+			} else {
+				bytes[at++] = (byte) (0x80 | c >>> 12);
+				bytes[at++] = (byte) (0x80 | (c >>> 6 & 0x3f));
+				bytes[at++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
+		bytes[at++] = 0;
+		return at;
+	}
+
+	/**
+	 * Returns a value of a column of Strings, <code>""</code> if empty,
+	 * as a StringCell compares it.
+	 *
+	 * @param column the column
+	 * @param row the row of the value
+	 * @return the value
+	 */
+	private static String string(Column column, int row) {
+		String value;
+		if (column instanceof DictionaryColumn) {
+			value = ((DictionaryColumn) column).getString(row);
+		} else if (column instanceof StringColumn) {
+			value = ((StringColumn) column).getString(row);
+		} else {
+			value = column.getCell(row).toString();
+		}
+		return value == null ? "" : value;
+	}
+
+	/**
+	 * Makes room for the keys to reach a given length.
+	 *
+	 * @param length the length
+	 */
+	private void ensure(int length) {
+		if (length > bytes.length) {
+			bytes = Arrays.copyOf(bytes,
+					Column.grow(bytes.length, length));
+		}
+	}
+}
@@ -39,6 +39,15 @@ public final class StringCell extends Cell {
         return cell;
     }
 
+    /*
+     * (non-Javadoc)
+     * @see elements.Cell#isNull()
+     */
+    @Override
+    public boolean isNull() {
+        return cell == null;
+    }
+
     /*
      * (non-Javadoc)
      * @see java.lang.Object#hashCode()
@@ -0,0 +1,177 @@
+package elements;
+
+import java.util.Arrays;
+
+/**
+ * A {@link Column} of StringCells, storing its values in a single array of
+ * Strings, where an empty value is a <code>null</code> entry.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public final class StringColumn extends Column {
+
+	/**
+	 * The values of this column.
+	 */
+	private String[] values;
+
+	/**
+	 * Creates an empty column with room for <code>capacity</code> values.
+	 *
+	 * @param capacity the number of values to make room for
+	 */
+	public StringColumn(int capacity) {
+		values = new String[capacity];
+	}
+
+	/**
+	 * Returns the value at the given row.
+	 *
+	 * @param row the row to look at
+	 * @return the value at <code>row</code>, or <code>null</code> if empty
+	 */
+	public String getString(int row) {
+		return values[row];
+	}
+
+	/**
+	 * Adds a value to the end of this column.
+	 *
+	 * @param value the value to add, <code>null</code> for an empty one
+	 */
+	public void addString(String value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, grow(values.length, size + 1));
+		}
+		values[size++] = value;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#isNumberColumn()
+	 */
+	@Override
+	public boolean isNumberColumn() {
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#isNull(int)
+	 */
+	@Override
+	public boolean isNull(int row) {
+		return values[row] == null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#getCell(int)
+	 */
+	@Override
+	public StringCell getCell(int row) {
+		return new StringCell(values[row]);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#add(elements.Cell)
+	 */
+	@Override
+	public void add(Cell c) {
+		addString(((StringCell) c).getCell());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#hash(int)
+	 */
+	@Override
+	public int hash(int row) {
+		return values[row] == null ? 0 : values[row].hashCode();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#matches(int, elements.Column, int)
+	 */
+	@Override
+	public boolean matches(int row, Column other, int otherRow) {
+		if (other instanceof DictionaryColumn) {
+			return other.matches(otherRow, this, row);
+		}
+		if (!(other instanceof StringColumn)) {
+			return false;
+		}
+		String s = values[row];
+		String o = ((StringColumn) other).values[otherRow];
+		return s == null ? o == null : s.equals(o);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#matches(int, elements.Cell)
+	 */
+	@Override
+	public boolean matches(int row, Cell c) {
+		if (!(c instanceof StringCell)) {
+			return false;
+		}
+		String s = values[row];
+		String o = ((StringCell) c).getCell();
+		return s == null ? o == null : s.equals(o);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#compare(int, elements.Cell)
+	 */
+	@Override
+	public int compare(int row, Cell c) {
+		//a StringCell is always compared as a String, empty ones as ""
+		return (values[row] == null ? "" : values[row]).compareTo(c.toString());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#compareRows(int, int)
+	 */
+	@Override
+	public int compareRows(int row, int otherRow) {
+		String value = values[row];
+		String other = values[otherRow];
+		return (value == null ? "" : value).compareTo(
+				other == null ? "" : other);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#select(int[], int)
+	 */
+	@Override
+	public StringColumn select(int[] rows, int count) {
+		StringColumn selected = new StringColumn(count);
+		for (int i = 0; i < count; i++) {
+			selected.values[i] = rows[i] < 0 ? null : values[rows[i]];
+		}
+		selected.size = count;
+		return selected;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see elements.Column#clone()
+	 */
+	@Override
+	public StringColumn clone() {
+		StringColumn copy = new StringColumn(0);
+		copy.values = Arrays.copyOf(values, size);
+		copy.size = size;
+		return copy;
+	}
+}
@@ -0,0 +1,107 @@
+package elements;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The distinct values of a {@link DictionaryColumn}, each given an
+ * <code>int</code> code in the order it was first seen. A dictionary only
+ * ever grows, so a code stays valid for as long as the dictionary lives.<br/>
+ * <br/>
+ * A dictionary may be shared by several columns, and read from several
+ * threads at once, but must only be added to from one thread at a time.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public final class StringDictionary {
+
+	/**
+	 * The value of each code.
+	 */
+	private String[] values = new String[8];
+
+	/**
+	 * The hash code of the value of each code.
+	 */
+	private int[] hashes = new int[8];
+
+	/**
+	 * The code of each value.
+	 */
+	private final Map<String, Integer> codes = new HashMap<String, Integer>();
+
+	/**
+	 * The number of values in this dictionary.
+	 */
+	private int size;
+
+	/**
+	 * Returns the code of the given value, adding the value to this
+	 * dictionary if it isn't in it yet.
+	 *
+	 * @param value the value to look up, not <code>null</code>
+	 * @return the code of <code>value</code>
+	 */
+	public int intern(String value) {
+		Integer code = codes.get(value);
+		if (code != null) {
+			return code;
+		}
+		if (size == values.length) {
+			values = Arrays.copyOf(values, Column.grow(size, size + 1));
+			hashes = Arrays.copyOf(hashes, values.length);
+		}
+		values[size] = value;
+		hashes[size] = value.hashCode();
+		codes.put(value, size);
+		return size++;
+	}
+
+	/**
+	 * Returns the code of the given value, without adding it.
+	 *
+	 * @param value the value to look up
+	 * @return the code of <code>value</code>, or -1 if it's not in this
+	 *         dictionary
+	 */
+	public int lookup(String value) {
+		Integer code = codes.get(value);
+		return code == null ? -1 : code;
+	}
+
+	/**
+	 * Returns the value of the given code.
+	 *
+	 * @param code a code of this dictionary
+	 * @return the value of <code>code</code>
+	 */
+	public String get(int code) {
+		return values[code];
+	}
+
+	/**
+	 * Returns the hash code of the value of the given code.
+	 *
+	 * @param code a code of this dictionary
+	 * @return <code>get(code).hashCode()</code>
+	 */
+	public int hash(int code) {
+		return hashes[code];
+	}
+
+	/**
+	 * Returns the number of values in this dictionary, one more than the
+	 * largest code.
+	 *
+	 * @return the number of values in this dictionary
+	 */
+	public int size() {
+		return size;
+	}
+}
@@ -1,14 +1,29 @@
 package elements;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import parser.ColumnIndexOutOfBoundsException;
 
 /**
- * Creates a Table out of Row Objects.
+ * Creates a Table out of Row Objects.<br/>
+ * <br/>
+ * A Table can also be stored column by column, as one {@link Column} per
+ * definition entry. Tables built from Rows get their columns on demand, and
+ * Tables built from columns get their Rows on demand, so either view can be
+ * used at any time. Rows handed to a Table should not be changed afterwards.<br/>
+ * <br/>
+ * A Table returned by {@link #sorted(int[], boolean[])} is a view of the
+ * columns of the table it was sorted from, holding only the order of their
+ * rows. Its rows are read through that order, and only copied out in order
+ * once it's changed or its own columns or Rows are needed.
  *
  * @version 2-N1
  * @author Prajjwal Bhandari
@@ -43,10 +58,37 @@ public class Table {
 	private final int     colSize;
 
 	/**
-	 * Keeps track of all the Rows in this table
+	 * Keeps track of all the Rows in this table, <code>null</code> if they
+	 * haven't been built from the columns yet.
 	 */
 	private List<Row>     table;
 
+	/**
+	 * The columns of this table, <code>null</code> if they haven't been built
+	 * from the Rows yet.
+	 */
+	private Column[]      columns;
+
+	/**
+	 * The index of each column, <code>null</code> where a column has none
+	 * or if no column has one.
+	 */
+	private ColumnIndex[] indexes;
+
+	/**
+	 * The rows of {@link #columns}, in the order this table holds them, if
+	 * it's a sorted view of them that hasn't been copied out yet;
+	 * <code>null</code> otherwise.
+	 */
+	private int[]         permutation;
+
+	/**
+	 * The orders sorts of this table put its rows in, by the columns and
+	 * directions sorted by, kept until the table changes; <code>null</code>
+	 * if there are none.
+	 */
+	private Map<String, int[]> sortOrders;
+
 	/**
 	 * Create a new Table with the given definition and without a header. The
 	 * column size is set to the length of the definition list.
@@ -78,6 +120,23 @@ public class Table {
 		}
 	}
 
+	/**
+	 * Create a new Table with the given definition and header out of the
+	 * given columns, one per definition entry. The header is only added if it
+	 * has the same size as the definition List.
+	 *
+	 * @param defn The definition of this table, has <code>true</code> for
+	 *            NumberCell and <code>false</code> for StringCell.
+	 * @param head a List containing the header for this table
+	 * @param cols the columns of this table, all of the same size. They are
+	 *            not copied, and are never added to by this table.
+	 */
+	public Table(List<Boolean> defn, List<String> head, Column[] cols) {
+		this(defn, head);
+		table = null;
+		columns = cols;
+	}
+
 	/**
 	 * Add a given {@link Row} to the table, provided it has the same number
 	 * of columns as this table
@@ -86,7 +145,21 @@ public class Table {
 	 * @return whether or not the addition was successful
 	 */
 	public boolean add(Row r) {
-		return (r.hasDefinition(definition)) ? table.add(r) : false;
+		if (!r.hasDefinition(definition)) {
+			return false;
+		}
+		ensureRows().add(r);
+		//columns may be shared with other tables, so rebuild rather than add
+		columns = null;
+		sortOrders = null;
+		if (indexes != null) { //indexes aren't shared, keep them up to date
+			for (int i = 0; i < colSize; i++) {
+				if (indexes[i] != null) {
+					indexes[i].add(r.getRow().get(i), table.size() - 1);
+				}
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -103,8 +176,10 @@ public class Table {
 			}
 		}
 
-		return table.addAll(rows);
-
+		for (Row r : rows) {
+			add(r);
+		}
+		return !rows.isEmpty();
 	}
 
 	/* (non-Javadoc)
@@ -119,7 +194,7 @@ public class Table {
 				+ ((definition == null) ? 0 : definition.hashCode());
 		result = prime * result + (hasHead ? 1231 : 1237);
 		result = prime * result + ((header == null) ? 0 : header.hashCode());
-		result = prime * result + ((table == null) ? 0 : table.hashCode());
+		result = prime * result + ensureRows().hashCode();
 		return result;
 	}
 
@@ -137,7 +212,7 @@ public class Table {
 		}
 
 		// Object needs do be a Table with the same size
-		if (obj instanceof Table && ((Table) obj).size() == table.size()) {
+		if (obj instanceof Table && ((Table) obj).size() == size()) {
 			Table other = (Table) obj;
 
 			if (other.hasHead != hasHead
@@ -147,7 +222,7 @@ public class Table {
 				return false;
 			}
 
-			for (int i = 0; i < table.size(); i++) {
+			for (int i = 0; i < size(); i++) {
 				// Two tables are equal if all Rows are equal
 				if (!((Table) obj).getRow(i).equals(this.getRow(i))) {
 					return false;
@@ -159,12 +234,13 @@ public class Table {
 	}
 
 	/**
-	 * Returns the all the Rows in the table
+	 * Returns the all the Rows in the table, which can't be changed through
+	 * the returned List. Use {@link #add(Row)} instead.
 	 *
 	 * @return all the rows
 	 */
 	public List<Row> getAllRows() {
-		return table;
+		return Collections.unmodifiableList(ensureRows());
 	}
 
 	/**
@@ -174,7 +250,95 @@ public class Table {
 	 * @return the Row at <code>i</code>
 	 */
 	public Row getRow(int i) {
-		return (0 <= i && i < size()) ? table.get(i) : null;
+		return (0 <= i && i < size()) ? ensureRows().get(i) : null;
+	}
+
+	/**
+	 * Returns the column at the given index, for reading only. The column
+	 * is shared with this table, so it must not be added to.
+	 *
+	 * @param colNum the index of the column to get
+	 * @return the column at <code>colNum</code>
+	 * @throws ColumnIndexOutOfBoundsException if the column doesn't exist
+	 */
+	public Column getColumn(int colNum)
+			throws ColumnIndexOutOfBoundsException {
+		if (colNum < 0 || colNum >= colSize) {
+			throw new ColumnIndexOutOfBoundsException("" + colNum);
+		}
+		return ensureColumns()[colNum];
+	}
+
+	/**
+	 * Returns all the columns of this table, for reading only. The columns
+	 * are shared with this table, so they must not be added to.
+	 *
+	 * @return the columns of this table, one per definition entry
+	 */
+	public Column[] getColumns() {
+		return ensureColumns().clone();
+	}
+
+	/**
+	 * Returns the index of the given column.
+	 *
+	 * @param colNum the index of the column
+	 * @return the index of the column at <code>colNum</code>, or
+	 *         <code>null</code> if it has none
+	 */
+	public ColumnIndex getIndex(int colNum) {
+		if (indexes == null || colNum < 0 || colNum >= colSize) {
+			return null;
+		}
+		return indexes[colNum];
+	}
+
+	/**
+	 * Sets the index of the given column, which must have been built over
+	 * the column as it is now. The index is given every Row added to this
+	 * table afterwards, and dropped if this table is sorted.
+	 *
+	 * @param colNum the index of the column
+	 * @param index the index of the column, <code>null</code> for none
+	 * @throws ColumnIndexOutOfBoundsException if the column doesn't exist
+	 */
+	public void setIndex(int colNum, ColumnIndex index)
+			throws ColumnIndexOutOfBoundsException {
+		if (colNum < 0 || colNum >= colSize) {
+			throw new ColumnIndexOutOfBoundsException("" + colNum);
+		}
+		if (indexes == null) {
+			indexes = new ColumnIndex[colSize];
+		}
+		indexes[colNum] = index;
+	}
+
+	/**
+	 * Creates a new Table with the same definition and header as this one,
+	 * holding the Rows at the given indices in the given order.
+	 *
+	 * @param rows the indices of the Rows to keep
+	 * @param count how many entries of <code>rows</code> to use
+	 * @return the new Table
+	 */
+	public Table select(int[] rows, int count) {
+		Column[] cols = columns;
+		if (permutation != null) { //select from the columns it's a view of
+			int[] picked = new int[count];
+			for (int i = 0; i < count; i++) {
+				picked[i] = permutation[rows[i]];
+			}
+			rows = picked;
+		} else {
+			cols = ensureColumns();
+		}
+		Column[] selected = new Column[colSize];
+		for (int i = 0; i < colSize; i++) {
+			selected[i] = cols[i].select(rows, count);
+		}
+		Table t = new Table(definition, header, selected);
+		t.setHeader(header);
+		return t;
 	}
 
 	/**
@@ -316,7 +480,13 @@ public class Table {
 	 * @return the size of this table
 	 */
 	public int size() {
-		return table.size();
+		if (permutation != null) {
+			return permutation.length;
+		}
+		if (table != null) {
+			return table.size();
+		}
+		return colSize == 0 ? 0 : columns[0].size();
 	}
 
 	/**
@@ -331,14 +501,30 @@ public class Table {
 	 */
 	public Cell getCell(int rowIndex, int colNum)
 			throws ColumnIndexOutOfBoundsException {
-		return table.get(rowIndex).getCell(colNum);
+		if (table != null) {
+			return table.get(rowIndex).getCell(colNum);
+		}
+		if (rowIndex < 0 || rowIndex >= size()) {
+			throw new IndexOutOfBoundsException("" + rowIndex);
+		}
+		if (permutation != null) { //read through the order, copying nothing
+			if (colNum < 0 || colNum >= colSize) {
+				throw new ColumnIndexOutOfBoundsException("" + colNum);
+			}
+			return columns[colNum].getCell(permutation[rowIndex]);
+		}
+		return getColumn(colNum).getCell(rowIndex);
 	}
 
 	/**
 	 * Sorts this {@link Table} by some column and returns the new sorted
 	 * {@link Table}.
 	 * If the given <code>colNum</code> is too large, or too small, sort
-	 * using the 1st row.
+	 * using the 1st row.<br/>
+	 * <br/>
+	 * Rows with equal values keep their order. A number column is sorted by
+	 * its values as ints, empty numbers first, without comparing Cells, and
+	 * the rows are put in order once it's known.
 	 *
 	 * @param colNum the index of the column to sort
 	 * @return the sorted {@link Table}
@@ -346,47 +532,341 @@ public class Table {
 	 *              of bounds
 	 */
 	public Table sort(int colNum) throws ColumnIndexOutOfBoundsException {
-		// NOTE: this is destructive BY DESIGN
-		if (colNum < 0 || colNum >= colSize) {
-			throw new ColumnIndexOutOfBoundsException("" + colNum);
-		}
-		// use the Collection's sort method
-		Collections.sort(this.getAllRows(),
-				new TableComparator(colNum));
+		// NOTE: this is destructive BY DESIGN, see sorted(int) otherwise
+		reorder(sortOrder(new int[] {colNum}, new boolean[1]));
 		return this;
 	}
 
+	/**
+	 * Returns this {@link Table} sorted by some column, as {@link #sort(int)}
+	 * would sort it, leaving this table as it is.
+	 *
+	 * @param colNum the index of the column to sort
+	 * @return a sorted view of this table
+	 * @throws ColumnIndexOutOfBoundsException if given column number is out
+	 *              of bounds
+	 * @see #sorted(int[], boolean[])
+	 */
+	public Table sorted(int colNum) throws ColumnIndexOutOfBoundsException {
+		return sorted(new int[] {colNum}, new boolean[1]);
+	}
+
+	/**
+	 * Returns this {@link Table} sorted by several columns, as
+	 * {@link #sort(int[], boolean[])} would sort it, leaving this table as
+	 * it is.<br/>
+	 * <br/>
+	 * No rows are copied: the new table is a view of the columns of this
+	 * one, holding only the order of their rows. It reads, prints and
+	 * writes its rows through that order, and copies them out in order only
+	 * once it's changed or its columns or Rows are asked for. The order is
+	 * kept by this table until it changes, so sorting it the same way again
+	 * doesn't sort anything.
+	 *
+	 * @param colNums the indices of the columns to sort by, first the one
+	 *            compared first
+	 * @param descending whether each column is sorted descending
+	 * @return a sorted view of this table
+	 * @throws ColumnIndexOutOfBoundsException if a column number is out of
+	 *              bounds
+	 */
+	public Table sorted(int[] colNums, boolean[] descending)
+			throws ColumnIndexOutOfBoundsException {
+		int[] order = sortOrder(colNums, descending);
+		//the columns are never added to, but a sort of this table replaces
+		//them in the array, so the view gets its own
+		Table t = new Table(definition, header, ensureColumns().clone());
+		t.permutation = order;
+		return t;
+	}
+
+	/**
+	 * Sorts this {@link Table} by several columns, each ascending or
+	 * descending, and returns it. Rows are ordered by the first column,
+	 * then those with equal values by the second, and so on, and rows with
+	 * equal values in every column keep their order. Empty numbers come
+	 * before any other, and empty Strings are taken as <code>""</code>, as
+	 * in {@link #sort(int)}.<br/>
+	 * <br/>
+	 * The values each row is sorted by are written out together as a key
+	 * of bytes that compare as the values do, so rows are compared without
+	 * comparing Cells, column by column.
+	 *
+	 * @param colNums the indices of the columns to sort by, first the one
+	 *            compared first
+	 * @param descending whether each column is sorted descending
+	 * @return the sorted {@link Table}
+	 * @throws ColumnIndexOutOfBoundsException if a column number is out of
+	 *              bounds
+	 */
+	public Table sort(int[] colNums, boolean[] descending)
+			throws ColumnIndexOutOfBoundsException {
+		// NOTE: this is destructive BY DESIGN, see sorted(int[], boolean[])
+		reorder(sortOrder(colNums, descending));
+		return this;
+	}
+
+	/**
+	 * Finds the order a sort by some columns puts the rows of this table
+	 * in, or takes it from an earlier sort of the table as it is now. A
+	 * single column sorted ascending is sorted as in {@link #sort(int)}, and
+	 * any other sort by the keys of {@link SortKeys}.
+	 *
+	 * @param colNums the indices of the columns to sort by, first the one
+	 *            compared first
+	 * @param descending whether each column is sorted descending
+	 * @return the rows, in sorted order, not to be changed
+	 * @throws ColumnIndexOutOfBoundsException if a column number is out of
+	 *              bounds
+	 */
+	private int[] sortOrder(int[] colNums, boolean[] descending)
+			throws ColumnIndexOutOfBoundsException {
+		StringBuilder key = new StringBuilder();
+		for (int i = 0; i < colNums.length; i++) {
+			if (colNums[i] < 0 || colNums[i] >= colSize) {
+				throw new ColumnIndexOutOfBoundsException("" + colNums[i]);
+			}
+			key.append(descending[i] ? '-' : '+').append(colNums[i]);
+		}
+		int[] order = sortOrders == null ? null
+				: sortOrders.get(key.toString());
+		if (order != null) {
+			return order;
+		}
+		if (permutation != null) {
+			ensureColumns(); //a view is sorted as a copy
+		}
+		if (colNums.length == 1 && !descending[0]) {
+			order = definition.get(colNums[0]) ? intOrder(colNums[0]) : null;
+			if (order == null) {
+				order = cellOrder(colNums[0]);
+			}
+		} else {
+			Column[] cols = ensureColumns();
+			Column[] sortBy = new Column[colNums.length];
+			for (int i = 0; i < sortBy.length; i++) {
+				sortBy[i] = cols[colNums[i]];
+			}
+			order = new SortKeys(sortBy, descending).order();
+		}
+		if (sortOrders == null) {
+			sortOrders = new HashMap<String, int[]>();
+		}
+		sortOrders.put(key.toString(), order);
+		return order;
+	}
+
+	/**
+	 * Puts the rows of this table in a new order, once it's known.
+	 *
+	 * @param order the rows, in their new order
+	 */
+	private void reorder(int[] order) {
+		if (table != null) {
+			List<Row> sorted = new ArrayList<Row>(order.length);
+			for (int row : order) {
+				sorted.add(table.get(row));
+			}
+			table = sorted;
+			columns = null;
+		} else {
+			for (int i = 0; i < colSize; i++) {
+				columns[i] = columns[i].select(order, order.length);
+			}
+		}
+		indexes = null; //the rows the indexes point to are out of order
+		sortOrders = null; //and so are the ones the orders point to
+	}
+
+	/**
+	 * Finds the order a stable sort by a number column puts the rows in,
+	 * by sorting the values of the column as ints, alongside their rows,
+	 * rather than comparing Cells. Empty numbers come first.
+	 *
+	 * @param colNum the index of the column to sort by
+	 * @return the rows, in sorted order, or <code>null</code> if a cell of
+	 *         the column isn't a NumberCell
+	 */
+	private int[] intOrder(int colNum) {
+		IntColumn column = columns != null
+				&& columns[colNum] instanceof IntColumn
+				? (IntColumn) columns[colNum] : null;
+		if (column == null && table == null) {
+			return null;
+		}
+		int n = size();
+		int[] keys = new int[n];
+		int[] rows = new int[n];
+		int[] order = new int[n];
+		int empty = 0;
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if (column != null) {
+				if (column.isNull(i)) {
+					order[empty++] = i;
+					continue;
+				}
+				keys[count] = column.getInt(i);
+			} else {
+				Cell c = table.get(i).getRow().get(colNum);
+				if (!c.isNumberCell()) {
+					return null;
+				}
+				if (c.isNull()) {
+					order[empty++] = i;
+					continue;
+				}
+				keys[count] = ((NumberCell) c).getCell();
+			}
+			rows[count++] = i;
+		}
+		IntKeySort.sort(keys, rows, count);
+		System.arraycopy(rows, 0, order, empty, count);
+		return order;
+	}
+
+	/**
+	 * Finds the order a stable sort by a column puts the rows in, by
+	 * comparing its Cells, for a column that can't be sorted as ints.
+	 *
+	 * @param colNum the index of the column to sort by
+	 * @return the rows, in sorted order
+	 */
+	private int[] cellOrder(int colNum) {
+		final List<Row> rows = ensureRows();
+		final TableComparator comparator = new TableComparator(colNum);
+		Integer[] sorted = new Integer[rows.size()];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = i;
+		}
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer row, Integer other) {
+				return comparator.compare(rows.get(row), rows.get(other));
+			}
+		});
+		int[] order = new int[sorted.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = sorted[i];
+		}
+		return order;
+	}
+
 	/*(non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
 	@Override
 	public String toString() {
-		String s = "";
-		if (hasHead) {
-			Iterator<String> it = header.iterator();
-			while (it.hasNext()) {
-				s += it.next() + (it.hasNext() ? "," : "\n");
-			}
-		}
-
-		for (Row r : table) {
-			s += r.toString() + "\n";
+		StringWriter s = new StringWriter();
+		TableWriter out = new TableWriter(s);
+		try {
+			out.write(this);
+			out.flush();
+		} catch (IOException e) { //a StringWriter doesn't fail
+			throw new IllegalStateException(e);
 		}
-		return s;
+		return s.toString();
 	}
 
 	/**
 	 * Deep copies this table and returns a new one with the same
-	 * number of elements
+	 * number of elements. A sorted view is copied as another view of the
+	 * same columns, which are never changed.
 	 *
 	 * @return a deep copy of the Table
 	 */
 	@Override
 	public Table clone() {
+		if (permutation != null) {
+			Table t = new Table(definition, header, columns.clone());
+			t.permutation = permutation;
+			return t;
+		}
+		if (table == null) { //copy the columns, no need to build the Rows
+			Column[] copy = new Column[colSize];
+			for (int i = 0; i < colSize; i++) {
+				copy[i] = columns[i].clone();
+			}
+			return new Table(definition, header, copy);
+		}
+
 		Table t = new Table(definition, header);
 		for (Row r : table) {
 			t.add(r.clone());
 		}
 		return t;
 	}
+
+	/**
+	 * Returns the Rows of this table, building them from the columns first
+	 * if needed.
+	 *
+	 * @return the Rows of this table
+	 */
+	private List<Row> ensureRows() {
+		if (table == null) {
+			Column[] cols = ensureColumns();
+			int n = size();
+			table = new ArrayList<Row>(n);
+			for (int i = 0; i < n; i++) {
+				Row r = new Row();
+				for (Column c : cols) {
+					r.add(c.getCell(i));
+				}
+				table.add(r);
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the columns of this table if it has them, without building
+	 * them from the Rows.
+	 *
+	 * @return the columns of this table, or <code>null</code> if they
+	 *         haven't been built
+	 */
+	Column[] builtColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns the rows of {@link #builtColumns()} in the order this table
+	 * holds them, if it's a sorted view of them.
+	 *
+	 * @return the rows, in order, or <code>null</code> if the columns hold
+	 *         them in order
+	 */
+	int[] builtOrder() {
+		return permutation;
+	}
+
+	/**
+	 * Returns the columns of this table, building them from the Rows first
+	 * if needed.
+	 *
+	 * @return the columns of this table
+	 */
+	private Column[] ensureColumns() {
+		if (permutation != null) { //copy the rows out in order, once needed
+			Column[] cols = new Column[colSize];
+			for (int i = 0; i < colSize; i++) {
+				cols[i] = columns[i].select(permutation, permutation.length);
+			}
+			columns = cols;
+			permutation = null;
+		} else if (columns == null) {
+			Column[] cols = new Column[colSize];
+			for (int i = 0; i < colSize; i++) {
+				cols[i] = Column.create(definition.get(i), table.size());
+			}
+			for (Row r : table) {
+				for (int i = 0; i < colSize; i++) {
+					cols[i].add(r.getRow().get(i));
+				}
+			}
+			columns = cols;
+		}
+		return columns;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package elements;
+
+/**
+ * The {@link ColumnStatistics} of every column of a {@link Table}, kept up
+ * to date as rows are added to it.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public final class TableStatistics {
+
+	/**
+	 * The statistics of each column.
+	 */
+	private final ColumnStatistics[] columns;
+
+	/**
+	 * Creates the statistics of a table with no rows.
+	 *
+	 * @param width the number of columns of the table
+	 */
+	public TableStatistics(int width) {
+		columns = new ColumnStatistics[width];
+		for (int c = 0; c < width; c++) {
+			columns[c] = new ColumnStatistics();
+		}
+	}
+
+	/**
+	 * Works out the statistics of the given table.
+	 *
+	 * @param t the table
+	 * @return the statistics of every row of <code>t</code>
+	 */
+	public static TableStatistics of(Table t) {
+		TableStatistics stats = new TableStatistics(t.getColSize());
+		stats.update(t.getColumns());
+		return stats;
+	}
+
+	/**
+	 * Reads the rows of the given columns that have been added since the
+	 * last update.
+	 *
+	 * @param cols the columns of the table, which may only have grown since
+	 *            the last update
+	 */
+	public void update(Column[] cols) {
+		for (int c = 0; c < columns.length; c++) {
+			columns[c].update(cols[c]);
+		}
+	}
+
+	/**
+	 * Returns the number of rows of the table.
+	 *
+	 * @return the number of rows read
+	 */
+	public int getRowCount() {
+		return columns.length == 0 ? 0 : columns[0].getRowCount();
+	}
+
+	/**
+	 * Returns the statistics of a column of the table.
+	 *
+	 * @param colNum the index of the column
+	 * @return the statistics of the column
+	 */
+	public ColumnStatistics getColumn(int colNum) {
+		return columns[colNum];
+	}
+}
@@ -0,0 +1,288 @@
+package elements;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes a {@link Table} as csv text, one row at a time, straight into a
+ * {@link Writer}. Every value is copied into one reusable buffer, which is
+ * handed to the Writer whenever it fills up, and numbers are formatted into
+ * that buffer digit by digit, so writing a table allocates nothing per row
+ * and needs the same memory however large the table is.<br/>
+ * <br/>
+ * The text is the same as {@link Table#toString()}: the header, if any, then
+ * every row, each ending in <code>'\n'</code>, with empty values written as
+ * nothing. A String holding a comma, a quote or a line break is quoted, with
+ * its quotes doubled, as RFC 4180 has it, so the text loads back as the same
+ * values.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+public final class TableWriter {
+
+	/**
+	 * The number of chars buffered before they are handed to the Writer.
+	 */
+	private static final int BUFFER_SIZE = 1 << 14;
+
+	/**
+	 * The number of chars the longest int takes, "-2147483648".
+	 */
+	private static final int MAX_INT_LENGTH = 11;
+
+	/**
+	 * Where the text goes.
+	 */
+	private final Writer out;
+
+	/**
+	 * The chars not yet handed to <code>out</code>.
+	 */
+	private final char[] buffer = new char[BUFFER_SIZE];
+
+	/**
+	 * The number of chars in <code>buffer</code>.
+	 */
+	private int count;
+
+	/**
+	 * Creates a TableWriter that writes into the given Writer. The Writer
+	 * only gets whole buffers, so it doesn't need buffering of its own.
+	 *
+	 * @param out where to write tables
+	 */
+	public TableWriter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Writes the given table. The text may stay buffered until
+	 * {@link #flush()} is called.
+	 *
+	 * @param t the table to write
+	 * @throws IOException if the Writer fails
+	 */
+	public void write(Table t) throws IOException {
+		if (t.hasHead()) {
+			List<String> header = t.getHeader();
+			for (int i = 0; i < header.size(); i++) {
+				if (i > 0) {
+					append(',');
+				}
+				appendField(header.get(i));
+			}
+			append('\n');
+		}
+
+		Column[] cols = t.builtColumns();
+		if (cols == null) { //row by row, without building any columns
+			for (Row r : t.getAllRows()) {
+				writeRow(r);
+			}
+			return;
+		}
+		int[] order = t.builtOrder(); //a sorted view is written in its order
+		int rows = t.size();
+		for (int row = 0; row < rows; row++) {
+			for (int i = 0; i < cols.length; i++) {
+				if (i > 0) {
+					append(',');
+				}
+				writeValue(cols[i], order == null ? row : order[row]);
+			}
+			append('\n');
+		}
+	}
+
+	/**
+	 * Writes one Row, followed by a line break.
+	 *
+	 * @param r the row to write
+	 * @throws IOException if the Writer fails
+	 */
+	public void writeRow(Row r) throws IOException {
+		List<Cell> cells = r.getRow();
+		for (int i = 0; i < cells.size(); i++) {
+			if (i > 0) {
+				append(',');
+			}
+			Cell c = cells.get(i);
+			if (c instanceof NumberCell) {
+				if (!c.isNull()) {
+					append(((NumberCell) c).getCell());
+				}
+			} else if (c instanceof StringCell) {
+				appendField(((StringCell) c).getCell());
+			} else {
+				appendField(c.toString());
+			}
+		}
+		append('\n');
+	}
+
+	/**
+	 * Writes any text, such as a line break after a table.
+	 *
+	 * @param s the text to write, nothing if <code>null</code>
+	 * @throws IOException if the Writer fails
+	 */
+	public void writeText(String s) throws IOException {
+		append(s);
+	}
+
+	/**
+	 * Hands everything buffered to the Writer and flushes it.
+	 *
+	 * @throws IOException if the Writer fails
+	 */
+	public void flush() throws IOException {
+		drain();
+		out.flush();
+	}
+
+	/**
+	 * Writes the value of a column at the given row.
+	 *
+	 * @param c the column
+	 * @param row the row of the value
+	 * @throws IOException if the Writer fails
+	 */
+	private void writeValue(Column c, int row) throws IOException {
+		if (c.isNull(row)) {
+			return;
+		}
+		if (c instanceof IntColumn) {
+			append(((IntColumn) c).getInt(row));
+		} else if (c instanceof DictionaryColumn) {
+			appendField(((DictionaryColumn) c).getString(row));
+		} else if (c instanceof StringColumn) {
+			appendField(((StringColumn) c).getString(row));
+		} else {
+			appendField(c.getCell(row).toString());
+		}
+	}
+
+	/**
+	 * Buffers a String value, quoted if it holds a comma, a quote or a line
+	 * break, with every quote inside it doubled.
+	 *
+	 * @param s the value to write, nothing if <code>null</code>
+	 * @throws IOException if the Writer fails
+	 */
+	private void appendField(String s) throws IOException {
+		if (s == null) {
+			return;
+		}
+		int length = s.length();
+		int i = 0;
+		while (i < length && !needsQuotes(s.charAt(i))) {
+			i++;
+		}
+		if (i == length) { //the common case, written as it is
+			append(s);
+			return;
+		}
+		append('"');
+		for (i = 0; i < length; i++) {
+			char ch = s.charAt(i);
+			if (ch == '"') {
+				append('"');
+			}
+			append(ch);
+		}
+		append('"');
+	}
+
+	/**
+	 * Returns whether or not a char of a String value makes it need quotes.
+	 *
+	 * @param ch the char to check
+	 * @return <code>true</code> for a comma, a quote or a line break
+	 */
+	private static boolean needsQuotes(char ch) {
+		return ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+	}
+
+	/**
+	 * Buffers one char.
+	 *
+	 * @param ch the char to write
+	 * @throws IOException if the Writer fails
+	 */
+	private void append(char ch) throws IOException {
+		if (count == buffer.length) {
+			drain();
+		}
+		buffer[count++] = ch;
+	}
+
+	/**
+	 * Buffers a String, a buffer full at a time if it is long.
+	 *
+	 * @param s the String to write, nothing if <code>null</code>
+	 * @throws IOException if the Writer fails
+	 */
+	private void append(String s) throws IOException {
+		if (s == null) {
+			return;
+		}
+		int done = 0;
+		int length = s.length();
+		while (done < length) {
+			if (count == buffer.length) {
+				drain();
+			}
+			int n = Math.min(length - done, buffer.length - count);
+			s.getChars(done, done + n, buffer, count);
+			count += n;
+			done += n;
+		}
+	}
+
+	/**
+	 * Buffers the decimal digits of an int, without making a String of it.
+	 *
+	 * @param value the int to write
+	 * @throws IOException if the Writer fails
+	 */
+	private void append(int value) throws IOException {
+		if (buffer.length - count < MAX_INT_LENGTH) {
+			drain();
+		}
+		//work with the negative value, which can hold Integer.MIN_VALUE
+		int v = value < 0 ? value : -value;
+		int digits = 1;
+		for (int rest = v / 10; rest != 0; rest /= 10) {
+			digits++;
+		}
+		int end = count + digits + (value < 0 ? 1 : 0);
+		int pos = end;
+		do {
+			int next = v / 10;
+			buffer[--pos] = (char) ('0' + next * 10 - v);
+			v = next;
+		} while (v != 0);
+		if (value < 0) {
+			buffer[--pos] = '-';
+		}
+		count = end;
+	}
+
+	/**
+	 * Hands everything buffered to the Writer.
+	 *
+	 * @throws IOException if the Writer fails
+	 */
+	private void drain() throws IOException {
+		if (count > 0) {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package parser;
+
+import java.util.Collections;
+import java.util.List;
+
+import elements.Table;
+
+/**
+ * An operator that can't hand on any row before it has seen every row of
+ * its input, such as a sort. Its input is run and copied out into a table
+ * when it is opened, the table is worked on as a whole, and the result is
+ * then handed out like a scan would.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+abstract class BlockingOperator extends Operator {
+
+	/**
+	 * The input of this operator.
+	 */
+	final Operator child;
+
+	/**
+	 * The rows being handed out.
+	 */
+	private Batch batch;
+
+	/**
+	 * The next row to hand out.
+	 */
+	private int position;
+
+	/**
+	 * Creates an operator over the given input with the given output, whose
+	 * table is only known once it is opened.
+	 *
+	 * @param child the input
+	 * @param definition the definition of the result
+	 * @param header the header of the result, or an empty List
+	 */
+	BlockingOperator(Operator child, List<Boolean> definition,
+			List<String> header) {
+		super(definition, header, new Table[1],
+				identity(definition.size())[0],
+				identity(definition.size())[1]);
+		this.child = child;
+	}
+
+	/**
+	 * Works out the result from every row of the input.
+	 *
+	 * @param input the rows of the input, copied out into a table of its own
+	 * @return the table to hand out, with this operator's definition
+	 */
+	abstract Table build(Table input);
+
+	/**
+	 * Works out the result, by default by copying out every row of the
+	 * input and handing them to {@link #build(Table)}. An operator that
+	 * only needs some of them can pull the rows itself instead.
+	 *
+	 * @return the table to hand out, with this operator's definition
+	 */
+	Table build() {
+		return build(child.materialize());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#open()
+	 */
+	@Override
+	void open() {
+		tables[0] = build();
+		batch = new Batch(1);
+		position = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#next()
+	 */
+	@Override
+	Batch next() {
+		int size = tables[0].size();
+		if (position >= size) {
+			return null;
+		}
+		int[] ids = batch.rows[0];
+		batch.size = Math.min(BATCH_SIZE, size - position);
+		for (int i = 0; i < batch.size; i++) {
+			ids[i] = position++;
+		}
+		return batch;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#close()
+	 */
+	@Override
+	void close() {
+		//the input was closed once it was copied out
+		tables[0] = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#children()
+	 */
+	@Override
+	List<Operator> children() {
+		return Collections.singletonList(child);
+	}
+}
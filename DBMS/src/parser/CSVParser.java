@@ -0,0 +1,710 @@
+package parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import elements.Column;
+import elements.DictionaryColumn;
+import elements.IntColumn;
+import elements.StringDictionary;
+
+/**
+ * Reads csv records straight out of the bytes of a {@link ByteBuffer},
+ * usually a memory mapped file. Delimiters are found byte by byte, numbers
+ * are parsed without making a String first, and every record is written
+ * into the columns of a table as soon as it's read.<br/>
+ * <br/>
+ * Fields follow RFC 4180: a field in double quotes may hold commas, line
+ * breaks and doubled double quotes. An empty field of a number column is
+ * <code>null</code>, as a table with <code>null</code> numbers is saved. A
+ * record ends at <code>\n</code>,
+ * <code>\r\n</code> or a lone <code>\r</code>, like
+ * {@link java.io.BufferedReader#readLine()}.<br/>
+ * <br/>
+ * A buffer may end in the middle of a record, unless it's the last one of
+ * the file. The incomplete record is then left unread, so that the next
+ * buffer can start at {@link #position()}.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class CSVParser {
+
+	/**
+	 * The charset text fields are decoded with, the same one
+	 * {@link java.io.FileReader} uses.
+	 */
+	private static final Charset CHARSET = Charset.defaultCharset();
+
+	/**
+	 * Returned by {@link #scanRecord(Column[], int[])} when the buffer ends
+	 * before the record does.
+	 */
+	private static final int INCOMPLETE = -1;
+
+	/**
+	 * Returned by {@link #scanRecord(Column[], int[])} when the record has
+	 * quotes in it.
+	 */
+	private static final int QUOTED = -2;
+
+	/**
+	 * The bytes being parsed.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * The index just after the last byte that may be parsed.
+	 */
+	private final int limit;
+
+	/**
+	 * Whether or not the buffer ends where the file does.
+	 */
+	private final boolean last;
+
+	/**
+	 * The index of the first byte of the next record.
+	 */
+	private int position;
+
+	/**
+	 * The number of fields in the record last found.
+	 */
+	private int fields;
+
+	/**
+	 * The first byte of each field in the record last found, past any
+	 * opening quote.
+	 */
+	private int[] starts = new int[16];
+
+	/**
+	 * The index just after the last byte of each field in the record last
+	 * found, before any closing quote.
+	 */
+	private int[] ends = new int[16];
+
+	/**
+	 * Whether or not each field in the record last found has doubled quotes
+	 * in it.
+	 */
+	private boolean[] escaped = new boolean[16];
+
+	/**
+	 * Room to copy a field into before turning it into a String.
+	 */
+	private byte[] scratch = new byte[64];
+
+	/**
+	 * The codes of the values already seen in each String column, looked up
+	 * by their bytes so that a repeated value needs no new String.
+	 */
+	private FieldCache[] caches = new FieldCache[0];
+
+	/**
+	 * Whether each number field of the record last scanned was empty, and so
+	 * <code>null</code>.
+	 */
+	private boolean[] empty = new boolean[0];
+
+	/**
+	 * Creates a parser for the bytes from the position of the given buffer
+	 * up to its limit.
+	 *
+	 * @param buffer the bytes to parse
+	 * @param last whether or not the buffer ends where the file does, so
+	 *            that a record that isn't ended by a line break is still
+	 *            complete
+	 */
+	CSVParser(ByteBuffer buffer, boolean last) {
+		this.buffer = buffer;
+		this.position = buffer.position();
+		this.limit = buffer.limit();
+		this.last = last;
+	}
+
+	/**
+	 * Returns the index of the first byte that hasn't been read yet, which
+	 * is the start of a record.
+	 *
+	 * @return the index of the next record in the buffer
+	 */
+	int position() {
+		return position;
+	}
+
+	/**
+	 * Reads the next record as a list of Strings.
+	 *
+	 * @return the fields of the next record, or <code>null</code> if there
+	 *         isn't a complete one left
+	 * @throws IllegalArgumentException if the last buffer ends in a quoted
+	 *             field
+	 */
+	List<String> readRecord() {
+		if (!findRecord()) {
+			return null;
+		}
+		List<String> record = new ArrayList<String>(fields);
+		for (int f = 0; f < fields; f++) {
+			record.add(string(f));
+		}
+		return record;
+	}
+
+	/**
+	 * Reads every complete record left and adds each one to the end of the
+	 * given columns. A number column must be an IntColumn and a String
+	 * column a DictionaryColumn.
+	 *
+	 * @param cols the columns to add to
+	 * @return the number of records read
+	 * @throws NumberFormatException if a field of a number column isn't an
+	 *             int
+	 * @throws IllegalArgumentException if a record doesn't have one field
+	 *             per column, or the last buffer ends in a quoted field
+	 */
+	int readRecords(Column[] cols) {
+		return readRecords(cols, limit);
+	}
+
+	/**
+	 * Reads every complete record that starts before <code>stop</code> and
+	 * adds each one to the end of the given columns, as
+	 * {@link #readRecords(Column[])} does. The last record read may end
+	 * past <code>stop</code>.
+	 *
+	 * @param cols the columns to add to
+	 * @param stop the index at which no new record is started
+	 * @return the number of records read
+	 * @throws NumberFormatException if a field of a number column isn't an
+	 *             int
+	 * @throws IllegalArgumentException if a record doesn't have one field
+	 *             per column, or the last buffer ends in a quoted field
+	 */
+	int readRecords(Column[] cols, int stop) {
+		if (caches.length != cols.length) {
+			caches = new FieldCache[cols.length];
+			empty = new boolean[cols.length];
+		}
+		int[] values = new int[cols.length];
+		int count = 0;
+		while (position < stop) {
+			int read = scanRecord(cols, values);
+			if (read == QUOTED) { //quotes need the slower, general path
+				if (!findRecord()) {
+					break;
+				}
+				if (fields != cols.length) {
+					throw new IllegalArgumentException("Record " + (count + 1)
+							+ " has " + fields + " fields, not " + cols.length);
+				}
+				for (int f = 0; f < fields; f++) {
+					if (cols[f].isNumberColumn()) {
+						empty[f] = string(f).isEmpty();
+						values[f] = empty[f] ? 0 : integer(f);
+					} else {
+						values[f] = code(f, (DictionaryColumn) cols[f]);
+					}
+				}
+			} else if (read == INCOMPLETE) {
+				break;
+			} else if (read != cols.length) {
+				throw new IllegalArgumentException("Record " + (count + 1)
+						+ " has " + read + " fields, not " + cols.length);
+			}
+
+			for (int f = 0; f < cols.length; f++) {
+				if (cols[f].isNumberColumn() && empty[f]) {
+					((IntColumn) cols[f]).addNull();
+				} else if (cols[f].isNumberColumn()) {
+					((IntColumn) cols[f]).addInt(values[f]);
+				} else {
+					((DictionaryColumn) cols[f]).addCode(values[f]);
+				}
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Reads the next record in a single pass, parsing each number and
+	 * looking up each String as its bytes go by, and moves past it. An empty
+	 * number field is marked in {@link #empty}. Records with quotes in them
+	 * are left to {@link #findRecord()}.
+	 *
+	 * @param cols the columns the fields go in
+	 * @param values set to the value of each number field and the code of
+	 *            each String field
+	 * @return the number of fields read, or {@link #INCOMPLETE} or
+	 *         {@link #QUOTED}, without moving, if the record isn't complete
+	 *         or has a quote
+	 * @throws NumberFormatException if a field of a number column isn't an
+	 *             int
+	 */
+	private int scanRecord(Column[] cols, int[] values) {
+		if (position >= limit) {
+			return INCOMPLETE;
+		}
+		int i = position;
+		int f = 0;
+		while (true) { //one field per pass
+			int start = i;
+			if (i < limit && buffer.get(i) == '"') {
+				return QUOTED;
+			}
+			if (f < cols.length && cols[f].isNumberColumn()) {
+				boolean negative = false;
+				if (i < limit && (buffer.get(i) == '-'
+						|| buffer.get(i) == '+')) {
+					negative = buffer.get(i++) == '-';
+				}
+				long value = 0;
+				int digits = 0;
+				int significant = 0; //past any leading zeros
+				byte b;
+				while (i < limit && (b = buffer.get(i)) >= '0' && b <= '9') {
+					value = value * 10 + (b - '0');
+					digits++;
+					if (value != 0) {
+						significant++;
+					}
+					i++;
+				}
+				if (i < limit && !isDelimiter(buffer.get(i))) {
+					while (i < limit && !isDelimiter(buffer.get(i))) {
+						if (buffer.get(i) == '"') {
+							return QUOTED;
+						}
+						i++;
+					}
+					digits = 0; //not a number after all
+				}
+				if (i >= limit && !last) {
+					return INCOMPLETE;
+				}
+				value = negative ? -value : value;
+				empty[f] = i == start;
+				if (!empty[f] && (digits == 0 || significant > 10
+						|| value < Integer.MIN_VALUE
+						|| value > Integer.MAX_VALUE)) {
+					throw new NumberFormatException("For input string: \""
+							+ decode(start, i, false) + "\"");
+				}
+				values[f] = (int) value;
+			} else {
+				int hash = 1;
+				byte b;
+				while (i < limit && !isDelimiter(b = buffer.get(i))) {
+					if (b == '"') {
+						return QUOTED;
+					}
+					hash = 31 * hash + b;
+					i++;
+				}
+				if (i >= limit && !last) {
+					return INCOMPLETE;
+				}
+				if (f < cols.length) {
+					values[f] = code(f, (DictionaryColumn) cols[f], start, i,
+							hash);
+				}
+			}
+			f++;
+
+			if (i >= limit) {
+				position = limit;
+				return f;
+			}
+			byte b = buffer.get(i++);
+			if (b == '\n') {
+				break;
+			}
+			if (b == '\r') {
+				if (i < limit && buffer.get(i) == '\n') {
+					i++;
+				} else if (i >= limit && !last) {
+					return INCOMPLETE; //could be half of a \r\n
+				}
+				break;
+			}
+		}
+		position = i;
+		return f;
+	}
+
+	/**
+	 * Finds the bounds of the fields of the next record and moves past it.
+	 *
+	 * @return <code>false</code>, without moving, if there isn't a complete
+	 *         record left
+	 * @throws IllegalArgumentException if the last buffer ends in a quoted
+	 *             field, which can then never be closed
+	 */
+	private boolean findRecord() {
+		if (position >= limit) {
+			return false;
+		}
+		int i = position;
+		fields = 0;
+		while (true) { //one field per pass
+			if (fields == starts.length) {
+				starts = Arrays.copyOf(starts, fields * 2);
+				ends = Arrays.copyOf(ends, fields * 2);
+				escaped = Arrays.copyOf(escaped, fields * 2);
+			}
+			escaped[fields] = false;
+
+			if (i < limit && buffer.get(i) == '"') { //quoted field
+				starts[fields] = ++i;
+				while (true) {
+					if (i >= limit && last) {
+						throw new IllegalArgumentException(
+								"A quoted field has no closing quote");
+					}
+					if (i >= limit) {
+						return false; //the closing quote is in the next buffer
+					}
+					if (buffer.get(i) == '"') {
+						if (i + 1 < limit && buffer.get(i + 1) == '"') {
+							escaped[fields] = true;
+							i += 2;
+							continue;
+						}
+						if (i + 1 >= limit && !last) {
+							return false; //can't tell if it's doubled yet
+						}
+						break;
+					}
+					i++;
+				}
+				ends[fields] = i++;
+				//anything up to the delimiter is kept, as a lenient reader
+				while (i < limit && !isDelimiter(buffer.get(i))) {
+					i++;
+				}
+				if (i > ends[fields] + 1) {
+					ends[fields] = i;
+					starts[fields]--;
+					escaped[fields] = false;
+				}
+			} else {
+				starts[fields] = i;
+				while (i < limit && !isDelimiter(buffer.get(i))) {
+					i++;
+				}
+				ends[fields] = i;
+			}
+			fields++;
+
+			if (i >= limit) {
+				if (!last) {
+					return false; //the line break is in the next buffer
+				}
+				position = limit;
+				return true;
+			}
+			byte b = buffer.get(i++);
+			if (b == '\n') {
+				break;
+			}
+			if (b == '\r') {
+				if (i < limit && buffer.get(i) == '\n') {
+					i++;
+				} else if (i >= limit && !last) {
+					return false; //could be half of a \r\n
+				}
+				break;
+			}
+		}
+		position = i;
+		return true;
+	}
+
+	/**
+	 * Returns whether or not a byte ends an unquoted field.
+	 *
+	 * @param b the byte to check
+	 * @return <code>true</code> for a comma or a line break
+	 */
+	private static boolean isDelimiter(byte b) {
+		return b == ',' || b == '\n' || b == '\r';
+	}
+
+	/**
+	 * Parses a field of the record last found as an int. Only quoted records
+	 * come here, so it isn't worth avoiding the String.
+	 *
+	 * @param f the index of the field
+	 * @return the value of the field
+	 * @throws NumberFormatException if the field isn't an int
+	 */
+	private int integer(int f) {
+		return Integer.parseInt(string(f));
+	}
+
+	/**
+	 * Returns the code of a field of the record last found in the dictionary
+	 * of the given column, adding the field to the dictionary if need be.
+	 *
+	 * @param f the index of the field
+	 * @param col the column the field goes in
+	 * @return the code of the field's value
+	 */
+	private int code(int f, DictionaryColumn col) {
+		if (escaped[f]) {
+			return col.getDictionary().intern(string(f));
+		}
+		int hash = 1;
+		for (int i = starts[f]; i < ends[f]; i++) {
+			hash = 31 * hash + buffer.get(i);
+		}
+		return code(f, col, starts[f], ends[f], hash);
+	}
+
+	/**
+	 * Returns the code of the given unquoted bytes in the dictionary of the
+	 * given column, adding them to the dictionary if need be.
+	 *
+	 * @param f the index of the field the bytes are in
+	 * @param col the column the field goes in
+	 * @param start the index of the first byte
+	 * @param end the index just after the last byte
+	 * @param hash the hash of the bytes, as {@link FieldCache} makes it
+	 * @return the code of the bytes' value
+	 */
+	private int code(int f, DictionaryColumn col, int start, int end,
+			int hash) {
+		FieldCache cache = caches[f];
+		if (cache == null || cache.dictionary != col.getDictionary()) {
+			cache = new FieldCache(col.getDictionary());
+			caches[f] = cache;
+		}
+		int code = cache.find(buffer, start, end, hash);
+		if (code < 0) {
+			code = col.getDictionary().intern(decode(start, end, false));
+			cache.put(buffer, start, end, hash, code);
+		}
+		return code;
+	}
+
+	/**
+	 * Decodes a field of the record last found, undoubling any quotes.
+	 *
+	 * @param f the index of the field
+	 * @return the value of the field
+	 */
+	private String string(int f) {
+		return decode(starts[f], ends[f], escaped[f]);
+	}
+
+	/**
+	 * Decodes the given bytes into a String.
+	 *
+	 * @param start the index of the first byte
+	 * @param end the index just after the last byte
+	 * @param escaped whether or not to undouble double quotes
+	 * @return the decoded String
+	 */
+	private String decode(int start, int end, boolean escaped) {
+		int length = end - start;
+		if (length > scratch.length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		int n = 0;
+		for (int i = start; i < end; i++) {
+			byte b = buffer.get(i);
+			scratch[n++] = b;
+			if (b == '"' && escaped) {
+				i++; //skip the second quote
+			}
+		}
+		return new String(scratch, 0, n, CHARSET);
+	}
+
+	/**
+	 * An open addressing hash table from the bytes of a field to its code in
+	 * a dictionary. It stops taking new values once it's full, as a column
+	 * with that many distinct values gains little from it, and stops being
+	 * looked in at all once it has missed more values since then than it
+	 * has found.
+	 */
+	private static final class FieldCache {
+
+		/**
+		 * The most values a cache holds.
+		 */
+		private static final int MAX_SIZE = 1 << 16;
+
+		/**
+		 * The dictionary the codes belong to.
+		 */
+		private final StringDictionary dictionary;
+
+		/**
+		 * One more than the index of the entry in each slot, or 0 if the
+		 * slot is empty. Always at most half full.
+		 */
+		private int[] slots = new int[64];
+
+		/**
+		 * The bytes of each entry.
+		 */
+		private byte[][] values = new byte[32][];
+
+		/**
+		 * The code of each entry.
+		 */
+		private int[] codes = new int[32];
+
+		/**
+		 * The hash of each entry.
+		 */
+		private int[] hashes = new int[32];
+
+		/**
+		 * The number of entries.
+		 */
+		private int size;
+
+		/**
+		 * The number of values found, less the number missed, since the
+		 * cache filled up. Below zero the cache isn't looked in any more.
+		 */
+		private int balance;
+
+		/**
+		 * Creates an empty cache for the given dictionary.
+		 *
+		 * @param dictionary the dictionary the codes belong to
+		 */
+		FieldCache(StringDictionary dictionary) {
+			this.dictionary = dictionary;
+		}
+
+		/**
+		 * Finds the code of the given bytes.
+		 *
+		 * @param buffer the buffer holding the bytes
+		 * @param start the index of the first byte
+		 * @param end the index just after the last byte
+		 * @param hash the hash of the bytes
+		 * @return the code of the bytes, or -1 if they aren't cached
+		 */
+		int find(ByteBuffer buffer, int start, int end, int hash) {
+			if (balance < 0) { //full, and missing more than it finds
+				return -1;
+			}
+			int mask = slots.length - 1;
+			for (int s = slot(hash, mask); slots[s] != 0; s = (s + 1) & mask) {
+				int e = slots[s] - 1;
+				if (hashes[e] == hash && equal(values[e], buffer, start, end)) {
+					if (size == MAX_SIZE && balance < Integer.MAX_VALUE) {
+						balance++;
+					}
+					return codes[e];
+				}
+			}
+			if (size == MAX_SIZE) {
+				balance--;
+			}
+			return -1;
+		}
+
+		/**
+		 * Caches the code of the given bytes, unless the cache is full.
+		 *
+		 * @param buffer the buffer holding the bytes
+		 * @param start the index of the first byte
+		 * @param end the index just after the last byte
+		 * @param hash the hash of the bytes
+		 * @param code the code of the bytes
+		 */
+		void put(ByteBuffer buffer, int start, int end, int hash, int code) {
+			if (size == MAX_SIZE) {
+				return;
+			}
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+				codes = Arrays.copyOf(codes, size * 2);
+				hashes = Arrays.copyOf(hashes, size * 2);
+			}
+			byte[] bytes = new byte[end - start];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = buffer.get(start + i);
+			}
+			values[size] = bytes;
+			codes[size] = code;
+			hashes[size] = hash;
+			size++;
+
+			if (size * 2 > slots.length) { //rehash into twice the slots
+				slots = new int[slots.length * 2];
+				for (int e = 0; e < size; e++) {
+					insert(e);
+				}
+			} else {
+				insert(size - 1);
+			}
+		}
+
+		/**
+		 * Puts an entry in the first free slot for its hash.
+		 *
+		 * @param e the index of the entry
+		 */
+		private void insert(int e) {
+			int mask = slots.length - 1;
+			int s = slot(hashes[e], mask);
+			while (slots[s] != 0) {
+				s = (s + 1) & mask;
+			}
+			slots[s] = e + 1;
+		}
+
+		/**
+		 * Returns the first slot to try for a hash, spreading the bits of
+		 * hashes of similar values. The slot is taken from the highest bits
+		 * of the mixed hash, as many as there are bits in the mask, so every
+		 * slot can be a first one however many there are.
+		 *
+		 * @param hash the hash to place
+		 * @param mask one less than the number of slots, a power of two
+		 * @return the first slot for <code>hash</code>
+		 */
+		private static int slot(int hash, int mask) {
+			return (hash * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(mask);
+		}
+
+		/**
+		 * Returns whether or not the given bytes of a buffer equal an array.
+		 *
+		 * @param bytes the array to compare with
+		 * @param buffer the buffer holding the bytes
+		 * @param start the index of the first byte
+		 * @param end the index just after the last byte
+		 * @return whether or not they hold the same bytes
+		 */
+		private static boolean equal(byte[] bytes, ByteBuffer buffer,
+				int start, int end) {
+			if (bytes.length != end - start) {
+				return false;
+			}
+			for (int i = 0; i < bytes.length; i++) {
+				if (bytes[i] != buffer.get(start + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
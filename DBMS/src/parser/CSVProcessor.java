@@ -1,7 +1,14 @@
 package parser;
 
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.text.ParseException;
 import java.util.Scanner;
 
 import elements.Table;
@@ -26,15 +33,44 @@ public class CSVProcessor {
 	/**
 	 * Keeps tracks of whether or not the program should run.
 	 */
-	private static boolean canContinue = true;
+	static boolean canContinue = true;
 
 	/**
-	 * The main method for this class.
-	 *
-	 * @param args the command line arguments
+	 * Parses each command, reusing what it parsed the last one into.
+	 */
+	private static final CommandParser PARSER = new CommandParser();
+
+	/**
+	 * The exit status of a script with a command that failed.
+	 */
+	static final int FAILED = 1;
+
+	/**
+	 * The exit status when the script can't be read, or isn't given right.
+	 */
+	static final int UNREADABLE = 2;
+
+	/**
+	 * The number of bytes of output a script buffers before writing them.
+	 */
+	private static final int OUTPUT_BUFFER = 1 << 16;
+
+	/**
+	 * The main method for this class. Given a script, it runs the commands
+	 * in it as {@link #runScript(BufferedReader, boolean)} does, and exits
+	 * with a status of 0 if they all ran, {@link #FAILED} if one didn't, or
+	 * {@link #UNREADABLE} if the script couldn't be read. Otherwise it asks
+	 * the user for commands until told to exit.
 	 *
+	 * @param args the command line arguments: nothing, or
+	 * <code>[-failfast] script</code>, where a script of <code>-</code> is
+	 * read from the standard input and <code>-failfast</code> stops it at
+	 * the first command that fails
 	 */
 	public static void main(String[] args) {
+		if (args.length > 0) {
+			System.exit(batch(args));
+		}
 		//Read input
 		java.util.Scanner scan = new Scanner(System.in);
 		do {
@@ -46,11 +82,97 @@ public class CSVProcessor {
 
 	}
 
+	/**
+	 * Runs the script named on the command line, with the standard output
+	 * buffered, so that a table is written a buffer at a time rather than a
+	 * row at a time.
+	 *
+	 * @param args <code>[-failfast] script</code>
+	 * @return the exit status
+	 */
+	static int batch(String[] args) {
+		boolean failFast = args[0].equals("-failfast");
+		if (args.length != (failFast ? 2 : 1)) {
+			System.out.println("Usage: CSVProcessor [-failfast] [script]");
+			return UNREADABLE;
+		}
+		String name = args[args.length - 1];
+		PrintStream console = System.out;
+		PrintStream out = new PrintStream(new BufferedOutputStream(
+				new FileOutputStream(FileDescriptor.out), OUTPUT_BUFFER),
+				false);
+		System.setOut(out);
+		try {
+			BufferedReader script = new BufferedReader(name.equals("-")
+					? new InputStreamReader(System.in) : new FileReader(name));
+			try {
+				return runScript(script, failFast);
+			} finally {
+				script.close();
+			}
+		} catch (IOException e) {
+			System.out.println("Unable to read the script " + name + ": "
+					+ e.getMessage());
+			return UNREADABLE;
+		} finally {
+			out.flush();
+			System.setOut(console);
+		}
+	}
+
+	/**
+	 * Runs every command of a script, one a line, without prompting for
+	 * them, until its end or an <code>exit</code>. Blank lines, and lines
+	 * starting with <code>#</code>, are skipped. After each command, how
+	 * long it took and whether it failed is printed, and after the last one
+	 * how many ran and failed.
+	 *
+	 * @param script the commands
+	 * @param failFast whether to stop at the first command that fails
+	 * @return 0 if every command ran, or {@link #FAILED}
+	 * @throws IOException if the script can't be read
+	 */
+	static int runScript(BufferedReader script, boolean failFast)
+			throws IOException {
+		canContinue = true;
+		int commands = 0;
+		int failed = 0;
+		int firstFailure = 0;
+		int lineNumber = 0;
+		long start = System.nanoTime();
+		String line;
+		while (canContinue && (line = script.readLine()) != null) {
+			lineNumber++;
+			String command = line.trim();
+			if (command.isEmpty() || command.startsWith("#")) {
+				continue;
+			}
+			long begin = System.nanoTime();
+			boolean ran = parseText(command);
+			commands++;
+			if (!ran && failed++ == 0) {
+				firstFailure = lineNumber;
+			}
+			System.out.println(String.format("-- line %d %s in %.3f ms: %s",
+					lineNumber, ran ? "ran" : "FAILED",
+					(System.nanoTime() - begin) / 1e6, command));
+			if (!ran && failFast) {
+				break;
+			}
+		}
+		System.out.println(String.format("-- %d commands in %.3f ms, %d "
+				+ "failed%s", commands, (System.nanoTime() - start) / 1e6,
+				failed, failed == 0 ? ""
+						: ", the first at line " + firstFailure
+						+ (failFast ? ", where the script stopped" : "")));
+		return failed == 0 ? 0 : FAILED;
+	}
+
 	/**
 	 * Does any cleanUp required before exiting, sets the canContinue to
 	 * false and flags the program for termination.
 	 */
-	private static void exit() {
+	static void exit() {
 		canContinue = false;
 	}
 
@@ -60,399 +182,263 @@ public class CSVProcessor {
 	 * <code>input</code>
 	 *
 	 * @param input The string input by the user
+	 * @return whether the command was valid and ran without failing
 	 */
-	private static void parseText(String input) {
-		String[] command = input.split(" "); //Split input into commands
+	static boolean parseText(String input) {
+		Command command;
+		try {
+			command = PARSER.parse(input);
+		} catch (ParseException e) {
+			invalid(input, e);
+			return false;
+		}
 
-		//check input entered by user follows extended syntax rules.
 		try {
-			if (!isValid(input)) {
-				System.out.println("You've entered an illegal "
-						+ "character, please try again.");
-			} else if (isLoad(command)) {
-				if (command.length == 4) {
-					//if [header] not given assume no header
-					database.load(false, command[1].trim(), command[3].trim());
-				} else {
-					database.load(true, command[2].trim(), command[4].trim());
+			switch (command.kind()) {
+			case DEFINE:
+				String[] define = new String[command.operands() + 1];
+				define[0] = "define";
+				for (int o = 0; o < command.operands(); o++) {
+					define[o + 1] = command.operand(o);
 				}
-			} else if (isCheck(input)) {
-				database.check(Arrays.copyOfRange(command, 1, command.length));
-			} else if (isExit(input)) {
+				database.define(define);
+				break;
+			case LOAD:
+				return database.load(command.has(Command.HEADED),
+						command.has(Command.PARALLEL), command.operand(0),
+						command.operand(1));
+			case SAVE:
+				if (command.root() >= 0) {
+					return database.save(command, command.root(),
+							command.operand(0));
+				}
+				return database.save(command.operand(0), command.operand(1));
+			case PRINT:
+				database.print(command.operand(0));
+				break;
+			case CHECK:
+				database.check(new String[] {command.operand(0) + "("
+						+ command.operand(1) + ")", "references",
+						command.operand(2) + "(" + command.operand(3) + ")"});
+				break;
+			case INDEX:
+				return database.index(command.operand(0), command.operand(1),
+						command.has(Command.HASH));
+			case EXIT:
 				exit();
-			} else if (isSave(command)) {
-				database.save(command[1], command[2]);
-			} else if (isPrint(command)) {
-				database.print(command[1]);
-			} else if (isDefine(command)) {
-				database.define(command);
-			} else if (isAssign(input)) { //"words = words(anything)"
-				String[] assignCmd = input.split("=", 2);
-				//parseAssign (new tablename, assign command)
-				parseAssign(assignCmd[0], assignCmd[1]);
-			} else {
-				System.out.println("The command: \"" + input
-						+ "\" is not valid, Please try again.");
+				break;
+			case EXPLAIN:
+				System.out.print(command.has(Command.ANALYZE)
+						? database.explainAnalyze(command, command.root())
+						: database.explain(command, command.root()));
+				break;
+			default:
+				return parseAssign(command);
 			}
+			return true;
 			//Catch any possible exceptions; give meaningful message
+		} catch (ParseException e) {
+			invalid(input, e);
 		} catch (NoSuchTableException e) {
 			System.out.println(e.getMessage());
 		} catch (ColumnIndexOutOfBoundsException e) {
 			System.out.println(e.getMessage());
+		} catch (IllegalArgumentException e) { //such as a product too large
+			System.out.println(e.getMessage());
 		} catch (Exception e) {
 			System.out.println("You just threw a " + e.getClass()
 					+ ". Sorry about that.");
 		}
+		return false;
 	}
 
 	/**
-	 * Parses
-	 * <code>input</code> and reacts according the assignment command in
-	 * <code>input</code>
+	 * Prints what is wrong with a command, and where, with a caret under
+	 * the command where the mistake was found.
 	 *
-	 * @param tableName The name of the table to change
-	 * @param cmd The assignment command which specifies what to do with the
-	 * table
-	 * @throws NoSuchTableException if any of the commands can't find the
-	 * required Table
-	 * @throws ColumnIndexOutOfBoundsException if any of the commands have
-	 * been given a column index that is out of bounds
+	 * @param input the command
+	 * @param e the mistake, at its offset into the command
 	 */
-	private static void parseAssign(String tableName, String cmd)
-			throws NoSuchTableException, ColumnIndexOutOfBoundsException {
-		//extracting assign command parameters from cmd
-		String[] splitCmd = cmd.trim().split("\\(|\\)");
-
-		if (splitCmd.length != 2) {
-			System.out.println("There are too many brackets, "
-					+ "Please try again");
+	private static void invalid(String input, ParseException e) {
+		int offset = e.getErrorOffset();
+		if (e.getMessage().equals("Illegal character")) {
+			System.out.println("You've entered an illegal "
+					+ "character, please try again.");
 			return;
 		}
-
-		Table t;
-		//Check assign parameters and call required methods
-		if (isRows(splitCmd)) {
-			t = database.rowsCheck(splitCmd[1]);
-		} else if (isColumns(splitCmd)) {
-			t = database.columnsCheck(splitCmd[1]);
-		} else if (isProduct(splitCmd)) {
-			t = database.product(splitCmd[1]);
-		} else if (isJoin(splitCmd)) {
-			t = database.join(splitCmd[1]);
-		} else if (isOrderBy(splitCmd)) {
-			t = database.orderBy(splitCmd[1]);
-		} else if (isNaturalJoin(splitCmd)) {
-			t = database.naturalJoin(splitCmd[1], false);
-		} else if (isOuterJoin(splitCmd)) {
-			t = database.outerJoin(splitCmd[1]);
-		} else if (isNaturalOuterJoin(splitCmd)) {
-			t = database.naturalJoin(splitCmd[1], true);
-		} else {
-			t = new Table(new ArrayList<Boolean>());
-			System.out.println("Invalid command, please try again.");
-		}
-
-		if (t != null && t.size() != 0) { //if t is Table of right size
-			database.add(tableName.trim(), t);
-		} else {
-			database.remove(tableName);
-			System.out.println(tableName + "is an empty table."
-					+ "\nIt has not been added to the database.");
+		StringBuilder caret = new StringBuilder("  ");
+		for (int i = 0; i < offset; i++) {
+			caret.append(input.charAt(i) == '\t' ? '\t' : ' ');
 		}
+		System.out.println("The command: \"" + input + "\" is not valid: "
+				+ e.getMessage() + " at column " + (offset + 1)
+				+ ". Please try again.\n  " + input + "\n"
+				+ caret.append('^'));
 	}
 
 	/**
-	 * Checks the user input to see if it is a valid command, i.e. one
-	 * without any \r, \n or \f characters
+	 * Runs an assignment and stores its result. A single command given
+	 * only tables, and columns or values as the single commands accept
+	 * them, is run by the {@link Database} method of the command; any other
+	 * expression, such as one with commands nested inside it, is compiled
+	 * and run as one pipeline.
 	 *
-	 * @param cmd the user input
-	 * @return <code>true</code> if user input does not have any \r,\n,\f or
-	 * other non-standard characters, <code>false</code> if it does.
-	 */
-	private static boolean isValid(String cmd) {
-		return !cmd.matches(".*(\\r|\\n|\\f).*");
-	}
-
-	/**
-	 * Checks the user input to see if it is an exit command, i.e. of the
-	 * form <code>exit</code>
-	 *
-	 * @param cmd the user input split along spaces
-	 * @return whether the user input is of the form <code>exit</code>
-	 */
-	private static boolean isExit(String cmd) {
-		return cmd.equalsIgnoreCase("exit");
-	}
-
-	/**
-	 * Checks the user input to see if it is a save command, i.e. of the
-	 * form <code>save tableName fileName</code>
-	 *
-	 * @param cmd the user input split along spaces
-	 * @return whether the user input is of the form
-	 * <code>save tableName fileName</code>
+	 * @param command the assignment
+	 * @throws ParseException if a value doesn't fit its column
+	 * @throws NoSuchTableException if any of the commands can't find the
+	 * required Table
+	 * @throws ColumnIndexOutOfBoundsException if any of the commands have
+	 * been given a column index that is out of bounds
+	 * @return whether the command was valid
 	 */
-	private static boolean isSave(String[] cmd) {
-		return cmd.length == 3 && cmd[0].equalsIgnoreCase("save")
-				&& cmd[2].matches("[A-Za-z.]+");
-	}
+	private static boolean parseAssign(Command command)
+			throws ParseException, NoSuchTableException,
+			ColumnIndexOutOfBoundsException {
+		int root = command.root();
+		if (!isSingle(command, root)) {
+			store(command.operand(0), database.evaluate(command, root));
+			return true;
+		}
 
-	/**
-	 * Checks the given command to see if it's a valid check command, i.e.
-	 * of the form
-	 * <code>check tableName(column) reference tableName(column)</code>.
-	 * The given <code>column</code> can be either a digit or a word.
-	 *
-	 * @param cmd the user input command
-	 * @return whether or not the given cmd is of the form
-	 * <code>check tableName(column) reference tableName(column)</code>
-	 */
-	private static boolean isCheck(String cmd) {
-		return cmd.matches("check\\s+[A-Za-z]+\\s*\\(\\s*[A-Za-z0-9]+\\s*\\)"
-				+ "\\s+references\\s+[A-Za-z]+\\s*\\(\\s*[A-Za-z0-9]+\\s*\\)");
+		String args = command.arguments(root);
+		Table t;
+		switch (command.operation(root)) {
+		case Command.ROWS:
+			t = database.rowsCheck(args);
+			break;
+		case Command.COLUMNS:
+			t = database.columnsCheck(args);
+			break;
+		case Command.PRODUCT:
+			t = database.product(args);
+			break;
+		case Command.JOIN:
+			t = database.join(args);
+			break;
+		case Command.OUTER_JOIN:
+			t = database.outerJoin(args);
+			break;
+		case Command.NATURAL_JOIN:
+			t = database.naturalJoin(args, false);
+			break;
+		case Command.OUTER_NATURAL_JOIN:
+			t = database.naturalJoin(args, true);
+			break;
+		case Command.ORDER_BY:
+			t = database.orderBy(args);
+			break;
+		default:
+			t = database.groupBy(args);
+			break;
+		}
+		store(command.operand(0), t);
+		return true;
 	}
 
 	/**
-	 * Checks the user input to see if it is a define command, i.e. of the
-	 * form <code>define tableName (string|int), (string|int) ... </code>
+	 * Checks whether an expression is a single command that its
+	 * {@link Database} method can run: its tables are named with letters,
+	 * its columns are all indices or all headers of letters, and a rows
+	 * command compares with a whole number that isn't negative.
 	 *
-	 * @param cmd the user input split along spaces
-	 * @return whether the user input is of the form
-	 * <code>define tableName (string|int), (string|int) ... </code>
+	 * @param command the command holding the expression
+	 * @param node the node of the expression
+	 * @return whether it's a single command
 	 */
-	private static boolean isDefine(String[] cmd) {
-		//return false if there's under 3 arguments, cmd[0] isn't define
-		//the given table name has non-alphabetic characters
-		//or the column definitions are not given between parenthesis
-		if (cmd.length < 3 || !cmd[0].trim().equalsIgnoreCase("define")
-				|| !cmd[1].trim().matches("[A-Za-z]+")
-				|| !cmd[2].contains("(")
-				|| !cmd[cmd.length - 1].contains(")")) {
+	private static boolean isSingle(Command command, int node) {
+		if (command.nodeKind(node) != Command.CALL) {
 			return false;
 		}
-		//if there is a non-"String" or non-"Int" item, return false.
-		for (int i = 2; i < cmd.length; i++) {
-
-			//deal with (,), and , unwanted chars
-			cmd[i] = cmd[i].replaceAll("\\(|\\)|,", "");
-
-			//this program is case-insensitive
-			if (!cmd[i].equalsIgnoreCase("string")
-					&& !cmd[i].equalsIgnoreCase("int")) {
+		int operation = command.operation(node);
+		if (operation == Command.ORDER_BY) {
+			//one column, without asc or desc, is all orderBy knows
+			int column = command.nextSibling(command.firstChild(node));
+			if (command.nextSibling(column) >= 0
+					|| !command.source(column).equals(
+							command.nodeText(column))) {
 				return false;
 			}
 		}
-
-		return true;
-
-	}
-
-	/**
-	 * Checks the user input to see if it is a print command, i.e. of the
-	 * form <code>print tableName</code>
-	 *
-	 * @param cmd the user input split along spaces
-	 * @return whether the user input is of the form
-	 * <code>save tableName</code>
-	 */
-	private static boolean isPrint(String[] cmd) {
-		return cmd.length == 2
-				&& cmd[0].trim().equalsIgnoreCase("print");
-	}
-
-	/**
-	 * Checks the user input to see if it is an assign command, i.e. of
-	 * the form <code>[outer] join(tableName(1),tableName(2), col(1a),
-	 * col(1b),..., col(na),col(nb))</code>
-	 *
-	 * @param cmd the user input split along spaces
-	 * @return whether or not cmd is of the form <code>[outer] join(
-	 * tableName(1),tableName(2), col(1a), col(1b),..., col(na),col(nb))
-	 * </code>
-	 */
-	private static boolean isOuterJoin(String[] cmd) {
-		//"outer join" bundled, need to part it like: "outer", "join"
-		String[] cmdSignature = cmd[0].split(" ");
-		String[] specifications = {cmdSignature[1], cmd[1]};
-		return cmdSignature[0].trim().equalsIgnoreCase("outer")
-				&& isJoin(specifications);
-	}
-
-	/**
-	 * Checks the user input to see if it is an assign command, i.e. of
-	 * the form <code>[outer] naturaljoin(tableName(1),tableName(2))</code>
-	 *
-	 * @param cmd the user input split along spaces
-	 * @return whether or not cmd is of the form <code>[outer] naturaljoin(
-	 * tableName(1),tableName(2)) </code>
-	 */
-	private static boolean isNaturalOuterJoin(String[] cmd) {
-		//"outer join" bundled, need to part it like: "outer", "join"
-		String[] cmdSignature = cmd[0].split(" ");
-		String[] specifications = {cmdSignature[1], cmd[1]};
-		return cmdSignature[0].trim().equalsIgnoreCase("outer")
-				&& isNaturalJoin(specifications);
-	}
-
-	/**
-	 * Checks if user input is an assign command, i.e. of the form
-	 * <code>varName = assignCmd(assignParam)</code> or
-	 * <code>varName = [options] assignCmd(assignParam)</code>
-	 *
-	 * @param cmd the user input split along spaces
-	 * @return whether the user input is of the form
-	 * <code>varName = [options] assignCmd(assignParam)</code>
-	 */
-	private static boolean isAssign(String cmd) {
-		return cmd.matches(
-				"^\\s*[A-Za-z]+\\s*=\\s*[A-Za-z\\s]+\\s*\\(.*\\)\\s*$");
-	}
-	/**
-	 * Checks the assign command to see if it's a valid load command, i.e.
-	 * of the form <code>load [headed] <name> from <filename></code>
-	 * and following BNF syntax rules.
-	 *
-	 * @param cmd the assign command where index[0] is the command keyword
-	 * and elements at other indices are loading specifications.
-	 * @return whether or not the given command is of the form
-	 * <code>load [headed] <name> from <filename></code>
-	 */
-	private static boolean isLoad(final String[] cmd) {
-
-		if (cmd.length == 4) {
-			//check elements given in command are valid
-			return cmd[0].trim().equalsIgnoreCase("load")
-					&& cmd[1].matches("^\\s*[A-Za-z]+\\s*$")
-					&& cmd[2].matches("^\\s*from\\s*$")
-					&& cmd[3].matches("^\\s*[A-Za-z.]+\\s*$");
+		if (operation == Command.TOP) {
+			//which has no Database method of its own
+			return false;
 		}
-
-		if (cmd.length == 5) {
-			//check elements given in command are valid
-			return cmd[0].trim().equalsIgnoreCase("load")
-					&& cmd[1].matches("^\\s*headed\\s*$")
-					&& cmd[2].matches("^\\s*[A-Za-z]+\\s*$")
-					&& cmd[3].matches("^\\s*from\\s*$")
-					&& cmd[4].matches("^\\s*[A-Za-z.]+\\s*$");
+		int tables = operation == Command.PRODUCT
+				|| operation == Command.JOIN
+				|| operation == Command.OUTER_JOIN
+				|| operation == Command.NATURAL_JOIN
+				|| operation == Command.OUTER_NATURAL_JOIN ? 2 : 1;
+		int arg = command.firstChild(node);
+		for (int i = 0; i < tables; i++, arg = command.nextSibling(arg)) {
+			if (command.nodeKind(arg) != Command.TABLE
+					|| !command.isWord(command.token(arg), false, false)) {
+				return false;
+			}
 		}
-
-		return false;
-	}
-
-	/**
-	 * Checks the assign command to see if it's a valid rows command, i.e.
-	 * of the form
-	 * <code>rows(tableName,colNumber,comparator,value)</code>
-	 *
-	 * @param cmd assign command where index[0] is the command and index[1]
-	 * is the parameters
-	 * @return whether or not the given cmd is of the form
-	 * <code>rows(tableName,colNumber,comparator,value)</code>
-	 */
-	private static boolean isRows(String[] cmd) {
-		return cmd[0].trim().equalsIgnoreCase("rows")
-				&& cmd[1].matches("^\\s*[A-Za-z]+\\s*"
-						+ ",\\s*([0-9]+|[A-Za-z]+)\\s*"
-						+ ",\\s*(<|<=|==|>=|>)\\s*" + ",\\s*[0-9]+\\s*$");
-	}
-
-	/**
-	 * Checks the assign command to see if it's a valid columns command,
-	 * i.e. of the form
-	 * <code>columns(tableName,col(1),col(2),...,col(n))</code>, where
-	 * col(i) is the i-th column number provided by the user.
-	 *
-	 * @param cmd assign command where index[0] is the command and index[1]
-	 * is the parameters
-	 * @return whether or not the given cmd is of the form
-	 * <code>columns(tableName,col(1),col(2),...,col(n))</code>
-	 */
-	private static boolean isColumns(String[] cmd) {
-		return cmd[0].trim().equalsIgnoreCase("columns")
-				&& (cmd[1].matches("^\\s*[A-Za-z]+\\s*"
-						+ "(,\\s*[0-9]+\\s*)+$")
-						|| cmd[1].matches("^\\s*[A-Za-z]+\\s*"
-								+ "(,\\s*[A-Za-z]+\\s*)+$"));
-
-	}
-
-	/**
-	 * Checks the assign command to see if it's a valid columns command,
-	 * i.e. of the form
-	 * <code>product(tableName(1),tableName(2)</code> where tableName(1) and
-	 * tableName(2) are the names of the first and second tables.
-	 *
-	 * @param cmd assign command where index[0] is the command and index[1]
-	 * is the parameters
-	 * @return whether or not the given cmd is of the form
-	 * <code>join(tableName(1),tableName(2)</code>.
-	 */
-	private static boolean isProduct(String[] cmd) {
-		return cmd[0].trim().equalsIgnoreCase("product")
-				&& cmd[1].matches("^\\s*[A-Za-z]+\\s*"
-						+ ",\\s*[A-Za-z]+\\s*$");
-	}
-
-	/**
-	 * Checks the assign command to see if it's a valid columns command,
-	 * i.e. of the form
-	 * <code>join(tableName(1),tableName(2), col(1a),col(1b),...,
-	 * col(na),col(nb))</code>. Where tableName(1) and tableName(2) are the
-	 * names of the first and second tables that are to be joined and
-	 * <col(ia),col(ib)> are the first, second column numbers, respectively,
-	 * of the ith column pair provided by user. The command list must have
-	 * an even number of columns for this to return true
-	 *
-	 * @param cmd assign command where index[0] is the command and index[1]
-	 * is the parameters
-	 * @return whether or not the given cmd is of the form
-	 * <code>join(tableName(1),tableName (2), col(1a),col(1b),...,
-	 * 			col(na),col(nb))</code>.
-	 */
-	private static boolean isJoin(String[] cmd) {
-		//accept cmd: [<name>, <name>, <intpairs>]
-		//or [<name>, <name>, <namepairs>]
-		return cmd[0].trim().equalsIgnoreCase("join")
-				&& (cmd[1].matches("^\\s*[A-Za-z]+\\s*"
-						+ ",\\s*[A-Za-z]+\\s*"
-						+ "(,\\s*[0-9]+\\s*,\\s*[0-9]+\\s*)+$")
-						|| cmd[1].matches("^\\s*[A-Za-z]+\\s*"
-								+ ",\\s*[A-Za-z]+\\s*"
-								+ "(,\\s*[A-Za-z]+\\s*,\\s*[A-Za-z]+\\s*)+$"));
+		if (operation == Command.ROWS) {
+			int value = command.nextSibling(command.nextSibling(arg));
+			return (isPlain(command, arg, true)
+					|| isPlain(command, arg, false))
+					&& command.nodeKind(value) == Command.VALUE
+					&& isPlain(command, value, true);
+		}
+		boolean indices = true;
+		boolean headers = true;
+		boolean either = true;
+		int items = 0;
+		for (; arg >= 0; arg = command.nextSibling(arg), items++) {
+			int column = command.nodeKind(arg) == Command.AGGREGATE
+					? command.firstChild(arg) : arg;
+			if (command.nodeKind(column) == Command.ALL) {
+				continue;
+			}
+			boolean index = isPlain(command, column, true);
+			boolean header = isPlain(command, column, false);
+			indices &= index;
+			headers &= header;
+			either &= index || header;
+		}
+		//only a groupBy can mix indices and headers, but it needs an item
+		if (operation == Command.GROUP_BY) {
+			return items > 0 && either;
+		}
+		return (items > 0 || operation != Command.COLUMNS)
+				&& (indices || headers);
 	}
 
 	/**
-	 * Checks the assign command to see if it's a valid orderBy command,
-	 * i.e. of the form
-	 * <code>orderBy(tableName,columnNumber)</code>
+	 * Checks whether a node is a whole number that isn't negative, or a
+	 * word of letters.
 	 *
-	 * @param cmd assign command where index[0] is the command and index[1]
-	 * is the parameters
-	 * @return whether or not the given cmd is of the form
-	 * <code>orderBy(tableName,columnNumber)</code>
+	 * @param command the command holding the node
+	 * @param node the node
+	 * @param number whether to check for a number rather than a word
+	 * @return whether it is
 	 */
-	private static boolean isOrderBy(String[] cmd) {
-		return cmd[0].trim().equalsIgnoreCase("orderBy")
-				&& cmd[1].matches("^\\s*[A-Za-z]+\\s*,\\s*"
-						+ "([0-9]+|[A-Za-z]+)\\s*$");
+	private static boolean isPlain(Command command, int node,
+			boolean number) {
+		int token = command.token(node);
+		if (!number) {
+			return command.isWord(token, false, false);
+		}
+		return command.tokenKind(token) == Lexer.NUMBER
+				&& command.text().charAt(command.start(token)) != '-';
 	}
 
 	/**
-	 * Checks the assign command to see if it's a valid columns command
-	 * i.e. of the form
-	 * <code>naturaljoin(tableName(1),tableName(2)) </code>. Where
-	 * tableName(1) and tableName(2) are the names of the first and second
-	 * tables that are to be joined.
+	 * Stores the result of an assignment under the given name, unless it's
+	 * empty, in which case the name is removed instead.
 	 *
-	 * @param cmd assign command where index[0] is the command and index[1]
-	 * 				is the parameters
-	 * @return whether or not the given cmd is of the form
-	 * <code>naturaljoin(tableName(1),tableName (2))</code>.
+	 * @param tableName The name of the table to change
+	 * @param t the result of the assignment
 	 */
-	private static boolean isNaturalJoin(String[] cmd) {
-		//accept cmd: [<name>, <name>]
-		return cmd[0].trim().equalsIgnoreCase("naturaljoin")
-				&& cmd[1].matches("^\\s*[A-Za-z]+\\s*"
-						+ ",\\s*[A-Za-z]+\\s*$");
+	private static void store(String tableName, Table t) {
+		if (t != null && t.size() != 0) { //if t is Table of right size
+			database.add(tableName.trim(), t);
+		} else {
+			database.remove(tableName);
+			System.out.println(tableName + " is an empty table."
+					+ "\nIt has not been added to the database.");
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,666 @@
+package parser;
+
+/**
+ * A command line as a {@link CommandParser} parses it: the kind of command,
+ * its options, the tokens it names tables, columns and files with, and the
+ * tree of the expression it runs, if any.<br/>
+ * <br/>
+ * Everything is kept in arrays of ints that are reused from one command
+ * line to the next, so parsing allocates nothing once they've grown to fit
+ * the longest line. A token is a number, from 0, of which the kind and
+ * offsets in the line are kept; Strings are only made of the tokens asked
+ * for by {@link #text(int)}. Likewise a node of the expression tree is a
+ * number, of which the kind, main token, first child and next sibling are
+ * kept. The nodes are
+ * <ul>
+ * <li>{@link #TABLE}, a table, named by its token;</li>
+ * <li>{@link #CALL}, a command, named by its token, with the expressions
+ * and other arguments it is given as its children;</li>
+ * <li>{@link #COLUMN}, a column, by index or header, and to sort by,
+ * followed by <code>asc</code> or not;</li>
+ * <li>{@link #DESCENDING}, a column to sort by, followed by
+ * <code>desc</code>;</li>
+ * <li>{@link #VALUE}, a number or word to compare a column with;</li>
+ * <li>{@link #COMPARISON}, a comparator;</li>
+ * <li>{@link #OTHER_COLUMN}, a column to compare a column with, as in
+ * <code>column(3)</code>, whose token is the column;</li>
+ * <li>{@link #AGGREGATE}, an aggregate of a groupBy, named by its token,
+ * with the column it aggregates, or {@link #ALL} for <code>*</code>, as
+ * its child.</li>
+ * </ul>
+ * A command holds the line last parsed, until the next one is.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class Command {
+
+	/**
+	 * The kinds of command.
+	 */
+	enum Kind {
+		/** <code>define name (type, ...)</code> */
+		DEFINE,
+		/** <code>load [headed] [parallel] name from file</code> */
+		LOAD,
+		/** <code>save name | expr file</code> */
+		SAVE,
+		/** <code>print name</code> */
+		PRINT,
+		/** <code>check name(col) references name(col)</code> */
+		CHECK,
+		/** <code>index [hash] name(col)</code> */
+		INDEX,
+		/** <code>exit</code> */
+		EXIT,
+		/** <code>explain [analyze] [name =] expr</code> */
+		EXPLAIN,
+		/** <code>name = expr</code> */
+		ASSIGN,
+		/** <code>expr</code> on its own */
+		EXPRESSION
+	}
+
+	/**
+	 * A table, named by its token.
+	 */
+	static final int TABLE = 0;
+
+	/**
+	 * A command with its arguments as children.
+	 */
+	static final int CALL = 1;
+
+	/**
+	 * A column, by index or header.
+	 */
+	static final int COLUMN = 2;
+
+	/**
+	 * A value to compare a column with.
+	 */
+	static final int VALUE = 3;
+
+	/**
+	 * A comparator.
+	 */
+	static final int COMPARISON = 4;
+
+	/**
+	 * A column to compare a column with.
+	 */
+	static final int OTHER_COLUMN = 5;
+
+	/**
+	 * An aggregate, with what it aggregates as its child.
+	 */
+	static final int AGGREGATE = 6;
+
+	/**
+	 * Every row, as in <code>count(*)</code>.
+	 */
+	static final int ALL = 7;
+
+	/**
+	 * A column to sort by in descending order, whose token is the column
+	 * and whose last token is <code>desc</code>.
+	 */
+	static final int DESCENDING = 8;
+
+	/**
+	 * The rows command of a {@link #CALL}.
+	 */
+	static final int ROWS = 0;
+
+	/**
+	 * The columns command of a {@link #CALL}.
+	 */
+	static final int COLUMNS = 1;
+
+	/**
+	 * The product command of a {@link #CALL}.
+	 */
+	static final int PRODUCT = 2;
+
+	/**
+	 * The join command of a {@link #CALL}.
+	 */
+	static final int JOIN = 3;
+
+	/**
+	 * The outer join command of a {@link #CALL}.
+	 */
+	static final int OUTER_JOIN = 4;
+
+	/**
+	 * The naturaljoin command of a {@link #CALL}.
+	 */
+	static final int NATURAL_JOIN = 5;
+
+	/**
+	 * The outer naturaljoin command of a {@link #CALL}.
+	 */
+	static final int OUTER_NATURAL_JOIN = 6;
+
+	/**
+	 * The orderBy command of a {@link #CALL}.
+	 */
+	static final int ORDER_BY = 7;
+
+	/**
+	 * The groupBy command of a {@link #CALL}.
+	 */
+	static final int GROUP_BY = 8;
+
+	/**
+	 * The top command of a {@link #CALL}.
+	 */
+	static final int TOP = 9;
+
+	/**
+	 * The option of a load to read a header first.
+	 */
+	static final int HEADED = 1;
+
+	/**
+	 * The option of a load to parse in parallel.
+	 */
+	static final int PARALLEL = 2;
+
+	/**
+	 * The option of an index to be a hash index.
+	 */
+	static final int HASH = 4;
+
+	/**
+	 * The option of an explain to run the expression.
+	 */
+	static final int ANALYZE = 8;
+
+	/**
+	 * The command line.
+	 */
+	private String text = "";
+
+	/**
+	 * The kind of command.
+	 */
+	private Kind kind;
+
+	/**
+	 * The options given, as {@link #HEADED}, {@link #PARALLEL},
+	 * {@link #HASH} and {@link #ANALYZE} bits.
+	 */
+	private int options;
+
+	/**
+	 * The number of tokens.
+	 */
+	private int tokens;
+
+	/**
+	 * The kind of each token, as {@link Lexer} numbers them.
+	 */
+	private int[] tokenKinds = new int[16];
+
+	/**
+	 * The offset of the first character of each token.
+	 */
+	private int[] starts = new int[16];
+
+	/**
+	 * The offset just after the last character of each token.
+	 */
+	private int[] ends = new int[16];
+
+	/**
+	 * The number of operands.
+	 */
+	private int operands;
+
+	/**
+	 * The tokens the command names its tables, columns, files and types
+	 * with, in the order they're written, outside of its expression.
+	 */
+	private int[] operandTokens = new int[8];
+
+	/**
+	 * The number of nodes.
+	 */
+	private int nodes;
+
+	/**
+	 * The kind of each node.
+	 */
+	private int[] nodeKinds = new int[16];
+
+	/**
+	 * The main token of each node.
+	 */
+	private int[] nodeTokens = new int[16];
+
+	/**
+	 * The command of each {@link #CALL}.
+	 */
+	private int[] operations = new int[16];
+
+	/**
+	 * The first child of each node, or -1.
+	 */
+	private int[] firstChildren = new int[16];
+
+	/**
+	 * The next sibling of each node, or -1.
+	 */
+	private int[] nextSiblings = new int[16];
+
+	/**
+	 * The last token of each node.
+	 */
+	private int[] lastTokens = new int[16];
+
+	/**
+	 * The node of the expression, or -1.
+	 */
+	private int root;
+
+	/**
+	 * Forgets the last command line and starts on another.
+	 *
+	 * @param line the command line
+	 */
+	void reset(String line) {
+		text = line;
+		kind = null;
+		options = 0;
+		tokens = 0;
+		operands = 0;
+		nodes = 0;
+		root = -1;
+	}
+
+	/**
+	 * Adds a token.
+	 *
+	 * @param tokenKind its kind
+	 * @param start the offset of its first character
+	 * @param end the offset just after its last character
+	 */
+	void addToken(int tokenKind, int start, int end) {
+		if (tokens == starts.length) {
+			tokenKinds = grow(tokenKinds);
+			starts = grow(starts);
+			ends = grow(ends);
+		}
+		tokenKinds[tokens] = tokenKind;
+		starts[tokens] = start;
+		ends[tokens] = end;
+		tokens++;
+	}
+
+	/**
+	 * Adds an operand.
+	 *
+	 * @param token the token it's written as
+	 */
+	void addOperand(int token) {
+		if (operands == operandTokens.length) {
+			operandTokens = grow(operandTokens);
+		}
+		operandTokens[operands++] = token;
+	}
+
+	/**
+	 * Adds a node without children.
+	 *
+	 * @param nodeKind its kind
+	 * @param token its main token, which is also its last until
+	 *            {@link #setLast(int, int)} says otherwise
+	 * @return the node
+	 */
+	int addNode(int nodeKind, int token) {
+		if (nodes == nodeKinds.length) {
+			nodeKinds = grow(nodeKinds);
+			nodeTokens = grow(nodeTokens);
+			operations = grow(operations);
+			firstChildren = grow(firstChildren);
+			nextSiblings = grow(nextSiblings);
+			lastTokens = grow(lastTokens);
+		}
+		nodeKinds[nodes] = nodeKind;
+		nodeTokens[nodes] = token;
+		operations[nodes] = -1;
+		firstChildren[nodes] = -1;
+		nextSiblings[nodes] = -1;
+		lastTokens[nodes] = token;
+		return nodes++;
+	}
+
+	/**
+	 * Adds a node to the children of another, after its last child.
+	 *
+	 * @param parent the parent
+	 * @param last the last child of the parent so far, or -1
+	 * @param child the new child
+	 * @return the child, the parent's last now
+	 */
+	int addChild(int parent, int last, int child) {
+		if (last < 0) {
+			firstChildren[parent] = child;
+		} else {
+			nextSiblings[last] = child;
+		}
+		return child;
+	}
+
+	/**
+	 * Sets the command of a {@link #CALL}.
+	 *
+	 * @param node the node
+	 * @param operation one of {@link #ROWS} to {@link #TOP}
+	 */
+	void setOperation(int node, int operation) {
+		operations[node] = operation;
+	}
+
+	/**
+	 * Sets the kind of a node.
+	 *
+	 * @param node the node
+	 * @param nodeKind its kind
+	 */
+	void setNodeKind(int node, int nodeKind) {
+		nodeKinds[node] = nodeKind;
+	}
+
+	/**
+	 * Sets the last token of a node.
+	 *
+	 * @param node the node
+	 * @param token its last token
+	 */
+	void setLast(int node, int token) {
+		lastTokens[node] = token;
+	}
+
+	/**
+	 * Sets the kind of command.
+	 *
+	 * @param commandKind the kind
+	 */
+	void setKind(Kind commandKind) {
+		kind = commandKind;
+	}
+
+	/**
+	 * Sets an option.
+	 *
+	 * @param option {@link #HEADED}, {@link #PARALLEL}, {@link #HASH} or
+	 *            {@link #ANALYZE}
+	 */
+	void setOption(int option) {
+		options |= option;
+	}
+
+	/**
+	 * Sets the node of the expression.
+	 *
+	 * @param node the node
+	 */
+	void setRoot(int node) {
+		root = node;
+	}
+
+	/**
+	 * Doubles the length of an array.
+	 *
+	 * @param a the array
+	 * @return a copy twice as long
+	 */
+	private static int[] grow(int[] a) {
+		int[] bigger = new int[a.length * 2];
+		System.arraycopy(a, 0, bigger, 0, a.length);
+		return bigger;
+	}
+
+	/**
+	 * Returns the command line.
+	 *
+	 * @return the line
+	 */
+	String text() {
+		return text;
+	}
+
+	/**
+	 * Returns the kind of command.
+	 *
+	 * @return the kind
+	 */
+	Kind kind() {
+		return kind;
+	}
+
+	/**
+	 * Returns whether an option was given.
+	 *
+	 * @param option {@link #HEADED}, {@link #PARALLEL}, {@link #HASH} or
+	 *            {@link #ANALYZE}
+	 * @return whether it was given
+	 */
+	boolean has(int option) {
+		return (options & option) != 0;
+	}
+
+	/**
+	 * Returns the number of tokens.
+	 *
+	 * @return the number of tokens
+	 */
+	int tokens() {
+		return tokens;
+	}
+
+	/**
+	 * Returns the kind of a token.
+	 *
+	 * @param token the token, or one past the last
+	 * @return its kind, as {@link Lexer} numbers them, or -1 past the last
+	 */
+	int tokenKind(int token) {
+		return token < tokens ? tokenKinds[token] : -1;
+	}
+
+	/**
+	 * Returns where a token starts.
+	 *
+	 * @param token the token, or one past the last
+	 * @return the offset of its first character, or the length of the
+	 *         line past the last token
+	 */
+	int start(int token) {
+		return token < tokens ? starts[token] : text.length();
+	}
+
+	/**
+	 * Returns where a token ends.
+	 *
+	 * @param token the token
+	 * @return the offset just after its last character
+	 */
+	int end(int token) {
+		return ends[token];
+	}
+
+	/**
+	 * Returns the text of a token.
+	 *
+	 * @param token the token
+	 * @return its text
+	 */
+	String text(int token) {
+		return text.substring(starts[token], ends[token]);
+	}
+
+	/**
+	 * Returns whether a token is the given word, in any case, without
+	 * making a String of it.
+	 *
+	 * @param token the token, or one past the last
+	 * @param word the word
+	 * @return whether the token is the word
+	 */
+	boolean is(int token, String word) {
+		return token < tokens && tokenKinds[token] == Lexer.WORD
+				&& ends[token] - starts[token] == word.length()
+				&& text.regionMatches(true, starts[token], word, 0,
+						word.length());
+	}
+
+	/**
+	 * Returns whether a token is a word made of letters and, if asked for,
+	 * digits and <code>_</code>, or <code>.</code>.
+	 *
+	 * @param token the token, or one past the last
+	 * @param digits whether digits and <code>_</code> are allowed
+	 * @param dots whether <code>.</code> is allowed
+	 * @return whether it is
+	 */
+	boolean isWord(int token, boolean digits, boolean dots) {
+		if (token >= tokens || tokenKinds[token] != Lexer.WORD) {
+			return false;
+		}
+		for (int i = starts[token]; i < ends[token]; i++) {
+			char c = text.charAt(i);
+			if (c == '.' ? !dots : !digits && (c == '_' || Lexer.isDigit(c))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of operands.
+	 *
+	 * @return the number of operands
+	 */
+	int operands() {
+		return operands;
+	}
+
+	/**
+	 * Returns the text of an operand: for a define, the table and then its
+	 * types; for a load or save, the table, unless an expression is saved,
+	 * and the file; for a print, the
+	 * table; for a check, each table and its column; for an index, the
+	 * table and the column; and for an assignment or explain, the table
+	 * assigned to, if any.
+	 *
+	 * @param operand the number of the operand
+	 * @return its text
+	 */
+	String operand(int operand) {
+		return text(operandTokens[operand]);
+	}
+
+	/**
+	 * Returns the node of the expression.
+	 *
+	 * @return the node, or -1 if the command has no expression
+	 */
+	int root() {
+		return root;
+	}
+
+	/**
+	 * Returns the kind of a node.
+	 *
+	 * @param node the node
+	 * @return one of {@link #TABLE} to {@link #ALL}
+	 */
+	int nodeKind(int node) {
+		return nodeKinds[node];
+	}
+
+	/**
+	 * Returns the main token of a node.
+	 *
+	 * @param node the node
+	 * @return the token
+	 */
+	int token(int node) {
+		return nodeTokens[node];
+	}
+
+	/**
+	 * Returns the command of a {@link #CALL}.
+	 *
+	 * @param node the node
+	 * @return one of {@link #ROWS} to {@link #TOP}
+	 */
+	int operation(int node) {
+		return operations[node];
+	}
+
+	/**
+	 * Returns the first child of a node.
+	 *
+	 * @param node the node
+	 * @return the child, or -1 if it has none
+	 */
+	int firstChild(int node) {
+		return firstChildren[node];
+	}
+
+	/**
+	 * Returns the next sibling of a node.
+	 *
+	 * @param node the node
+	 * @return the sibling, or -1 if it's the last child
+	 */
+	int nextSibling(int node) {
+		return nextSiblings[node];
+	}
+
+	/**
+	 * Returns the text of a node's main token.
+	 *
+	 * @param node the node
+	 * @return the text
+	 */
+	String nodeText(int node) {
+		return text(nodeTokens[node]);
+	}
+
+	/**
+	 * Returns the text of a node as it's written, from its first token to
+	 * its last.
+	 *
+	 * @param node the node
+	 * @return the text
+	 */
+	String source(int node) {
+		int first = nodeTokens[node];
+		if (nodeKinds[node] == CALL && (operations[node] == OUTER_JOIN
+				|| operations[node] == OUTER_NATURAL_JOIN)) {
+			first--; //the outer in front of it
+		}
+		return text.substring(starts[first], ends[lastTokens[node]]);
+	}
+
+	/**
+	 * Returns the text of the arguments of a {@link #CALL}, between its
+	 * brackets.
+	 *
+	 * @param node the node
+	 * @return the text
+	 */
+	String arguments(int node) {
+		return text.substring(ends[nodeTokens[node] + 1],
+				starts[lastTokens[node]]);
+	}
+}
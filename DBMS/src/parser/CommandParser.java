@@ -0,0 +1,528 @@
+package parser;
+
+import java.text.ParseException;
+
+/**
+ * Parses command lines into {@link Command}s, by recursive descent over the
+ * tokens the {@link Lexer} splits a line into. The grammar is<br/>
+ * <br/>
+ * <code>
+ * command := define name (type, ..., type)<br/>
+ * &nbsp;| load [headed] [parallel] name from file<br/>
+ * &nbsp;| save name | expr file<br/>
+ * &nbsp;| print name<br/>
+ * &nbsp;| check name(col) references name(col)<br/>
+ * &nbsp;| index [hash] name(col)<br/>
+ * &nbsp;| exit<br/>
+ * &nbsp;| explain [analyze] [name =] expr<br/>
+ * &nbsp;| name = expr<br/>
+ * <br/>
+ * expr := name<br/>
+ * &nbsp;| rows(expr, col, comparator, value | column(col))<br/>
+ * &nbsp;| columns(expr, col, ..., col)<br/>
+ * &nbsp;| product(expr, expr)<br/>
+ * &nbsp;| [outer] join(expr, expr, col, col, ..., col, col)<br/>
+ * &nbsp;| [outer] naturaljoin(expr, expr)<br/>
+ * &nbsp;| orderBy(expr, col [asc | desc], ...)<br/>
+ * &nbsp;| top(expr, col, number)<br/>
+ * &nbsp;| groupBy(expr, col, ..., agg(col | *), ...)<br/>
+ * </code>
+ * <br/>
+ * where keywords are in any case, a type is <code>int</code> or
+ * <code>string</code>, the names of commands are letters, a file is
+ * letters and dots, and the tables and columns of an expression are words
+ * or, for a column, its index. Only <code>count</code> can aggregate
+ * <code>*</code>.<br/>
+ * <br/>
+ * The whole line is read in one pass, with no regular expressions, and a
+ * mistake is reported at the offset of the token it was found at. The
+ * same {@link Command} is filled in by every parse, so a parser, once
+ * it's seen its longest line, parses without allocating, and is not to be
+ * shared between threads. Whether tables and columns exist is left to the
+ * {@link Planner}.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class CommandParser {
+
+	/**
+	 * The command filled in by each parse.
+	 */
+	private final Command command = new Command();
+
+	/**
+	 * The next token to read.
+	 */
+	private int position;
+
+	/**
+	 * Parses a command line.
+	 *
+	 * @param line the command line
+	 * @return the command, until the next parse
+	 * @throws ParseException if the line isn't a command, at the offset of
+	 *             the mistake
+	 */
+	Command parse(String line) throws ParseException {
+		start(line);
+		if (command.tokenKind(1) == Lexer.EQUALS) {
+			command.setKind(Command.Kind.ASSIGN);
+			target();
+			command.setRoot(expression());
+		} else if (command.is(0, "define")) {
+			command.setKind(Command.Kind.DEFINE);
+			position++;
+			name();
+			expect(Lexer.LEFT, "(");
+			do {
+				if (!command.is(position, "int")
+						&& !command.is(position, "string")) {
+					throw error("Expected Int or String");
+				}
+				command.addOperand(position++);
+				if (command.tokenKind(position) == Lexer.COMMA) {
+					position++;
+				}
+			} while (command.tokenKind(position) != Lexer.RIGHT);
+			position++;
+		} else if (command.is(0, "load")) {
+			command.setKind(Command.Kind.LOAD);
+			position++;
+			//an option is only one if a name still follows it
+			if (command.is(position, "headed")
+					&& !command.is(position + 1, "from")) {
+				command.setOption(Command.HEADED);
+				position++;
+			}
+			if (command.is(position, "parallel")
+					&& !command.is(position + 1, "from")) {
+				command.setOption(Command.PARALLEL);
+				position++;
+			}
+			name();
+			keyword("from");
+			file();
+		} else if (command.is(0, "save")) {
+			command.setKind(Command.Kind.SAVE);
+			position++;
+			//an expression is saved without storing it as a table
+			if (command.tokenKind(position + 1) == Lexer.LEFT
+					|| command.is(position, "outer")
+					&& command.tokenKind(position + 2) == Lexer.LEFT) {
+				command.setRoot(expression());
+			} else {
+				name();
+			}
+			file();
+		} else if (command.is(0, "print")) {
+			command.setKind(Command.Kind.PRINT);
+			position++;
+			name();
+		} else if (command.is(0, "check")) {
+			command.setKind(Command.Kind.CHECK);
+			position++;
+			reference();
+			keyword("references");
+			reference();
+		} else if (command.is(0, "index")) {
+			command.setKind(Command.Kind.INDEX);
+			position++;
+			if (command.is(position, "hash")
+					&& command.tokenKind(position + 1) == Lexer.WORD) {
+				command.setOption(Command.HASH);
+				position++;
+			}
+			reference();
+		} else if (command.is(0, "exit")) {
+			command.setKind(Command.Kind.EXIT);
+			position++;
+		} else if (command.is(0, "explain")) {
+			command.setKind(Command.Kind.EXPLAIN);
+			position++;
+			if (command.is(position, "analyze")
+					&& command.tokenKind(position + 1) == Lexer.WORD) {
+				command.setOption(Command.ANALYZE);
+				position++;
+			}
+			if (command.tokenKind(position + 1) == Lexer.EQUALS) {
+				target();
+			}
+			command.setRoot(expression());
+		} else {
+			throw error("Unknown command");
+		}
+		end();
+		return command;
+	}
+
+	/**
+	 * Parses an expression on its own, such as the one after the
+	 * <code>=</code> of an assignment.
+	 *
+	 * @param expr the expression
+	 * @return the command, of the kind {@link Command.Kind#EXPRESSION},
+	 *         until the next parse
+	 * @throws ParseException if the expression isn't well formed, at the
+	 *             offset of the mistake
+	 */
+	Command parseExpression(String expr) throws ParseException {
+		start(expr);
+		command.setKind(Command.Kind.EXPRESSION);
+		command.setRoot(expression());
+		end();
+		return command;
+	}
+
+	/**
+	 * Starts on a line, splitting it into tokens.
+	 *
+	 * @param line the line
+	 * @throws ParseException if a character can't be part of a token
+	 */
+	private void start(String line) throws ParseException {
+		command.reset(line);
+		position = 0;
+		Lexer.tokenize(line, command);
+	}
+
+	/**
+	 * Makes sure the whole line has been read.
+	 *
+	 * @throws ParseException if there are tokens left
+	 */
+	private void end() throws ParseException {
+		if (position < command.tokens()) {
+			throw error("Expected the end of the command");
+		}
+	}
+
+	/**
+	 * Reads the table assigned to and its <code>=</code>.
+	 *
+	 * @throws ParseException if they aren't there
+	 */
+	private void target() throws ParseException {
+		name();
+		expect(Lexer.EQUALS, "=");
+	}
+
+	/**
+	 * Reads a <code>name(col)</code>, as a check or index gives it.
+	 *
+	 * @throws ParseException if it isn't there
+	 */
+	private void reference() throws ParseException {
+		name();
+		expect(Lexer.LEFT, "(");
+		if (!isColumn(position)) {
+			throw error("Expected a column");
+		}
+		command.addOperand(position++);
+		expect(Lexer.RIGHT, ")");
+	}
+
+	/**
+	 * Reads the name of a table outside of an expression, which is only
+	 * letters.
+	 *
+	 * @throws ParseException if the next token isn't a name
+	 */
+	private void name() throws ParseException {
+		if (!command.isWord(position, false, false)) {
+			throw error("Expected a table name");
+		}
+		command.addOperand(position++);
+	}
+
+	/**
+	 * Reads a file name, which is letters and dots.
+	 *
+	 * @throws ParseException if the next token isn't a file name
+	 */
+	private void file() throws ParseException {
+		if (!command.isWord(position, false, true)) {
+			throw error("Expected a file name");
+		}
+		command.addOperand(position++);
+	}
+
+	/**
+	 * Reads the given keyword.
+	 *
+	 * @param word the keyword that has to come next
+	 * @throws ParseException if something else comes next
+	 */
+	private void keyword(String word) throws ParseException {
+		if (!command.is(position, word)) {
+			throw error("Expected \"" + word + "\"");
+		}
+		position++;
+	}
+
+	/**
+	 * Reads an expression.
+	 *
+	 * @return its node
+	 * @throws ParseException if the expression isn't well formed
+	 */
+	private int expression() throws ParseException {
+		int name = position;
+		boolean outer = command.is(name, "outer")
+				&& (command.is(name + 1, "join")
+						|| command.is(name + 1, "naturaljoin"));
+		if (outer) {
+			name++;
+		}
+		if (!command.isWord(name, true, false)) {
+			throw error("Expected a table name or a command");
+		}
+		position = name + 1;
+		if (!outer && command.tokenKind(position) != Lexer.LEFT) {
+			return command.addNode(Command.TABLE, name);
+		}
+
+		int operation = operation(name, outer);
+		int call = command.addNode(Command.CALL, name);
+		command.setOperation(call, operation);
+		expect(Lexer.LEFT, "(");
+		int last = command.addChild(call, -1, expression());
+		switch (operation) {
+		case Command.ROWS:
+			last = command.addChild(call, last, column());
+			comma();
+			if (command.tokenKind(position) != Lexer.COMPARATOR) {
+				throw error("Expected a comparator");
+			}
+			last = command.addChild(call, last,
+					command.addNode(Command.COMPARISON, position++));
+			comma();
+			last = command.addChild(call, last, value());
+			break;
+		case Command.COLUMNS:
+			while (command.tokenKind(position) == Lexer.COMMA) {
+				last = command.addChild(call, last, column());
+			}
+			break;
+		case Command.PRODUCT:
+		case Command.NATURAL_JOIN:
+		case Command.OUTER_NATURAL_JOIN:
+			comma();
+			last = command.addChild(call, last, expression());
+			break;
+		case Command.JOIN:
+		case Command.OUTER_JOIN:
+			comma();
+			last = command.addChild(call, last, expression());
+			do {
+				last = command.addChild(call, last, column());
+				last = command.addChild(call, last, column());
+			} while (command.tokenKind(position) == Lexer.COMMA);
+			break;
+		case Command.ORDER_BY:
+			do {
+				last = command.addChild(call, last, sortColumn());
+			} while (command.tokenKind(position) == Lexer.COMMA);
+			break;
+		case Command.TOP:
+			last = command.addChild(call, last, column());
+			comma();
+			if (command.tokenKind(position) != Lexer.NUMBER
+					|| command.text().charAt(command.start(position)) == '-') {
+				throw error("Expected a number of rows");
+			}
+			last = command.addChild(call, last,
+					command.addNode(Command.VALUE, position++));
+			break;
+		default:
+			while (command.tokenKind(position) == Lexer.COMMA) {
+				last = command.addChild(call, last, item());
+			}
+			break;
+		}
+		command.setLast(call, position);
+		expect(Lexer.RIGHT, ")");
+		return call;
+	}
+
+	/**
+	 * Finds the command a word names.
+	 *
+	 * @param name the token of the word
+	 * @param outer whether <code>outer</code> came before it
+	 * @return one of {@link Command#ROWS} to {@link Command#TOP}
+	 * @throws ParseException if it isn't a command
+	 */
+	private int operation(int name, boolean outer) throws ParseException {
+		if (command.is(name, "join")) {
+			return outer ? Command.OUTER_JOIN : Command.JOIN;
+		} else if (command.is(name, "naturaljoin")) {
+			return outer ? Command.OUTER_NATURAL_JOIN : Command.NATURAL_JOIN;
+		} else if (command.is(name, "rows")) {
+			return Command.ROWS;
+		} else if (command.is(name, "columns")) {
+			return Command.COLUMNS;
+		} else if (command.is(name, "product")) {
+			return Command.PRODUCT;
+		} else if (command.is(name, "orderBy")) {
+			return Command.ORDER_BY;
+		} else if (command.is(name, "groupBy")) {
+			return Command.GROUP_BY;
+		} else if (command.is(name, "top")) {
+			return Command.TOP;
+		}
+		position = name;
+		throw error("Unknown command");
+	}
+
+	/**
+	 * Reads a comma and the column after it, by index or header.
+	 *
+	 * @return the node of the column
+	 * @throws ParseException if they aren't there
+	 */
+	private int column() throws ParseException {
+		comma();
+		return columnNode(Command.COLUMN);
+	}
+
+	/**
+	 * Reads a column, by index or header.
+	 *
+	 * @param kind the kind of node to give it
+	 * @return the node of the column
+	 * @throws ParseException if the next token isn't a column
+	 */
+	private int columnNode(int kind) throws ParseException {
+		if (!isColumn(position)) {
+			throw error("Expected a column");
+		}
+		return command.addNode(kind, position++);
+	}
+
+	/**
+	 * Reads a comma and the column to sort by after it, and whether it's
+	 * sorted in ascending or descending order, if that's given.
+	 *
+	 * @return the node of the column
+	 * @throws ParseException if they aren't there
+	 */
+	private int sortColumn() throws ParseException {
+		int column = column();
+		if (command.is(position, "desc")) {
+			command.setNodeKind(column, Command.DESCENDING);
+		} else if (!command.is(position, "asc")) {
+			return column;
+		}
+		command.setLast(column, position++);
+		return column;
+	}
+
+	/**
+	 * Returns whether a token is a column: an index, or a header of
+	 * letters, digits and <code>_</code>.
+	 *
+	 * @param token the token
+	 * @return whether it's a column
+	 */
+	private boolean isColumn(int token) {
+		return command.tokenKind(token) == Lexer.NUMBER
+				? command.text().charAt(command.start(token)) != '-'
+				: command.isWord(token, true, false);
+	}
+
+	/**
+	 * Reads what a rows command compares with: a value, or another column
+	 * as <code>column(col)</code>.
+	 *
+	 * @return the node of the value or column
+	 * @throws ParseException if neither is there
+	 */
+	private int value() throws ParseException {
+		if (command.is(position, "column")
+				&& command.tokenKind(position + 1) == Lexer.LEFT) {
+			position += 2;
+			int other = columnNode(Command.OTHER_COLUMN);
+			expect(Lexer.RIGHT, ")");
+			return other;
+		}
+		int kind = command.tokenKind(position);
+		if (kind != Lexer.NUMBER && kind != Lexer.WORD) {
+			throw error("Expected a value");
+		}
+		return command.addNode(Command.VALUE, position++);
+	}
+
+	/**
+	 * Reads a comma and the key column or aggregate after it, of a groupBy.
+	 *
+	 * @return the node of the column or aggregate
+	 * @throws ParseException if they aren't there
+	 */
+	private int item() throws ParseException {
+		comma();
+		if (command.tokenKind(position + 1) != Lexer.LEFT) {
+			return columnNode(Command.COLUMN);
+		}
+		boolean known = false;
+		for (int a = 0; a < HashAggregation.NAMES.size(); a++) {
+			known |= command.is(position, HashAggregation.NAMES.get(a));
+		}
+		if (!known) {
+			throw error("Unknown aggregate");
+		}
+		boolean count = command.is(position, "count");
+		int aggregate = command.addNode(Command.AGGREGATE, position);
+		position += 2;
+		if (count && command.tokenKind(position) == Lexer.STAR) {
+			command.addChild(aggregate, -1,
+					command.addNode(Command.ALL, position++));
+		} else {
+			command.addChild(aggregate, -1, columnNode(Command.COLUMN));
+		}
+		command.setLast(aggregate, position);
+		expect(Lexer.RIGHT, ")");
+		return aggregate;
+	}
+
+	/**
+	 * Reads a comma.
+	 *
+	 * @throws ParseException if something else comes next
+	 */
+	private void comma() throws ParseException {
+		expect(Lexer.COMMA, ",");
+	}
+
+	/**
+	 * Reads the given symbol.
+	 *
+	 * @param kind the kind of token that has to come next
+	 * @param symbol the symbol, for the message
+	 * @throws ParseException if something else comes next
+	 */
+	private void expect(int kind, String symbol) throws ParseException {
+		if (command.tokenKind(position) != kind) {
+			throw error("Expected \"" + symbol + "\"");
+		}
+		position++;
+	}
+
+	/**
+	 * Creates the exception for a mistake at the next token.
+	 *
+	 * @param message what was wrong
+	 * @return the exception, with the offset of the next token, or the
+	 *         length of the line at its end
+	 */
+	private ParseException error(String message) {
+		if (command.tokens() == 0) {
+			message = "Expected a command";
+		}
+		return new ParseException(message, command.start(position));
+	}
+}
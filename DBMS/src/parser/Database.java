@@ -1,26 +1,42 @@
 package parser;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
+import elements.BPlusTreeIndex;
 import elements.Cell;
+import elements.Column;
+import elements.ColumnIndex;
+import elements.DictionaryColumn;
+import elements.HashIndex;
+import elements.IntColumn;
 import elements.NumberCell;
 import elements.Row;
 import elements.StringCell;
+import elements.StringColumn;
+import elements.StringDictionary;
 import elements.Table;
+import elements.TableStatistics;
+import elements.TableWriter;
 
 /**
  * Creates a Database, consisting of {@link java.lang.String} as its key and a
@@ -41,6 +57,51 @@ public class Database {
 	 */
 	private Map<String, Table> database = new HashMap<String, Table>();
 
+	/**
+	 * The columns indexed by the index command, by the name of their table,
+	 * each with whether it has a {@link HashIndex} rather than a
+	 * {@link BPlusTreeIndex}. They are indexed again whenever a new table is
+	 * stored under that name.
+	 */
+	private Map<String, Map<String, Boolean>> indexed =
+			new HashMap<String, Map<String, Boolean>>();
+
+	/**
+	 * The statistics of the stored tables, by name. A loaded table's are
+	 * gathered as it is read, and any other table's the first time they are
+	 * asked for.
+	 */
+	private Map<String, TableStatistics> statistics =
+			new HashMap<String, TableStatistics>();
+
+	/**
+	 * The number of bytes of memory an orderBy saved straight into a file
+	 * may use before it spills sorted runs to disk and merges them into
+	 * the file, as an {@link ExternalSort}.
+	 */
+	private long sortMemory = ExternalSort.DEFAULT_MEMORY;
+
+	/**
+	 * The number of rows above which a scan is split up and run in parallel.
+	 */
+	static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	/**
+	 * The largest share of distinct values a loaded String column can have
+	 * and still be kept dictionary encoded.
+	 */
+	static final double MAX_DICTIONARY_RATIO = 0.5;
+
+	/**
+	 * The most bytes of a file that are memory mapped at once by load.
+	 */
+	static final long MAP_WINDOW = 1L << 30;
+
+	/**
+	 * The fewest bytes a parallel load gives each of its chunks.
+	 */
+	static final int MIN_LOAD_CHUNK = 1 << 20;
+
 	/**
 	 * Adds the given {@link Table} <code>t</code> to the {@link Map} with
 	 * the given {@link String} <code>s</code> as key.
@@ -50,10 +111,132 @@ public class Database {
 	 */
 	void add(String s, Table t) {
 		if (t != null) {
-			this.database.put(s, t);
+			put(s, t);
 		}
 	}
 
+	/**
+	 * Stores a table under the given name, and builds every index that has
+	 * been asked for on that name. An index whose column the table doesn't
+	 * have, or doesn't have as numbers, is dropped.
+	 *
+	 * @param tableName the name of the table
+	 * @param t the table to store
+	 */
+	private void put(String tableName, Table t) {
+		put(tableName, t, null);
+	}
+
+	/**
+	 * Stores a table under the given name, as {@link #put(String, Table)}
+	 * does, along with its statistics.
+	 *
+	 * @param tableName the name of the table
+	 * @param t the table to store
+	 * @param stats the statistics of <code>t</code>, or <code>null</code>
+	 *            if they haven't been gathered
+	 */
+	private void put(String tableName, Table t, TableStatistics stats) {
+		database.put(tableName, t);
+		if (stats == null) {
+			statistics.remove(tableName);
+		} else {
+			statistics.put(tableName, stats);
+		}
+		Map<String, Boolean> columns = indexed.get(tableName);
+		if (columns == null) {
+			return;
+		}
+		Iterator<Map.Entry<String, Boolean>> it =
+				columns.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Boolean> column = it.next();
+			try {
+				if (buildIndex(t, column.getKey(), column.getValue()) == null) {
+					it.remove();
+				}
+			} catch (ColumnIndexOutOfBoundsException e) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Builds a {@link BPlusTreeIndex} over a column of a table, as
+	 * {@link #index(String, String, boolean)} does.
+	 *
+	 * @param tableName the name of the table
+	 * @param column the index or header of the column to index
+	 * @return whether the column was indexed
+	 * @throws NoSuchTableException if the table doesn't exist in the database
+	 * @throws ColumnIndexOutOfBoundsException if the column doesn't exist
+	 */
+	boolean index(String tableName, String column)
+			throws NoSuchTableException, ColumnIndexOutOfBoundsException {
+		return index(tableName, column, false);
+	}
+
+	/**
+	 * Builds an index over a column of a table and prints how much memory
+	 * it takes. A {@link BPlusTreeIndex}, only for number columns, is used by
+	 * rows for every comparison on that column. A {@link HashIndex}, for
+	 * any column, is used by rows for <code>==</code> and by join, which
+	 * probes it rather than hashing the table. The column stays indexed
+	 * when the table is loaded again or another table is assigned to its
+	 * name.
+	 *
+	 * @param tableName the name of the table
+	 * @param column the index or header of the column to index
+	 * @param hash whether to build a HashIndex rather than a B+tree
+	 * @return whether the column was indexed
+	 * @throws NoSuchTableException if the table doesn't exist in the database
+	 * @throws ColumnIndexOutOfBoundsException if the column doesn't exist
+	 */
+	boolean index(String tableName, String column, boolean hash)
+			throws NoSuchTableException, ColumnIndexOutOfBoundsException {
+		ColumnIndex index = buildIndex(getTable(tableName), column, hash);
+		if (index == null) {
+			System.out.println("Only number columns can have a B+tree "
+					+ "index.");
+			return false;
+		}
+		Map<String, Boolean> columns = indexed.get(tableName);
+		if (columns == null) {
+			columns = new LinkedHashMap<String, Boolean>();
+			indexed.put(tableName, columns);
+		}
+		columns.put(column, hash);
+		System.out.println(tableName + "(" + column + ") is now indexed, "
+				+ "using " + index.memoryBytes() + " bytes.");
+		return true;
+	}
+
+	/**
+	 * Builds an index over a column of the given table.
+	 *
+	 * @param t the table
+	 * @param column the index or header of the column to index
+	 * @param hash whether to build a {@link HashIndex} rather than a
+	 *            {@link BPlusTreeIndex}
+	 * @return the new index, or <code>null</code> if a B+tree was asked for
+	 *         on a String column
+	 * @throws ColumnIndexOutOfBoundsException if the column doesn't exist
+	 */
+	ColumnIndex buildIndex(Table t, String column, boolean hash)
+			throws ColumnIndexOutOfBoundsException {
+		int colNum = columnNumber(t, column);
+		ColumnIndex index;
+		if (hash) {
+			index = new HashIndex(t.getColumn(colNum));
+		} else if (t.getDefinition(colNum)) {
+			index = new BPlusTreeIndex(t.getColumn(colNum));
+		} else {
+			return null;
+		}
+		t.setIndex(colNum, index);
+		return index;
+	}
+
 	/**
 	 * Prints the given {@link Table} to the standard Output, or a message
 	 * stating that the table can't be found.
@@ -62,39 +245,131 @@ public class Database {
 	 * @throws NoSuchTableException if the table doesn't exist in the database
 	 */
 	void print(String tableName) throws NoSuchTableException {
-		System.out.println(getTable(tableName));
+		write(getTable(tableName), System.lineSeparator());
 	}
 
 	/**
-	 * Writes a {@link Table} to the given file
+	 * Writes a {@link Table} to the standard output a buffer at a time,
+	 * rather than building the whole text first.
+	 *
+	 * @param t the table to write
+	 * @param after the text to write after it
+	 */
+	private static void write(Table t, String after) {
+		TableWriter out = new TableWriter(new OutputStreamWriter(System.out));
+		try {
+			out.write(t);
+			out.writeText(after);
+			out.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes a {@link Table} to the given file, as csv or, if the file's
+	 * name ends in {@link TableFile#SUFFIX}, as a binary {@link TableFile}.
 	 *
 	 * @param tableName the name of the {@link Table} to be written
 	 * @param fileName the name of the {@link java.io.File} in which to save the
 	 * {@link Table}
+	 * @return whether the table was saved
 	 * @throws NoSuchTableException if the table doesn't exist in the database
 	 */
-	void save(String tableName, String fileName)
+	boolean save(String tableName, String fileName)
 			throws NoSuchTableException {
+		File file = writable(fileName);
+		if (file == null) {
+			return false;
+		}
+		try {
+			Table t = getTable(tableName);
+			if (fileName.endsWith(TableFile.SUFFIX)) { //binary table file
+				TableFile.write(t, file);
+				return true;
+			}
+			Writer writer = new FileWriter(file);
+			try {
+				TableWriter out = new TableWriter(writer);
+				out.write(t);
+				out.flush();
+			} finally {
+				writer.close();
+			}
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the result of an expression to the given file, as
+	 * {@link #save(String, String)} writes a table, without storing it. An
+	 * orderBy too large to sort in memory that is saved as csv has its
+	 * sorted runs merged straight into the file, without building the
+	 * sorted table.
+	 *
+	 * @param command the command holding the expression
+	 * @param node the node of the expression
+	 * @param fileName the name of the file to write
+	 * @return whether the result was saved
+	 * @throws ParseException if a value doesn't fit its column
+	 * @throws NoSuchTableException if a named table doesn't exist
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	boolean save(Command command, int node, String fileName)
+			throws ParseException, NoSuchTableException,
+			ColumnIndexOutOfBoundsException {
+		Operator plan = new Rewriter(this).rewrite(
+				new Planner(this).plan(command, node));
+		File file = writable(fileName);
+		if (file == null) {
+			return false;
+		}
+		try {
+			if (fileName.endsWith(TableFile.SUFFIX)) { //binary table file
+				TableFile.write(plan.materialize(), file);
+				return true;
+			}
+			Writer writer = new FileWriter(file);
+			try {
+				TableWriter out = new TableWriter(writer);
+				if (plan instanceof SortOperator) {
+					((SortOperator) plan).write(out);
+				} else {
+					out.write(plan.materialize());
+				}
+				out.flush();
+			} finally {
+				writer.close();
+			}
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Gets a file ready to be saved to.
+	 *
+	 * @param fileName the name of the file
+	 * @return the file, or <code>null</code> if it can't be written to
+	 */
+	private static File writable(String fileName) {
 		File file = new File(fileName);
 
 		// if file can't be written to, do nothing
 		if (file.exists() && !file.canWrite()) {
 			System.out.println("The file " + fileName
 					+ " cannot be written to.");
-			return;
+			return null;
 		}
 		// Explicitly ensure that the file can be written to and read from
 		file.setReadable(true);
 		file.setWritable(true);
-		try {
-			Table t = getTable(tableName);
-			BufferedWriter out = new BufferedWriter(new FileWriter(file));
-			out.write(t.toString());
-			out.close();
-
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		return file;
 	}
 
 	/**
@@ -113,6 +388,31 @@ public class Database {
 		return database.get(tableName);
 	}
 
+	/**
+	 * Gets the statistics of the {@link Table} specified by
+	 * <code>tableName</code>, bringing them up to date with any rows added
+	 * to it since they were gathered.
+	 *
+	 * @param tableName the name of the table
+	 * @return the statistics of the table, or <code>null</code> if it
+	 * doesn't exist
+	 */
+	TableStatistics statistics(String tableName) {
+		Table t = database.get(tableName);
+		if (t == null) {
+			return null;
+		}
+		TableStatistics stats = statistics.get(tableName);
+		if (stats == null) {
+			stats = new TableStatistics(t.getColSize());
+			statistics.put(tableName, stats);
+		}
+		if (stats.getRowCount() != t.size()) {
+			stats.update(t.getColumns());
+		}
+		return stats;
+	}
+
 	/**
 	 * Assigns a Table Object representing the contents of csv formatted file
 	 * fileName to variable tableName.
@@ -123,71 +423,228 @@ public class Database {
 	 * If contents of fileName do not agree with tableName's definition
 	 * due to column type or number mismatch NumberFormatException or Exception
 	 * gets thrown and no change in tableName's value.
+	 * The file is memory mapped and parsed by {@link CSVParser}, so fields
+	 * may be quoted as in RFC 4180. A binary {@link TableFile} written by
+	 * save is read as it is, with the header saved in it.
 	 *
 	 * @param 	headed 		Specifies if a table has a header
 	 * @param 	tableName 	The name of the table to load
 	 * @param 	fileName 	The name of the file to load
+	 * @return whether the table was loaded
 	 * @throws IOException
 	 * @throws NoSuchTableException if table was not given definition
 	 */
-	void load(final boolean headed, final String tableName,
+	boolean load(final boolean headed, final String tableName,
 			final String fileName) throws IOException, NoSuchTableException {
+		return load(headed, false, tableName, fileName);
+	}
+
+	/**
+	 * Loads a csv file as {@link #load(boolean, String, String)} does. If
+	 * <code>parallel</code> is set, the file is split into chunks of whole
+	 * lines that are parsed at the same time on the common fork-join pool,
+	 * and then put together in file order. Errors are reported exactly as a
+	 * single threaded load would report them.
+	 *
+	 * @param 	headed 		Specifies if a table has a header
+	 * @param 	parallel 	Whether or not to parse chunks of the file in
+	 * 						parallel
+	 * @param 	tableName 	The name of the table to load
+	 * @param 	fileName 	The name of the file to load
+	 * @return whether the table was loaded
+	 * @throws IOException
+	 * @throws NoSuchTableException if table was not given definition
+	 */
+	boolean load(final boolean headed, final boolean parallel,
+			final String tableName, final String fileName)
+					throws IOException, NoSuchTableException {
 
 		//get the table from the database, throws NoSuchTableException
-		Table temp = new Table(getTable(tableName).getDefinition());
+		List<Boolean> defn = getTable(tableName).getDefinition();
+		List<String> header = new ArrayList<String>();
+		Column[] cols = loadColumns(defn);
+		TableStatistics stats = new TableStatistics(cols.length);
 
 		try {
-			BufferedReader br = new BufferedReader(new FileReader(fileName));
-
-			String inputStr;
-			List<String> header;
-
-			//If headed read header from first line in fileName and set it
-			if (headed && (inputStr = br.readLine())  != null) {
-				header = Arrays.asList(inputStr.split(","));
-				if (!(header.size() == temp.getColSize())) { //mismatches defn
-					br.close();
-					throw new Exception();
+			FileInputStream in = new FileInputStream(fileName);
+			try {
+				FileChannel channel = in.getChannel();
+				long size = channel.size();
+
+				//a table file needs no parsing, only the definition checked
+				if (TableFile.isTableFile(channel)) {
+					Table t = TableFile.read(channel);
+					if (!t.getDefinition().equals(defn)) {
+						throw new Exception(); //mismatches defn
+					}
+					put(tableName, t);
+					return true;
 				}
-				temp.setHeader(header);
-			}
 
-			while ((inputStr = br.readLine()) != null) { //read next line
-				Row r = new Row();
-				//to confirm cell type
-				Iterator<Boolean> b = temp.getDefinition().iterator();
-				for (String s : inputStr.split(",")) { //add to row
-					r.add(b.next() ? new NumberCell(s) : new StringCell(s));
-				}
+				//map the file a window at a time, each one starting where
+				//the last complete record of the one before ended
+				long start = 0;
+				while (start < size) {
+					long length = Math.min(size - start, MAP_WINDOW);
+					boolean last = start + length == size;
+					ByteBuffer window = channel.map(
+							FileChannel.MapMode.READ_ONLY, start, length);
+
+					//If headed read header from first line and set it
+					if (headed && start == 0) {
+						CSVParser parser = new CSVParser(window, last);
+						header = parser.readRecord();
+						if (header == null || header.size() != cols.length) {
+							throw new Exception(); //mismatches defn
+						}
+						window.position(parser.position());
+					}
 
-				if (!r.hasDefinition(temp.getDefinition())) { //mismatches defn
-					br.close();
-					throw new Exception();
+					//throws on a type or column number mismatch
+					int read = parallel ? readParallel(window, last, cols)
+							: read(window, window.position(), last, cols);
+					if (read == 0) { //record too long, or never ended
+						throw new Exception();
+					}
+					start += read;
+					stats.update(cols);
 				}
-				temp.add(r.clone()); //add to table
+			} finally {
+				in.close();
 			}
-
-			br.close();
 		} catch (FileNotFoundException e) {
 			System.out.println("Unable to load: "
 					+ "The specified file " + fileName + " does not exist");
-			return;
+			return false;
 		} catch (NumberFormatException e) { //thrown if there's a type mismatch
 			System.out.println("Unable to load: The table you are loading "
 					+ tableName + " has contents differing from definition");
-			return;
-		} catch (NoSuchElementException e) { //Thrown by Iterator#next()
-			//if number of columns differs from definition.
-			System.out.println("Unable to load: The table you are loading "
-					+ tableName + " has contents differing from definition");
-			return;
+			return false;
 		} catch (Exception e) {
 			System.out.println("Unable to load: The table you are loading "
 					+ tableName + " has contents differing from definition");
-			return;
+			return false;
+		}
+
+		put(tableName, new Table(defn, header, dictionaries(cols)), stats);
+		return true;
+	}
+
+	/**
+	 * Creates the empty columns load reads a table of the given definition
+	 * into.
+	 *
+	 * @param defn the definition of the table
+	 * @return an IntColumn for every number column and a DictionaryColumn
+	 *         for every String column
+	 */
+	Column[] loadColumns(List<Boolean> defn) {
+		Column[] cols = new Column[defn.size()];
+		for (int i = 0; i < cols.length; i++) {
+			cols[i] = defn.get(i) ? new IntColumn(16) : new DictionaryColumn(16);
+		}
+		return cols;
+	}
+
+	/**
+	 * Reads the complete records of a mapped window of a csv file, from the
+	 * given index on, into the given columns.
+	 *
+	 * @param window the mapped window
+	 * @param from the index of the first record to read
+	 * @param last whether or not the window ends where the file does
+	 * @param cols the columns to add the records to
+	 * @return the index just after the last record read
+	 */
+	int read(ByteBuffer window, int from, boolean last, Column[] cols) {
+		ByteBuffer bytes = window.duplicate();
+		bytes.position(from);
+		CSVParser parser = new CSVParser(bytes, last);
+		parser.readRecords(cols);
+		return parser.position();
+	}
+
+	/**
+	 * Reads the complete records of a mapped window of a csv file into the
+	 * given columns, as {@link #read(ByteBuffer, int, boolean, Column[])}
+	 * does, by splitting it into chunks that start after a line break and
+	 * reading them in parallel.<br/>
+	 * <br/>
+	 * A line break inside a quoted field can make a chunk start in the middle
+	 * of a record. The chunk before it then reads past the chunk's start, so
+	 * the chunk and everything after it is read again on this thread. A
+	 * chunk's error is only thrown once all the chunks before it are known
+	 * to have been read right.
+	 *
+	 * @param window the mapped window, from its position on
+	 * @param last whether or not the window ends where the file does
+	 * @param cols the columns to add the records to
+	 * @return the index just after the last record read
+	 */
+	int readParallel(ByteBuffer window, boolean last, Column[] cols) {
+		int from = window.position();
+		int limit = window.limit();
+		int chunks = (int) Math.min(
+				ForkJoinPool.getCommonPoolParallelism() * 4L,
+				(limit - from) / MIN_LOAD_CHUNK);
+		if (chunks <= 1) {
+			return read(window, from, last, cols);
 		}
 
-		database.put(tableName, temp);
+		//start every chunk after the first line break past its share
+		ChunkLoad[] tasks = new ChunkLoad[chunks];
+		int start = from;
+		for (int k = 0; k < chunks; k++) {
+			int stop = limit;
+			if (k < chunks - 1) {
+				stop = Math.max(start,
+						from + (int) ((long) (limit - from) * (k + 1) / chunks));
+				while (stop < limit && window.get(stop - 1) != '\n') {
+					stop++;
+				}
+			}
+			tasks[k] = new ChunkLoad(window, start, stop, last, cols);
+			start = stop;
+		}
+		ForkJoinTask.invokeAll(tasks);
+
+		//put the chunks together in order, checking each starts where the
+		//one before it ended
+		int position = from;
+		for (ChunkLoad task : tasks) {
+			if (task.start != position) {
+				return read(window, position, last, cols);
+			}
+			if (task.error != null) {
+				throw task.error;
+			}
+			for (int i = 0; i < cols.length; i++) {
+				cols[i].addAll(task.cols[i]);
+			}
+			position = task.end;
+		}
+		return position;
+	}
+
+	/**
+	 * Replaces each of the given DictionaryColumns that has more distinct
+	 * values than {@link #MAX_DICTIONARY_RATIO} allows with a plain
+	 * StringColumn, since its codes would only add to its size.
+	 *
+	 * @param cols freshly loaded columns
+	 * @return <code>cols</code>
+	 */
+	Column[] dictionaries(Column[] cols) {
+		for (int i = 0; i < cols.length; i++) {
+			if (cols[i] instanceof DictionaryColumn) {
+				DictionaryColumn dict = (DictionaryColumn) cols[i];
+				if (dict.getDictionary().size()
+						> dict.size() * MAX_DICTIONARY_RATIO) {
+					cols[i] = dict.decode();
+				}
+			}
+		}
+		return cols;
 	}
 
 	/**
@@ -292,20 +749,18 @@ public class Database {
 		List<Integer> indexList = stringArrayToIntList(cmd, 1);
 		//Get boolean definitions of each column in inputTable as a List
 		List<Boolean> defnList = inputTable.getDefinition(indexList);
-		//Initialize a list of headers that will be implemented after loop
-		List<String> headers = new ArrayList<String>(inputTable.getHeader());
-
-		Table newTable = new Table(defnList, headers);
-
-		for (Row r : inputTable.getAllRows()) { //for each row in table
-			Row newRow = new Row();
-			for (int col : indexList) { //go through all the indices
-				headers.add(inputTable.getHeader(col));
-				newRow.add(r.getCell(col)); // keep if they are in the list
+		//The headers of the kept columns, if inputTable has any
+		List<String> headers = new ArrayList<String>();
+		//copy whole columns, so the new table can't change inputTable
+		Column[] kept = new Column[indexList.size()];
+
+		for (int i = 0; i < kept.length; i++) { //go through all the indices
+			if (inputTable.hasHead()) {
+				headers.add(inputTable.getHeader(indexList.get(i)));
 			}
-			newTable.add(newRow.clone()); // clone to avoid destruction
+			kept[i] = inputTable.getColumn(indexList.get(i)).clone();
 		}
-		return newTable;
+		return new Table(defnList, headers, kept);
 	}
 
 	/**
@@ -350,25 +805,112 @@ public class Database {
 				? new NumberCell(cmd[3].trim())
 		: new StringCell(cmd[3].trim());
 
-				// new Table to add amended rows to
-				Table newTable = new Table(inputTable.getDefinition());
-				newTable.setHeader(inputTable.getHeader());
-
-				for (Row r : inputTable.getAllRows()) {
-
-					Cell c = r.getCell(colNum);
-					//Check parameters; check if each cell matches the condition
-					if (comparator.contains("=") && c.equals(value)) {
-						newTable.add(r);
-					} else if (comparator.contains("<")
-							&& c.compareTo(value) < 0) {
-						newTable.add(r);
-					} else if (comparator.contains(">")
-							&& c.compareTo(value) > 0) {
-						newTable.add(r);
-					}
+		return rows(inputTable, colNum, comparator, value);
+	}
+
+	/**
+	 * Returns a copy of <code>inputTable</code> with only the rows whose cell
+	 * at <code>colNum</code> compares to <code>value</code> as the given
+	 * comparator says. If the column has an index that can answer the
+	 * comparison, only the rows it finds are looked at; otherwise the column
+	 * is scanned directly, without going through the Rows of the table.
+	 *
+	 * @param inputTable the table to take rows from
+	 * @param colNum the column to compare
+	 * @param comparator one of <code>&lt;, &lt;=, ==, &gt;=, &gt;</code>
+	 * @param value the value to compare with
+	 * @return a table containing only the rows that meet the condition
+	 * @throws ColumnIndexOutOfBoundsException if column number is out of bounds
+	 */
+	Table rows(Table inputTable, int colNum, String comparator, Cell value)
+			throws ColumnIndexOutOfBoundsException {
+		Column column = inputTable.getColumn(colNum);
+		boolean equal = comparator.contains("=");
+		boolean less = comparator.contains("<");
+		boolean greater = comparator.contains(">");
+
+		//an index finds the rows without looking at the others
+		ColumnIndex index = inputTable.getIndex(colNum);
+		int[] found = index == null ? null
+				: index.find(equal, less, greater, value);
+		if (found != null) {
+			Table newTable = inputTable.select(found, found.length);
+			newTable.setHeader(inputTable.getHeader());
+			return newTable;
+		}
+
+		IntList selected = new IntList(16);
+		if (column instanceof DictionaryColumn) {
+			//check each distinct value once, then only look at the codes
+			DictionaryColumn dict = (DictionaryColumn) column;
+			StringColumn distinct = dictionaryValues(dict.getDictionary());
+			boolean[] meets = new boolean[distinct.size()];
+			for (int code = 0; code < meets.length; code++) {
+				meets[code] = meets(distinct, code, equal, less, greater,
+						value);
+			}
+			for (int i = 0; i < inputTable.size(); i++) {
+				int code = dict.getCode(i);
+				if (code >= 0 ? meets[code]
+						: meets(column, i, equal, less, greater, value)) {
+					selected.add(i);
+				}
+			}
+		} else {
+			for (int i = 0; i < inputTable.size(); i++) {
+				if (meets(column, i, equal, less, greater, value)) {
+					selected.add(i);
 				}
-				return newTable;
+			}
+		}
+
+		// new Table holding the amended rows
+		Table newTable = inputTable.select(selected.array(), selected.size());
+		newTable.setHeader(inputTable.getHeader());
+		return newTable;
+	}
+
+	/**
+	 * Returns whether or not the value at <code>row</code> of
+	 * <code>column</code> meets the condition of a rows command. An empty
+	 * number is neither less nor greater than any other, so it's only kept
+	 * when equal ones are, and the value is empty too.
+	 *
+	 * @param column the column being compared
+	 * @param row the row to check
+	 * @param equal whether values equal to <code>value</code> are kept
+	 * @param less whether values less than <code>value</code> are kept
+	 * @param greater whether values greater than <code>value</code> are kept
+	 * @param value the value to compare with
+	 * @return whether or not the row is kept
+	 */
+	boolean meets(Column column, int row, boolean equal, boolean less,
+			boolean greater, Cell value) {
+		//Check parameters; check if the cell matches the condition
+		if (equal && column.matches(row, value)) {
+			return true;
+		} else if (column.isNumberColumn()
+				&& (column.isNull(row) || value.isNull())) {
+			return false; //an empty number is neither less nor greater
+		} else if (less && column.compare(row, value) < 0) {
+			return true;
+		}
+		return greater && column.compare(row, value) > 0;
+	}
+
+	/**
+	 * Returns a column holding every value of the given dictionary, each at
+	 * the row of its code.
+	 *
+	 * @param dictionary the dictionary to list
+	 * @return the values of <code>dictionary</code>
+	 */
+	StringColumn dictionaryValues(StringDictionary dictionary) {
+		StringColumn values = new StringColumn(dictionary.size());
+		for (int code = 0; code < dictionary.size(); code++) {
+			values.addString(dictionary.get(code));
+		}
+		return values;
 	}
 
 	/**
@@ -378,6 +920,8 @@ public class Database {
 	 * @param expr the product expression
 	 * @return The Cartesian product of the two tables specified in expr
 	 * @throws NoSuchTableException if the table doesn't exist in the database
+	 * @throws IllegalArgumentException if the product would have more rows
+	 *             than a table can hold
 	 */
 	Table product(String expr) throws NoSuchTableException {
 		String[] split = expr.split(","); // parsing the command
@@ -390,24 +934,30 @@ public class Database {
 		List<String> productHeaders = new ArrayList<String>(table1.getHeader());
 		productHeaders.addAll(table2.getHeader());
 
-		Table productTable = new Table(newDefn, productHeaders);
-
 		if (table1.size() == 0) { //if table1 is empty
 			//return empty table if table2 is empty, or table2 if it is not
-			return table2.size() == 0 ? productTable : table2;
+			return table2.size() == 0
+					? new Table(newDefn, productHeaders) : table2;
 		} else if (table2.size() == 0) {
 			return table1; //table1 is obviously not empty, so return
 		}
 
-		// add each Row from table2 to one from table 1,
-		for (Row r1 : table1.getAllRows()) {
-			for (Row r2 : table2.getAllRows()) {
-				Row tempRow = r1.clone();
-				tempRow.addAll(r2.clone());
-				productTable.add(tempRow.clone());
+		// pair each Row from table 1 with every Row from table2
+		long pairs = (long) table1.size() * table2.size();
+		if (pairs > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("The product of "
+					+ split[0].trim() + " and " + split[1].trim() + " would have "
+					+ pairs + " rows, more than a table can hold");
+		}
+		IntList left = new IntList((int) pairs);
+		IntList right = new IntList((int) pairs);
+		for (int i = 0; i < table1.size(); i++) {
+			for (int j = 0; j < table2.size(); j++) {
+				left.add(i);
+				right.add(j);
 			}
 		}
-		return productTable;
+		return combine(table1, left, table2, right, newDefn, productHeaders);
 	}
 
 	/**
@@ -484,18 +1034,250 @@ public class Database {
 			}
 		}
 
-		Table joinTable = new Table(joinDefn, joinHeaders);
+		//nothing to hash on, every pair matches: fall back to a nested loop
+		if (colT1.isEmpty()) {
+			Table joinTable = new Table(joinDefn, joinHeaders);
+			for (Row r1 : t1.getAllRows()) {
+				for (Row r2 : t2.getAllRows()) {
+					if (joinCheck(r1, r2, colT1, colT2)) {
+						joinTable.add(concat(r1, r2));
+					}
+				}
+			}
+			return joinTable;
+		}
+
+		return hashJoin(t1, t2, colT1, colT2, joinDefn, joinHeaders);
+	}
+
+	/**
+	 * Joins <code>t1</code> and <code>t2</code> on the given column lists by
+	 * hashing the smaller of the two tables on its join key, and then streaming
+	 * the larger one past the resulting hash table.<br/>
+	 * <br/>
+	 * The Rows come out in the same order as a nested loop over
+	 * <code>t1</code> and then <code>t2</code> would produce them.
+	 *
+	 * @param t1 the left table of the join
+	 * @param t2 the right table of the join
+	 * @param colT1 the key columns of <code>t1</code>
+	 * @param colT2 the key columns of <code>t2</code>, paired with colT1
+	 * @param joinDefn the definition of the joined table
+	 * @param joinHeaders the header of the joined table
+	 * @return the joined table
+	 * @throws ColumnIndexOutOfBoundsException if one of the given indices are
+	 * out of bounds
+	 */
+	Table hashJoin(Table t1, Table t2, List<Integer> colT1,
+			List<Integer> colT2, List<Boolean> joinDefn,
+			List<String> joinHeaders) throws ColumnIndexOutOfBoundsException {
 
-		for (Row r1 : t1.getAllRows()) {
-			for (Row r2 : t2.getAllRows()) {
-				if (joinCheck(r1, r2, colT1, colT2)) { //compare with all pairs
-					Row tempRow = r1.clone(); //clone() = non-destructive
-					tempRow.addAll(r2.clone());
-					joinTable.add(tempRow.clone());
+		IntList[] pairs = matchRows(t1, t2, colT1, colT2);
+		return combine(t1, pairs[0], t2, pairs[1], joinDefn, joinHeaders);
+	}
+
+	/**
+	 * Finds every pair of Rows of <code>t1</code> and <code>t2</code> with
+	 * equal join keys. If the tables are joined on a single column that has
+	 * a {@link HashIndex}, the other table probes that index row by row, an
+	 * index nested loop join. Otherwise the smaller of the two tables is
+	 * hashed and the other one is streamed past it.
+	 *
+	 * @param t1 the left table of the join
+	 * @param t2 the right table of the join
+	 * @param colT1 the key columns of <code>t1</code>
+	 * @param colT2 the key columns of <code>t2</code>, paired with colT1
+	 * @return two lists of equal length, holding the indices into
+	 * <code>t1</code> and <code>t2</code> of each matching pair, ordered by
+	 * the index into <code>t1</code> and then by the index into
+	 * <code>t2</code>.
+	 * @throws ColumnIndexOutOfBoundsException if one of the given indices are
+	 * out of bounds
+	 */
+	IntList[] matchRows(Table t1, Table t2, List<Integer> colT1,
+			List<Integer> colT2) throws ColumnIndexOutOfBoundsException {
+		Column[] keys1 = keyColumns(t1, colT1);
+		Column[] keys2 = keyColumns(t2, colT2);
+		IntList left = new IntList(Math.max(t1.size(), t2.size()));
+		IntList right = new IntList(Math.max(t1.size(), t2.size()));
+
+		HashIndex index1 = hashIndex(t1, colT1);
+		HashIndex index2 = hashIndex(t2, colT2);
+		if (index2 != null) { //probe t2's index in t1's order
+			Column probe = index2.align(keys1[0]);
+			for (int i = 0; i < t1.size(); i++) {
+				for (int j = index2.first(probe, i); j >= 0;
+						j = index2.next(j, probe, i)) {
+					left.add(i);
+					right.add(j);
 				}
 			}
+			return new IntList[] {left, right};
 		}
-		return joinTable;
+		if (index1 != null) { //probe t1's index in t2's order
+			Column probe = index1.align(keys2[0]);
+			for (int j = 0; j < t2.size(); j++) {
+				for (int i = index1.first(probe, j); i >= 0;
+						i = index1.next(i, probe, j)) {
+					left.add(i);
+					right.add(j);
+				}
+			}
+			return inLeftOrder(left, right, t1.size());
+		}
+
+		if (t2.size() <= t1.size()) { //build on t2, probe in t1's order
+			JoinHashTable built = new JoinHashTable(keys2, t2.size());
+			keys1 = alignKeys(keys1, keys2);
+
+			for (int i = 0; i < t1.size(); i++) {
+				for (int j = built.first(keys1, i); j >= 0;
+						j = built.next(j, keys1, i)) {
+					left.add(i);
+					right.add(j);
+				}
+			}
+			return new IntList[] {left, right};
+		}
+
+		//build on t1 and probe in t2's order
+		JoinHashTable built = new JoinHashTable(keys1, t1.size());
+		keys2 = alignKeys(keys2, keys1);
+		for (int j = 0; j < t2.size(); j++) {
+			for (int i = built.first(keys2, j); i >= 0;
+					i = built.next(i, keys2, j)) {
+				left.add(i);
+				right.add(j);
+			}
+		}
+		return inLeftOrder(left, right, t1.size());
+	}
+
+	/**
+	 * Returns the {@link HashIndex} of the join key of a table, if the key
+	 * is a single column that has one.
+	 *
+	 * @param t the table
+	 * @param cols the key columns of <code>t</code>
+	 * @return the index of the key, or <code>null</code>
+	 */
+	HashIndex hashIndex(Table t, List<Integer> cols) {
+		if (cols.size() != 1) {
+			return null;
+		}
+		ColumnIndex index = t.getIndex(cols.get(0));
+		return index instanceof HashIndex ? (HashIndex) index : null;
+	}
+
+	/**
+	 * Puts pairs of row indices found in the order of the right table into
+	 * the order of the left one, keeping the order of the right table within
+	 * each left row.
+	 *
+	 * @param left the indices into the left table
+	 * @param right the indices into the right table, ascending
+	 * @param leftSize the number of rows of the left table
+	 * @return the same pairs, ordered by the index into the left table and
+	 * then by the index into the right table
+	 */
+	static IntList[] inLeftOrder(IntList left, IntList right,
+			int leftSize) {
+		int[] start = new int[leftSize + 1];
+		for (int k = 0; k < left.size(); k++) {
+			start[left.get(k) + 1]++;
+		}
+		for (int i = 0; i < leftSize; i++) {
+			start[i + 1] += start[i];
+		}
+		IntList sortedLeft = new IntList(left.size());
+		IntList sortedRight = new IntList(left.size());
+		int[] slot = new int[left.size()];
+		for (int k = 0; k < left.size(); k++) {
+			slot[start[left.get(k)]++] = k;
+		}
+		for (int k : slot) {
+			sortedLeft.add(left.get(k));
+			sortedRight.add(right.get(k));
+		}
+		return new IntList[] {sortedLeft, sortedRight};
+	}
+
+	/**
+	 * Returns the columns of <code>t</code> at the given indices.
+	 *
+	 * @param t the table to take the columns from
+	 * @param cols the indices of the columns
+	 * @return the columns at <code>cols</code>
+	 * @throws ColumnIndexOutOfBoundsException if one of the given indices are
+	 * out of bounds
+	 */
+	Column[] keyColumns(Table t, List<Integer> cols)
+			throws ColumnIndexOutOfBoundsException {
+		Column[] keys = new Column[cols.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = t.getColumn(cols.get(i));
+		}
+		return keys;
+	}
+
+	/**
+	 * Aligns each of the probing key columns to the hashed key column it is
+	 * paired with, so that dictionary encoded Strings are matched by code.
+	 *
+	 * @param probe the key columns of the probing table
+	 * @param built the key columns of the hashed table
+	 * @return the aligned probing key columns
+	 */
+	Column[] alignKeys(Column[] probe, Column[] built) {
+		Column[] aligned = new Column[probe.length];
+		for (int i = 0; i < probe.length; i++) {
+			aligned[i] = probe[i].alignTo(built[i]);
+		}
+		return aligned;
+	}
+
+	/**
+	 * Builds the table holding, for every <code>k</code>, Row
+	 * <code>left.get(k)</code> of <code>t1</code> followed by Row
+	 * <code>right.get(k)</code> of <code>t2</code>. A negative index stands
+	 * for a Row of empty cells.
+	 *
+	 * @param t1 the table whose columns come first
+	 * @param left the indices into <code>t1</code>
+	 * @param t2 the table whose columns come last
+	 * @param right the indices into <code>t2</code>
+	 * @param defn the definition of the combined table
+	 * @param headers the header of the combined table
+	 * @return the combined table
+	 */
+	Table combine(Table t1, IntList left, Table t2, IntList right,
+			List<Boolean> defn, List<String> headers) {
+		Column[] cols1 = t1.getColumns();
+		Column[] cols2 = t2.getColumns();
+		Column[] cols = new Column[cols1.length + cols2.length];
+
+		for (int i = 0; i < cols1.length; i++) {
+			cols[i] = cols1[i].select(left.array(), left.size());
+		}
+		for (int i = 0; i < cols2.length; i++) {
+			cols[cols1.length + i] = cols2[i].select(right.array(),
+					right.size());
+		}
+		return new Table(defn, headers, cols);
+	}
+
+	/**
+	 * Creates a new Row holding the cells of <code>r1</code> followed by the
+	 * cells of <code>r2</code>. Neither of the given Rows is changed.
+	 *
+	 * @param r1 the Row whose cells come first
+	 * @param r2 the Row whose cells come last
+	 * @return the combined Row
+	 */
+	Row concat(Row r1, Row r2) {
+		Row combined = new Row(r1.getRow());
+		combined.addAll(r2);
+		return combined;
 	}
 
 	/**
@@ -643,7 +1425,8 @@ public class Database {
 	/**
 	 * Return a new table that is the Cartesian product of the two tables
 	 * referred to by the variables, but that includes only rows that satisfy a
-	 * condition. Keeps track of rows that have not been combined.
+	 * condition. Keeps track of rows that have not been combined, by index,
+	 * while the two tables are hash joined.
 	 *
 	 * @param table1 the first table to be joined
 	 * @param table2 the second table to be joined
@@ -667,28 +1450,40 @@ public class Database {
 		joinHeaders.addAll(table1.getHeader());
 		joinHeaders.addAll(table2.getHeader());
 
-		//create result table and lists representing table1 and table2 rows
-		Table joinTable = new Table(joinDefinitions, joinHeaders);
-		ArrayList<Row> table1Rows = new ArrayList<Row>(table1.getAllRows());
-		ArrayList<Row> table2Rows = new ArrayList<Row>(table2.getAllRows());
+		List<Integer> col1 = new ArrayList<Integer>();
+		List<Integer> col2 = new ArrayList<Integer>();
+		for (int i = 0; i <= intPairs.size() - 2; i += 2) {
+			col1.add(intPairs.get(i));
+			col2.add(intPairs.get(i + 1));
+		}
 
-		for (Row r1 : table1.getAllRows()) {
-			for (Row r2 : table2.getAllRows()) {
-				if (joinCheck(r1, r2, intPairs)) { //compare with all int pairs
-					if (table1Rows.contains(r1)) { //remove row that is joined
-						table1Rows.remove(r1); //removes row from table1's rows
-					}
-					if (table2Rows.contains(r2)) {
-						table2Rows.remove(r2); //removes row from table2's rows
-					}
-					Row tempRow = r1.clone(); //clone() = non-destructive
-					tempRow.addAll(r2.clone());
-					joinTable.add(tempRow.clone());
-				}
-			}
+		//an empty key makes every pair match, which hashing handles as well
+		IntList[] pairs = matchRows(table1, table2, col1, col2);
+		IntList left = pairs[0];
+		IntList right = pairs[1];
+
+		//keep track of which rows on either side found a partner
+		BitSet matched1 = new BitSet(table1.size());
+		BitSet matched2 = new BitSet(table2.size());
+		for (int k = 0; k < left.size(); k++) {
+			matched1.set(left.get(k));
+			matched2.set(right.get(k));
+		}
+
+		//whatever is left over by index, duplicates included, gets padded
+		for (int i = matched1.nextClearBit(0); i < table1.size();
+				i = matched1.nextClearBit(i + 1)) {
+			left.add(i);
+			right.add(-1);
+		}
+		for (int j = matched2.nextClearBit(0); j < table2.size();
+				j = matched2.nextClearBit(j + 1)) {
+			left.add(-1);
+			right.add(j);
 		}
-		return addEmptyCellRows(table1, table2, joinTable, table1Rows,
-				table2Rows);
+
+		return combine(table1, left, table2, right, joinDefinitions,
+				joinHeaders);
 	}
 
 	/**
@@ -802,7 +1597,8 @@ public class Database {
 			System.out.println("Yes: " + s[0] + " references " + s[2]);
 		} else { //if there are, print them
 			System.out.print("These rows in " + s[0] + " do not reference "
-					+ s[2] + ":\n" + unReferenced.toString());
+					+ s[2] + ":\n");
+			write(unReferenced, null);
 		}
 	}
 
@@ -829,35 +1625,418 @@ public class Database {
 	List<Row> check(final Table t1, final Table t2,
 			final int col1, final int col2)
 					throws ColumnIndexOutOfBoundsException {
-		//assume all rows in t1 have no match in t2
-		List<Row> unmatchedRows = new LinkedList<Row>(t1.clone().getAllRows());
-
-		//for all rows in r1
-		for (Row r1: t1.getAllRows()) {
-			Cell c = r1.getCell(col1); //backing up for efficiency
-			for (Row r2: t2.getAllRows()) {
-				//if the cell matches any row's cell at(col2)
-				if (c.equals(r2.getCell(col2))) {
-					unmatchedRows.remove(r1); //remove it
-					break;
+		//throws for bad columns up front, so the scan itself can't fail
+		Column[] referencedCol = {t2.getColumn(col2)};
+		Column[] referencing = alignKeys(new Column[] {t1.getColumn(col1)},
+				referencedCol);
+
+		//every value that can be referenced, hashed once
+		JoinHashTable referenced = new JoinHashTable(referencedCol, t2.size());
+
+		//flag the rows of t1 that have no match, in parallel if it's worth it
+		boolean[] unmatched = new boolean[t1.size()];
+		ReferenceCheck scan = new ReferenceCheck(referencing, referenced,
+				unmatched, 0, t1.size());
+		if (t1.size() < PARALLEL_THRESHOLD) {
+			scan.compute();
+		} else {
+			ForkJoinPool.commonPool().invoke(scan);
+		}
+
+		//collect the flagged rows, keeping the order they have in t1
+		List<Row> unmatchedRows = new ArrayList<Row>();
+		for (int i = 0; i < unmatched.length; i++) {
+			if (unmatched[i]) {
+				unmatchedRows.add(t1.getRow(i));
+			}
+		}
+		return unmatchedRows;
+	}
+
+	/**
+	 * Reads the records that start in one chunk of a mapped csv file into
+	 * columns of its own, keeping any error to be thrown later.
+	 */
+	private static final class ChunkLoad extends RecursiveAction {
+
+		/**
+		 * Since RecursiveAction is Serializable.
+		 */
+		private static final long serialVersionUID = -6480328217713440318L;
+
+		/**
+		 * The mapped window the chunk is in.
+		 */
+		private final ByteBuffer window;
+
+		/**
+		 * The index of the first byte of the chunk.
+		 */
+		private final int start;
+
+		/**
+		 * The index just after the last byte of the chunk.
+		 */
+		private final int stop;
+
+		/**
+		 * Whether or not the window ends where the file does.
+		 */
+		private final boolean last;
+
+		/**
+		 * The columns the records of the chunk are read into.
+		 */
+		private final Column[] cols;
+
+		/**
+		 * The index just after the last record read.
+		 */
+		private int end;
+
+		/**
+		 * The error reading the chunk, if any.
+		 */
+		private RuntimeException error;
+
+		/**
+		 * Creates a task for reading the records starting in
+		 * <code>[start, stop)</code> of the given window.
+		 *
+		 * @param window the mapped window the chunk is in
+		 * @param start the index of the first byte of the chunk
+		 * @param stop the index just after the last byte of the chunk
+		 * @param last whether or not the window ends where the file does
+		 * @param like columns of the types to read the chunk into
+		 */
+		ChunkLoad(ByteBuffer window, int start, int stop, boolean last,
+				Column[] like) {
+			this.window = window;
+			this.start = start;
+			this.stop = stop;
+			this.last = last;
+			this.cols = new Column[like.length];
+			for (int i = 0; i < like.length; i++) {
+				cols[i] = like[i].isNumberColumn()
+						? new IntColumn(16) : new DictionaryColumn(16);
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			ByteBuffer bytes = window.duplicate();
+			bytes.position(start);
+			CSVParser parser = new CSVParser(bytes, last);
+			try {
+				parser.readRecords(cols, stop);
+			} catch (RuntimeException e) {
+				error = e;
+			}
+			end = parser.position();
+		}
+	}
+
+	/**
+	 * Flags the rows in a range of a column whose value is not in a hash
+	 * table of referenced values. Ranges that are too large are split
+	 * in half and checked in parallel.
+	 */
+	private static final class ReferenceCheck extends RecursiveAction {
+
+		/**
+		 * Since RecursiveAction is Serializable.
+		 */
+		private static final long serialVersionUID = 3174624811826390231L;
+
+		/**
+		 * The column that does the referencing, as a one column key.
+		 */
+		private final Column[] referencing;
+
+		/**
+		 * All the values that may be referenced.
+		 */
+		private final JoinHashTable referenced;
+
+		/**
+		 * Set to <code>true</code> at the index of every unmatched row.
+		 */
+		private final boolean[] unmatched;
+
+		/**
+		 * The first row to check, inclusive.
+		 */
+		private final int from;
+
+		/**
+		 * The last row to check, exclusive.
+		 */
+		private final int to;
+
+		/**
+		 * Creates a check of rows <code>from</code> to <code>to</code>.
+		 *
+		 * @param referencing the referencing column, as a one column key
+		 * @param referenced all the values that may be referenced
+		 * @param unmatched the flags to set
+		 * @param from the first row to check, inclusive
+		 * @param to the last row to check, exclusive
+		 */
+		ReferenceCheck(Column[] referencing, JoinHashTable referenced,
+				boolean[] unmatched, int from, int to) {
+			this.referencing = referencing;
+			this.referenced = referenced;
+			this.unmatched = unmatched;
+			this.from = from;
+			this.to = to;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (to - from > PARALLEL_THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ReferenceCheck(referencing, referenced,
+						unmatched, from, mid), new ReferenceCheck(referencing,
+								referenced, unmatched, mid, to));
+				return;
+			}
+
+			for (int i = from; i < to; i++) {
+				unmatched[i] = referenced.first(referencing, i) < 0;
+			}
+		}
+	}
+
+	/**
+	 * Groups the rows of a table by some key columns and aggregates other
+	 * columns over each group. The expression is the table name, then the
+	 * key columns, then any number of aggregates such as
+	 * <code>count(*)</code>, <code>count(col)</code>, <code>sum(col)</code>,
+	 * <code>min(col)</code>, <code>max(col)</code> or <code>avg(col)</code>.
+	 * Columns are given by index or header.<br/>
+	 * <br/>
+	 * The result has the key columns followed by one column per aggregate,
+	 * and one row per distinct key, in the order each key first comes up.
+	 * Averages are written out as decimal Strings, since a table has no
+	 * other way to hold them. Sums and averages need number columns.
+	 *
+	 * @param expr the groupBy command arguments
+	 * @return the grouped table
+	 * @throws NoSuchTableException if the table doesn't exist in the database
+	 * @throws ColumnIndexOutOfBoundsException if a column is out of bounds
+	 */
+	Table groupBy(String expr) throws NoSuchTableException,
+	ColumnIndexOutOfBoundsException {
+		String[] cmd = expr.split(",");
+		return groupBy(getTable(cmd[0].trim()),
+				Arrays.copyOfRange(cmd, 1, cmd.length));
+	}
+
+	/**
+	 * Groups the rows of a table by some key columns and aggregates other
+	 * columns over each group, as {@link #groupBy(String)} does.
+	 *
+	 * @param t the table to group
+	 * @param items the key columns, then the aggregates
+	 * @return the grouped table
+	 * @throws ColumnIndexOutOfBoundsException if a column is out of bounds
+	 */
+	Table groupBy(Table t, String[] items)
+			throws ColumnIndexOutOfBoundsException {
+		List<Column> keys = new ArrayList<Column>();
+		IntList kinds = new IntList(items.length);
+		List<Column> inputs = new ArrayList<Column>();
+		List<Boolean> defn = new ArrayList<Boolean>();
+		List<String> header = new ArrayList<String>();
+		for (int i = 0; i < items.length; i++) {
+			String item = items[i].trim();
+			int open = item.indexOf('(');
+			if (open < 0) { //a key column
+				int colNum = columnNumber(t, item);
+				keys.add(t.getColumn(colNum));
+				defn.add(t.getDefinition(colNum));
+				if (t.hasHead()) {
+					header.add(t.getHeader(colNum));
+				}
+				continue;
+			}
+
+			int kind = HashAggregation.NAMES.indexOf(
+					item.substring(0, open).trim().toLowerCase());
+			String col = item.substring(open + 1, item.length() - 1).trim();
+			Column input = null;
+			String name = col;
+			if (!col.equals("*")) {
+				int colNum = columnNumber(t, col);
+				input = t.getColumn(colNum);
+				name = t.hasHead() ? t.getHeader(colNum) : col;
+				if ((kind == HashAggregation.SUM || kind == HashAggregation.AVG)
+						&& !input.isNumberColumn()) {
+					System.out.println("Only number columns can be summed "
+							+ "or averaged.");
+					return new Table(new ArrayList<Boolean>());
 				}
 			}
+			kinds.add(kind);
+			inputs.add(input);
+			defn.add(kind == HashAggregation.COUNT
+					|| kind == HashAggregation.SUM
+					|| (kind != HashAggregation.AVG && input.isNumberColumn()));
+			if (t.hasHead()) {
+				header.add(HashAggregation.NAMES.get(kind) + "(" + name + ")");
+			}
 		}
 
-		//return whatever is left, i.e. unmatched rows
-		return unmatchedRows;
+		//aggregate ranges of rows separately and merge them, if it's worth it
+		Aggregate aggregate = new Aggregate(
+				keys.toArray(new Column[keys.size()]),
+				Arrays.copyOf(kinds.array(), kinds.size()),
+				inputs.toArray(new Column[inputs.size()]), 0, t.size());
+		if (t.size() < PARALLEL_THRESHOLD) {
+			aggregate.compute();
+		} else {
+			ForkJoinPool.commonPool().invoke(aggregate);
+		}
+		return aggregate.result.toTable(defn, header);
+	}
+
+	/**
+	 * Returns the number of a column given by its index or its header.
+	 *
+	 * @param t the table of the column
+	 * @param column the index or header of the column
+	 * @return the index of the column
+	 * @throws ColumnIndexOutOfBoundsException if there's no such header
+	 */
+	int columnNumber(Table t, String column)
+			throws ColumnIndexOutOfBoundsException {
+		return column.matches("^\\d+$") ? Integer.parseInt(column)
+				: t.getColumnNumber(column);
+	}
+
+	/**
+	 * Aggregates a range of the rows of a table. Ranges that are too large
+	 * are split in half, aggregated in parallel, and the second half merged
+	 * into the first.
+	 */
+	private static final class Aggregate extends RecursiveAction {
+
+		/**
+		 * Since RecursiveAction is Serializable.
+		 */
+		private static final long serialVersionUID = 5829384403563126094L;
+
+		/**
+		 * The columns that make up the key.
+		 */
+		private final Column[] keys;
+
+		/**
+		 * The kind of each aggregate.
+		 */
+		private final int[] kinds;
+
+		/**
+		 * The column of each aggregate.
+		 */
+		private final Column[] inputs;
+
+		/**
+		 * The first row to aggregate, inclusive.
+		 */
+		private final int from;
+
+		/**
+		 * The last row to aggregate, exclusive.
+		 */
+		private final int to;
+
+		/**
+		 * The aggregation of the range, once computed.
+		 */
+		private HashAggregation result;
+
+		/**
+		 * Creates an aggregation of rows <code>from</code> to
+		 * <code>to</code>.
+		 *
+		 * @param keys the columns that make up the key
+		 * @param kinds the kind of each aggregate
+		 * @param inputs the column of each aggregate
+		 * @param from the first row to aggregate, inclusive
+		 * @param to the last row to aggregate, exclusive
+		 */
+		Aggregate(Column[] keys, int[] kinds, Column[] inputs, int from,
+				int to) {
+			this.keys = keys;
+			this.kinds = kinds;
+			this.inputs = inputs;
+			this.from = from;
+			this.to = to;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveAction#compute()
+		 */
+		@Override
+		protected void compute() {
+			if (to - from > PARALLEL_THRESHOLD) {
+				int mid = (from + to) >>> 1;
+				Aggregate first = new Aggregate(keys, kinds, inputs, from, mid);
+				Aggregate second = new Aggregate(keys, kinds, inputs, mid, to);
+				invokeAll(first, second);
+				first.result.merge(second.result);
+				result = first.result;
+				return;
+			}
+			result = new HashAggregation(keys, kinds, inputs);
+			result.add(from, to);
+		}
 	}
 
+	/**
+	 * Returns the number of bytes of memory an orderBy saved straight into
+	 * a file may use before it spills to disk.
+	 *
+	 * @return the memory allowed for sorting
+	 */
+	long getSortMemory() {
+		return sortMemory;
+	}
 
+	/**
+	 * Sets the number of bytes of memory an orderBy saved straight into a
+	 * file may use before it spills to disk,
+	 * {@link ExternalSort#DEFAULT_MEMORY} to start with.
+	 *
+	 * @param bytes the memory allowed for sorting
+	 */
+	void setSortMemory(long bytes) {
+		sortMemory = bytes;
+	}
 
 	/**
-	 * Takes in a String in the form of "tableName,columnNumber" and returns a
-	 * copy of the {@link Table} <code>tableName</code> sorted according to
+	 * Takes in a String in the form of "tableName,columnNumber" and returns
+	 * the {@link Table} <code>tableName</code> sorted according to
 	 * the <code>columnNumber</code>. If no such table exists, then a
-	 * {@link NoSuchTableException} is thrown.
+	 * {@link NoSuchTableException} is thrown.<br/>
+	 * <br/>
+	 * The table itself isn't copied: the result is a view of its columns in
+	 * sorted order, as {@link Table#sorted(int)} returns, copied out only if
+	 * it's changed, and sorting the table by the same column again reuses
+	 * the order found the first time.
 	 *
 	 * @param expr the orderBy command arguments
-	 * @return a copy of the {@link Table} <code>tableName</code> sorted
+	 * @return the {@link Table} <code>tableName</code> sorted
 	 * according to <code>colNum</code>
 	 * @throws NoSuchTableException if the table doesn't exist in the database
 	 * @throws ColumnIndexOutOfBoundsException if given column number is out of
@@ -867,13 +2046,170 @@ public class Database {
 	ColumnIndexOutOfBoundsException {
 		String[] sortCmd = expr.split(",");
 
-		Table t = getTable(sortCmd[0].trim()).clone();
+		Table t = getTable(sortCmd[0].trim());
 
 		int colNumber = sortCmd[1].trim().matches("[0-9]+")
 				? Integer.parseInt(sortCmd[1].trim())
 						: t.getColumnNumber(sortCmd[1].trim());
 
-				return (t.sort(colNumber));
+		//a view of the table in order, sharing its columns, which takes
+		//less memory than the runs of a spilled sort would
+		return t.sorted(colNumber);
+	}
+
+	/**
+	 * Runs an assignment expression whose commands may be nested inside each
+	 * other, such as <code>rows(join(a, b, 1, 1), 2, &gt;, 5)</code>. The
+	 * expression is compiled into a pipeline of {@link Operator}s that pass
+	 * row numbers to each other a batch at a time, so that only the final
+	 * result is built into a table. An orderBy or groupBy still has to see
+	 * all of its input first, which it builds into a table of its own.
+	 *
+	 * @param expr the expression, after the <code>=</code> of an assignment
+	 * @return the result of the expression
+	 * @throws ParseException if the expression isn't well formed
+	 * @throws NoSuchTableException if a named table doesn't exist
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	Table evaluate(String expr) throws ParseException, NoSuchTableException,
+	ColumnIndexOutOfBoundsException {
+		Command command = new CommandParser().parseExpression(expr);
+		return evaluate(command, command.root());
+	}
+
+	/**
+	 * Runs an expression that has already been parsed, as
+	 * {@link #evaluate(String)} does.
+	 *
+	 * @param command the command holding the expression
+	 * @param node the node of the expression
+	 * @return the result of the expression
+	 * @throws ParseException if a value doesn't fit its column
+	 * @throws NoSuchTableException if a named table doesn't exist
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	Table evaluate(Command command, int node) throws ParseException,
+	NoSuchTableException, ColumnIndexOutOfBoundsException {
+		Operator plan = new Planner(this).plan(command, node);
+		return new Rewriter(this).rewrite(plan).materialize();
+	}
+
+	/**
+	 * Describes how an assignment expression would be run: the pipeline it
+	 * compiles to, and, if the {@link Rewriter} changes it, the pipeline
+	 * that is run instead and the rules that changed it.
+	 *
+	 * @param expr the expression, after the <code>=</code> of an assignment
+	 * @return the description, one operator or rule per line
+	 * @throws ParseException if the expression isn't well formed
+	 * @throws NoSuchTableException if a named table doesn't exist
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	String explain(String expr) throws ParseException, NoSuchTableException,
+	ColumnIndexOutOfBoundsException {
+		Command command = new CommandParser().parseExpression(expr);
+		return explain(command, command.root());
+	}
+
+	/**
+	 * Describes how an expression that has already been parsed would be
+	 * run, as {@link #explain(String)} does.
+	 *
+	 * @param command the command holding the expression
+	 * @param node the node of the expression
+	 * @return the description, one operator or rule per line
+	 * @throws ParseException if a value doesn't fit its column
+	 * @throws NoSuchTableException if a named table doesn't exist
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	String explain(Command command, int node) throws ParseException,
+	NoSuchTableException, ColumnIndexOutOfBoundsException {
+		Operator plan = new Planner(this).plan(command, node);
+		Rewriter rewriter = new Rewriter(this);
+		Operator rewritten = rewriter.rewrite(plan);
+
+		StringBuilder out = new StringBuilder("Plan:\n");
+		plan.explain(out, 1);
+		if (!rewriter.applied().isEmpty()) {
+			out.append("Rewritten plan:\n");
+			rewritten.explain(out, 1);
+			rewrites(out, rewriter);
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Runs an assignment expression, as {@link #evaluate(String)} does,
+	 * and describes how it was run. Each operator of the pipeline that was
+	 * run is given with how it went about its work, where it had a choice,
+	 * the time it took with and without the operators under it, the rows
+	 * it was handed and handed out, the rows it was estimated to hand out,
+	 * and the bytes it allocated with and without the operators under it.
+	 * The result isn't stored.
+	 *
+	 * @param expr the expression, after the <code>=</code> of an assignment
+	 * @return the description, one operator or rule per line
+	 * @throws ParseException if the expression isn't well formed
+	 * @throws NoSuchTableException if a named table doesn't exist
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	String explainAnalyze(String expr) throws ParseException,
+	NoSuchTableException, ColumnIndexOutOfBoundsException {
+		Command command = new CommandParser().parseExpression(expr);
+		return explainAnalyze(command, command.root());
+	}
+
+	/**
+	 * Runs an expression that has already been parsed, and describes how
+	 * it was run, as {@link #explainAnalyze(String)} does.
+	 *
+	 * @param command the command holding the expression
+	 * @param node the node of the expression
+	 * @return the description, one operator or rule per line
+	 * @throws ParseException if a value doesn't fit its column
+	 * @throws NoSuchTableException if a named table doesn't exist
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	String explainAnalyze(Command command, int node) throws ParseException,
+	NoSuchTableException, ColumnIndexOutOfBoundsException {
+		long startBytes = ProfiledOperator.allocated();
+		long start = System.nanoTime();
+		Operator plan = new Planner(this).plan(command, node);
+		Rewriter rewriter = new Rewriter(this);
+		ProfiledOperator root = ProfiledOperator.profile(
+				rewriter.rewrite(plan), rewriter.estimator());
+		long planned = System.nanoTime();
+		Table result = root.materialize();
+		long done = System.nanoTime();
+		long bytes = ProfiledOperator.allocated() - startBytes;
+
+		StringBuilder out = new StringBuilder("Analyzed plan:\n");
+		root.explain(out, 1);
+		if (!rewriter.applied().isEmpty()) {
+			rewrites(out, rewriter);
+		}
+		out.append(String.format("Planning: %.3f ms\n", (planned - start)
+				/ 1e6));
+		out.append(String.format("Copying out %d rows: %.3f ms\n",
+				result.size(), (done - planned - root.nanos()) / 1e6));
+		out.append(String.format("Total: %.3f ms", (done - start) / 1e6));
+		if (bytes > 0) {
+			out.append(String.format(", %,d bytes allocated", bytes));
+		}
+		return out.append('\n').toString();
+	}
+
+	/**
+	 * Lists the rules a rewriter applied, one per line.
+	 *
+	 * @param out where to write the list
+	 * @param rewriter the rewriter
+	 */
+	private static void rewrites(StringBuilder out, Rewriter rewriter) {
+		out.append("Rewrites:\n");
+		for (String rule : rewriter.applied()) {
+			out.append("  ").append(rule).append('\n');
+		}
 	}
 
 	/**
@@ -881,6 +2217,8 @@ public class Database {
 	 */
 	void clear() {
 		database.clear();
+		statistics.clear();
+		indexed.clear();
 	}
 
 	/**
@@ -890,6 +2228,8 @@ public class Database {
 	 * @return the removed Table, or <code>null</code> if it doesn't exist
 	 */
 	Table remove(String tableName) {
+		indexed.remove(tableName);
+		statistics.remove(tableName);
 		return database.remove(tableName);
 	}
 
@@ -914,7 +2254,7 @@ public class Database {
 
 		//once again, no validity check necessary , since no invalid
 		//input can get this far
-		database.put(command[1], new Table(definition));
+		put(command[1], new Table(definition));
 
 		System.out.println(command[1] + " is now defined.");
 	}
@@ -0,0 +1,237 @@
+package parser;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import elements.Cell;
+import elements.ColumnStatistics;
+import elements.NumberCell;
+import elements.TableStatistics;
+
+/**
+ * Estimates how many rows each {@link Operator} of a pipeline hands out,
+ * from the {@link TableStatistics} of the tables it scans, without running
+ * it. The estimates are what the {@link Rewriter} weighs the orders of a
+ * join, and the input it hashes, by.<br/>
+ * <br/>
+ * The statistics of a stored column are taken to hold for every operator
+ * it passes through, filtered or not. A filter keeps the share of rows its
+ * histogram, or its number of distinct values for <code>==</code>, gives,
+ * and a join on equal keys pairs each row with as many rows of the other
+ * input as that input has per distinct key value. Where there are no
+ * statistics, as for the columns of a groupBy, a comparison keeps a third
+ * of the rows and a key is taken to be unique.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class Estimator {
+
+	/**
+	 * The share of rows a comparison nothing is known about keeps.
+	 */
+	static final double DEFAULT_SELECTIVITY = 1.0 / 3;
+
+	/**
+	 * The database holding the scanned tables.
+	 */
+	private final Database database;
+
+	/**
+	 * The estimates made so far, since operators are estimated over and
+	 * over as the ones above them are.
+	 */
+	private final Map<Operator, Double> estimates =
+			new IdentityHashMap<Operator, Double>();
+
+	/**
+	 * Creates an estimator for the tables of the given database.
+	 *
+	 * @param database the database holding the scanned tables
+	 */
+	Estimator(Database database) {
+		this.database = database;
+	}
+
+	/**
+	 * Estimates the number of rows the given operator hands out.
+	 *
+	 * @param op the operator
+	 * @return the approximate number of rows, at least 1 unless the
+	 *         operator is known to hand out none
+	 */
+	double rows(Operator op) {
+		Double known = estimates.get(op);
+		if (known == null) {
+			known = estimate(op);
+			estimates.put(op, known);
+		}
+		return known;
+	}
+
+	/**
+	 * Works out the estimate {@link #rows(Operator)} gives.
+	 *
+	 * @param op the operator
+	 * @return the approximate number of rows
+	 */
+	private double estimate(Operator op) {
+		if (op instanceof ScanOperator) {
+			return op.tables[0].size();
+		}
+		if (op instanceof FilterOperator) {
+			FilterOperator filter = (FilterOperator) op;
+			return atLeastOne(rows(filter.child) * selectivity(filter));
+		}
+		if (op instanceof JoinOperator) {
+			return rows((JoinOperator) op);
+		}
+		if (op instanceof SortOperator && ((SortOperator) op).limit >= 0) {
+			SortOperator top = (SortOperator) op;
+			return Math.min(top.limit, rows(top.child));
+		}
+		if (op instanceof GroupByOperator) {
+			GroupByOperator group = (GroupByOperator) op;
+			double input = rows(group.child);
+			double groups = 1;
+			for (String item : group.items) {
+				if (item.indexOf('(') < 0) {
+					groups *= distinct(group.child, Integer.parseInt(item));
+				}
+			}
+			return Math.min(groups, input);
+		}
+		//every other operator hands out as many rows as its only input
+		return rows(op.children().get(0));
+	}
+
+	/**
+	 * Estimates the number of rows a join hands out.
+	 *
+	 * @param join the join
+	 * @return the approximate number of rows
+	 */
+	private double rows(JoinOperator join) {
+		double left = rows(join.left);
+		double right = rows(join.right);
+		double pairs = left * right;
+		for (int k = 0; k < join.leftKeys.length; k++) {
+			pairs /= Math.max(distinct(join.left, join.leftKeys[k]),
+					distinct(join.right, join.rightKeys[k]));
+		}
+		pairs = atLeastOne(pairs);
+		return join.outer ? Math.max(pairs, Math.max(left, right)) : pairs;
+	}
+
+	/**
+	 * Estimates the share of its input's rows a filter keeps.
+	 *
+	 * @param filter the filter
+	 * @return the approximate share of rows, between 0 and 1
+	 */
+	double selectivity(FilterOperator filter) {
+		ColumnStatistics stats = column(filter.child, filter.column);
+		if (filter.other >= 0) {
+			if (!filter.comparator.equals("==")) {
+				return DEFAULT_SELECTIVITY;
+			}
+			return 1 / Math.max(distinct(filter.child, filter.column),
+					distinct(filter.child, filter.other));
+		}
+		if (stats == null || stats.getRowCount() == 0) {
+			return DEFAULT_SELECTIVITY;
+		}
+		Cell value = filter.value;
+		double filled = 1 - (double) stats.getNullCount()
+				/ stats.getRowCount();
+		if (filter.comparator.equals("==")) {
+			boolean outside = value.isNull() || stats.getMin() == null
+					|| value.compareTo(stats.getMin()) < 0
+					|| value.compareTo(stats.getMax()) > 0;
+			return outside ? 0 : filled / stats.getDistinctCount();
+		}
+		if (!value.isNumberCell() || value.isNull()) {
+			return DEFAULT_SELECTIVITY;
+		}
+		int number = ((NumberCell) value).getCell();
+		double below = stats.fractionBelow(number);
+		if (below < 0) {
+			return DEFAULT_SELECTIVITY;
+		}
+		double equal = stats.fractionBelow(number + 1) - below;
+		if (filter.comparator.equals("<")) {
+			return filled * below;
+		}
+		if (filter.comparator.equals("<=")) {
+			return filled * (below + equal);
+		}
+		if (filter.comparator.equals(">")) {
+			return filled * (1 - below - equal);
+		}
+		return filled * (1 - below);
+	}
+
+	/**
+	 * Estimates the number of distinct values of an output column of an
+	 * operator, which is never more than its number of rows.
+	 *
+	 * @param op the operator
+	 * @param c the output column
+	 * @return the approximate number of distinct values, at least 1
+	 */
+	double distinct(Operator op, int c) {
+		double rows = rows(op);
+		ColumnStatistics stats = column(op, c);
+		if (stats == null) {
+			return Math.max(1, rows);
+		}
+		return Math.max(1, Math.min(stats.getDistinctCount(), rows));
+	}
+
+	/**
+	 * Finds the statistics of the stored column an output column of an
+	 * operator comes from.
+	 *
+	 * @param op the operator
+	 * @param c the output column
+	 * @return the statistics of the column, or <code>null</code> if it
+	 *         isn't a column of a stored table
+	 */
+	ColumnStatistics column(Operator op, int c) {
+		if (op instanceof ScanOperator) {
+			ScanOperator scan = (ScanOperator) op;
+			TableStatistics stats = database.statistics(scan.name);
+			return stats == null || stats.getRowCount() != scan.tables[0]
+					.size() ? null : stats.getColumn(c);
+		}
+		if (op instanceof ProjectOperator) {
+			ProjectOperator project = (ProjectOperator) op;
+			return column(project.child, project.kept[c]);
+		}
+		if (op instanceof JoinOperator) {
+			JoinOperator join = (JoinOperator) op;
+			int split = join.left.width();
+			return c < split ? column(join.left, c)
+					: column(join.right, c - split);
+		}
+		if (op instanceof GroupByOperator) {
+			return null;
+		}
+		//filters, sorts and restored orders keep the columns of their input
+		return column(op.children().get(0), c);
+	}
+
+	/**
+	 * Rounds an estimate that isn't 0 up to at least one row.
+	 *
+	 * @param rows the estimate
+	 * @return the estimate, or 1 if it is between 0 and 1
+	 */
+	private static double atLeastOne(double rows) {
+		return rows > 0 && rows < 1 ? 1 : rows;
+	}
+}
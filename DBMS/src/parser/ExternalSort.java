@@ -0,0 +1,494 @@
+package parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import elements.Column;
+import elements.DictionaryColumn;
+import elements.IntColumn;
+import elements.StringColumn;
+import elements.Table;
+import elements.TableWriter;
+
+/**
+ * Sorts a table too large to sort in memory, as an orderBy does, straight
+ * into the csv text of a file being saved, by spilling it to disk. The
+ * table is cut into runs of as many rows as fit in the memory allowed for
+ * sorting; each run is copied out, sorted, and written to a temporary file.
+ * The runs are then merged, the first row of every run that is left at a
+ * time, into the text, a chunk of rows at a time, without ever building
+ * the sorted table. A sorted table that's kept is only the order of the
+ * rows of the table it was sorted from, as {@link Table#sorted(int[],
+ * boolean[])} returns, and so is never spilled.<br/>
+ * <br/>
+ * A run file holds its rows one after another, each value of a row after
+ * the other: a number as a byte, <code>0</code> if it's empty and
+ * <code>1</code> otherwise, followed by the number if it isn't, and a
+ * String as its length in UTF-8 bytes, -1 for an empty one, followed by
+ * the bytes. All numbers are big-endian.<br/>
+ * <br/>
+ * Rows are ordered as {@link Table#sort(int[], boolean[])} orders them,
+ * and rows with equal keys keep their order, since the runs are cut in
+ * order and the first run holding one of them is merged first.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class ExternalSort {
+
+	/**
+	 * The system property giving the number of bytes of memory a sort may
+	 * use before it spills to disk.
+	 */
+	static final String MEMORY_PROPERTY = "dbms.sortMemory";
+
+	/**
+	 * The number of bytes of memory a sort may use before it spills to
+	 * disk, unless {@link #MEMORY_PROPERTY} says otherwise: a quarter of
+	 * the heap.
+	 */
+	static final long DEFAULT_MEMORY = Long.getLong(MEMORY_PROPERTY,
+			Runtime.getRuntime().maxMemory() / 4);
+
+	/**
+	 * The most rows looked at to estimate the size of a table.
+	 */
+	private static final int SAMPLE_SIZE = 1024;
+
+	/**
+	 * The number of merged rows written out at a time.
+	 */
+	private static final int CHUNK_SIZE = 1 << 12;
+
+	/**
+	 * The size of the buffer of each run file.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The charset Strings are written in.
+	 */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * The table to sort.
+	 */
+	private final Table input;
+
+	/**
+	 * The columns to sort by, first the one compared first.
+	 */
+	private final int[] keys;
+
+	/**
+	 * Whether each column is sorted in descending order.
+	 */
+	private final boolean[] descending;
+
+	/**
+	 * Whether each column of the table is a number column.
+	 */
+	private final boolean[] numbers;
+
+	/**
+	 * The number of rows of each run.
+	 */
+	private final int runSize;
+
+	/**
+	 * Creates a sort of a table.
+	 *
+	 * @param input the table to sort, which isn't changed
+	 * @param keys the columns to sort by, first the one compared first
+	 * @param descending whether each column is sorted in descending order
+	 * @param memory the number of bytes of memory each run may take
+	 */
+	ExternalSort(Table input, int[] keys, boolean[] descending,
+			long memory) {
+		this.input = input;
+		this.keys = keys;
+		this.descending = descending;
+		numbers = new boolean[input.getColSize()];
+		for (int c = 0; c < numbers.length; c++) {
+			numbers[c] = input.getDefinition().get(c);
+		}
+		double rowSize = Math.max(1, estimate(input)
+				/ Math.max(1.0, input.size()));
+		runSize = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+				memory / rowSize));
+	}
+
+	/**
+	 * Estimates the number of bytes a table takes, from the size of a
+	 * sample of its rows as they are written in a run.
+	 *
+	 * @param t the table
+	 * @return about how many bytes its rows take
+	 */
+	static long estimate(Table t) {
+		int rows = t.size();
+		if (rows == 0) {
+			return 0;
+		}
+		Column[] cols = t.getColumns();
+		int step = Math.max(1, rows / SAMPLE_SIZE);
+		long sampled = 0;
+		long bytes = 0;
+		for (int row = 0; row < rows; row += step, sampled++) {
+			for (Column c : cols) {
+				if (c instanceof IntColumn) {
+					bytes += c.isNull(row) ? 1 : 5;
+				} else {
+					String s = string(c, row);
+					bytes += 4 + (s == null ? 0 : s.length());
+				}
+			}
+		}
+		return (long) ((double) bytes / sampled * rows);
+	}
+
+	/**
+	 * Returns whether a table is too large to sort in the given memory.
+	 *
+	 * @param t the table
+	 * @param memory the number of bytes of memory a sort may take
+	 * @return whether sorting it has to spill to disk
+	 */
+	static boolean spills(Table t, long memory) {
+		return estimate(t) > memory;
+	}
+
+	/**
+	 * Sorts the table straight into csv text, as {@link TableWriter} writes
+	 * a table: writes the runs and merges them, a chunk of rows at a time,
+	 * without building the sorted table.
+	 *
+	 * @param out where to write the sorted table
+	 * @throws IOException if a run or the text can't be written
+	 */
+	void sort(TableWriter out) throws IOException {
+		Column[] cols = columns(CHUNK_SIZE);
+		List<Run> runs = new ArrayList<Run>();
+		try {
+			for (int from = 0; from < input.size(); from += runSize) {
+				int to = (int) Math.min(input.size(), (long) from + runSize);
+				runs.add(write(from, to, runs.size()));
+			}
+			PriorityQueue<Run> next = new PriorityQueue<Run>(
+					Math.max(1, runs.size()), new Comparator<Run>() {
+						@Override
+						public int compare(Run a, Run b) {
+							return ExternalSort.this.compare(a, b);
+						}
+					});
+			for (Run run : runs) {
+				if (run.next()) {
+					next.add(run);
+				}
+			}
+			boolean headed = input.hasHead();
+			while (!next.isEmpty()) {
+				Run run = next.poll();
+				run.copy(cols);
+				if (run.next()) {
+					next.add(run);
+				}
+				if (cols[0].size() == CHUNK_SIZE) {
+					write(out, cols, headed);
+					headed = false;
+					cols = columns(CHUNK_SIZE);
+				}
+			}
+			if (cols[0].size() > 0 || headed) {
+				write(out, cols, headed);
+			}
+		} finally {
+			for (Run run : runs) {
+				run.close();
+			}
+		}
+	}
+
+	/**
+	 * Sorts a run of rows and writes it to a temporary file.
+	 *
+	 * @param from the first row of the run, inclusive
+	 * @param to the last row of the run, exclusive
+	 * @param index the number of runs before it
+	 * @return the run, open to be read back from its start
+	 * @throws IOException if the run can't be written
+	 */
+	private Run write(int from, int to, int index) throws IOException {
+		int[] rows = new int[to - from];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = from + i;
+		}
+		Table run = input.select(rows, rows.length);
+		try {
+			run.sort(keys, descending);
+		} catch (ColumnIndexOutOfBoundsException e) {
+			//the columns were checked against the table when it was planned
+			throw new IllegalStateException(e);
+		}
+
+		File file = File.createTempFile("sort", ".run");
+		file.deleteOnExit();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), BUFFER_SIZE));
+		try {
+			Column[] cols = run.getColumns();
+			for (int row = 0; row < rows.length; row++) {
+				for (Column c : cols) {
+					if (c instanceof IntColumn) {
+						out.writeBoolean(!c.isNull(row));
+						if (!c.isNull(row)) {
+							out.writeInt(((IntColumn) c).getInt(row));
+						}
+					} else {
+						String s = string(c, row);
+						if (s == null) {
+							out.writeInt(-1);
+						} else {
+							byte[] bytes = s.getBytes(UTF8);
+							out.writeInt(bytes.length);
+							out.write(bytes);
+						}
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+		return new Run(file, rows.length, index);
+	}
+
+	/**
+	 * Writes merged rows as csv text.
+	 *
+	 * @param out where to write them
+	 * @param cols the rows
+	 * @param headed whether to write the header of the table first
+	 * @throws IOException if the text can't be written
+	 */
+	private void write(TableWriter out, Column[] cols, boolean headed)
+			throws IOException {
+		out.write(new Table(input.getDefinition(), headed ? input.getHeader()
+				: new ArrayList<String>(), cols));
+	}
+
+	/**
+	 * Creates empty columns for the sorted rows.
+	 *
+	 * @param capacity the number of rows to make room for
+	 * @return a column for every column of the table
+	 */
+	private Column[] columns(int capacity) {
+		List<Boolean> definition = input.getDefinition();
+		Column[] cols = new Column[definition.size()];
+		for (int c = 0; c < cols.length; c++) {
+			cols[c] = Column.create(definition.get(c), capacity);
+		}
+		return cols;
+	}
+
+	/**
+	 * Compares the current rows of two runs, by every column sorted by in
+	 * turn and then by the order of the runs.
+	 *
+	 * @param a a run
+	 * @param b another run
+	 * @return a negative number if the row of <code>a</code> comes first,
+	 *         or a positive number if that of <code>b</code> does
+	 */
+	private int compare(Run a, Run b) {
+		for (int i = 0; i < keys.length; i++) {
+			int key = keys[i];
+			int c;
+			if (numbers[key]) {
+				c = a.empty[key] || b.empty[key]
+						? Boolean.compare(!a.empty[key], !b.empty[key])
+						: Integer.compare(a.ints[key], b.ints[key]);
+			} else {
+				c = text(a.strings[key]).compareTo(text(b.strings[key]));
+			}
+			if (c != 0) {
+				return descending[i] ? -c : c;
+			}
+		}
+		return Integer.compare(a.index, b.index);
+	}
+
+	/**
+	 * Returns a String as a StringCell compares it, <code>""</code> if
+	 * empty.
+	 *
+	 * @param s the String, or <code>null</code>
+	 * @return the String, or <code>""</code>
+	 */
+	private static String text(String s) {
+		return s == null ? "" : s;
+	}
+
+	/**
+	 * Returns a value of a column of Strings.
+	 *
+	 * @param c the column
+	 * @param row the row of the value
+	 * @return the value, or <code>null</code> if empty
+	 */
+	private static String string(Column c, int row) {
+		if (c instanceof DictionaryColumn) {
+			return ((DictionaryColumn) c).getString(row);
+		}
+		if (c instanceof StringColumn) {
+			return ((StringColumn) c).getString(row);
+		}
+		return c.isNull(row) ? null : c.getCell(row).toString();
+	}
+
+	/**
+	 * A sorted run written to a file, read back a row at a time.
+	 */
+	private final class Run {
+
+		/**
+		 * The file of the run.
+		 */
+		private final File file;
+
+		/**
+		 * The rows of the run.
+		 */
+		private final DataInputStream in;
+
+		/**
+		 * The number of rows of the run not read yet.
+		 */
+		private int left;
+
+		/**
+		 * The number of runs before this one.
+		 */
+		final int index;
+
+		/**
+		 * The number in each column of the current row, if it's a number
+		 * column.
+		 */
+		final int[] ints;
+
+		/**
+		 * Whether each number of the current row is empty.
+		 */
+		final boolean[] empty;
+
+		/**
+		 * The String in each column of the current row, if it's a String
+		 * column, <code>null</code> if empty.
+		 */
+		final String[] strings;
+
+		/**
+		 * Room to read a String's bytes into.
+		 */
+		private byte[] scratch = new byte[64];
+
+		/**
+		 * Opens a run written to a file, before its first row.
+		 *
+		 * @param file the file
+		 * @param rows the number of rows in it
+		 * @param index the number of runs before it
+		 * @throws IOException if the file can't be opened
+		 */
+		Run(File file, int rows, int index) throws IOException {
+			this.file = file;
+			this.left = rows;
+			this.index = index;
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file), BUFFER_SIZE));
+			int width = input.getColSize();
+			ints = new int[width];
+			empty = new boolean[width];
+			strings = new String[width];
+		}
+
+		/**
+		 * Reads the next row.
+		 *
+		 * @return whether there was one
+		 * @throws IOException if the file can't be read
+		 */
+		boolean next() throws IOException {
+			if (left == 0) {
+				return false;
+			}
+			left--;
+			for (int c = 0; c < ints.length; c++) {
+				if (numbers[c]) {
+					empty[c] = !in.readBoolean();
+					ints[c] = empty[c] ? 0 : in.readInt();
+					continue;
+				}
+				int length = in.readInt();
+				if (length < 0) {
+					strings[c] = null;
+					continue;
+				}
+				if (length > scratch.length) {
+					scratch = new byte[Math.max(length, scratch.length * 2)];
+				}
+				in.readFully(scratch, 0, length);
+				strings[c] = new String(scratch, 0, length, UTF8);
+			}
+			return true;
+		}
+
+		/**
+		 * Adds the current row to the end of the given columns.
+		 *
+		 * @param cols the columns, made by {@link Column#create(boolean, int)}
+		 */
+		void copy(Column[] cols) {
+			for (int c = 0; c < cols.length; c++) {
+				if (cols[c] instanceof IntColumn) {
+					if (empty[c]) {
+						((IntColumn) cols[c]).addNull();
+					} else {
+						((IntColumn) cols[c]).addInt(ints[c]);
+					}
+				} else {
+					((StringColumn) cols[c]).addString(strings[c]);
+				}
+			}
+		}
+
+		/**
+		 * Closes and deletes the file of the run.
+		 *
+		 * @throws IOException if it can't be closed
+		 */
+		void close() throws IOException {
+			try {
+				in.close();
+			} finally {
+				file.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,321 @@
+package parser;
+
+import java.util.Collections;
+import java.util.List;
+
+import elements.Cell;
+import elements.Column;
+import elements.ColumnIndex;
+import elements.DictionaryColumn;
+import elements.HashIndex;
+import elements.StringColumn;
+
+/**
+ * Hands on only the rows of its input whose value in one column compares
+ * to a value as a rows command says, the way
+ * {@link Database#rows(elements.Table, int, String, Cell)} does for a
+ * whole table. Right on top of a scan, an index of the column is asked
+ * first, and the rows it finds are handed out instead of scanning.<br/>
+ * <br/>
+ * A column can also be compared with another column of the same row,
+ * such as two columns of a product, which a {@link Rewriter} can turn
+ * into a join.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class FilterOperator extends Operator {
+
+	/**
+	 * The database whose comparisons are used.
+	 */
+	private final Database database;
+
+	/**
+	 * The input of this operator.
+	 */
+	final Operator child;
+
+	/**
+	 * The output column that is compared.
+	 */
+	final int column;
+
+	/**
+	 * The comparator, one of <code>&lt;, &lt;=, ==, &gt;=, &gt;</code>.
+	 */
+	final String comparator;
+
+	/**
+	 * The value to compare with, or <code>null</code> if it's compared with
+	 * another column.
+	 */
+	final Cell value;
+
+	/**
+	 * The output column compared with, or -1 if it's compared with a value.
+	 */
+	final int other;
+
+	/**
+	 * Whether values equal to <code>value</code> are kept.
+	 */
+	private boolean equal;
+
+	/**
+	 * Whether values less than <code>value</code> are kept.
+	 */
+	private boolean less;
+
+	/**
+	 * Whether values greater than <code>value</code> are kept.
+	 */
+	private boolean greater;
+
+	/**
+	 * The base column being compared.
+	 */
+	private Column base;
+
+	/**
+	 * A single empty value, compared for rows of empty cells.
+	 */
+	private Column empty;
+
+	/**
+	 * The base column compared with, or <code>null</code>.
+	 */
+	private Column otherBase;
+
+	/**
+	 * Whether each code of a dictionary encoded column meets the condition,
+	 * or <code>null</code> if the column isn't dictionary encoded.
+	 */
+	private boolean[] meets;
+
+	/**
+	 * The rows found by an index, or <code>null</code> if the rows are
+	 * scanned.
+	 */
+	private int[] found;
+
+	/**
+	 * How the rows were found, once opened.
+	 */
+	private String strategy;
+
+	/**
+	 * The next row of <code>found</code> to hand out.
+	 */
+	private int position;
+
+	/**
+	 * The rows being handed out when they're found by an index.
+	 */
+	private Batch batch;
+
+	/**
+	 * Creates a filter over the given input.
+	 *
+	 * @param database the database whose comparisons are used
+	 * @param child the input
+	 * @param column the output column to compare
+	 * @param comparator one of <code>&lt;, &lt;=, ==, &gt;=, &gt;</code>
+	 * @param value the value to compare with
+	 */
+	FilterOperator(Database database, Operator child, int column,
+			String comparator, Cell value) {
+		this(database, child, column, comparator, value, -1);
+	}
+
+	/**
+	 * Creates a filter over the given input comparing two of its columns.
+	 *
+	 * @param database the database whose comparisons are used
+	 * @param child the input
+	 * @param column the output column to compare
+	 * @param comparator one of <code>&lt;, &lt;=, ==, &gt;=, &gt;</code>
+	 * @param other the output column of the same type to compare with
+	 */
+	FilterOperator(Database database, Operator child, int column,
+			String comparator, int other) {
+		this(database, child, column, comparator, null, other);
+	}
+
+	/**
+	 * Creates a filter over the given input.
+	 *
+	 * @param database the database whose comparisons are used
+	 * @param child the input
+	 * @param column the output column to compare
+	 * @param comparator one of <code>&lt;, &lt;=, ==, &gt;=, &gt;</code>
+	 * @param value the value to compare with, or <code>null</code>
+	 * @param other the output column to compare with, or -1
+	 */
+	private FilterOperator(Database database, Operator child, int column,
+			String comparator, Cell value, int other) {
+		super(child.definition, child.header, child.tables, child.slots,
+				child.columns);
+		this.database = database;
+		this.child = child;
+		this.column = column;
+		this.comparator = comparator;
+		this.value = value;
+		this.other = other;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#open()
+	 */
+	@Override
+	void open() {
+		child.open();
+		equal = comparator.contains("=");
+		less = comparator.contains("<");
+		greater = comparator.contains(">");
+
+		found = null;
+		strategy = "scan";
+		if (child.isScan() && other < 0) {
+			ColumnIndex index = tables[0].getIndex(columns[column]);
+			found = index == null ? null
+					: index.find(equal, less, greater, value);
+			position = 0;
+			batch = new Batch(1);
+			if (found != null) {
+				strategy = (index instanceof HashIndex ? "hash" : "B+tree")
+						+ " index lookup";
+			}
+		}
+
+		base = column(column);
+		empty = Column.create(base.isNumberColumn(), 1).select(
+				new int[] {-1}, 1);
+		otherBase = other < 0 ? null : column(other);
+		meets = null;
+		if (base instanceof DictionaryColumn && other < 0) {
+			//check each distinct value once, then only look at the codes
+			StringColumn distinct = database.dictionaryValues(
+					((DictionaryColumn) base).getDictionary());
+			meets = new boolean[distinct.size()];
+			for (int code = 0; code < meets.length; code++) {
+				meets[code] = database.meets(distinct, code, equal, less,
+						greater, value);
+			}
+			if (found == null) {
+				strategy = "scan of dictionary codes";
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#next()
+	 */
+	@Override
+	Batch next() {
+		if (found != null) {
+			if (position == found.length) {
+				return null;
+			}
+			batch.size = Math.min(BATCH_SIZE, found.length - position);
+			System.arraycopy(found, position, batch.rows[0], 0, batch.size);
+			position += batch.size;
+			return batch;
+		}
+
+		int slot = slots[column];
+		for (Batch b = child.next(); b != null; b = child.next()) {
+			//keep the rows that meet the condition, moving them up in place
+			int kept = 0;
+			int[] ids = b.rows[slot];
+			int[] otherIds = other < 0 ? null : b.rows[slots[other]];
+			for (int i = 0; i < b.size; i++) {
+				int row = ids[i];
+				Cell v = value;
+				if (otherIds != null) { //the value is in the same row
+					v = otherIds[i] < 0 ? empty.getCell(0)
+							: otherBase.getCell(otherIds[i]);
+				}
+				boolean keep;
+				if (row < 0) {
+					keep = database.meets(empty, 0, equal, less, greater, v);
+				} else if (meets != null
+						&& ((DictionaryColumn) base).getCode(row) >= 0) {
+					keep = meets[((DictionaryColumn) base).getCode(row)];
+				} else {
+					keep = database.meets(base, row, equal, less, greater,
+							v);
+				}
+				if (keep) {
+					for (int[] slotIds : b.rows) {
+						slotIds[kept] = slotIds[i];
+					}
+					kept++;
+				}
+			}
+			if (kept > 0) {
+				b.size = kept;
+				return b;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#strategy()
+	 */
+	@Override
+	String strategy() {
+		return strategy;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#children()
+	 */
+	@Override
+	List<Operator> children() {
+		return Collections.singletonList(child);
+	}
+
+	/**
+	 * Creates the same filter over another input, on other columns.
+	 *
+	 * @param input the new input
+	 * @param col the output column of <code>input</code> to compare
+	 * @param with the output column of <code>input</code> to compare
+	 *            with, or -1 to compare with the same value as this filter
+	 * @return the new filter
+	 */
+	FilterOperator on(Operator input, int col, int with) {
+		return new FilterOperator(database, input, col, comparator, value,
+				with);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#withChildren(java.util.List)
+	 */
+	@Override
+	Operator withChildren(List<Operator> inputs) {
+		return new FilterOperator(database, inputs.get(0), column,
+				comparator, value, other);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#describe()
+	 */
+	@Override
+	String describe() {
+		return "Filter " + label(column) + " " + comparator + " "
+				+ (other < 0 ? value.toString() : label(other));
+	}
+}
@@ -0,0 +1,120 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import elements.Table;
+
+/**
+ * Groups the rows of its input and aggregates each group, as a groupBy
+ * command does.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class GroupByOperator extends BlockingOperator {
+
+	/**
+	 * The database that does the grouping.
+	 */
+	private final Database database;
+
+	/**
+	 * The key columns and aggregates, as given to a groupBy command, with
+	 * every column given by its index.
+	 */
+	final String[] items;
+
+	/**
+	 * A grouping of no rows, with the definition and header of the result.
+	 */
+	private final Table layout;
+
+	/**
+	 * Creates a grouping of the given input.
+	 *
+	 * @param database the database that does the grouping
+	 * @param child the input
+	 * @param items the key columns and aggregates, with every column given
+	 *            by its index
+	 * @param layout a grouping of no rows with the input's definition and
+	 *            header, which has the definition and header of the result
+	 */
+	GroupByOperator(Database database, Operator child, String[] items,
+			Table layout) {
+		super(child, layout.getDefinition(), layout.hasHead()
+				? layout.getHeader() : new ArrayList<String>());
+		this.database = database;
+		this.items = items;
+		this.layout = layout;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.BlockingOperator#build(elements.Table)
+	 */
+	@Override
+	Table build(Table input) {
+		try {
+			return database.groupBy(input, items);
+		} catch (ColumnIndexOutOfBoundsException e) {
+			//the columns were checked against the input when it was planned
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Creates the same grouping over another input.
+	 *
+	 * @param input the new input
+	 * @param newItems the key columns and aggregates, by their index in
+	 *            <code>input</code>
+	 * @return the new grouping
+	 */
+	GroupByOperator on(Operator input, String[] newItems) {
+		return new GroupByOperator(database, input, newItems, layout);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#withChildren(java.util.List)
+	 */
+	@Override
+	Operator withChildren(List<Operator> inputs) {
+		return new GroupByOperator(database, inputs.get(0), items, layout);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#describe()
+	 */
+	@Override
+	String describe() {
+		StringBuilder s = new StringBuilder("GroupBy");
+		for (int i = 0; i < items.length; i++) {
+			s.append(i == 0 ? " " : ", ").append(label(child, items[i]));
+		}
+		return s.toString();
+	}
+
+	/**
+	 * Returns a key column or aggregate with its column given by name.
+	 *
+	 * @param input the input the column belongs to
+	 * @param item a key column or aggregate, with its column by index
+	 * @return the item as a command would give it
+	 */
+	static String label(Operator input, String item) {
+		int open = item.indexOf('(');
+		if (open < 0) {
+			return input.label(Integer.parseInt(item));
+		}
+		String col = item.substring(open + 1, item.length() - 1);
+		return item.substring(0, open + 1) + (col.equals("*") ? col
+				: input.label(Integer.parseInt(col))) + ")";
+	}
+}
@@ -0,0 +1,373 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import elements.Column;
+import elements.IntColumn;
+import elements.StringColumn;
+import elements.Table;
+
+/**
+ * Groups the rows of a table by their key and folds each group's values
+ * into primitive accumulators, one per aggregate, the way a groupBy command
+ * asks for them.<br/>
+ * <br/>
+ * Groups are kept in a hash table chained through primitive arrays, like a
+ * {@link JoinHashTable}, and each group is known by the first row that has
+ * its key. Groups are numbered in the order their first row comes in, so
+ * the result lists them in that order. Aggregating two ranges of rows
+ * separately and then merging the second into the first gives exactly what
+ * aggregating both at once would, which is how large tables are aggregated
+ * in parallel.<br/>
+ * <br/>
+ * Empty values are skipped by every aggregate, except that
+ * <code>count(*)</code> counts every row. An aggregate over nothing but
+ * empty values is empty, and a count of nothing is 0.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class HashAggregation {
+
+	/**
+	 * Counts the values, or the rows if there is no column.
+	 */
+	static final int COUNT = 0;
+
+	/**
+	 * Adds the values up.
+	 */
+	static final int SUM = 1;
+
+	/**
+	 * Keeps the smallest value.
+	 */
+	static final int MIN = 2;
+
+	/**
+	 * Keeps the largest value.
+	 */
+	static final int MAX = 3;
+
+	/**
+	 * Averages the values.
+	 */
+	static final int AVG = 4;
+
+	/**
+	 * The names of the aggregates, by kind.
+	 */
+	static final List<String> NAMES =
+			Arrays.asList("count", "sum", "min", "max", "avg");
+
+	/**
+	 * The columns that make up the key.
+	 */
+	private final Column[] keys;
+
+	/**
+	 * The kind of each aggregate.
+	 */
+	private final int[] kinds;
+
+	/**
+	 * The column of each aggregate, <code>null</code> for
+	 * <code>count(*)</code>.
+	 */
+	private final Column[] inputs;
+
+	/**
+	 * The number of groups found so far.
+	 */
+	private int groups;
+
+	/**
+	 * The first row of each group.
+	 */
+	private int[] firstRows = new int[16];
+
+	/**
+	 * The hash of each group's key.
+	 */
+	private int[] hashes = new int[16];
+
+	/**
+	 * The group after each group in its bucket, or -1 at the end.
+	 */
+	private int[] next = new int[16];
+
+	/**
+	 * The first group of each bucket, or -1 if the bucket is empty.
+	 */
+	private int[] heads;
+
+	/**
+	 * For each aggregate and group, the number of values folded in.
+	 */
+	private final int[][] counts;
+
+	/**
+	 * For each aggregate and group, the sum, the smallest or largest number,
+	 * or the row of the smallest or largest String.
+	 */
+	private final long[][] values;
+
+	/**
+	 * Creates an empty aggregation.
+	 *
+	 * @param keys the columns that make up the key
+	 * @param kinds the kind of each aggregate
+	 * @param inputs the column of each aggregate, <code>null</code> for
+	 *            <code>count(*)</code>
+	 */
+	HashAggregation(Column[] keys, int[] kinds, Column[] inputs) {
+		this.keys = keys;
+		this.kinds = kinds;
+		this.inputs = inputs;
+		heads = new int[16];
+		Arrays.fill(heads, -1);
+		counts = new int[kinds.length][16];
+		values = new long[kinds.length][16];
+	}
+
+	/**
+	 * Folds the rows from <code>from</code> to <code>to</code> into their
+	 * groups.
+	 *
+	 * @param from the first row, inclusive
+	 * @param to the last row, exclusive
+	 */
+	void add(int from, int to) {
+		for (int row = from; row < to; row++) {
+			int g = group(row, JoinHashTable.hash(keys, row));
+			for (int a = 0; a < kinds.length; a++) {
+				Column in = inputs[a];
+				if (in == null) { //count(*)
+					counts[a][g]++;
+				} else if (!in.isNull(row)) {
+					fold(a, g, in, row);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merges the groups of another aggregation over rows after this one's
+	 * into this one, as if its rows had been added here.
+	 *
+	 * @param other an aggregation of the same table, keys and aggregates
+	 */
+	void merge(HashAggregation other) {
+		for (int og = 0; og < other.groups; og++) {
+			int g = group(other.firstRows[og], other.hashes[og]);
+			for (int a = 0; a < kinds.length; a++) {
+				int n = other.counts[a][og];
+				if (n == 0) {
+					continue;
+				}
+				long v = other.values[a][og];
+				switch (kinds[a]) {
+				case SUM:
+				case AVG:
+					values[a][g] += v;
+					break;
+				case MIN:
+				case MAX:
+					if (counts[a][g] == 0 || better(a, v, values[a][g])) {
+						values[a][g] = v;
+					}
+					break;
+				default:
+					break;
+				}
+				counts[a][g] += n;
+			}
+		}
+	}
+
+	/**
+	 * Builds the result: the key of each group, followed by each aggregate.
+	 * Without key columns there is always exactly one group.
+	 *
+	 * @param defn the definition of the result
+	 * @param header the header of the result, or an empty List
+	 * @return a table with one row per group
+	 */
+	Table toTable(List<Boolean> defn, List<String> header) {
+		if (keys.length == 0 && groups == 0) {
+			newGroup(-1, 0);
+		}
+		Column[] cols = new Column[keys.length + kinds.length];
+		for (int k = 0; k < keys.length; k++) {
+			cols[k] = keys[k].select(firstRows, groups);
+		}
+		for (int a = 0; a < kinds.length; a++) {
+			cols[keys.length + a] = result(a);
+		}
+		return new Table(defn, new ArrayList<String>(header), cols);
+	}
+
+	/**
+	 * Builds the column of the results of one aggregate.
+	 *
+	 * @param a the aggregate
+	 * @return the value of the aggregate for each group
+	 */
+	private Column result(int a) {
+		int[] n = counts[a];
+		long[] v = values[a];
+		if (kinds[a] == AVG) { //there is no decimal type, so write it out
+			StringColumn averages = new StringColumn(groups);
+			for (int g = 0; g < groups; g++) {
+				averages.addString(n[g] == 0 ? null
+						: Double.toString((double) v[g] / n[g]));
+			}
+			return averages;
+		}
+		if (kinds[a] != COUNT && !inputs[a].isNumberColumn()) {
+			int[] rows = new int[groups]; //smallest or largest String
+			for (int g = 0; g < groups; g++) {
+				rows[g] = n[g] == 0 ? -1 : (int) v[g];
+			}
+			return inputs[a].select(rows, groups);
+		}
+		IntColumn results = new IntColumn(groups);
+		for (int g = 0; g < groups; g++) {
+			if (kinds[a] == COUNT) {
+				results.addInt(n[g]);
+			} else if (n[g] == 0) {
+				results.addNull();
+			} else if (v[g] != (int) v[g]) {
+				throw new ArithmeticException("The sum " + v[g]
+						+ " is too large for a number column");
+			} else {
+				results.addInt((int) v[g]);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Folds the value at a row into the accumulator of an aggregate.
+	 *
+	 * @param a the aggregate
+	 * @param g the group of the row
+	 * @param in the column of the aggregate
+	 * @param row the row, whose value isn't empty
+	 */
+	private void fold(int a, int g, Column in, int row) {
+		switch (kinds[a]) {
+		case SUM:
+		case AVG:
+			values[a][g] += ((IntColumn) in).getInt(row);
+			break;
+		case MIN:
+		case MAX:
+			long v = in.isNumberColumn() ? ((IntColumn) in).getInt(row) : row;
+			if (counts[a][g] == 0 || better(a, v, values[a][g])) {
+				values[a][g] = v;
+			}
+			break;
+		default:
+			break;
+		}
+		counts[a][g]++;
+	}
+
+	/**
+	 * Returns whether or not a value should replace the current minimum or
+	 * maximum of an aggregate. Strings are held as their rows, and an equal
+	 * value never replaces an earlier one.
+	 *
+	 * @param a the aggregate, a MIN or MAX
+	 * @param v the new value
+	 * @param current the current value
+	 * @return whether or not <code>v</code> is the better value
+	 */
+	private boolean better(int a, long v, long current) {
+		int c;
+		if (inputs[a].isNumberColumn()) {
+			c = Long.compare(v, current);
+		} else {
+			c = inputs[a].getCell((int) v).toString().compareTo(
+					inputs[a].getCell((int) current).toString());
+		}
+		return kinds[a] == MIN ? c < 0 : c > 0;
+	}
+
+	/**
+	 * Finds the group of the key at the given row, starting a new group if
+	 * the key hasn't been seen yet.
+	 *
+	 * @param row the row
+	 * @param h the hash of the key at <code>row</code>
+	 * @return the number of the group
+	 */
+	private int group(int row, int h) {
+		for (int g = heads[h & (heads.length - 1)]; g >= 0; g = next[g]) {
+			if (hashes[g] == h && keysMatch(firstRows[g], row)) {
+				return g;
+			}
+		}
+		return newGroup(row, h);
+	}
+
+	/**
+	 * Starts a new group, growing the tables if need be.
+	 *
+	 * @param row the first row of the group
+	 * @param h the hash of its key
+	 * @return the number of the new group
+	 */
+	private int newGroup(int row, int h) {
+		if (groups == firstRows.length) {
+			int capacity = groups * 2;
+			firstRows = Arrays.copyOf(firstRows, capacity);
+			hashes = Arrays.copyOf(hashes, capacity);
+			next = Arrays.copyOf(next, capacity);
+			for (int a = 0; a < kinds.length; a++) {
+				counts[a] = Arrays.copyOf(counts[a], capacity);
+				values[a] = Arrays.copyOf(values[a], capacity);
+			}
+		}
+		int g = groups++;
+		firstRows[g] = row;
+		hashes[g] = h;
+		int bucket = h & (heads.length - 1);
+		next[g] = heads[bucket];
+		heads[bucket] = g;
+
+		if (groups > heads.length) { //rechain into twice as many buckets
+			heads = new int[heads.length * 2];
+			Arrays.fill(heads, -1);
+			for (int i = 0; i < groups; i++) {
+				bucket = hashes[i] & (heads.length - 1);
+				next[i] = heads[bucket];
+				heads[bucket] = i;
+			}
+		}
+		return g;
+	}
+
+	/**
+	 * Returns whether or not two rows have the same key.
+	 *
+	 * @param row a row
+	 * @param other another row
+	 * @return whether or not the keys at the two rows are equal
+	 */
+	private boolean keysMatch(int row, int other) {
+		for (Column key : keys) {
+			if (!key.matches(row, key, other)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,77 @@
+package parser;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive <code>int</code>s, used to collect row
+ * indices without boxing every one of them into an Integer.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class IntList {
+
+	/**
+	 * The items of this list; only the first <code>size</code> are used.
+	 */
+	private int[] items;
+
+	/**
+	 * The number of items in this list.
+	 */
+	private int size;
+
+	/**
+	 * Creates an empty list with room for <code>capacity</code> items.
+	 *
+	 * @param capacity the number of items to make room for
+	 */
+	IntList(int capacity) {
+		items = new int[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Adds an item to the end of this list.
+	 *
+	 * @param item the item to add
+	 */
+	void add(int item) {
+		if (size == items.length) {
+			items = Arrays.copyOf(items, size + (size >> 1) + 1);
+		}
+		items[size++] = item;
+	}
+
+	/**
+	 * Returns the item at the given index.
+	 *
+	 * @param index the index of the item
+	 * @return the item at <code>index</code>
+	 */
+	int get(int index) {
+		return items[index];
+	}
+
+	/**
+	 * Returns the number of items in this list.
+	 *
+	 * @return the number of items in this list
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the backing array of this list, which holds the items in its
+	 * first {@link #size()} entries.
+	 *
+	 * @return the backing array of this list
+	 */
+	int[] array() {
+		return items;
+	}
+}
@@ -0,0 +1,171 @@
+package parser;
+
+import java.util.Arrays;
+
+import elements.Column;
+
+/**
+ * A hash table over the key columns of a table, mapping each key to the rows
+ * that have it. Rows are chained through primitive arrays rather than kept in
+ * Lists of Integers, and every chain lists its rows in ascending order.<br/>
+ * <br/>
+ * Once built, a JoinHashTable is only read from, so it can be probed from
+ * several threads at once.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class JoinHashTable {
+
+	/**
+	 * The most buckets a table has, the largest power of two an int holds.
+	 */
+	static final int MAX_BUCKETS = 1 << 30;
+
+	/**
+	 * The key columns of the hashed table.
+	 */
+	private final Column[] keys;
+
+	/**
+	 * The first row of each bucket, or -1 if the bucket is empty.
+	 */
+	private final int[] heads;
+
+	/**
+	 * The row after each row in its bucket, or -1 at the end of the bucket.
+	 */
+	private final int[] next;
+
+	/**
+	 * The hash of each row's key.
+	 */
+	private final int[] hashes;
+
+	/**
+	 * <code>heads.length - 1</code>, to turn a hash into a bucket.
+	 */
+	private final int mask;
+
+	/**
+	 * Hashes the first <code>size</code> rows of the given key columns.
+	 *
+	 * @param keys the columns that make up the key
+	 * @param size the number of rows to hash
+	 */
+	JoinHashTable(Column[] keys, int size) {
+		this.keys = keys;
+		int buckets = buckets(size);
+		heads = new int[buckets];
+		Arrays.fill(heads, -1);
+		next = new int[size];
+		hashes = new int[size];
+		mask = buckets - 1;
+
+		//insert backwards so that every bucket ends up in ascending order
+		for (int row = size - 1; row >= 0; row--) {
+			int h = hash(keys, row);
+			int bucket = h & mask;
+			hashes[row] = h;
+			next[row] = heads[bucket];
+			heads[bucket] = row;
+		}
+	}
+
+	/**
+	 * Returns the number of buckets for a number of rows: twice the power of
+	 * two at or above it, so buckets are at most half full, but no more than
+	 * {@link #MAX_BUCKETS}, past which the count wouldn't fit in an int.
+	 *
+	 * @param size the number of rows
+	 * @return the number of buckets, a power of two
+	 */
+	static int buckets(int size) {
+		return (int) Math.min(MAX_BUCKETS,
+				Long.highestOneBit(Math.max(size, 1) * 2L - 1) << 1);
+	}
+
+	/**
+	 * Returns the hash of the key at the given row of the given columns.
+	 *
+	 * @param cols the columns that make up the key
+	 * @param row the row to hash
+	 * @return the hash of the key
+	 */
+	static int hash(Column[] cols, int row) {
+		int h = 1;
+		for (Column c : cols) {
+			h = 31 * h + c.hash(row);
+		}
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Finds the first hashed row whose key matches the key at
+	 * <code>row</code> of the <code>probe</code> columns.
+	 *
+	 * @param probe the key columns of the probing table, paired with the
+	 *            hashed ones
+	 * @param row the probing row
+	 * @return the first matching row, or -1 if there is none
+	 */
+	int first(Column[] probe, int row) {
+		int h = hash(probe, row);
+		return scan(heads[h & mask], h, probe, row);
+	}
+
+	/**
+	 * Finds the next hashed row, after <code>match</code>, whose key matches
+	 * the key at <code>row</code> of the <code>probe</code> columns.
+	 *
+	 * @param match the last match found
+	 * @param probe the key columns of the probing table
+	 * @param row the probing row
+	 * @return the next matching row, or -1 if there is none
+	 */
+	int next(int match, Column[] probe, int row) {
+		return scan(next[match], hashes[match], probe, row);
+	}
+
+	/**
+	 * Walks a bucket from <code>candidate</code> on, until a row matching
+	 * the probing row is found.
+	 *
+	 * @param candidate the first row to try
+	 * @param h the hash of the probing key
+	 * @param probe the key columns of the probing table
+	 * @param row the probing row
+	 * @return the first matching row, or -1 if there is none
+	 */
+	private int scan(int candidate, int h, Column[] probe, int row) {
+		while (candidate >= 0) {
+			if (hashes[candidate] == h && keysMatch(candidate, probe, row)) {
+				return candidate;
+			}
+			candidate = next[candidate];
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns whether or not the key at a hashed row equals the key at a
+	 * probing row.
+	 *
+	 * @param hashed the hashed row
+	 * @param probe the key columns of the probing table
+	 * @param row the probing row
+	 * @return whether or not the two keys are equal
+	 */
+	private boolean keysMatch(int hashed, Column[] probe, int row) {
+		for (int i = 0; i < keys.length; i++) {
+			if (!keys[i].matches(hashed, probe[i], row)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
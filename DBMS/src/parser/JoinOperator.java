@@ -0,0 +1,569 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import elements.Column;
+import elements.ColumnIndex;
+import elements.HashIndex;
+import elements.Table;
+
+/**
+ * Pairs up the rows of two inputs whose key columns are equal, as a join
+ * or outer join command does. Without key columns every pair matches,
+ * which makes it a product.<br/>
+ * <br/>
+ * The right input is read in whole and hashed on its key, then the left
+ * input is streamed past it a batch at a time, so the pairs come out in
+ * the same order as a nested loop over the left and then the right input
+ * would produce them. If the right input is a scan of a table with a
+ * {@link HashIndex} on its only key column, the index is probed instead.
+ * When the left input is expected to be the smaller one, it can be hashed
+ * instead: both are read in whole, and the pairs found streaming the right
+ * input are put back into the left input's order, which takes one pass
+ * over them. An outer join then hands out the rows of either side that
+ * found no partner, padded with empty cells, the left ones first.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class JoinOperator extends Operator {
+
+	/**
+	 * The input whose rows come first in each pair.
+	 */
+	final Operator left;
+
+	/**
+	 * The input that is hashed.
+	 */
+	final Operator right;
+
+	/**
+	 * The key columns of the left input.
+	 */
+	final int[] leftKeys;
+
+	/**
+	 * The key columns of the right input, paired with the left ones.
+	 */
+	final int[] rightKeys;
+
+	/**
+	 * Whether or not rows without a partner are kept.
+	 */
+	final boolean outer;
+
+	/**
+	 * Whether or not the left input is hashed rather than the right one.
+	 */
+	final boolean hashLeft;
+
+	/**
+	 * The row numbers of each slot of the left input's rows, if it is
+	 * hashed.
+	 */
+	private IntList[] leftRows;
+
+	/**
+	 * The rows of each pair found, as the index into the left and right
+	 * input's rows, in order, if the left input is hashed.
+	 */
+	private IntList[] pairs;
+
+	/**
+	 * The number of pairs handed out, if the left input is hashed.
+	 */
+	private int paired;
+
+	/**
+	 * The row numbers of each slot of the right input's rows.
+	 */
+	private IntList[] rightRows;
+
+	/**
+	 * The number of rows of the right input.
+	 */
+	private int rightSize;
+
+	/**
+	 * The hashed key of the right input, or <code>null</code> if its index
+	 * is used.
+	 */
+	private JoinHashTable built;
+
+	/**
+	 * The index of the right input's key, or <code>null</code>.
+	 */
+	private HashIndex index;
+
+	/**
+	 * The key columns of the left input, aligned to the right ones.
+	 */
+	private Column[] leftBase;
+
+	/**
+	 * The left rows being probed with.
+	 */
+	private Batch probing;
+
+	/**
+	 * The key values of the left rows being probed with.
+	 */
+	private Column[] probe;
+
+	/**
+	 * The left row being probed with.
+	 */
+	private int at;
+
+	/**
+	 * The last right row found for the left row being probed with, or -1
+	 * if none has been looked for yet.
+	 */
+	private int match;
+
+	/**
+	 * Whether the left row being probed with has found a partner.
+	 */
+	private boolean matched;
+
+	/**
+	 * The rows of the right input that have found a partner.
+	 */
+	private BitSet matchedRight;
+
+	/**
+	 * The row numbers of each left slot of the left rows without a partner.
+	 */
+	private IntList[] unmatchedLeft;
+
+	/**
+	 * How far into the rows without a partner the outer join has got, the
+	 * left ones first and then the right ones.
+	 */
+	private int padding;
+
+	/**
+	 * The rows being handed out.
+	 */
+	private Batch batch;
+
+	/**
+	 * How the pairs were found, once opened.
+	 */
+	private String strategy;
+
+	/**
+	 * Creates a join of the given inputs.
+	 *
+	 * @param left the input whose rows come first
+	 * @param right the input whose rows come last
+	 * @param leftKeys the key columns of <code>left</code>
+	 * @param rightKeys the key columns of <code>right</code>, of the same
+	 *            types as the left ones they're paired with
+	 * @param outer whether or not rows without a partner are kept
+	 */
+	JoinOperator(Operator left, Operator right, int[] leftKeys,
+			int[] rightKeys, boolean outer) {
+		this(left, right, leftKeys, rightKeys, outer, false);
+	}
+
+	/**
+	 * Creates a join of the given inputs, hashing either one of them.
+	 *
+	 * @param left the input whose rows come first
+	 * @param right the input whose rows come last
+	 * @param leftKeys the key columns of <code>left</code>
+	 * @param rightKeys the key columns of <code>right</code>, of the same
+	 *            types as the left ones they're paired with
+	 * @param outer whether or not rows without a partner are kept
+	 * @param hashLeft whether or not to hash the left input rather than
+	 *            the right one, which only makes a difference if there are
+	 *            key columns
+	 */
+	JoinOperator(Operator left, Operator right, int[] leftKeys,
+			int[] rightKeys, boolean outer, boolean hashLeft) {
+		super(concat(left.definition, right.definition),
+				concat(left.header, right.header),
+				new Table[left.tables.length + right.tables.length],
+				new int[left.width() + right.width()],
+				new int[left.width() + right.width()]);
+		this.left = left;
+		this.right = right;
+		this.leftKeys = leftKeys;
+		this.rightKeys = rightKeys;
+		this.outer = outer;
+		this.hashLeft = hashLeft && leftKeys.length > 0;
+
+		int offset = left.tables.length;
+		for (int c = 0; c < width(); c++) {
+			Operator side = c < left.width() ? left : right;
+			int from = c < left.width() ? c : c - left.width();
+			slots[c] = side.slots[from] + (side == left ? 0 : offset);
+			columns[c] = side.columns[from];
+		}
+	}
+
+	/**
+	 * Returns the given lists one after the other.
+	 *
+	 * @param first the list that comes first
+	 * @param second the list that comes last
+	 * @param <T> the type of the items
+	 * @return a new list holding the items of both
+	 */
+	private static <T> List<T> concat(List<T> first, List<T> second) {
+		List<T> both = new ArrayList<T>(first);
+		both.addAll(second);
+		return both;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#open()
+	 */
+	@Override
+	void open() {
+		left.open();
+		right.open();
+		//a blocking input only knows its table once it's open
+		System.arraycopy(left.tables, 0, tables, 0, left.tables.length);
+		System.arraycopy(right.tables, 0, tables, left.tables.length,
+				right.tables.length);
+
+		//read in the whole right input
+		rightRows = readAll(right);
+		rightSize = rightRows.length == 0 ? 0 : rightRows[0].size();
+		matchedRight = new BitSet(rightSize);
+		unmatchedLeft = new IntList[left.tables.length];
+		for (int s = 0; s < unmatchedLeft.length; s++) {
+			unmatchedLeft[s] = new IntList(16);
+		}
+		padding = 0;
+		batch = new Batch(tables.length);
+		if (hashLeft) {
+			strategy = "hash join, left input hashed";
+			hashLeft();
+			return;
+		}
+
+		Column[] keys = keys(right, rightKeys, rightRows, null);
+		index = null;
+		built = null;
+		if (right.isScan() && keys.length == 1) {
+			ColumnIndex found = right.tables[0].getIndex(
+					right.columns[rightKeys[0]]);
+			index = found instanceof HashIndex ? (HashIndex) found : null;
+		}
+		if (index == null) {
+			built = new JoinHashTable(keys, rightSize);
+		}
+		strategy = index != null ? "index nested loop join, hash index of "
+				+ "the right input probed" : keys.length == 0
+				? "nested loop, every pair matches"
+				: "hash join, right input hashed";
+
+		leftBase = new Column[leftKeys.length];
+		for (int k = 0; k < leftBase.length; k++) {
+			Column key = left.column(leftKeys[k]);
+			leftBase[k] = index != null ? index.align(key)
+					: key.alignTo(keys[k]);
+		}
+		probe = new Column[leftKeys.length];
+		probing = null;
+	}
+
+	/**
+	 * Reads in the whole left input as well, hashes it, and finds every
+	 * pair by streaming the right input past it. The pairs are then put
+	 * into the left input's order, and the left rows without a partner
+	 * noted for an outer join.
+	 */
+	private void hashLeft() {
+		leftRows = readAll(left);
+		int leftSize = leftRows.length == 0 ? 0 : leftRows[0].size();
+		Column[] keys = keys(left, leftKeys, leftRows, null);
+		Column[] probes = keys(right, rightKeys, rightRows, keys);
+		JoinHashTable hashed = new JoinHashTable(keys, leftSize);
+
+		IntList pairedLeft = new IntList(Math.max(leftSize, rightSize));
+		IntList pairedRight = new IntList(Math.max(leftSize, rightSize));
+		for (int j = 0; j < rightSize; j++) {
+			for (int i = hashed.first(probes, j); i >= 0;
+					i = hashed.next(i, probes, j)) {
+				pairedLeft.add(i);
+				pairedRight.add(j);
+				matchedRight.set(j);
+			}
+		}
+		pairs = Database.inLeftOrder(pairedLeft, pairedRight, leftSize);
+		paired = 0;
+
+		if (outer) {
+			BitSet matchedLeft = new BitSet(leftSize);
+			for (int k = 0; k < pairs[0].size(); k++) {
+				matchedLeft.set(pairs[0].get(k));
+			}
+			for (int i = matchedLeft.nextClearBit(0); i < leftSize;
+					i = matchedLeft.nextClearBit(i + 1)) {
+				for (int s = 0; s < unmatchedLeft.length; s++) {
+					unmatchedLeft[s].add(leftRows[s].get(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads in every row of an input.
+	 *
+	 * @param input the input, opened
+	 * @return the row numbers of each slot of its rows
+	 */
+	private static IntList[] readAll(Operator input) {
+		IntList[] rows = new IntList[input.tables.length];
+		for (int s = 0; s < rows.length; s++) {
+			rows[s] = new IntList(BATCH_SIZE);
+		}
+		for (Batch b = input.next(); b != null; b = input.next()) {
+			for (int s = 0; s < rows.length; s++) {
+				for (int i = 0; i < b.size; i++) {
+					rows[s].add(b.rows[s][i]);
+				}
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Copies out the key values of every row read in from an input.
+	 *
+	 * @param input the input
+	 * @param keyCols the key columns of the input
+	 * @param rows the row numbers of each slot of its rows
+	 * @param alignTo the keys the values will be compared with, or
+	 *            <code>null</code>
+	 * @return the key values of each row, one column per key
+	 */
+	private static Column[] keys(Operator input, int[] keyCols,
+			IntList[] rows, Column[] alignTo) {
+		Column[] keys = new Column[keyCols.length];
+		for (int k = 0; k < keys.length; k++) {
+			IntList ids = rows[input.slots[keyCols[k]]];
+			Column base = input.column(keyCols[k]);
+			if (alignTo != null) {
+				base = base.alignTo(alignTo[k]);
+			}
+			keys[k] = base.select(ids.array(), ids.size());
+		}
+		return keys;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#next()
+	 */
+	@Override
+	Batch next() {
+		batch.size = 0;
+		if (hashLeft) {
+			for (; paired < pairs[0].size() && !batch.isFull(); paired++) {
+				emit(pairs[0].get(paired), pairs[1].get(paired));
+			}
+			if (outer && paired == pairs[0].size()) {
+				pad();
+			}
+			return batch.size == 0 ? null : batch;
+		}
+		while (!batch.isFull()) {
+			if (probing == null || at == probing.size) {
+				probing = left.next();
+				if (probing == null) {
+					break;
+				}
+				for (int k = 0; k < probe.length; k++) {
+					probe[k] = leftBase[k].select(
+							probing.rows[left.slots[leftKeys[k]]],
+							probing.size);
+				}
+				at = 0;
+				match = -1;
+				matched = false;
+			}
+
+			match = match < 0 ? first() : next(match);
+			if (match >= 0) {
+				matched = true;
+				matchedRight.set(match);
+				emit(probing, at, match);
+				continue;
+			}
+			if (outer && !matched) {
+				for (int s = 0; s < unmatchedLeft.length; s++) {
+					unmatchedLeft[s].add(probing.rows[s][at]);
+				}
+			}
+			at++;
+			match = -1;
+			matched = false;
+		}
+		if (outer && probing == null) {
+			pad();
+		}
+		return batch.size == 0 ? null : batch;
+	}
+
+	/**
+	 * Finds the first right row matching the left row being probed with.
+	 *
+	 * @return the first matching right row, or -1 if there is none
+	 */
+	private int first() {
+		return index != null ? index.first(probe[0], at)
+				: built.first(probe, at);
+	}
+
+	/**
+	 * Finds the next right row matching the left row being probed with.
+	 *
+	 * @param last the last match found
+	 * @return the next matching right row, or -1 if there is none
+	 */
+	private int next(int last) {
+		return index != null ? index.next(last, probe[0], at)
+				: built.next(last, probe, at);
+	}
+
+	/**
+	 * Fills the batch with the rows without a partner once every pair has
+	 * been handed out: each left one with empty right cells, then each right
+	 * one with empty left cells.
+	 */
+	private void pad() {
+		int leftSlots = left.tables.length;
+		int unmatched = unmatchedLeft.length == 0 ? 0
+				: unmatchedLeft[0].size();
+		for (; padding < unmatched && !batch.isFull(); padding++) {
+			int o = batch.size++;
+			for (int s = 0; s < tables.length; s++) {
+				batch.rows[s][o] = s < leftSlots
+						? unmatchedLeft[s].get(padding) : -1;
+			}
+		}
+		while (padding >= unmatched && !batch.isFull()) {
+			int j = matchedRight.nextClearBit(padding - unmatched);
+			if (j >= rightSize) {
+				padding = unmatched + rightSize;
+				return;
+			}
+			int o = batch.size++;
+			for (int s = 0; s < tables.length; s++) {
+				batch.rows[s][o] = s < leftSlots ? -1
+						: rightRows[s - leftSlots].get(j);
+			}
+			padding = unmatched + j + 1;
+		}
+	}
+
+	/**
+	 * Adds the pair of a left row and a right row to the batch.
+	 *
+	 * @param from the batch of the left row
+	 * @param i the left row in <code>from</code>
+	 * @param j the right row
+	 */
+	private void emit(Batch from, int i, int j) {
+		int o = batch.size++;
+		int leftSlots = left.tables.length;
+		for (int s = 0; s < leftSlots; s++) {
+			batch.rows[s][o] = from.rows[s][i];
+		}
+		for (int s = leftSlots; s < tables.length; s++) {
+			batch.rows[s][o] = rightRows[s - leftSlots].get(j);
+		}
+	}
+
+	/**
+	 * Adds the pair of a left row and a right row, both read in, to the
+	 * batch.
+	 *
+	 * @param i the left row
+	 * @param j the right row
+	 */
+	private void emit(int i, int j) {
+		int o = batch.size++;
+		int leftSlots = left.tables.length;
+		for (int s = 0; s < leftSlots; s++) {
+			batch.rows[s][o] = leftRows[s].get(i);
+		}
+		for (int s = leftSlots; s < tables.length; s++) {
+			batch.rows[s][o] = rightRows[s - leftSlots].get(j);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#close()
+	 */
+	@Override
+	void close() {
+		super.close();
+		rightRows = null;
+		leftRows = null;
+		pairs = null;
+		built = null;
+		unmatchedLeft = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#strategy()
+	 */
+	@Override
+	String strategy() {
+		return strategy;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#children()
+	 */
+	@Override
+	List<Operator> children() {
+		return Arrays.asList(left, right);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#withChildren(java.util.List)
+	 */
+	@Override
+	Operator withChildren(List<Operator> inputs) {
+		return new JoinOperator(inputs.get(0), inputs.get(1), leftKeys,
+				rightKeys, outer, hashLeft);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#describe()
+	 */
+	@Override
+	String describe() {
+		if (leftKeys.length == 0) {
+			return outer ? "Outer product" : "Product";
+		}
+		StringBuilder s = new StringBuilder(outer ? "Outer join" : "Join");
+		for (int k = 0; k < leftKeys.length; k++) {
+			s.append(k == 0 ? " on " : ", ").append(left.label(leftKeys[k]))
+					.append(" = ").append(right.label(rightKeys[k]));
+		}
+		return s.append(hashLeft ? ", hashing the left input" : "")
+				.toString();
+	}
+}
@@ -0,0 +1,154 @@
+package parser;
+
+import java.text.ParseException;
+
+/**
+ * Splits a command line into tokens in a single pass, without making a
+ * String or any other object per token: each token is added to a
+ * {@link Command} as its kind and the offsets of its first and last
+ * characters. The tokens are
+ * <ul>
+ * <li>{@link #WORD}s, letters, digits, <code>_</code> and <code>.</code>
+ * not starting with a digit, such as names, keywords and file names;</li>
+ * <li>{@link #NUMBER}s, digits with an optional minus sign;</li>
+ * <li>{@link #COMPARATOR}s, <code>&lt; &lt;= == &gt;= &gt;</code>;</li>
+ * <li>the symbols <code>( ) , * =</code>.</li>
+ * </ul>
+ * Spaces and tabs only separate tokens. Any other character, a line break
+ * among them, is a mistake.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class Lexer {
+
+	/**
+	 * A name, keyword or file name.
+	 */
+	static final int WORD = 0;
+
+	/**
+	 * A whole number.
+	 */
+	static final int NUMBER = 1;
+
+	/**
+	 * One of <code>&lt; &lt;= == &gt;= &gt;</code>.
+	 */
+	static final int COMPARATOR = 2;
+
+	/**
+	 * <code>(</code>
+	 */
+	static final int LEFT = 3;
+
+	/**
+	 * <code>)</code>
+	 */
+	static final int RIGHT = 4;
+
+	/**
+	 * <code>,</code>
+	 */
+	static final int COMMA = 5;
+
+	/**
+	 * <code>*</code>
+	 */
+	static final int STAR = 6;
+
+	/**
+	 * <code>=</code>
+	 */
+	static final int EQUALS = 7;
+
+	/**
+	 * There is nothing to create.
+	 */
+	private Lexer() {
+	}
+
+	/**
+	 * Adds the tokens of a command line to a command.
+	 *
+	 * @param text the command line
+	 * @param into the command, which the tokens are added to
+	 * @throws ParseException if a character can't be part of a token, at
+	 *             its offset
+	 */
+	static void tokenize(String text, Command into) throws ParseException {
+		int length = text.length();
+		int i = 0;
+		while (i < length) {
+			char c = text.charAt(i);
+			if (c == ' ' || c == '\t') {
+				i++;
+				continue;
+			}
+			int start = i++;
+			int kind;
+			if (isWordStart(c)) {
+				while (i < length && (isWordStart(text.charAt(i))
+						|| isDigit(text.charAt(i)))) {
+					i++;
+				}
+				kind = WORD;
+			} else if (isDigit(c) || c == '-' && i < length
+					&& isDigit(text.charAt(i))) {
+				while (i < length && isDigit(text.charAt(i))) {
+					i++;
+				}
+				kind = NUMBER;
+			} else if (c == '<' || c == '>') {
+				if (i < length && text.charAt(i) == '=') {
+					i++;
+				}
+				kind = COMPARATOR;
+			} else if (c == '=') {
+				kind = EQUALS;
+				if (i < length && text.charAt(i) == '=') {
+					i++;
+					kind = COMPARATOR;
+				}
+			} else if (c == '(') {
+				kind = LEFT;
+			} else if (c == ')') {
+				kind = RIGHT;
+			} else if (c == ',') {
+				kind = COMMA;
+			} else if (c == '*') {
+				kind = STAR;
+			} else {
+				throw new ParseException(c == '\r' || c == '\n' || c == '\f'
+						? "Illegal character" : "Unexpected character", start);
+			}
+			into.addToken(kind, start, i);
+		}
+	}
+
+	/**
+	 * Returns whether a character can start a word.
+	 *
+	 * @param c the character
+	 * @return whether it's an ASCII letter, <code>_</code> or
+	 *         <code>.</code>
+	 */
+	static boolean isWordStart(char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_'
+				|| c == '.';
+	}
+
+	/**
+	 * Returns whether a character is an ASCII digit.
+	 *
+	 * @param c the character
+	 * @return whether it's one of <code>0</code> to <code>9</code>
+	 */
+	static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
@@ -0,0 +1,282 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import elements.Column;
+import elements.Table;
+
+/**
+ * One step of a pipeline compiled from a nested assignment expression, such
+ * as <code>rows(join(a, b, 1, 1), 2, &gt;, 5)</code>. Each operator pulls
+ * rows from the operators under it a batch at a time, and hands its own
+ * rows on to the operator above it the same way, so no step but the last
+ * builds a table of its own.<br/>
+ * <br/>
+ * Rows are passed as row numbers rather than values. An operator's rows
+ * are tuples of rows of some base tables, one per <em>slot</em>: a scan
+ * has a single slot, and a join has the slots of its left input followed
+ * by those of its right input. Each output column is a column of the table
+ * in one of the slots, and a row number of -1 stands for a row of empty
+ * cells. The values are only copied out by {@link #materialize()}, once
+ * the whole pipeline has run.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+abstract class Operator {
+
+	/**
+	 * The most rows handed on at once.
+	 */
+	static final int BATCH_SIZE = 1024;
+
+	/**
+	 * The definition of the rows of this operator.
+	 */
+	final List<Boolean> definition;
+
+	/**
+	 * The header of the rows of this operator, one name per column, or
+	 * empty if they have no header.
+	 */
+	final List<String> header;
+
+	/**
+	 * The base table in each slot.
+	 */
+	final Table[] tables;
+
+	/**
+	 * The slot each output column comes from.
+	 */
+	final int[] slots;
+
+	/**
+	 * The column of its slot's table each output column is.
+	 */
+	final int[] columns;
+
+	/**
+	 * Creates an operator with the given output.
+	 *
+	 * @param definition the definition of the rows
+	 * @param header the header of the rows, or an empty List
+	 * @param tables the base table in each slot, which may be filled in
+	 *            when the operator is opened
+	 * @param slots the slot of each output column
+	 * @param columns the column of its slot's table of each output column
+	 */
+	Operator(List<Boolean> definition, List<String> header, Table[] tables,
+			int[] slots, int[] columns) {
+		this.definition = definition;
+		this.header = header.size() == definition.size() ? header
+				: new ArrayList<String>();
+		this.tables = tables;
+		this.slots = slots;
+		this.columns = columns;
+	}
+
+	/**
+	 * Gets this operator ready to hand out rows, opening the operators
+	 * under it.
+	 */
+	abstract void open();
+
+	/**
+	 * Returns the next rows of this operator. The batch may be reused by
+	 * the following call, so it must be used up before then.
+	 *
+	 * @return the next rows, or <code>null</code> once there are none left
+	 */
+	abstract Batch next();
+
+	/**
+	 * Lets go of whatever this operator and the operators under it hold on
+	 * to once their rows are used up.
+	 */
+	void close() {
+		for (Operator child : children()) {
+			child.close();
+		}
+	}
+
+	/**
+	 * Returns the operators this one pulls rows from.
+	 *
+	 * @return the inputs of this operator, in order
+	 */
+	abstract List<Operator> children();
+
+	/**
+	 * Creates the same operator over other inputs with the same columns,
+	 * which is how a {@link Rewriter} changes the operators under one.
+	 *
+	 * @param inputs the new inputs, one for each of {@link #children()}
+	 * @return the new operator, or this one if it has no inputs
+	 */
+	abstract Operator withChildren(List<Operator> inputs);
+
+	/**
+	 * Describes what this operator does, in one line, for an explain.
+	 *
+	 * @return the description of this operator
+	 */
+	abstract String describe();
+
+	/**
+	 * Describes how this operator went about its work, where it had a
+	 * choice, such as probing an index rather than hashing its input. It is
+	 * only known once the operator has been opened.
+	 *
+	 * @return the way the operator worked, or <code>null</code> if it only
+	 *         has the one way
+	 */
+	String strategy() {
+		return null;
+	}
+
+	/**
+	 * Returns whether or not this operator hands out every row of a single
+	 * table in order, so that the table's indexes can stand in for it.
+	 *
+	 * @return whether or not this operator is a scan
+	 */
+	boolean isScan() {
+		return false;
+	}
+
+	/**
+	 * Returns the name of an output column as a command would give it: its
+	 * header, or its index if the rows have no header.
+	 *
+	 * @param c the output column
+	 * @return the name of the column
+	 */
+	String label(int c) {
+		return header.isEmpty() ? "" + c : header.get(c);
+	}
+
+	/**
+	 * Writes out this operator and the operators under it, one per line,
+	 * each indented under the operator it feeds.
+	 *
+	 * @param out where to write the tree
+	 * @param depth how far to indent this operator
+	 */
+	void explain(StringBuilder out, int depth) {
+		for (int i = 0; i < depth; i++) {
+			out.append("  ");
+		}
+		out.append(describe()).append('\n');
+		for (Operator child : children()) {
+			child.explain(out, depth + 1);
+		}
+	}
+
+	/**
+	 * Returns the number of columns of this operator's rows.
+	 *
+	 * @return the width of the output
+	 */
+	int width() {
+		return slots.length;
+	}
+
+	/**
+	 * Returns the base column an output column comes from. The table of
+	 * its slot has to be known, which for some operators means they have
+	 * to have been opened.
+	 *
+	 * @param c the output column
+	 * @return the column of the base table holding its values
+	 */
+	Column column(int c) {
+		return tables[slots[c]].getColumns()[columns[c]];
+	}
+
+	/**
+	 * Runs the whole pipeline under this operator and copies its rows out
+	 * into a new table, a column at a time.
+	 *
+	 * @return a table holding the rows of this operator
+	 */
+	Table materialize() {
+		open();
+		IntList[] rows = new IntList[tables.length];
+		for (int s = 0; s < rows.length; s++) {
+			rows[s] = new IntList(BATCH_SIZE);
+		}
+		for (Batch b = next(); b != null; b = next()) {
+			for (int s = 0; s < rows.length; s++) {
+				int[] ids = b.rows[s];
+				for (int i = 0; i < b.size; i++) {
+					rows[s].add(ids[i]);
+				}
+			}
+		}
+
+		Column[] cols = new Column[width()];
+		for (int c = 0; c < cols.length; c++) {
+			IntList ids = rows[slots[c]];
+			cols[c] = column(c).select(ids.array(), ids.size());
+		}
+		close();
+		return new Table(definition, new ArrayList<String>(header), cols);
+	}
+
+	/**
+	 * Creates the slots and columns of an operator that keeps every column
+	 * of its single table.
+	 *
+	 * @param width the number of columns of the table
+	 * @return the slot, always 0, and the column of each output column
+	 */
+	static int[][] identity(int width) {
+		int[] slots = new int[width];
+		int[] columns = new int[width];
+		for (int c = 0; c < width; c++) {
+			columns[c] = c;
+		}
+		return new int[][] {slots, columns};
+	}
+
+	/**
+	 * Some of the rows of an operator, as the row number in each slot of
+	 * each row.
+	 */
+	static final class Batch {
+
+		/**
+		 * The row numbers of each slot.
+		 */
+		final int[][] rows;
+
+		/**
+		 * The number of rows in this batch.
+		 */
+		int size;
+
+		/**
+		 * Creates an empty batch.
+		 *
+		 * @param slots the number of slots
+		 */
+		Batch(int slots) {
+			rows = new int[slots][BATCH_SIZE];
+		}
+
+		/**
+		 * Returns whether or not this batch has no room left.
+		 *
+		 * @return whether or not the batch holds {@link #BATCH_SIZE} rows
+		 */
+		boolean isFull() {
+			return size == BATCH_SIZE;
+		}
+	}
+}
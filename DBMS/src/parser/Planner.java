@@ -0,0 +1,415 @@
+package parser;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import elements.Cell;
+import elements.NumberCell;
+import elements.StringCell;
+import elements.Table;
+
+/**
+ * Compiles an assignment expression, whose commands may be nested inside
+ * each other, into a pipeline of {@link Operator}s. The expression is
+ * parsed by a {@link CommandParser}, whose grammar for it is<br/>
+ * <br/>
+ * <code>
+ * expr := name<br/>
+ * &nbsp;| rows(expr, col, comparator, value | column(col))<br/>
+ * &nbsp;| columns(expr, col, ..., col)<br/>
+ * &nbsp;| product(expr, expr)<br/>
+ * &nbsp;| [outer] join(expr, expr, col, col, ..., col, col)<br/>
+ * &nbsp;| [outer] naturaljoin(expr, expr)<br/>
+ * &nbsp;| orderBy(expr, col [asc | desc], ...)<br/>
+ * &nbsp;| top(expr, col, number)<br/>
+ * &nbsp;| groupBy(expr, col, ..., agg(col), ...)<br/>
+ * </code>
+ * <br/>
+ * where a column is given by its index or its header, in the result of
+ * the expression it belongs to. A rows command can compare a column with
+ * another column of the same row, as in
+ * <code>rows(product(a, b), 0, ==, column(3))</code>. Columns are looked up,
+ * values checked against the types of their columns, and the tables named
+ * in the expression fetched, while it is compiled, and a mistake is
+ * reported at the offset of its token.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class Planner {
+
+	/**
+	 * The database holding the named tables.
+	 */
+	private final Database database;
+
+	/**
+	 * The parsed expression being compiled.
+	 */
+	private Command command;
+
+	/**
+	 * Creates a planner for the tables of the given database.
+	 *
+	 * @param database the database holding the named tables
+	 */
+	Planner(Database database) {
+		this.database = database;
+	}
+
+	/**
+	 * Compiles an expression that has already been parsed.
+	 *
+	 * @param parsed the command holding the expression
+	 * @param node the node of the expression
+	 * @return the last operator of the pipeline
+	 * @throws ParseException if a value doesn't fit its column
+	 * @throws NoSuchTableException if a named table doesn't exist
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	Operator plan(Command parsed, int node) throws ParseException,
+	NoSuchTableException, ColumnIndexOutOfBoundsException {
+		command = parsed;
+		return expression(node);
+	}
+
+	/**
+	 * Compiles an expression.
+	 *
+	 * @param node the node of the expression
+	 * @return the operator producing its rows
+	 * @throws ParseException if a value doesn't fit its column
+	 * @throws NoSuchTableException if a named table doesn't exist
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	private Operator expression(int node) throws ParseException,
+	NoSuchTableException, ColumnIndexOutOfBoundsException {
+		if (command.nodeKind(node) == Command.TABLE) {
+			String name = command.nodeText(node);
+			return new ScanOperator(name, database.getTable(name));
+		}
+		int arg = command.firstChild(node);
+		Operator child = expression(arg);
+		arg = command.nextSibling(arg);
+		switch (command.operation(node)) {
+		case Command.ROWS:
+			return rows(child, arg);
+		case Command.COLUMNS:
+			return columns(child, arg);
+		case Command.PRODUCT:
+			return product(child, expression(arg));
+		case Command.JOIN:
+		case Command.OUTER_JOIN:
+			return join(child, arg,
+					command.operation(node) == Command.OUTER_JOIN);
+		case Command.NATURAL_JOIN:
+		case Command.OUTER_NATURAL_JOIN:
+			return naturalJoin(child, expression(arg),
+					command.operation(node) == Command.OUTER_NATURAL_JOIN);
+		case Command.ORDER_BY:
+			return orderBy(child, arg);
+		case Command.TOP:
+			int col = column(child, arg);
+			String limit = command.nodeText(command.nextSibling(arg));
+			//more rows than any table can have keeps them all
+			return new SortOperator(child, col, limit.length() > 9
+					? Integer.MAX_VALUE : Integer.parseInt(limit));
+		default:
+			return groupBy(child, arg);
+		}
+	}
+
+	/**
+	 * Compiles the arguments of a rows command.
+	 *
+	 * @param child the operator of the rows to filter
+	 * @param arg the node of the column to compare
+	 * @return the filter
+	 * @throws ParseException if the value isn't a number for an Int column,
+	 *             or the other column isn't of the same type
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	private Operator rows(Operator child, int arg) throws ParseException,
+	ColumnIndexOutOfBoundsException {
+		int col = column(child, arg);
+		arg = command.nextSibling(arg);
+		String comparator = command.nodeText(arg);
+		arg = command.nextSibling(arg);
+		int token = command.token(arg);
+		if (command.nodeKind(arg) == Command.OTHER_COLUMN) {
+			int other = column(child, arg);
+			if (child.definition.get(other) != child.definition.get(col)) {
+				throw new ParseException("Expected a column of the same type",
+						command.start(token));
+			}
+			return new FilterOperator(database, child, col, comparator,
+					other);
+		}
+		Cell cell;
+		if (!child.definition.get(col)) {
+			cell = new StringCell(command.text(token));
+		} else if (command.tokenKind(token) == Lexer.NUMBER) {
+			cell = new NumberCell(command.text(token));
+		} else {
+			throw new ParseException("Expected a number",
+					command.start(token));
+		}
+		return new FilterOperator(database, child, col, comparator, cell);
+	}
+
+	/**
+	 * Compiles the arguments of a columns command.
+	 *
+	 * @param child the operator of the rows to project
+	 * @param arg the node of the first column kept, or -1
+	 * @return the projection
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	private Operator columns(Operator child, int arg)
+			throws ColumnIndexOutOfBoundsException {
+		IntList kept = new IntList(child.width());
+		for (; arg >= 0; arg = command.nextSibling(arg)) {
+			kept.add(column(child, arg));
+		}
+		int[] cols = new int[kept.size()];
+		System.arraycopy(kept.array(), 0, cols, 0, cols.length);
+		return new ProjectOperator(child, cols);
+	}
+
+	/**
+	 * Compiles the arguments of a join command, dropping any pair of key
+	 * columns of different types.
+	 *
+	 * @param left the left input
+	 * @param arg the node of the right input, followed by the pairs of key
+	 *            columns
+	 * @param outer whether or not it's an outer join
+	 * @return the join
+	 * @throws ParseException if a value doesn't fit its column
+	 * @throws NoSuchTableException if a named table doesn't exist
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	private Operator join(Operator left, int arg, boolean outer)
+			throws ParseException, NoSuchTableException,
+			ColumnIndexOutOfBoundsException {
+		Operator right = expression(arg);
+		IntList leftKeys = new IntList(4);
+		IntList rightKeys = new IntList(4);
+		for (arg = command.nextSibling(arg); arg >= 0;
+				arg = command.nextSibling(command.nextSibling(arg))) {
+			leftKeys.add(column(left, arg));
+			rightKeys.add(column(right, command.nextSibling(arg)));
+		}
+		return join(left, right, leftKeys, rightKeys, outer);
+	}
+
+	/**
+	 * Compiles a naturaljoin command, which joins on every pair of columns
+	 * with the same header.
+	 *
+	 * @param left the left input
+	 * @param right the right input
+	 * @param outer whether or not it's an outer join
+	 * @return the join, or a scan of a table without columns if no headers
+	 *         are shared
+	 */
+	private Operator naturalJoin(Operator left, Operator right,
+			boolean outer) {
+		IntList leftKeys = new IntList(4);
+		IntList rightKeys = new IntList(4);
+		for (int i = 0; i < left.width(); i++) {
+			for (int j = 0; j < right.width(); j++) {
+				if (header(left, i).equals(header(right, j))) {
+					leftKeys.add(i);
+					rightKeys.add(j);
+				}
+			}
+		}
+		if (leftKeys.size() == 0) {
+			return nothing();
+		}
+		return join(left, right, leftKeys, rightKeys, outer);
+	}
+
+	/**
+	 * Compiles the arguments of an orderBy command: the columns to sort
+	 * by, each ascending or descending.
+	 *
+	 * @param child the operator of the rows to sort
+	 * @param arg the node of the first column
+	 * @return the sort
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	private Operator orderBy(Operator child, int arg)
+			throws ColumnIndexOutOfBoundsException {
+		int count = 0;
+		for (int n = arg; n >= 0; n = command.nextSibling(n)) {
+			count++;
+		}
+		int[] keys = new int[count];
+		boolean[] descending = new boolean[count];
+		for (int i = 0; i < count; i++, arg = command.nextSibling(arg)) {
+			keys[i] = column(child, arg);
+			descending[i] = command.nodeKind(arg) == Command.DESCENDING;
+		}
+		return new SortOperator(child, keys, descending, -1,
+				database.getSortMemory());
+	}
+
+	/**
+	 * Compiles the arguments of a groupBy command: key columns, then
+	 * aggregates of the form <code>name(col)</code> or
+	 * <code>count(*)</code>.
+	 *
+	 * @param child the operator of the rows to group
+	 * @param arg the node of the first key column or aggregate, or -1
+	 * @return the grouping, or a scan of a table without columns if the
+	 *         aggregates don't fit the columns
+	 * @throws ColumnIndexOutOfBoundsException if a column doesn't exist
+	 */
+	private Operator groupBy(Operator child, int arg)
+			throws ColumnIndexOutOfBoundsException {
+		List<String> items = new ArrayList<String>();
+		for (; arg >= 0; arg = command.nextSibling(arg)) {
+			if (command.nodeKind(arg) != Command.AGGREGATE) {
+				items.add("" + column(child, arg));
+				continue;
+			}
+			int of = command.firstChild(arg);
+			items.add(command.nodeText(arg).toLowerCase() + "("
+					+ (command.nodeKind(of) == Command.ALL ? "*"
+							: "" + column(child, of)) + ")");
+		}
+
+		//group no rows at all to find out what the result looks like
+		String[] all = items.toArray(new String[items.size()]);
+		Table layout = database.groupBy(
+				new Table(child.definition, child.header), all);
+		if (layout.getColSize() == 0 && all.length > 0) {
+			return nothing();
+		}
+		return new GroupByOperator(database, child, all, layout);
+	}
+
+	/**
+	 * Creates a join on the given key columns, leaving out the pairs whose
+	 * columns are of different types.
+	 *
+	 * @param left the left input
+	 * @param right the right input
+	 * @param leftKeys the key columns of <code>left</code>
+	 * @param rightKeys the key columns of <code>right</code>
+	 * @param outer whether or not it's an outer join
+	 * @return the join
+	 */
+	private Operator join(Operator left, Operator right, IntList leftKeys,
+			IntList rightKeys, boolean outer) {
+		IntList l = new IntList(leftKeys.size());
+		IntList r = new IntList(rightKeys.size());
+		for (int k = 0; k < leftKeys.size(); k++) {
+			if (left.definition.get(leftKeys.get(k))
+					== right.definition.get(rightKeys.get(k))) {
+				l.add(leftKeys.get(k));
+				r.add(rightKeys.get(k));
+			}
+		}
+		int[] lKeys = new int[l.size()];
+		int[] rKeys = new int[r.size()];
+		System.arraycopy(l.array(), 0, lKeys, 0, lKeys.length);
+		System.arraycopy(r.array(), 0, rKeys, 0, rKeys.length);
+		return new JoinOperator(left, right, lKeys, rKeys, outer);
+	}
+
+	/**
+	 * Compiles a product. As in {@link Database#product(String)}, the
+	 * product of a table with an empty one is the table itself, with only
+	 * its own columns, so the columns of the commands around it depend on
+	 * whether an operand is empty. A nested operand is materialized while
+	 * the expression is compiled to find out, and the product then scans
+	 * it; a product's rows outnumber those of either operand anyway.
+	 *
+	 * @param left the operator of the left table
+	 * @param right the operator of the right table
+	 * @return the product, or the operand that isn't empty if only one is
+	 */
+	private static Operator product(Operator left, Operator right) {
+		left = scan(left);
+		right = scan(right);
+		int leftRows = left.tables[0].size();
+		int rightRows = right.tables[0].size();
+		if (leftRows == 0 && rightRows != 0) {
+			return right;
+		}
+		if (rightRows == 0 && leftRows != 0) {
+			return left;
+		}
+		return new JoinOperator(left, right, new int[0], new int[0], false);
+	}
+
+	/**
+	 * Returns an operator as a scan of a table, materializing its rows
+	 * first if it's not a scan already.
+	 *
+	 * @param op the operator
+	 * @return a scan of the operator's rows
+	 */
+	private static Operator scan(Operator op) {
+		return op instanceof ScanOperator ? op
+				: new ScanOperator("", op.materialize());
+	}
+
+	/**
+	 * Returns the header of an output column, or an empty String if the
+	 * operator's rows have no header, as {@link Table#getHeader(int)} does.
+	 *
+	 * @param op the operator
+	 * @param c the output column
+	 * @return the header of the column
+	 */
+	private static String header(Operator op, int c) {
+		return op.header.isEmpty() ? "" : op.header.get(c);
+	}
+
+	/**
+	 * Returns an operator without columns or rows, for a command whose
+	 * result is an empty table.
+	 *
+	 * @return a scan of a table without columns
+	 */
+	private static Operator nothing() {
+		return new ScanOperator("", new Table(new ArrayList<Boolean>()));
+	}
+
+	/**
+	 * Looks up a column of the given operator's rows, by index or header.
+	 *
+	 * @param op the operator whose column it is
+	 * @param node the node of the column
+	 * @return the index of the column
+	 * @throws ColumnIndexOutOfBoundsException if there's no such column
+	 */
+	private int column(Operator op, int node)
+			throws ColumnIndexOutOfBoundsException {
+		int token = command.token(node);
+		String name = command.text(token);
+		int col;
+		if (command.tokenKind(token) == Lexer.NUMBER) {
+			//an index too long for an int is past the end of any table
+			col = name.length() > 9 ? -1 : Integer.parseInt(name);
+			if (col >= op.width()) {
+				col = -1;
+			}
+		} else {
+			col = op.header.indexOf(name);
+		}
+		if (col < 0) {
+			throw new ColumnIndexOutOfBoundsException(name);
+		}
+		return col;
+	}
+}
@@ -0,0 +1,255 @@
+package parser;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stands in for an {@link Operator} of a pipeline being explained and
+ * analyzed, running it as it would be run while timing it and counting its
+ * rows. Each operator of the pipeline gets one, over the ones standing in
+ * for its inputs, so that what an operator costs on its own is what it
+ * costs less what its inputs cost.<br/>
+ * <br/>
+ * The time is wall time, and the memory is what the running thread
+ * allocated, as the JVM's {@link com.sun.management.ThreadMXBean} counts
+ * it, where it can.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class ProfiledOperator extends Operator {
+
+	/**
+	 * The JVM's view of the running thread, if it can count the bytes the
+	 * thread allocates, or <code>null</code>.
+	 */
+	private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+	/**
+	 * The operator being run.
+	 */
+	final Operator op;
+
+	/**
+	 * The number of rows the operator was estimated to hand out.
+	 */
+	final double estimate;
+
+	/**
+	 * The nanoseconds spent opening the operator and pulling its rows,
+	 * its inputs' included.
+	 */
+	private long nanos;
+
+	/**
+	 * The bytes allocated opening the operator and pulling its rows, its
+	 * inputs' included, or -1 if they can't be counted.
+	 */
+	private long bytes;
+
+	/**
+	 * The number of rows the operator handed out.
+	 */
+	private long rows;
+
+	/**
+	 * Creates a stand in for the given operator.
+	 *
+	 * @param op the operator, over the stand ins for its inputs
+	 * @param estimate the number of rows it was estimated to hand out
+	 */
+	private ProfiledOperator(Operator op, double estimate) {
+		super(op.definition, op.header, op.tables, op.slots, op.columns);
+		this.op = op;
+		this.estimate = estimate;
+		bytes = THREADS == null ? -1 : 0;
+	}
+
+	/**
+	 * Puts a stand in in place of every operator of a pipeline.
+	 *
+	 * @param root the last operator of the pipeline
+	 * @param estimator the estimator of the rows of each operator
+	 * @return the stand in for <code>root</code>
+	 */
+	static ProfiledOperator profile(Operator root, Estimator estimator) {
+		List<Operator> inputs = new ArrayList<Operator>();
+		for (Operator child : root.children()) {
+			inputs.add(profile(child, estimator));
+		}
+		return new ProfiledOperator(root.withChildren(inputs),
+				estimator.rows(root));
+	}
+
+	/**
+	 * Finds the JVM's view of the running thread, if it counts the bytes
+	 * the thread allocates.
+	 *
+	 * @return the thread bean, or <code>null</code> if it can't count them
+	 */
+	private static com.sun.management.ThreadMXBean threads() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+		com.sun.management.ThreadMXBean counting =
+				(com.sun.management.ThreadMXBean) threads;
+		if (!counting.isThreadAllocatedMemorySupported()) {
+			return null;
+		}
+		if (!counting.isThreadAllocatedMemoryEnabled()) {
+			counting.setThreadAllocatedMemoryEnabled(true);
+		}
+		return counting;
+	}
+
+	/**
+	 * Returns the bytes the running thread has allocated so far.
+	 *
+	 * @return the bytes allocated, or 0 if they can't be counted
+	 */
+	static long allocated() {
+		return THREADS == null ? 0
+				: THREADS.getThreadAllocatedBytes(Thread.currentThread()
+						.getId());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#open()
+	 */
+	@Override
+	void open() {
+		long startBytes = allocated();
+		long start = System.nanoTime();
+		op.open();
+		nanos += System.nanoTime() - start;
+		if (bytes >= 0) {
+			bytes += allocated() - startBytes;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#next()
+	 */
+	@Override
+	Batch next() {
+		long startBytes = allocated();
+		long start = System.nanoTime();
+		Batch b = op.next();
+		nanos += System.nanoTime() - start;
+		if (bytes >= 0) {
+			bytes += allocated() - startBytes;
+		}
+		if (b != null) {
+			rows += b.size;
+		}
+		return b;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#close()
+	 */
+	@Override
+	void close() {
+		op.close();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#children()
+	 */
+	@Override
+	List<Operator> children() {
+		return op.children();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#withChildren(java.util.List)
+	 */
+	@Override
+	Operator withChildren(List<Operator> inputs) {
+		return new ProfiledOperator(op.withChildren(inputs), estimate);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#isScan()
+	 */
+	@Override
+	boolean isScan() {
+		return op.isScan();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#strategy()
+	 */
+	@Override
+	String strategy() {
+		return op.strategy();
+	}
+
+	/**
+	 * Describes the operator, how it worked, and what it cost: its time
+	 * with and without its inputs', the rows it was handed and handed out,
+	 * how many it was estimated to hand out, and the bytes it allocated.
+	 *
+	 * @see parser.Operator#describe()
+	 */
+	@Override
+	String describe() {
+		long ownNanos = nanos;
+		long ownBytes = bytes;
+		long in = 0;
+		for (Operator child : op.children()) {
+			ProfiledOperator input = (ProfiledOperator) child;
+			ownNanos -= input.nanos;
+			ownBytes -= input.bytes;
+			in += input.rows;
+		}
+		StringBuilder s = new StringBuilder(op.describe());
+		if (op.strategy() != null) {
+			s.append(" [").append(op.strategy()).append(']');
+		}
+		s.append(String.format(" (time %.3f ms, self %.3f ms; ",
+				nanos / 1e6, ownNanos / 1e6));
+		if (!op.children().isEmpty()) {
+			s.append("rows in ").append(in).append(", ");
+		}
+		s.append("rows out ").append(rows).append(", estimated ")
+				.append(Math.round(estimate));
+		if (bytes >= 0) {
+			s.append(String.format("; allocated %,d bytes, self %,d",
+					bytes, ownBytes));
+		}
+		return s.append(')').toString();
+	}
+
+	/**
+	 * Returns the time spent running the pipeline under this operator.
+	 *
+	 * @return the nanoseconds spent, the inputs' included
+	 */
+	long nanos() {
+		return nanos;
+	}
+
+	/**
+	 * Returns the number of rows this operator handed out.
+	 *
+	 * @return the number of rows
+	 */
+	long rows() {
+		return rows;
+	}
+}
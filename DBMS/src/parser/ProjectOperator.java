@@ -0,0 +1,137 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps only some of the columns of its input, in the given order, as a
+ * columns command does. Since rows are passed as row numbers, nothing is
+ * copied; only which base column each output column is changes.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class ProjectOperator extends Operator {
+
+	/**
+	 * The input of this operator.
+	 */
+	final Operator child;
+
+	/**
+	 * The output column of the input each output column is.
+	 */
+	final int[] kept;
+
+	/**
+	 * Creates a projection of the given input.
+	 *
+	 * @param child the input
+	 * @param kept the output columns of the input to keep, in order
+	 */
+	ProjectOperator(Operator child, int[] kept) {
+		super(definition(child, kept), header(child, kept), child.tables,
+				new int[kept.length], new int[kept.length]);
+		this.child = child;
+		this.kept = kept;
+		for (int c = 0; c < kept.length; c++) {
+			slots[c] = child.slots[kept[c]];
+			columns[c] = child.columns[kept[c]];
+		}
+	}
+
+	/**
+	 * Returns the definition of the kept columns.
+	 *
+	 * @param child the input
+	 * @param kept the kept columns
+	 * @return the definition of the output
+	 */
+	private static List<Boolean> definition(Operator child, int[] kept) {
+		List<Boolean> defn = new ArrayList<Boolean>();
+		for (int c : kept) {
+			defn.add(child.definition.get(c));
+		}
+		return defn;
+	}
+
+	/**
+	 * Returns the header of the kept columns, if the input has one.
+	 *
+	 * @param child the input
+	 * @param kept the kept columns
+	 * @return the header of the output, or an empty List
+	 */
+	private static List<String> header(Operator child, int[] kept) {
+		List<String> header = new ArrayList<String>();
+		if (!child.header.isEmpty()) {
+			for (int c : kept) {
+				header.add(child.header.get(c));
+			}
+		}
+		return header;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#open()
+	 */
+	@Override
+	void open() {
+		child.open();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#next()
+	 */
+	@Override
+	Batch next() {
+		return child.next();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#children()
+	 */
+	@Override
+	List<Operator> children() {
+		return Collections.singletonList(child);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#withChildren(java.util.List)
+	 */
+	@Override
+	Operator withChildren(List<Operator> inputs) {
+		return new ProjectOperator(inputs.get(0), kept);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#describe()
+	 */
+	@Override
+	String describe() {
+		StringBuilder s = new StringBuilder("Project");
+		for (int c = 0; c < kept.length; c++) {
+			s.append(c == 0 ? " " : ", ").append(child.label(kept[c]));
+		}
+		return s.toString();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#isScan()
+	 */
+	@Override
+	boolean isScan() {
+		return child.isScan();
+	}
+}
@@ -0,0 +1,169 @@
+package parser;
+
+import java.util.Collections;
+import java.util.List;
+
+import elements.Table;
+
+/**
+ * Puts the rows of a join whose inputs have been joined in another order
+ * back into the order the joins as written would have handed them out in.
+ * Inner joins of inputs that hand out their rows in order hand out theirs
+ * ordered by the row number of each slot in turn, so that order is found
+ * again by sorting on the slots of the inputs as written, a stable counting
+ * sort per slot, from the last slot to the first.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class ReorderOperator extends Operator {
+
+	/**
+	 * The reordered joins.
+	 */
+	final Operator child;
+
+	/**
+	 * The slots of the input, from the one that decides the order first
+	 * to the one that decides it last.
+	 */
+	final int[] order;
+
+	/**
+	 * The row numbers of each slot of the input's rows.
+	 */
+	private IntList[] rows;
+
+	/**
+	 * The input's rows, in order.
+	 */
+	private int[] sorted;
+
+	/**
+	 * The next row to hand out.
+	 */
+	private int position;
+
+	/**
+	 * The rows being handed out.
+	 */
+	private Batch batch;
+
+	/**
+	 * Creates a reordering of the given input.
+	 *
+	 * @param child the input, whose row numbers are never -1
+	 * @param order the slots of the input, from the one that decides the
+	 *            order first to the one that decides it last
+	 */
+	ReorderOperator(Operator child, int[] order) {
+		super(child.definition, child.header, new Table[child.tables.length],
+				child.slots, child.columns);
+		this.child = child;
+		this.order = order;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#open()
+	 */
+	@Override
+	void open() {
+		child.open();
+		System.arraycopy(child.tables, 0, tables, 0, tables.length);
+		rows = new IntList[tables.length];
+		for (int s = 0; s < rows.length; s++) {
+			rows[s] = new IntList(BATCH_SIZE);
+		}
+		for (Batch b = child.next(); b != null; b = child.next()) {
+			for (int s = 0; s < rows.length; s++) {
+				for (int i = 0; i < b.size; i++) {
+					rows[s].add(b.rows[s][i]);
+				}
+			}
+		}
+
+		int size = rows.length == 0 ? 0 : rows[0].size();
+		sorted = new int[size];
+		for (int i = 0; i < size; i++) {
+			sorted[i] = i;
+		}
+		int[] next = new int[size];
+		for (int o = order.length - 1; o >= 0; o--) {
+			IntList ids = rows[order[o]];
+			int[] start = new int[tables[order[o]].size() + 1];
+			for (int i = 0; i < size; i++) {
+				start[ids.get(i) + 1]++;
+			}
+			for (int r = 0; r + 1 < start.length; r++) {
+				start[r + 1] += start[r];
+			}
+			for (int i : sorted) {
+				next[start[ids.get(i)]++] = i;
+			}
+			int[] done = sorted;
+			sorted = next;
+			next = done;
+		}
+		position = 0;
+		batch = new Batch(tables.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#next()
+	 */
+	@Override
+	Batch next() {
+		batch.size = 0;
+		for (; position < sorted.length && !batch.isFull(); position++) {
+			int o = batch.size++;
+			for (int s = 0; s < rows.length; s++) {
+				batch.rows[s][o] = rows[s].get(sorted[position]);
+			}
+		}
+		return batch.size == 0 ? null : batch;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#close()
+	 */
+	@Override
+	void close() {
+		super.close();
+		rows = null;
+		sorted = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#children()
+	 */
+	@Override
+	List<Operator> children() {
+		return Collections.singletonList(child);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#withChildren(java.util.List)
+	 */
+	@Override
+	Operator withChildren(List<Operator> inputs) {
+		return new ReorderOperator(inputs.get(0), order);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#describe()
+	 */
+	@Override
+	String describe() {
+		return "Restore the order of the joins as written";
+	}
+}
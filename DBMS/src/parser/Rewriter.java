@@ -0,0 +1,709 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import elements.HashIndex;
+
+/**
+ * Rewrites a pipeline of {@link Operator}s into one that gives the same
+ * rows with less work. It runs in four passes, the first two by rules and
+ * the last two by the estimates of an {@link Estimator}.<br/>
+ * <br/>
+ * The first pass moves every rows filter as far down as it will go: below
+ * columns and orderBy commands, and into the input of an inner join or
+ * product that has every column it compares. A filter comparing a column
+ * of each input with <code>==</code> becomes a key of the join instead, so
+ * that <code>rows(product(a, b), 0, ==, column(3))</code> is hashed rather
+ * than built in full and then filtered.<br/>
+ * <br/>
+ * The second pass joins the inputs of every tree of three or more inner
+ * joins and products in the order that is estimated to go through the
+ * fewest rows on the way, each time joining in the input whose join is
+ * estimated to be smallest, and putting the rows back in the order the
+ * joins as written give them, if that is estimated to be cheaper overall.
+ * <br/>
+ * <br/>
+ * The third pass works out which columns each operator actually needs,
+ * from the top down, and drops the others from the input of every orderBy
+ * and groupBy, which are the operators that copy their input. The last
+ * pass has every join hash whichever of its inputs is estimated to be the
+ * smaller. Every rule that changes the pipeline is noted, for an
+ * explain.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class Rewriter {
+
+	/**
+	 * The rules applied so far, described.
+	 */
+	private final List<String> applied = new ArrayList<String>();
+
+	/**
+	 * The estimates the joins are ordered by.
+	 */
+	private final Estimator estimator;
+
+	/**
+	 * Where each output column of the operator last pruned ended up in the
+	 * pruned operator, or -1 if it was dropped.
+	 */
+	private int[] map;
+
+	/**
+	 * Creates a rewriter for pipelines over the tables of the given
+	 * database.
+	 *
+	 * @param database the database holding the scanned tables
+	 */
+	Rewriter(Database database) {
+		estimator = new Estimator(database);
+	}
+
+	/**
+	 * Rewrites the pipeline under the given operator.
+	 *
+	 * @param root the last operator of the pipeline
+	 * @return the last operator of the rewritten pipeline, with the same
+	 *         columns as <code>root</code>
+	 */
+	Operator rewrite(Operator root) {
+		Operator ordered = reorder(pushDown(root));
+		boolean[] needed = new boolean[ordered.width()];
+		Arrays.fill(needed, true);
+		return hashSmaller(prune(ordered, needed));
+	}
+
+	/**
+	 * Returns the estimates the rewritten pipeline was planned by.
+	 *
+	 * @return the estimator
+	 */
+	Estimator estimator() {
+		return estimator;
+	}
+
+	/**
+	 * Returns the rules applied by {@link #rewrite(Operator)}.
+	 *
+	 * @return a description of each rule applied, in order
+	 */
+	List<String> applied() {
+		return applied;
+	}
+
+	/**
+	 * Moves the filters under the given operator, and then the operator
+	 * itself if it is a filter, as far down as they go.
+	 *
+	 * @param op the operator
+	 * @return the rewritten operator
+	 */
+	private Operator pushDown(Operator op) {
+		List<Operator> inputs = new ArrayList<Operator>();
+		boolean changed = false;
+		for (Operator child : op.children()) {
+			Operator rewritten = pushDown(child);
+			changed |= rewritten != child;
+			inputs.add(rewritten);
+		}
+		if (changed) {
+			op = op.withChildren(inputs);
+		}
+		if (!(op instanceof FilterOperator)) {
+			return op;
+		}
+
+		FilterOperator filter = (FilterOperator) op;
+		Operator child = filter.child;
+		int col = filter.column;
+		int other = filter.other;
+		if (child instanceof ProjectOperator) {
+			ProjectOperator project = (ProjectOperator) child;
+			applied.add("rows " + describe(filter) + " moved below columns");
+			return pushDown(new ProjectOperator(filter.on(project.child,
+					project.kept[col], other < 0 ? -1 : project.kept[other]),
+					project.kept));
+		}
+		if (child instanceof SortOperator
+				&& ((SortOperator) child).limit < 0) {
+			//not below a top, which would keep other rows then
+			SortOperator sort = (SortOperator) child;
+			applied.add("rows " + describe(filter) + " moved below orderBy");
+			return pushDown(sort.withChildren(Arrays.asList(
+					filter.on(sort.child, col, other))));
+		}
+		if (!(child instanceof JoinOperator) || ((JoinOperator) child).outer) {
+			return op;
+		}
+
+		//filters on one input of an inner join can go into that input
+		JoinOperator join = (JoinOperator) child;
+		int split = join.left.width();
+		boolean onLeft = col < split && other < split;
+		boolean onRight = col >= split && (other < 0 || other >= split);
+		if (onLeft || onRight) {
+			applied.add("rows " + describe(filter) + " moved into the "
+					+ (onLeft ? "left" : "right") + " input of "
+					+ join.describe().toLowerCase());
+			Operator left = onLeft ? filter.on(join.left, col, other)
+					: join.left;
+			Operator right = onRight ? filter.on(join.right, col - split,
+					other < 0 ? -1 : other - split) : join.right;
+			return pushDown(join.withChildren(Arrays.asList(left, right)));
+		}
+		if (!filter.comparator.equals("==")) {
+			return op;
+		}
+
+		//equal columns of the two inputs are what a join is made of
+		int leftCol = Math.min(col, other);
+		int rightCol = Math.max(col, other) - split;
+		int[] leftKeys = Arrays.copyOf(join.leftKeys,
+				join.leftKeys.length + 1);
+		int[] rightKeys = Arrays.copyOf(join.rightKeys,
+				join.rightKeys.length + 1);
+		leftKeys[leftKeys.length - 1] = leftCol;
+		rightKeys[rightKeys.length - 1] = rightCol;
+		JoinOperator keyed = new JoinOperator(join.left, join.right, leftKeys,
+				rightKeys, false);
+		applied.add(join.describe().toLowerCase() + " and rows "
+				+ describe(filter) + " turned into "
+				+ keyed.describe().toLowerCase());
+		return keyed;
+	}
+
+	/**
+	 * Reorders every tree of inner joins under the given operator, and the
+	 * one it is the root of if it is an inner join.
+	 *
+	 * @param op the operator
+	 * @return the reordered operator
+	 */
+	private Operator reorder(Operator op) {
+		if (!isInnerJoin(op)) {
+			return withChildren(op, reorderChildren(op));
+		}
+		Operator tree = inside(op);
+		List<Operator> leaves = new ArrayList<Operator>();
+		List<int[]> keys = new ArrayList<int[]>();
+		int[][] origins = collect(tree, leaves, keys);
+		if (leaves.size() < 3) {
+			return tree;
+		}
+		for (Operator leaf : leaves) {
+			if (!ordered(leaf)) {
+				return tree;
+			}
+		}
+
+		//join in whichever input makes the smallest join next
+		List<Integer> order = new ArrayList<Integer>();
+		Operator joined = null;
+		double through = 0;
+		while (order.size() < leaves.size()) {
+			Operator best = null;
+			int bestLeaf = -1;
+			boolean bestKeyed = false;
+			for (int l = 0; l < leaves.size(); l++) {
+				if (order.contains(l)) {
+					continue;
+				}
+				Operator next = joined == null ? leaves.get(l)
+						: join(joined, order, leaves, l, keys);
+				boolean keyed = joined == null || ((JoinOperator) next)
+						.leftKeys.length > 0;
+				if (best == null || keyed && !bestKeyed || keyed == bestKeyed
+						&& estimator.rows(next) < estimator.rows(best)) {
+					best = next;
+					bestLeaf = l;
+					bestKeyed = keyed;
+				}
+			}
+			if (order.size() > 1) {
+				through += estimator.rows(joined);
+			}
+			order.add(bestLeaf);
+			joined = best;
+		}
+		double result = estimator.rows(joined);
+		double before = through(tree) - estimator.rows(tree);
+		if (through + result >= before) { //putting it back in order costs
+			return tree;
+		}
+
+		//slots by the order the inputs were written in, columns likewise
+		int[] slotAt = new int[leaves.size()];
+		int[] columnAt = new int[leaves.size()];
+		int slot = 0;
+		int column = 0;
+		for (int l : order) {
+			slotAt[l] = slot;
+			columnAt[l] = column;
+			slot += leaves.get(l).tables.length;
+			column += leaves.get(l).width();
+		}
+		IntList slots = new IntList(slot);
+		for (int l = 0; l < leaves.size(); l++) {
+			for (int s = 0; s < leaves.get(l).tables.length; s++) {
+				slots.add(slotAt[l] + s);
+			}
+		}
+		int[] kept = new int[origins.length];
+		for (int c = 0; c < kept.length; c++) {
+			kept[c] = columnAt[origins[c][0]] + origins[c][1];
+		}
+		applied.add("join of " + leaves.size() + " inputs reordered to go "
+				+ "through an estimated " + Math.round(through) + " rows "
+				+ "rather than " + Math.round(before) + ", and then put its "
+				+ Math.round(result) + " rows back in order");
+		return new ProjectOperator(new ReorderOperator(joined,
+				Arrays.copyOf(slots.array(), slots.size())), kept);
+	}
+
+	/**
+	 * Reorders the trees of inner joins under the inputs of a tree of
+	 * inner joins.
+	 *
+	 * @param op an operator of the tree
+	 * @return the same tree over the reordered inputs
+	 */
+	private Operator inside(Operator op) {
+		if (!isInnerJoin(op)) {
+			return reorder(op);
+		}
+		List<Operator> inputs = new ArrayList<Operator>();
+		for (Operator child : op.children()) {
+			inputs.add(inside(child));
+		}
+		return withChildren(op, inputs);
+	}
+
+	/**
+	 * Reorders the trees of inner joins under each input of an operator.
+	 *
+	 * @param op the operator
+	 * @return the reordered inputs
+	 */
+	private List<Operator> reorderChildren(Operator op) {
+		List<Operator> inputs = new ArrayList<Operator>();
+		for (Operator child : op.children()) {
+			inputs.add(reorder(child));
+		}
+		return inputs;
+	}
+
+	/**
+	 * Returns the given operator over the given inputs, which is the
+	 * operator itself if they are its inputs already.
+	 *
+	 * @param op the operator
+	 * @param inputs the inputs
+	 * @return the operator over <code>inputs</code>
+	 */
+	private static Operator withChildren(Operator op, List<Operator> inputs) {
+		return inputs.equals(op.children()) ? op : op.withChildren(inputs);
+	}
+
+	/**
+	 * Finds the inputs of a tree of inner joins, and the pairs of columns
+	 * it joins on.
+	 *
+	 * @param op an operator of the tree
+	 * @param leaves the inputs found so far, in the order written
+	 * @param keys the pairs of columns found so far, each as the input and
+	 *            column of one side and then of the other
+	 * @return the input and column of that input each output column of
+	 *         <code>op</code> is
+	 */
+	private static int[][] collect(Operator op, List<Operator> leaves,
+			List<int[]> keys) {
+		if (!isInnerJoin(op)) {
+			int[][] origins = new int[op.width()][];
+			for (int c = 0; c < origins.length; c++) {
+				origins[c] = new int[] {leaves.size(), c};
+			}
+			leaves.add(op);
+			return origins;
+		}
+		JoinOperator join = (JoinOperator) op;
+		int[][] left = collect(join.left, leaves, keys);
+		int[][] right = collect(join.right, leaves, keys);
+		for (int k = 0; k < join.leftKeys.length; k++) {
+			int[] from = left[join.leftKeys[k]];
+			int[] to = right[join.rightKeys[k]];
+			keys.add(new int[] {from[0], from[1], to[0], to[1]});
+		}
+		int[][] origins = Arrays.copyOf(left, left.length + right.length);
+		System.arraycopy(right, 0, origins, left.length, right.length);
+		return origins;
+	}
+
+	/**
+	 * Joins another input onto the inputs joined so far, on every pair of
+	 * columns between it and them.
+	 *
+	 * @param joined the join of the inputs joined so far
+	 * @param order the inputs joined so far, in the order they were
+	 * @param leaves the inputs, in the order written
+	 * @param leaf the input to join in
+	 * @param keys the pairs of columns of the tree, as
+	 *            {@link #collect(Operator, List, List)} finds them
+	 * @return the join
+	 */
+	private static JoinOperator join(Operator joined, List<Integer> order,
+			List<Operator> leaves, int leaf, List<int[]> keys) {
+		IntList leftKeys = new IntList(keys.size());
+		IntList rightKeys = new IntList(keys.size());
+		for (int[] key : keys) {
+			for (int side = 0; side < 4; side += 2) {
+				int other = 2 - side;
+				if (key[side] == leaf && order.contains(key[other])) {
+					leftKeys.add(offset(order, leaves, key[other])
+							+ key[other + 1]);
+					rightKeys.add(key[side + 1]);
+				}
+			}
+		}
+		return new JoinOperator(joined, leaves.get(leaf),
+				Arrays.copyOf(leftKeys.array(), leftKeys.size()),
+				Arrays.copyOf(rightKeys.array(), rightKeys.size()), false);
+	}
+
+	/**
+	 * Returns where the columns of an input joined so far start.
+	 *
+	 * @param order the inputs joined so far, in the order they were
+	 * @param leaves the inputs, in the order written
+	 * @param leaf the input
+	 * @return the output column of the join the input's first column is
+	 */
+	private static int offset(List<Integer> order, List<Operator> leaves,
+			int leaf) {
+		int offset = 0;
+		for (int l : order) {
+			if (l == leaf) {
+				break;
+			}
+			offset += leaves.get(l).width();
+		}
+		return offset;
+	}
+
+	/**
+	 * Estimates the rows that go through a tree of inner joins: the rows
+	 * of each of its joins, the last one included.
+	 *
+	 * @param op an operator of the tree
+	 * @return the estimated number of rows
+	 */
+	private double through(Operator op) {
+		if (!isInnerJoin(op)) {
+			return 0;
+		}
+		JoinOperator join = (JoinOperator) op;
+		return estimator.rows(join) + through(join.left)
+				+ through(join.right);
+	}
+
+	/**
+	 * Returns whether or not the given operator is an inner join or a
+	 * product.
+	 *
+	 * @param op the operator
+	 * @return whether or not it's a join that drops rows without a partner
+	 */
+	private static boolean isInnerJoin(Operator op) {
+		return op instanceof JoinOperator && !((JoinOperator) op).outer;
+	}
+
+	/**
+	 * Returns whether or not the given operator hands out its rows ordered
+	 * by the row number of each slot in turn, which joining its rows in
+	 * another order and then sorting them again relies on.
+	 *
+	 * @param op the operator
+	 * @return whether or not its rows are ordered by slot
+	 */
+	private static boolean ordered(Operator op) {
+		if (op instanceof ScanOperator || op instanceof BlockingOperator) {
+			return true;
+		}
+		if (op instanceof JoinOperator) {
+			JoinOperator join = (JoinOperator) op;
+			return !join.outer && ordered(join.left) && ordered(join.right);
+		}
+		if (op instanceof ReorderOperator) {
+			int[] order = ((ReorderOperator) op).order;
+			for (int s = 0; s < order.length; s++) {
+				if (order[s] != s) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return ordered(op.children().get(0));
+	}
+
+	/**
+	 * Has every join under the given operator, and the operator itself if
+	 * it is one, hash the input estimated to be the smaller, unless it
+	 * probes an index.
+	 *
+	 * @param op the operator
+	 * @return the operator, with its joins hashing their smaller input
+	 */
+	private Operator hashSmaller(Operator op) {
+		List<Operator> inputs = new ArrayList<Operator>();
+		for (Operator child : op.children()) {
+			inputs.add(hashSmaller(child));
+		}
+		op = withChildren(op, inputs);
+		if (!(op instanceof JoinOperator)) {
+			return op;
+		}
+		JoinOperator join = (JoinOperator) op;
+		double left = estimator.rows(join.left);
+		double right = estimator.rows(join.right);
+		if (join.leftKeys.length == 0 || join.hashLeft || left >= right
+				|| indexed(join)) {
+			return join;
+		}
+		JoinOperator hashing = new JoinOperator(join.left, join.right,
+				join.leftKeys, join.rightKeys, join.outer, true);
+		applied.add(join.describe().toLowerCase() + " hashes its left "
+				+ "input, estimated at " + Math.round(left) + " rows against "
+				+ Math.round(right));
+		return hashing;
+	}
+
+	/**
+	 * Returns whether or not a join probes an index of its right input
+	 * rather than hashing it.
+	 *
+	 * @param join the join
+	 * @return whether or not the right input is a scan with a
+	 *         {@link HashIndex} on the only key column
+	 */
+	private static boolean indexed(JoinOperator join) {
+		return join.right.isScan() && join.rightKeys.length == 1
+				&& join.right.tables[0].getIndex(join.right.columns[
+						join.rightKeys[0]]) instanceof HashIndex;
+	}
+
+	/**
+	 * Drops the columns that aren't needed from under the given operator,
+	 * setting {@link #map} to where its columns ended up.
+	 *
+	 * @param op the operator
+	 * @param needed which of its output columns are needed above it
+	 * @return the pruned operator
+	 */
+	private Operator prune(Operator op, boolean[] needed) {
+		if (op instanceof ProjectOperator) {
+			ProjectOperator project = (ProjectOperator) op;
+			boolean[] childNeeded = new boolean[project.child.width()];
+			for (int c = 0; c < needed.length; c++) {
+				childNeeded[project.kept[c]] |= needed[c];
+			}
+			Operator child = prune(project.child, childNeeded);
+			int[] childMap = map;
+			IntList kept = new IntList(needed.length);
+			map = new int[needed.length];
+			for (int c = 0; c < needed.length; c++) {
+				map[c] = -1;
+				if (needed[c]) {
+					map[c] = kept.size();
+					kept.add(childMap[project.kept[c]]);
+				}
+			}
+			return project(child, kept);
+		}
+
+		if (op instanceof FilterOperator) {
+			FilterOperator filter = (FilterOperator) op;
+			boolean[] childNeeded = needed.clone();
+			childNeeded[filter.column] = true;
+			if (filter.other >= 0) {
+				childNeeded[filter.other] = true;
+			}
+			Operator child = prune(filter.child, childNeeded);
+			return filter.on(child, map[filter.column],
+					filter.other < 0 ? -1 : map[filter.other]);
+		}
+
+		if (op instanceof JoinOperator) {
+			JoinOperator join = (JoinOperator) op;
+			int split = join.left.width();
+			boolean[] leftNeeded = Arrays.copyOf(needed, split);
+			boolean[] rightNeeded = Arrays.copyOfRange(needed, split,
+					needed.length);
+			for (int k = 0; k < join.leftKeys.length; k++) {
+				leftNeeded[join.leftKeys[k]] = true;
+				rightNeeded[join.rightKeys[k]] = true;
+			}
+			Operator left = prune(join.left, leftNeeded);
+			int[] leftMap = map;
+			Operator right = prune(join.right, rightNeeded);
+			int[] rightMap = map;
+			int[] leftKeys = new int[join.leftKeys.length];
+			int[] rightKeys = new int[join.rightKeys.length];
+			for (int k = 0; k < leftKeys.length; k++) {
+				leftKeys[k] = leftMap[join.leftKeys[k]];
+				rightKeys[k] = rightMap[join.rightKeys[k]];
+			}
+			map = new int[needed.length];
+			for (int c = 0; c < needed.length; c++) {
+				int to = c < split ? leftMap[c] : rightMap[c - split];
+				map[c] = to < 0 || c < split ? to : left.width() + to;
+			}
+			return new JoinOperator(left, right, leftKeys, rightKeys,
+					join.outer, join.hashLeft);
+		}
+
+		if (op instanceof SortOperator) {
+			SortOperator sort = (SortOperator) op;
+			boolean[] childNeeded = needed.clone();
+			int[] keys = new int[sort.keys.length];
+			for (int key : sort.keys) {
+				childNeeded[key] = true;
+			}
+			Operator child = narrow(prune(sort.child, childNeeded),
+					childNeeded, sort.limit < 0 ? "orderBy" : "top");
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = map[sort.keys[i]];
+			}
+			return new SortOperator(child, keys, sort.descending, sort.limit,
+					sort.memory);
+		}
+
+		if (op instanceof GroupByOperator) {
+			GroupByOperator group = (GroupByOperator) op;
+			boolean[] childNeeded = new boolean[group.child.width()];
+			for (String item : group.items) {
+				int col = column(item);
+				if (col >= 0) {
+					childNeeded[col] = true;
+				}
+			}
+			Operator child = narrow(prune(group.child, childNeeded),
+					childNeeded, "groupBy");
+			String[] items = new String[group.items.length];
+			for (int i = 0; i < items.length; i++) {
+				String item = group.items[i];
+				int col = column(item);
+				int open = item.indexOf('(');
+				if (col < 0) {
+					items[i] = item;
+				} else if (open < 0) {
+					items[i] = "" + map[col];
+				} else {
+					items[i] = item.substring(0, open + 1) + map[col] + ")";
+				}
+			}
+			map = identity(needed.length);
+			return group.on(child, items);
+		}
+
+		if (op instanceof ReorderOperator) {
+			ReorderOperator reorder = (ReorderOperator) op;
+			return new ReorderOperator(prune(reorder.child, needed),
+					reorder.order);
+		}
+
+		map = identity(needed.length); //a scan, or a blocking operator
+		return op;
+	}
+
+	/**
+	 * Puts a projection under an operator that copies its input, if the
+	 * input has columns that aren't needed, and updates {@link #map}.
+	 *
+	 * @param input the pruned input, whose columns {@link #map} gives
+	 * @param needed which columns of the input as it was are needed
+	 * @param above the name of the operator, for the description
+	 * @return the input with only the needed columns
+	 */
+	private Operator narrow(Operator input, boolean[] needed, String above) {
+		IntList kept = new IntList(needed.length);
+		int[] narrowed = new int[needed.length];
+		for (int c = 0; c < needed.length; c++) {
+			narrowed[c] = -1;
+			if (needed[c]) {
+				narrowed[c] = kept.size();
+				kept.add(map[c]);
+			}
+		}
+		if (kept.size() == input.width()) {
+			return input;
+		}
+		applied.add("columns the " + above + " doesn't need dropped, "
+				+ "keeping " + kept.size() + " of " + input.width());
+		map = narrowed;
+		return project(input, kept);
+	}
+
+	/**
+	 * Returns a projection keeping the given columns, or the input itself
+	 * if that would keep all of them in order.
+	 *
+	 * @param input the input
+	 * @param kept the output columns of the input to keep
+	 * @return the projection
+	 */
+	private static Operator project(Operator input, IntList kept) {
+		boolean all = kept.size() == input.width();
+		for (int c = 0; all && c < kept.size(); c++) {
+			all = kept.get(c) == c;
+		}
+		if (all) {
+			return input;
+		}
+		return new ProjectOperator(input,
+				Arrays.copyOf(kept.array(), kept.size()));
+	}
+
+	/**
+	 * Returns the column a groupBy key or aggregate refers to.
+	 *
+	 * @param item a key column or aggregate, with its column by index
+	 * @return the index of the column, or -1 for <code>count(*)</code>
+	 */
+	private static int column(String item) {
+		int open = item.indexOf('(');
+		String col = open < 0 ? item
+				: item.substring(open + 1, item.length() - 1);
+		return col.equals("*") ? -1 : Integer.parseInt(col);
+	}
+
+	/**
+	 * Returns where each column ends up when none are dropped.
+	 *
+	 * @param width the number of columns
+	 * @return the identity map
+	 */
+	private static int[] identity(int width) {
+		int[] identity = new int[width];
+		for (int c = 0; c < width; c++) {
+			identity[c] = c;
+		}
+		return identity;
+	}
+
+	/**
+	 * Describes the condition of a filter.
+	 *
+	 * @param filter the filter
+	 * @return the condition, as the explain of the filter gives it
+	 */
+	private static String describe(FilterOperator filter) {
+		return filter.describe().substring("Filter ".length());
+	}
+}
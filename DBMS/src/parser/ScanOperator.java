@@ -0,0 +1,124 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import elements.Table;
+
+/**
+ * Hands out every row of a stored table, in order, as the leaf of a
+ * pipeline.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class ScanOperator extends Operator {
+
+	/**
+	 * The name the table is stored under.
+	 */
+	final String name;
+
+	/**
+	 * The rows being handed out.
+	 */
+	private Batch batch;
+
+	/**
+	 * The next row to hand out.
+	 */
+	private int position;
+
+	/**
+	 * Creates a scan of the given table.
+	 *
+	 * @param name the name the table is stored under
+	 * @param table the table to scan
+	 */
+	ScanOperator(String name, Table table) {
+		this(name, table, identity(table.getColSize()));
+	}
+
+	/**
+	 * Creates a scan of the given table keeping every column.
+	 *
+	 * @param name the name the table is stored under
+	 * @param table the table to scan
+	 * @param layout the slots and columns of the output
+	 */
+	private ScanOperator(String name, Table table, int[][] layout) {
+		super(table.getDefinition(), table.hasHead()
+				? table.getHeader() : new ArrayList<String>(),
+				new Table[] {table}, layout[0], layout[1]);
+		this.name = name;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#open()
+	 */
+	@Override
+	void open() {
+		batch = new Batch(1);
+		position = 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#next()
+	 */
+	@Override
+	Batch next() {
+		int size = tables[0].size();
+		if (position >= size) {
+			return null;
+		}
+		int[] ids = batch.rows[0];
+		batch.size = Math.min(BATCH_SIZE, size - position);
+		for (int i = 0; i < batch.size; i++) {
+			ids[i] = position++;
+		}
+		return batch;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#children()
+	 */
+	@Override
+	List<Operator> children() {
+		return Collections.emptyList();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#withChildren(java.util.List)
+	 */
+	@Override
+	Operator withChildren(List<Operator> inputs) {
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#describe()
+	 */
+	@Override
+	String describe() {
+		return name.isEmpty() ? "Scan of an empty table" : "Scan " + name;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#isScan()
+	 */
+	@Override
+	boolean isScan() {
+		return true;
+	}
+}
@@ -0,0 +1,234 @@
+package parser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import elements.Column;
+import elements.Table;
+import elements.TableWriter;
+
+/**
+ * Sorts the rows of its input by some columns, each ascending or
+ * descending, as an orderBy command does, or keeps only the first rows in
+ * the order of one column, as a top command does.<br/>
+ * <br/>
+ * A sort of all the rows is only the order of the rows of its input, as
+ * {@link Table#sorted(int[], boolean[])} returns. Only one written straight
+ * into a file that's too large for the memory allowed spills to disk.<br/>
+ * <br/>
+ * Keeping the first rows doesn't copy out the input: its rows are offered
+ * to a {@link TopRows} heap as they are pulled, and only the rows kept are
+ * copied out. A whole stored table is searched in parallel, if it's large
+ * enough to be worth it.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class SortOperator extends BlockingOperator {
+
+	/**
+	 * The output columns to sort by, first the one compared first.
+	 */
+	final int[] keys;
+
+	/**
+	 * Whether each column is sorted in descending order.
+	 */
+	final boolean[] descending;
+
+	/**
+	 * The most rows to keep, or -1 to keep them all. Only the first rows by
+	 * a single ascending column can be kept.
+	 */
+	final int limit;
+
+	/**
+	 * The number of bytes of memory a sort written straight into a file may
+	 * use before it spills to disk.
+	 */
+	final long memory;
+
+	/**
+	 * How the rows were sorted or the first rows found, once they have
+	 * been, if it's worth telling.
+	 */
+	private String strategy;
+
+	/**
+	 * Creates a sort of the given input that keeps only its first rows.
+	 *
+	 * @param child the input
+	 * @param column the output column of the input to sort by
+	 * @param limit the most rows to keep, or -1 to keep them all
+	 */
+	SortOperator(Operator child, int column, int limit) {
+		this(child, new int[] {column}, new boolean[1], limit,
+				Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a sort of the given input by several columns.
+	 *
+	 * @param child the input
+	 * @param keys the output columns of the input to sort by, first the
+	 *            one compared first
+	 * @param descending whether each column is sorted in descending order
+	 * @param limit the most rows to keep, or -1 to keep them all
+	 * @param memory the number of bytes of memory the sort may use before
+	 *            it spills to disk, when it's written straight into a file
+	 */
+	SortOperator(Operator child, int[] keys, boolean[] descending,
+			int limit, long memory) {
+		super(child, child.definition, child.header);
+		this.keys = keys;
+		this.descending = descending;
+		this.limit = limit;
+		this.memory = memory;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.BlockingOperator#build()
+	 */
+	@Override
+	Table build() {
+		if (limit < 0) {
+			return super.build();
+		}
+		int[][] rows;
+		if (child.isScan()) {
+			//every row of a single table, whose column can be searched
+			Column key = child.column(keys[0]);
+			rows = new int[][] {TopRows.top(key, limit)};
+			strategy = "heap of " + limit + " rows"
+					+ (key.size() < Database.PARALLEL_THRESHOLD ? ""
+							: " per thread, merged");
+		} else {
+			rows = top();
+			strategy = "heap of " + limit + " rows";
+		}
+
+		Column[] cols = new Column[width()];
+		for (int c = 0; c < cols.length; c++) {
+			int[] selected = rows[child.slots[c]];
+			cols[c] = child.column(c).select(selected, selected.length);
+		}
+		return new Table(definition, new ArrayList<String>(header), cols);
+	}
+
+	/**
+	 * Pulls every row of the input through a heap keeping the first ones.
+	 *
+	 * @return the row numbers of each slot of the rows kept, in order
+	 */
+	private int[][] top() {
+		child.open();
+		int slot = child.slots[keys[0]];
+		int width = child.tables.length;
+		TopRows found = new TopRows(child.column(keys[0]), limit,
+				BATCH_SIZE);
+		//the row numbers of every slot of each entry
+		int[] kept = new int[width * Math.min(limit, BATCH_SIZE)];
+		int order = 0;
+		for (Batch b = child.next(); b != null; b = child.next()) {
+			for (int i = 0; i < b.size; i++) {
+				int entry = found.offer(b.rows[slot][i], order++);
+				if (entry < 0) {
+					continue;
+				}
+				if ((entry + 1) * width > kept.length) {
+					kept = Arrays.copyOf(kept, (int) Math.min(
+							(long) limit * width, 2L * kept.length));
+				}
+				for (int s = 0; s < width; s++) {
+					kept[entry * width + s] = b.rows[s][i];
+				}
+			}
+		}
+		int[] entries = found.sorted();
+		int[][] rows = new int[width][entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			for (int s = 0; s < width; s++) {
+				rows[s][i] = kept[entries[i] * width + s];
+			}
+		}
+		child.close();
+		return rows;
+	}
+
+	/**
+	 * Writes the sorted rows as csv text. A sort too large to be done in
+	 * memory has its runs merged straight into the text, without building
+	 * the sorted table.
+	 *
+	 * @param out where to write the rows
+	 * @throws IOException if a run or the text can't be written
+	 */
+	void write(TableWriter out) throws IOException {
+		if (limit >= 0) {
+			out.write(materialize());
+			return;
+		}
+		Table input = child.materialize();
+		if (ExternalSort.spills(input, memory)) {
+			new ExternalSort(input, keys, descending, memory).sort(out);
+		} else {
+			out.write(build(input));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.BlockingOperator#build(elements.Table)
+	 */
+	@Override
+	Table build(Table input) {
+		try {
+			//only the order of the input's rows, which spilling would copy
+			return input.sorted(keys, descending);
+		} catch (ColumnIndexOutOfBoundsException e) {
+			//the columns were checked against the input when it was planned
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#withChildren(java.util.List)
+	 */
+	@Override
+	Operator withChildren(List<Operator> inputs) {
+		return new SortOperator(inputs.get(0), keys, descending, limit,
+				memory);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#describe()
+	 */
+	@Override
+	String describe() {
+		StringBuilder s = new StringBuilder(limit < 0 ? "Sort by "
+				: "Top " + limit + " by ");
+		for (int i = 0; i < keys.length; i++) {
+			s.append(i == 0 ? "" : ", ").append(child.label(keys[i]))
+			.append(descending[i] ? " desc" : "");
+		}
+		return s.toString();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see parser.Operator#strategy()
+	 */
+	@Override
+	String strategy() {
+		return strategy;
+	}
+}
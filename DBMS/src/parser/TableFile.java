@@ -0,0 +1,409 @@
+package parser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import elements.Column;
+import elements.DictionaryColumn;
+import elements.IntColumn;
+import elements.StringColumn;
+import elements.StringDictionary;
+import elements.Table;
+
+/**
+ * Reads and writes tables in a binary, column by column file format, so
+ * that a saved table can be loaded back without parsing any text.<br/>
+ * <br/>
+ * A table file starts with {@link #MAGIC}, then the number of columns, the
+ * number of rows and whether or not the table has a header. Each column
+ * then has its type and, for a headed table, its name. The columns follow
+ * one after the other:
+ * <ul>
+ * <li>a number column is one int per row, then its bitmap of empty values
+ * as longs;</li>
+ * <li>a dictionary column is the number of distinct values, each value, and
+ * then one int code per row, -1 where empty;</li>
+ * <li>any other String column is each of its values.</li>
+ * </ul>
+ * Every String is written as its length in UTF-8 bytes, -1 for an empty
+ * one, followed by the bytes. All numbers are big-endian.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class TableFile {
+
+	/**
+	 * The bytes every table file starts with.
+	 */
+	static final byte[] MAGIC = {'D', 'B', 'M', 'S', 'T', 'B', 'L', '1'};
+
+	/**
+	 * The ending of the name of a file that save writes as a table file.
+	 */
+	static final String SUFFIX = ".tbl";
+
+	/**
+	 * The type of a number column.
+	 */
+	private static final byte INT = 0;
+
+	/**
+	 * The type of a String column written value by value.
+	 */
+	private static final byte STRING = 1;
+
+	/**
+	 * The type of a dictionary encoded String column.
+	 */
+	private static final byte DICTIONARY = 2;
+
+	/**
+	 * The charset Strings are written in.
+	 */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Not to be created; everything is static.
+	 */
+	private TableFile() {
+	}
+
+	/**
+	 * Returns whether or not the given file starts like a table file.
+	 *
+	 * @param channel the file to look at
+	 * @return <code>true</code> if the file starts with {@link #MAGIC}
+	 * @throws IOException if the file can't be read
+	 */
+	static boolean isTableFile(FileChannel channel) throws IOException {
+		ByteBuffer start = ByteBuffer.allocate(MAGIC.length);
+		while (start.hasRemaining() && channel.read(start,
+				start.position()) > 0) {
+			continue;
+		}
+		return !start.hasRemaining() && Arrays.equals(start.array(), MAGIC);
+	}
+
+	/**
+	 * Writes the given table to the given file.
+	 *
+	 * @param t the table to write
+	 * @param file the file to write it to
+	 * @throws IOException if the file can't be written
+	 */
+	static void write(Table t, File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), 1 << 16));
+		try {
+			Column[] cols = t.getColumns();
+			int rows = t.size();
+			out.write(MAGIC);
+			out.writeInt(cols.length);
+			out.writeInt(rows);
+			out.writeBoolean(t.hasHead());
+			for (int i = 0; i < cols.length; i++) {
+				out.writeByte(typeOf(cols[i]));
+				if (t.hasHead()) {
+					writeString(out, t.getHeader().get(i));
+				}
+			}
+
+			for (Column c : cols) {
+				switch (typeOf(c)) {
+				case INT:
+					IntColumn ints = (IntColumn) c;
+					long[] nulls = new long[(rows + 63) >>> 6];
+					for (int r = 0; r < rows; r++) {
+						if (ints.isNull(r)) {
+							nulls[r >>> 6] |= 1L << r;
+						}
+						out.writeInt(ints.isNull(r) ? 0 : ints.getInt(r));
+					}
+					for (long bits : nulls) {
+						out.writeLong(bits);
+					}
+					break;
+				case DICTIONARY:
+					DictionaryColumn dict = (DictionaryColumn) c;
+					StringDictionary values = dict.getDictionary();
+					out.writeInt(values.size());
+					for (int code = 0; code < values.size(); code++) {
+						writeString(out, values.get(code));
+					}
+					for (int r = 0; r < rows; r++) {
+						out.writeInt(dict.getCode(r));
+					}
+					break;
+				default:
+					for (int r = 0; r < rows; r++) {
+						writeString(out, c.isNull(r) ? null
+								: c.getCell(r).toString());
+					}
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads a table out of the given table file, mapping it a window at a
+	 * time. Number columns and dictionary codes are copied straight into
+	 * their arrays.
+	 *
+	 * @param channel the table file
+	 * @return the table in the file
+	 * @throws IOException if the file can't be read or isn't a table file
+	 */
+	static Table read(FileChannel channel) throws IOException {
+		Input in = new Input(channel);
+		byte[] magic = new byte[MAGIC.length];
+		in.bytes(magic, magic.length);
+		if (!Arrays.equals(magic, MAGIC)) {
+			throw new IOException("Not a table file");
+		}
+
+		int colCount = in.getInt();
+		int rows = in.getInt();
+		boolean headed = in.getByte() != 0;
+		byte[] types = new byte[colCount];
+		List<Boolean> defn = new ArrayList<Boolean>(colCount);
+		List<String> header = new ArrayList<String>();
+		for (int i = 0; i < colCount; i++) {
+			types[i] = in.getByte();
+			defn.add(types[i] == INT);
+			if (headed) {
+				header.add(in.getString());
+			}
+		}
+
+		Column[] cols = new Column[colCount];
+		for (int i = 0; i < colCount; i++) {
+			switch (types[i]) {
+			case INT:
+				int[] values = new int[rows];
+				long[] nulls = new long[(rows + 63) >>> 6];
+				in.ints(values);
+				in.longs(nulls);
+				cols[i] = new IntColumn(values, nulls, rows);
+				break;
+			case DICTIONARY:
+				StringDictionary dictionary = new StringDictionary();
+				int distinct = in.getInt();
+				for (int code = 0; code < distinct; code++) {
+					dictionary.intern(in.getString());
+				}
+				int[] codes = new int[rows];
+				in.ints(codes);
+				cols[i] = new DictionaryColumn(dictionary, codes, rows);
+				break;
+			case STRING:
+				StringColumn strings = new StringColumn(rows);
+				for (int r = 0; r < rows; r++) {
+					strings.addString(in.getString());
+				}
+				cols[i] = strings;
+				break;
+			default:
+				throw new IOException("Unknown column type " + types[i]);
+			}
+		}
+		return new Table(defn, header, cols);
+	}
+
+	/**
+	 * Returns the type a column is written as.
+	 *
+	 * @param c the column to write
+	 * @return {@link #INT}, {@link #DICTIONARY} or {@link #STRING}
+	 */
+	private static byte typeOf(Column c) {
+		if (c instanceof IntColumn) {
+			return INT;
+		}
+		if (c instanceof DictionaryColumn
+				&& ((DictionaryColumn) c).isSelfContained()) {
+			return DICTIONARY;
+		}
+		return STRING;
+	}
+
+	/**
+	 * Writes a String as its length in bytes followed by its bytes.
+	 *
+	 * @param out the stream to write to
+	 * @param s the String to write, or <code>null</code>
+	 * @throws IOException if the stream can't be written
+	 */
+	private static void writeString(DataOutputStream out, String s)
+			throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = s.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a table file through memory mapped windows of it, mapping the
+	 * next window whenever a read would run past the current one.
+	 */
+	private static final class Input {
+
+		/**
+		 * The file being read.
+		 */
+		private final FileChannel channel;
+
+		/**
+		 * The current window of the file.
+		 */
+		private ByteBuffer window = ByteBuffer.allocate(0);
+
+		/**
+		 * The index in the file of the start of the current window.
+		 */
+		private long windowStart;
+
+		/**
+		 * Room to read a String's bytes into.
+		 */
+		private byte[] scratch = new byte[64];
+
+		/**
+		 * Starts reading the given file from its start.
+		 *
+		 * @param channel the file to read
+		 */
+		Input(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * Makes sure the current window has at least <code>bytes</code>
+		 * bytes left, mapping a new one from the current position if not.
+		 *
+		 * @param bytes the number of bytes about to be read
+		 * @throws IOException if the file ends too soon
+		 */
+		private void need(long bytes) throws IOException {
+			if (window.remaining() >= bytes) {
+				return;
+			}
+			long position = windowStart + window.position();
+			long length = Math.min(channel.size() - position,
+					Math.max(bytes, Database.MAP_WINDOW));
+			if (length < bytes) {
+				throw new IOException("Table file ends too soon");
+			}
+			window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+					length);
+			windowStart = position;
+		}
+
+		/**
+		 * Reads a byte.
+		 *
+		 * @return the next byte
+		 * @throws IOException if the file ends too soon
+		 */
+		byte getByte() throws IOException {
+			need(1);
+			return window.get();
+		}
+
+		/**
+		 * Reads an int.
+		 *
+		 * @return the next int
+		 * @throws IOException if the file ends too soon
+		 */
+		int getInt() throws IOException {
+			need(4);
+			return window.getInt();
+		}
+
+		/**
+		 * Reads bytes into the start of an array.
+		 *
+		 * @param dst the array to read into
+		 * @param length the number of bytes to read
+		 * @throws IOException if the file ends too soon
+		 */
+		void bytes(byte[] dst, int length) throws IOException {
+			need(length);
+			window.get(dst, 0, length);
+		}
+
+		/**
+		 * Reads a String written by
+		 * {@link TableFile#writeString(DataOutputStream, String)}.
+		 *
+		 * @return the next String, or <code>null</code>
+		 * @throws IOException if the file ends too soon
+		 */
+		String getString() throws IOException {
+			int length = getInt();
+			if (length < 0) {
+				return null;
+			}
+			if (length > scratch.length) {
+				scratch = new byte[Math.max(length, scratch.length * 2)];
+			}
+			bytes(scratch, length);
+			return new String(scratch, 0, length, UTF8);
+		}
+
+		/**
+		 * Fills an array with the next ints, copying as many as there are
+		 * in the current window at once.
+		 *
+		 * @param dst the array to fill
+		 * @throws IOException if the file ends too soon
+		 */
+		void ints(int[] dst) throws IOException {
+			int done = 0;
+			while (done < dst.length) {
+				need(4);
+				int count = Math.min(dst.length - done, window.remaining() / 4);
+				window.asIntBuffer().get(dst, done, count);
+				window.position(window.position() + count * 4);
+				done += count;
+			}
+		}
+
+		/**
+		 * Fills an array with the next longs, copying as many as there are
+		 * in the current window at once.
+		 *
+		 * @param dst the array to fill
+		 * @throws IOException if the file ends too soon
+		 */
+		void longs(long[] dst) throws IOException {
+			int done = 0;
+			while (done < dst.length) {
+				need(8);
+				int count = Math.min(dst.length - done, window.remaining() / 8);
+				window.asLongBuffer().get(dst, done, count);
+				window.position(window.position() + count * 8);
+				done += count;
+			}
+		}
+	}
+}
@@ -0,0 +1,311 @@
+package parser;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import elements.Column;
+
+/**
+ * Keeps the first rows of a stream of rows in the order of a key column,
+ * as a top command asks for, without sorting or copying all of them. The
+ * rows kept are held in a max-heap bounded to the number asked for, so a
+ * row that comes after all of them is turned away by a single comparison
+ * with the top of the heap, and finding the first N of n rows takes
+ * O(n log N) time and O(N) memory.<br/>
+ * <br/>
+ * Each row offered is an <em>entry</em>, numbered from 0 up to the number
+ * asked for, with the row of the key column holding its key, or -1 for an
+ * empty key, and the order it came in. Rows with equal keys are kept in the
+ * order they came in, so the rows kept are the ones a stable sort would
+ * put first. An entry turned out of the heap has its number given to the
+ * next one let in, so whoever offers the rows can keep more about each
+ * entry alongside, by its number.
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ */
+final class TopRows {
+
+	/**
+	 * The column the rows are ordered by.
+	 */
+	private final Column key;
+
+	/**
+	 * The most rows to keep.
+	 */
+	private final int limit;
+
+	/**
+	 * The entries kept, the last in the order at the top.
+	 */
+	private int[] heap;
+
+	/**
+	 * The row of the key column of each entry, -1 for an empty key.
+	 */
+	private int[] keys;
+
+	/**
+	 * The order each entry came in.
+	 */
+	private int[] orders;
+
+	/**
+	 * The number of entries kept.
+	 */
+	private int size;
+
+	/**
+	 * Creates an empty heap.
+	 *
+	 * @param key the column the rows are ordered by
+	 * @param limit the most rows to keep
+	 * @param expected about how many rows are going to be offered, to make
+	 *            room for
+	 */
+	TopRows(Column key, int limit, int expected) {
+		this.key = key;
+		this.limit = limit;
+		int capacity = Math.max(1, Math.min(limit, expected));
+		heap = new int[capacity];
+		keys = new int[capacity];
+		orders = new int[capacity];
+	}
+
+	/**
+	 * Finds the first rows of a whole column, in order, splitting the
+	 * column up and searching its parts in parallel if it is large enough
+	 * to be worth it.
+	 *
+	 * @param key the column the rows are ordered by
+	 * @param limit the most rows to find
+	 * @return the rows, in order
+	 */
+	static int[] top(Column key, int limit) {
+		Search search = new Search(key, limit, 0, key.size());
+		TopRows found = key.size() < Database.PARALLEL_THRESHOLD
+				? search.compute() : ForkJoinPool.commonPool().invoke(search);
+		int[] entries = found.sorted();
+		int[] rows = new int[entries.length];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = found.orders[entries[i]];
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns the number of rows kept so far.
+	 *
+	 * @return the number of rows kept
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Offers a row, which is kept if it comes before one of the rows kept
+	 * so far or there is still room for it.
+	 *
+	 * @param row the row of the key column holding its key, or -1 for an
+	 *            empty key
+	 * @param order the order it came in, after every row offered before it
+	 * @return its entry, or -1 if it isn't kept
+	 */
+	int offer(int row, int order) {
+		int entry;
+		if (size < limit) {
+			if (size == heap.length) {
+				int capacity = (int) Math.min(limit, 2L * size);
+				heap = Arrays.copyOf(heap, capacity);
+				keys = Arrays.copyOf(keys, capacity);
+				orders = Arrays.copyOf(orders, capacity);
+			}
+			entry = size;
+			heap[size] = entry;
+			keys[entry] = row;
+			orders[entry] = order;
+			siftUp(size++);
+			return entry;
+		}
+		if (size == 0 || compare(row, order, heap[0]) >= 0) {
+			return -1;
+		}
+		//the last row kept so far makes way
+		entry = heap[0];
+		keys[entry] = row;
+		orders[entry] = order;
+		siftDown(0, size);
+		return entry;
+	}
+
+	/**
+	 * Offers every row kept by another heap over the same column, whose
+	 * rows came in the same order as this one's, each entry being its
+	 * own row.
+	 *
+	 * @param other the other heap
+	 */
+	void addAll(TopRows other) {
+		for (int i = 0; i < other.size; i++) {
+			int entry = other.heap[i];
+			offer(other.keys[entry], other.orders[entry]);
+		}
+	}
+
+	/**
+	 * Puts the entries kept in order, using the heap up.
+	 *
+	 * @return the entries kept, in order
+	 */
+	int[] sorted() {
+		for (int end = size - 1; end > 0; end--) {
+			int last = heap[0];
+			heap[0] = heap[end];
+			heap[end] = last;
+			siftDown(0, end);
+		}
+		int[] entries = Arrays.copyOf(heap, size);
+		size = 0;
+		return entries;
+	}
+
+	/**
+	 * Moves an entry up the heap until it's under a later one.
+	 *
+	 * @param at where the entry is in the heap
+	 */
+	private void siftUp(int at) {
+		int entry = heap[at];
+		while (at > 0) {
+			int parent = (at - 1) >>> 1;
+			if (compare(keys[entry], orders[entry], heap[parent]) <= 0) {
+				break;
+			}
+			heap[at] = heap[parent];
+			at = parent;
+		}
+		heap[at] = entry;
+	}
+
+	/**
+	 * Moves an entry down the heap until it's over earlier ones.
+	 *
+	 * @param at where the entry is in the heap
+	 * @param end the end of the heap
+	 */
+	private void siftDown(int at, int end) {
+		int entry = heap[at];
+		int half = end >>> 1;
+		while (at < half) {
+			int child = 2 * at + 1;
+			if (child + 1 < end && compare(keys[heap[child + 1]],
+					orders[heap[child + 1]], heap[child]) > 0) {
+				child++;
+			}
+			if (compare(keys[entry], orders[entry], heap[child]) >= 0) {
+				break;
+			}
+			heap[at] = heap[child];
+			at = child;
+		}
+		heap[at] = entry;
+	}
+
+	/**
+	 * Compares a row with an entry, by key and then by the order they
+	 * came in.
+	 *
+	 * @param row the row of the key column, or -1 for an empty key
+	 * @param order the order the row came in
+	 * @param entry the entry
+	 * @return a negative number if the row comes first, or a positive
+	 *         number if the entry does
+	 */
+	private int compare(int row, int order, int entry) {
+		int other = keys[entry];
+		int c;
+		if (row < 0 || other < 0) {
+			//an empty row, of an outer join, comes first
+			c = row < 0 == other < 0 ? 0 : row < 0 ? -1 : 1;
+		} else {
+			c = key.compareRows(row, other);
+		}
+		return c != 0 ? c : Integer.compare(order, orders[entry]);
+	}
+
+	/**
+	 * Finds the first rows of a range of a column. Ranges that are too
+	 * large are split in half and searched in parallel, and the rows kept
+	 * in each half offered to the heap of the other.
+	 */
+	private static final class Search extends RecursiveTask<TopRows> {
+
+		/**
+		 * Since RecursiveTask is Serializable.
+		 */
+		private static final long serialVersionUID = 5127693520385178094L;
+
+		/**
+		 * The column the rows are ordered by.
+		 */
+		private final Column key;
+
+		/**
+		 * The most rows to find.
+		 */
+		private final int limit;
+
+		/**
+		 * The first row to search, inclusive.
+		 */
+		private final int from;
+
+		/**
+		 * The last row to search, exclusive.
+		 */
+		private final int to;
+
+		/**
+		 * Creates a search of rows <code>from</code> to <code>to</code>.
+		 *
+		 * @param key the column the rows are ordered by
+		 * @param limit the most rows to find
+		 * @param from the first row to search, inclusive
+		 * @param to the last row to search, exclusive
+		 */
+		Search(Column key, int limit, int from, int to) {
+			this.key = key;
+			this.limit = limit;
+			this.from = from;
+			this.to = to;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected TopRows compute() {
+			if (to - from < Database.PARALLEL_THRESHOLD) {
+				TopRows found = new TopRows(key, limit, to - from);
+				for (int row = from; row < to; row++) {
+					found.offer(row, row);
+				}
+				return found;
+			}
+			int middle = (from + to) >>> 1;
+			Search first = new Search(key, limit, from, middle);
+			first.fork();
+			TopRows second = new Search(key, limit, middle, to).compute();
+			TopRows found = first.join();
+			found.addAll(second);
+			return found;
+		}
+	}
+}
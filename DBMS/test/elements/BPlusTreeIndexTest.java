@@ -0,0 +1,136 @@
+package elements;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test cases for BPlusTreeIndex.java
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ *
+ */
+public class BPlusTreeIndexTest {
+
+	/**
+	 * The comparisons a rows command can make, as equal, less and greater.
+	 */
+	private static final boolean[][] COMPARATORS = {
+		{false, true, false}, {true, true, false}, {true, false, false},
+		{true, false, true}, {false, false, true}};
+
+	/**
+	 * Returns the rows of a column a scan keeps for a comparison.
+	 *
+	 * @param column the column to scan
+	 * @param comparator the comparison, as in {@link #COMPARATORS}
+	 * @param value the value to compare with
+	 * @return the kept rows in increasing order
+	 */
+	private static int[] scan(IntColumn column, boolean[] comparator,
+			int value) {
+		int[] rows = new int[column.size()];
+		int n = 0;
+		for (int row = 0; row < column.size(); row++) {
+			int c = Integer.compare(column.getInt(row), value);
+			if (comparator[0] && c == 0 || comparator[1] && c < 0
+					|| comparator[2] && c > 0) {
+				rows[n++] = row;
+			}
+		}
+		return Arrays.copyOf(rows, n);
+	}
+
+	/**
+	 * Checks every comparison against a scan, for values in and around the
+	 * column's range.
+	 *
+	 * @param column the indexed column
+	 * @param index the index of <code>column</code>
+	 */
+	private static void assertFinds(IntColumn column, ColumnIndex index) {
+		int[] values = {Integer.MIN_VALUE, -1001, -1000, -3, 0, 7, 999, 1000,
+			Integer.MAX_VALUE};
+		for (boolean[] comparator : COMPARATORS) {
+			for (int value : values) {
+				assertArrayEquals(scan(column, comparator, value),
+						index.find(comparator[0], comparator[1], comparator[2],
+								new NumberCell(value)));
+			}
+		}
+	}
+
+	/**
+	 * Test method for BPlusTreeIndex#find(boolean, boolean, boolean, Cell).
+	 * A tree built at once finds what a scan finds.
+	 */
+	@Test
+	public final void testFind() {
+		Random random = new Random(42);
+		for (int size : new int[] {0, 1, BPlusTreeIndex.ORDER,
+				BPlusTreeIndex.ORDER * BPlusTreeIndex.ORDER + 1}) {
+			IntColumn column = new IntColumn(size);
+			for (int i = 0; i < size; i++) {
+				column.addInt(random.nextInt(2001) - 1000);
+			}
+			assertFinds(column, new BPlusTreeIndex(column));
+		}
+	}
+
+	/**
+	 * Test method for BPlusTreeIndex#add(Cell, int). Rows added to a table
+	 * go into its index, splitting nodes as they fill up.
+	 *
+	 * @throws Exception if the column doesn't exist
+	 */
+	@Test
+	public final void testAdd() throws Exception {
+		Random random = new Random(7);
+		Table t = new Table(Arrays.asList(true));
+		BPlusTreeIndex index = new BPlusTreeIndex(t.getColumn(0));
+		t.setIndex(0, index);
+		for (int i = 0; i < 50000; i++) {
+			int value = i % 5 == 0 ? 7 : random.nextInt(2001) - 1000;
+			t.add(new Row(new ArrayList<Cell>(Arrays.asList(
+					new NumberCell(value)))));
+		}
+		assertTrue(index.height() > 2);
+		assertFinds((IntColumn) t.getColumn(0), t.getIndex(0));
+	}
+
+	/**
+	 * Test method for BPlusTreeIndex#find(boolean, boolean, boolean, Cell).
+	 * Ranges over a column with empty values are left to a scan.
+	 */
+	@Test
+	public final void testFindWithNulls() {
+		IntColumn column = new IntColumn(3);
+		column.addInt(5);
+		column.addNull();
+		column.addInt(5);
+		BPlusTreeIndex index = new BPlusTreeIndex(column);
+		assertArrayEquals(new int[] {0, 2},
+				index.find(true, false, false, new NumberCell(5)));
+		assertNull(index.find(false, true, false, new NumberCell(5)));
+		assertNull(index.find(true, false, false, new StringCell("5")));
+	}
+
+	/**
+	 * Test method for BPlusTreeIndex#BPlusTreeIndex(Column).
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public final void testStringColumn() {
+		new BPlusTreeIndex(new StringColumn(0));
+	}
+}
@@ -0,0 +1,171 @@
+package elements;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for Column.java, IntColumn.java, StringColumn.java and
+ * DictionaryColumn.java
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ *
+ */
+public class ColumnTest {
+	/**
+	 * Columns to use in tests.
+	 */
+	private Column ints, strings;
+
+	/**
+	 * @throws java.lang.Exception possible exception thrown
+	 */
+	@Before
+	public final void setUp() throws Exception {
+		ints = Column.create(true, 0);
+		strings = Column.create(false, 0);
+
+		// enough values to need more than one word of the null bitmap
+		for (int i = 0; i < 100; i++) {
+			ints.add(new NumberCell(i % 7 == 0 ? null : Integer.valueOf(i)));
+			strings.add(new StringCell(i % 7 == 0 ? null : "s" + i));
+		}
+	}
+
+	/**
+	 * Test method for Column#getCell(int) and Column#isNull(int).
+	 */
+	@Test
+	public final void testGetCell() {
+		assertEquals(100, ints.size());
+		assertEquals(100, strings.size());
+
+		assertEquals(new NumberCell(99), ints.getCell(99));
+		assertEquals(new NumberCell((Integer) null), ints.getCell(98));
+		assertTrue(ints.isNull(70));
+		assertFalse(ints.isNull(71));
+
+		assertEquals(new StringCell("s99"), strings.getCell(99));
+		assertEquals(new StringCell(null), strings.getCell(98));
+		assertTrue(strings.isNull(70));
+		assertFalse(strings.isNull(71));
+	}
+
+	/**
+	 * Test method for Column#matches(int, Column, int) and
+	 * Column#hash(int).
+	 */
+	@Test
+	public final void testMatches() {
+		Column other = ints.clone();
+		assertTrue(ints.matches(5, other, 5));
+		assertEquals(ints.hash(5), other.hash(5));
+		assertFalse(ints.matches(5, other, 6));
+
+		// two empty values are equal, like two empty Cells
+		assertTrue(ints.matches(0, other, 7));
+		assertFalse(ints.matches(0, other, 1));
+
+		// values of different types never are
+		assertFalse(ints.matches(1, strings, 1));
+		assertTrue(strings.matches(0, strings.clone(), 14));
+	}
+
+	/**
+	 * Test method for Column#matches(int, Cell) and
+	 * Column#compare(int, Cell).
+	 */
+	@Test
+	public final void testCompareToCell() {
+		assertTrue(ints.matches(5, new NumberCell(5)));
+		assertFalse(ints.matches(5, new StringCell("5")));
+		assertTrue(ints.compare(5, new NumberCell(6)) < 0);
+		assertTrue(ints.compare(5, new NumberCell(Integer.MIN_VALUE)) > 0);
+
+		// empty numbers come first, as in a sort, without comparing Cells
+		assertTrue(ints.compare(70, new NumberCell(Integer.MIN_VALUE)) < 0);
+		assertTrue(ints.compare(5, new NumberCell((Integer) null)) > 0);
+		assertEquals(0, ints.compare(70, new NumberCell((Integer) null)));
+
+		assertTrue(strings.matches(5, new StringCell("s5")));
+		assertFalse(strings.matches(0, new StringCell("")));
+		assertEquals(new StringCell("s5").compareTo(new StringCell("s50")),
+				strings.compare(5, new StringCell("s50")));
+	}
+
+	/**
+	 * Test method for Column#select(int[], int).
+	 */
+	@Test
+	public final void testSelect() {
+		Column selected = ints.select(new int[] {3, -1, 0, 3, 12345}, 4);
+
+		assertEquals(4, selected.size());
+		assertEquals(new NumberCell(3), selected.getCell(0));
+		assertTrue(selected.isNull(1));
+		assertTrue(selected.isNull(2));
+		assertEquals(new NumberCell(3), selected.getCell(3));
+
+		selected = strings.select(new int[] {-1, 8}, 2);
+		assertEquals(new StringCell(null), selected.getCell(0));
+		assertEquals(new StringCell("s8"), selected.getCell(1));
+	}
+
+	/**
+	 * Test method for Column#clone().
+	 */
+	@Test
+	public final void testClone() {
+		Column copy = ints.clone();
+		copy.add(new NumberCell(1000));
+
+		assertEquals(101, copy.size());
+		assertEquals(100, ints.size());
+		assertEquals(new NumberCell(1000), copy.getCell(100));
+	}
+
+	/**
+	 * Test method for DictionaryColumn#alignTo(Column) and
+	 * DictionaryColumn#matches(int, Column, int).
+	 */
+	@Test
+	public final void testDictionaryColumn() {
+		DictionaryColumn dict = new DictionaryColumn(0);
+		DictionaryColumn other = new DictionaryColumn(0);
+		for (String s : new String[] {"red", "white", null, "red"}) {
+			dict.addString(s);
+		}
+		for (String s : new String[] {"rose", "red", null}) {
+			other.addString(s);
+		}
+
+		assertEquals(2, dict.getDictionary().size());
+		assertEquals(dict.getCode(0), dict.getCode(3));
+		assertEquals(new StringCell(null), dict.getCell(2));
+
+		// values missing from the other dictionary still read back
+		Column aligned = other.alignTo(dict);
+		assertEquals(dict.getDictionary(),
+				((DictionaryColumn) aligned).getDictionary());
+		assertEquals(new StringCell("rose"), aligned.getCell(0));
+		assertEquals(other.hash(0), aligned.hash(0));
+		assertTrue(aligned.matches(1, dict, 3));
+		assertTrue(aligned.matches(2, dict, 2));
+		assertFalse(aligned.matches(0, dict, 1));
+
+		// and match plain String columns both ways
+		Column plain = dict.decode();
+		assertTrue(plain.matches(1, dict, 1));
+		assertTrue(dict.matches(0, plain, 3));
+		assertEquals(plain.hash(1), dict.hash(1));
+		assertFalse(strings.matches(0, dict, 1));
+	}
+}
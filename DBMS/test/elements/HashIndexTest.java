@@ -0,0 +1,84 @@
+package elements;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test cases for HashIndex.java
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ *
+ */
+public class HashIndexTest {
+
+	/**
+	 * Test method for HashIndex#find(boolean, boolean, boolean, Cell).
+	 * Equal values, empty ones included, are found in row order.
+	 */
+	@Test
+	public final void testFind() {
+		DictionaryColumn column = new DictionaryColumn(0);
+		for (int i = 0; i < 1000; i++) {
+			column.addString(i % 10 == 0 ? null : "v" + i % 7);
+		}
+		HashIndex index = new HashIndex(column);
+
+		int[] found = index.find(true, false, false, new StringCell("v3"));
+		assertEquals(1000 / 7 - 1000 / 70, found.length);
+		for (int i = 0; i < found.length; i++) {
+			assertEquals(new StringCell("v3"), column.getCell(found[i]));
+			assertTrue(i == 0 || found[i - 1] < found[i]);
+		}
+		assertEquals(100, index.find(true, false, false,
+				new StringCell(null)).length);
+		assertArrayEquals(new int[0],
+				index.find(true, false, false, new StringCell("v7")));
+	}
+
+	/**
+	 * Test method for HashIndex#find(boolean, boolean, boolean, Cell).
+	 * Ranges and values of the wrong type are left to a scan.
+	 */
+	@Test
+	public final void testFindUnsupported() {
+		HashIndex index = new HashIndex(new IntColumn(0));
+		assertNull(index.find(true, true, false, new NumberCell(1)));
+		assertNull(index.find(true, false, false, new StringCell("1")));
+	}
+
+	/**
+	 * Test method for HashIndex#add(Cell, int). Rows added to a table go
+	 * into its index without changing the column it was built over.
+	 *
+	 * @throws Exception if the column doesn't exist
+	 */
+	@Test
+	public final void testAdd() throws Exception {
+		IntColumn column = new IntColumn(0);
+		column.addInt(4);
+		Table t = new Table(Arrays.asList(true), new ArrayList<String>(),
+				new Column[] {column});
+		t.setIndex(0, new HashIndex(column));
+		long before = t.getIndex(0).memoryBytes();
+		for (int i = 0; i < 100; i++) {
+			t.add(new Row(new ArrayList<Cell>(Arrays.asList(
+					new NumberCell(i % 5)))));
+		}
+		assertEquals(1, column.size());
+		assertEquals(21, t.getIndex(0).find(true, false, false,
+				new NumberCell(4)).length);
+		assertTrue(t.getIndex(0).memoryBytes() > before);
+	}
+}
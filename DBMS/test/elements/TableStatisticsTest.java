@@ -0,0 +1,111 @@
+package elements;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test cases for TableStatistics.java and ColumnStatistics.java
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ *
+ */
+public class TableStatisticsTest {
+
+	/**
+	 * Test method for TableStatistics#of(Table).
+	 * The counts, smallest and largest values of each column are exact.
+	 */
+	@Test
+	public final void testOf() {
+		IntColumn numbers = new IntColumn(0);
+		DictionaryColumn names = new DictionaryColumn(0);
+		for (int i = 0; i < 500; i++) {
+			if (i % 5 == 0) {
+				numbers.addNull();
+			} else {
+				numbers.addInt(i - 200);
+			}
+			names.addString(i % 7 == 0 ? null : "n" + i % 40);
+		}
+		TableStatistics stats = TableStatistics.of(new Table(
+				Arrays.asList(true, false), new ArrayList<String>(),
+				new Column[] {numbers, names}));
+
+		assertEquals(500, stats.getRowCount());
+		ColumnStatistics n = stats.getColumn(0);
+		assertEquals(100, n.getNullCount());
+		assertEquals(new NumberCell(-199), n.getMin());
+		assertEquals(new NumberCell(299), n.getMax());
+		assertEquals(400, n.getDistinctCount(), 400 * 0.05);
+
+		ColumnStatistics s = stats.getColumn(1);
+		assertEquals(72, s.getNullCount());
+		assertEquals(new StringCell("n0"), s.getMin());
+		assertEquals(new StringCell("n9"), s.getMax());
+		assertEquals(40, s.getDistinctCount(), 1);
+		assertNull(s.getHistogram());
+	}
+
+	/**
+	 * Test method for ColumnStatistics#update(Column).
+	 * Statistics gathered a few rows at a time are those gathered at once.
+	 */
+	@Test
+	public final void testUpdate() {
+		IntColumn column = new IntColumn(0);
+		ColumnStatistics growing = new ColumnStatistics();
+		for (int i = 0; i < 5000; i++) {
+			column.addInt((i * 7919) % 3001);
+			if (i % 123 == 0) {
+				growing.update(column);
+			}
+		}
+		growing.update(column);
+		ColumnStatistics once = new ColumnStatistics();
+		once.update(column);
+
+		assertEquals(once.getRowCount(), growing.getRowCount());
+		assertEquals(once.getMin(), growing.getMin());
+		assertEquals(once.getMax(), growing.getMax());
+		assertEquals(once.getDistinctCount(), growing.getDistinctCount());
+		assertArrayEquals(once.getHistogram(), growing.getHistogram());
+		assertEquals(3001, once.getDistinctCount(), 3001 * 0.05);
+	}
+
+	/**
+	 * Test method for ColumnStatistics#getHistogram() and
+	 * ColumnStatistics#fractionBelow(int).
+	 * Each bucket holds about as many values, however they're spread.
+	 */
+	@Test
+	public final void testHistogram() {
+		IntColumn column = new IntColumn(0);
+		for (int i = 0; i < 100000; i++) {
+			column.addInt(i % 10 == 0 ? 1000000 + i : i % 1000);
+		}
+		ColumnStatistics stats = new ColumnStatistics();
+		stats.update(column);
+
+		int[] bounds = stats.getHistogram();
+		assertEquals(ColumnStatistics.BUCKETS + 1, bounds.length);
+		for (int k = 0; k < ColumnStatistics.BUCKETS; k++) {
+			assertTrue(bounds[k] <= bounds[k + 1]);
+		}
+		assertEquals(0, stats.fractionBelow(-5), 0);
+		assertEquals(1, stats.fractionBelow(Integer.MAX_VALUE), 0);
+		assertEquals(0.45, stats.fractionBelow(500), 0.05);
+		assertEquals(0.9, stats.fractionBelow(1000), 0.05);
+	}
+}
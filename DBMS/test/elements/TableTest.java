@@ -4,11 +4,16 @@ package elements;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -175,6 +180,205 @@ public class TableTest {
 		// it should never get thrown here.
 	}
 
+	/**
+	 * Test method for Table#sort(int).
+	 * test a number column is sorted in order of its values, empty ones
+	 * first, keeping equal values in order, whether the table is held as
+	 * Rows or as columns, and whether it's sorted in parallel or not.
+	 *
+	 * @throws ColumnIndexOutOfBoundsException never
+	 */
+	@Test
+	public final void testSort_intKeys()
+			throws ColumnIndexOutOfBoundsException {
+		for (int size : new int[] {0, 1, 300, IntKeySort.PARALLEL_THRESHOLD}) {
+			Random random = new Random(size);
+			IntColumn keys = new IntColumn(size);
+			IntColumn ids = new IntColumn(size);
+			Table rows = new Table(Arrays.asList(true, true));
+			for (int i = 0; i < size; i++) {
+				int r = random.nextInt(20);
+				Integer key = r == 0 ? null : r == 1 ? Integer.MIN_VALUE
+						: r == 2 ? Integer.MAX_VALUE
+						: random.nextInt(1000) - 500;
+				if (key == null) {
+					keys.addNull();
+				} else {
+					keys.addInt(key);
+				}
+				ids.addInt(i);
+				rows.add(new Row(new ArrayList<Cell>(Arrays.asList(
+						new NumberCell(key), new NumberCell(i)))));
+			}
+			Table columns = new Table(Arrays.asList(true, true),
+					new ArrayList<String>(), new Column[] {keys, ids});
+
+			rows.sort(0);
+			assertEquals(rows.toString(), columns.sort(0).toString());
+			for (int i = 1; i < size; i++) {
+				Cell before = rows.getCell(i - 1, 0);
+				Cell after = rows.getCell(i, 0);
+				if (before.isNull() || after.isNull()) {
+					assertTrue(before.isNull());
+					continue;
+				}
+				int c = Integer.compare(((NumberCell) before).getCell(),
+						((NumberCell) after).getCell());
+				assertTrue(c < 0 || c == 0 && ((NumberCell) rows.getCell(
+						i - 1, 1)).getCell() < ((NumberCell) rows.getCell(
+								i, 1)).getCell());
+			}
+		}
+	}
+
+	/**
+	 * Test method for Table#sort(int[], boolean[]).
+	 * test rows are sorted by each column in turn, ascending or descending,
+	 * as comparing their values would, keeping equal rows in order.
+	 *
+	 * @throws ColumnIndexOutOfBoundsException never
+	 */
+	@Test
+	public final void testSort_severalColumns()
+			throws ColumnIndexOutOfBoundsException {
+		final String[] strings = {null, "", "a", "ab", "abc", "b", "\u007f",
+			"\u00e9", "\u4e2d", "a\u4e2d", "Z"};
+		final Integer[] numbers = {null, Integer.MIN_VALUE, -1, 0, 1, 255,
+			256, Integer.MAX_VALUE};
+		Random random = new Random(23);
+		for (int pass = 0; pass < 8; pass++) {
+			final int[] cols = {pass % 3, 2 - pass % 3, 1};
+			final boolean[] descending = {pass % 2 == 0, pass % 4 < 2, false};
+			Table rows = new Table(Arrays.asList(false, true, true));
+			List<Row> expected = new ArrayList<Row>();
+			for (int i = 0; i < 200; i++) {
+				Row r = new Row(new ArrayList<Cell>(Arrays.asList(
+						new StringCell(strings[random.nextInt(strings.length)]),
+						new NumberCell(numbers[random.nextInt(numbers.length)]),
+						new NumberCell(random.nextInt(3)))));
+				rows.add(r);
+				expected.add(r);
+			}
+			Collections.sort(expected, new Comparator<Row>() {
+				@Override
+				public int compare(Row a, Row b) {
+					for (int i = 0; i < cols.length; i++) {
+						int c = compareCells(a.getRow().get(cols[i]),
+								b.getRow().get(cols[i]));
+						if (c != 0) {
+							return descending[i] ? -c : c;
+						}
+					}
+					return 0;
+				}
+			});
+			Table columns = rows.select(identity(200), 200);
+
+			rows.sort(cols, descending);
+			for (int i = 0; i < expected.size(); i++) {
+				assertSame(expected.get(i), rows.getRow(i));
+			}
+			assertEquals(rows.toString(),
+					columns.sort(cols, descending).toString());
+		}
+	}
+
+	/**
+	 * Test method for Table#sorted(int[], boolean[]).
+	 * test a sorted view holds the rows a sort would, without changing or
+	 * copying the table, is copied out only once it's changed, and that a
+	 * table sorted the same way twice reuses its order until it changes.
+	 *
+	 * @throws ColumnIndexOutOfBoundsException never
+	 */
+	@Test
+	public final void testSorted() throws ColumnIndexOutOfBoundsException {
+		Table base = new Table(Arrays.asList(false, true), tableheader);
+		Random random = new Random(25);
+		for (int i = 0; i < 100; i++) {
+			base.add(new Row(new ArrayList<Cell>(Arrays.asList(
+					new StringCell("" + (char) ('a' + random.nextInt(5))),
+					new NumberCell(random.nextInt(10))))));
+		}
+		String before = base.toString();
+		int[] cols = {0, 1};
+		boolean[] descending = {true, false};
+
+		Table view = base.sorted(cols, descending);
+		assertEquals(before, base.toString());
+		assertEquals(base.clone().sort(cols, descending).toString(),
+				view.toString());
+		assertEquals(base.clone().sort(1), base.sorted(1));
+		assertEquals(tableheader, view.getHeader());
+
+		// the view is read through its order, without being copied out
+		Table sorted = base.clone().sort(cols, descending);
+		for (int i = 0; i < base.size(); i++) {
+			assertEquals(sorted.getCell(i, 0), view.getCell(i, 0));
+			assertEquals(sorted.getCell(i, 1), view.getCell(i, 1));
+		}
+		assertEquals(sorted.select(new int[] {5, 0}, 2),
+				view.select(new int[] {5, 0}, 2));
+		assertEquals(base.size(), view.builtOrder().length);
+
+		// sorting the same way again reuses the order, until the table changes
+		assertSame(view.builtOrder(),
+				base.sorted(cols, descending).builtOrder());
+		assertNotSame(view.builtOrder(), base.sorted(1).builtOrder());
+		assertEquals(view.clone(), view);
+		base.add(new Row(new ArrayList<Cell>(Arrays.asList(
+				new StringCell("z"), new NumberCell(0)))));
+		Table again = base.sorted(cols, descending);
+		assertEquals(base.size(), again.size());
+		assertEquals(new StringCell("z"), again.getCell(0, 0));
+		assertEquals(100, view.size());
+
+		// changing the view copies it out, leaving the table alone
+		assertTrue(view.add(new Row(new ArrayList<Cell>(Arrays.asList(
+				new StringCell("y"), new NumberCell(1))))));
+		assertEquals(null, view.builtOrder());
+		assertEquals(101, view.size());
+		assertEquals(new StringCell("y"), view.getCell(100, 0));
+		assertEquals(sorted.getRow(0), view.getRow(0));
+		assertEquals(101, base.size());
+
+		// and so does sorting it
+		Table twice = base.sorted(1).sorted(cols, descending);
+		assertEquals(again, twice);
+	}
+
+	/**
+	 * Compares two Cells as a sort does, empty numbers first.
+	 *
+	 * @param a a Cell
+	 * @param b another Cell
+	 * @return the order of the Cells
+	 */
+	private static int compareCells(Cell a, Cell b) {
+		if (a.isNumberCell() && (a.isNull() || b.isNull())) {
+			return Boolean.compare(!a.isNull(), !b.isNull());
+		}
+		if (a.isNumberCell()) {
+			return Integer.compare(((NumberCell) a).getCell(),
+					((NumberCell) b).getCell());
+		}
+		return a.toString().compareTo(b.toString());
+	}
+
+	/**
+	 * Returns the rows of a table of a given size, in order.
+	 *
+	 * @param size the size
+	 * @return the numbers from 0 up to <code>size</code>
+	 */
+	private static int[] identity(int size) {
+		int[] rows = new int[size];
+		for (int i = 0; i < size; i++) {
+			rows[i] = i;
+		}
+		return rows;
+	}
+
 	/**
 	 * Test method for Table#equals(Object).
 	 */
@@ -458,6 +662,65 @@ public class TableTest {
 		assertEquals(Arrays.asList(false, true), table.getDefinition());
 	}
 
+	/**
+	 * Test method for Table#Table(List, List, Column[]). The Rows of a table
+	 * built from columns are equal to those of the same table built from
+	 * Rows.
+	 *
+	 * @throws ColumnIndexOutOfBoundsException if column is out of bounds
+	 */
+	@Test
+	public final void testColumnarTable()
+			throws ColumnIndexOutOfBoundsException {
+		Table columnar = new Table(Arrays.asList(false, true), tableheader,
+				table.getColumns());
+
+		assertEquals(table, columnar);
+		assertEquals(table.toString(), columnar.toString());
+		assertEquals(row2.getCell(1), columnar.getCell(1, 1));
+		assertEquals(row1, columnar.getRow(0));
+
+		// adding to one table leaves the other one alone
+		Row row3 = new Row(Arrays.asList(
+				new StringCell("pi"), new NumberCell(5)));
+		columnar.add(row3);
+		assertEquals(3, columnar.size());
+		assertEquals(new NumberCell(5), columnar.getColumn(1).getCell(2));
+		assertEquals(2, table.size());
+		assertEquals(2, table.getColumn(1).size());
+	}
+
+	/**
+	 * Test method for Table#getColumn(int).
+	 *
+	 * @throws ColumnIndexOutOfBoundsException if column is out of bounds
+	 */
+	@Test(expected = ColumnIndexOutOfBoundsException.class)
+	public final void testGetColumnInvalidIndex()
+			throws ColumnIndexOutOfBoundsException {
+		table.getColumn(2);
+	}
+
+	/**
+	 * Test method for Table#select(int[], int).
+	 */
+	@Test
+	public final void testSelect() {
+		Table selected = table.select(new int[] {1, 1, 0}, 3);
+
+		assertEquals(table.getHeader(), selected.getHeader());
+		assertEquals(Arrays.asList(row2, row2, row1), selected.getAllRows());
+	}
+
+	/**
+	 * Test method for Table#getAllRows(). The Rows can't be changed around
+	 * the table's back.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public final void testGetAllRowsUnmodifiable() {
+		table.getAllRows().add(row1);
+	}
+
 	/**
 	 * Test method for Table#Clone().
 	 */
@@ -0,0 +1,115 @@
+package elements;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Test cases for TableWriter.java
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ *
+ */
+public class TableWriterTest {
+
+	/**
+	 * Returns the text a TableWriter writes for the given table.
+	 *
+	 * @param t the table to write
+	 * @return the written text
+	 * @throws IOException if writing fails
+	 */
+	private static String write(Table t) throws IOException {
+		StringWriter s = new StringWriter();
+		TableWriter out = new TableWriter(s);
+		out.write(t);
+		out.flush();
+		return s.toString();
+	}
+
+	/**
+	 * Test method for TableWriter#write(Table). A table stored as columns
+	 * writes every kind of value, including the ints with the most digits.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	@Test
+	public final void testWriteColumns() throws IOException {
+		IntColumn ints = new IntColumn(4);
+		ints.addInt(Integer.MIN_VALUE);
+		ints.addInt(0);
+		ints.addNull();
+		ints.addInt(Integer.MAX_VALUE);
+		DictionaryColumn strings = new DictionaryColumn(4);
+		strings.addString("a");
+		strings.addString(null);
+		strings.addString("a");
+		strings.addString("b c");
+		Table t = new Table(Arrays.asList(true, false),
+				Arrays.asList("N", "S"), new Column[] {ints, strings});
+
+		assertEquals("N,S\n-2147483648,a\n0,\n,a\n2147483647,b c\n",
+				write(t));
+	}
+
+	/**
+	 * Test method for TableWriter#write(Table). Strings holding a comma, a
+	 * quote or a line break are quoted, with their quotes doubled, whether
+	 * the table is held as Rows or as columns, and in the header too.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	@Test
+	public final void testWriteQuoted() throws IOException {
+		Table t = new Table(Arrays.asList(false, true),
+				Arrays.asList("name, first", "N"));
+		String[] names = {"a,b", "\"q\"", "line\nbreak", "cr\r", "plain", ""};
+		for (int i = 0; i < names.length; i++) {
+			t.add(new Row(new ArrayList<Cell>(Arrays.asList(
+					new StringCell(names[i]), new NumberCell(i)))));
+		}
+		String expected = "\"name, first\",N\n\"a,b\",0\n\"\"\"q\"\"\",1\n"
+				+ "\"line\nbreak\",2\n\"cr\r\",3\nplain,4\n,5\n";
+
+		assertEquals(expected, write(t));
+		assertEquals(expected, write(t.select(new int[] {0, 1, 2, 3, 4, 5},
+				6)));
+	}
+
+	/**
+	 * Test method for TableWriter#write(Table). A table of Rows writes the
+	 * same text as its toString(), even when it doesn't fit the buffer.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	@Test
+	public final void testWriteRows() throws IOException {
+		StringBuilder longValue = new StringBuilder();
+		for (int i = 0; i < 40000; i++) {
+			longValue.append((char) ('a' + i % 26));
+		}
+		Table t = new Table(Arrays.asList(false, true));
+		for (int i = -5000; i < 5000; i++) {
+			t.add(new Row(new ArrayList<Cell>(Arrays.asList(
+					new StringCell(i == 0 ? longValue.toString() : "s" + i),
+					new NumberCell(i * 7919)))));
+		}
+
+		StringBuilder expected = new StringBuilder();
+		for (Row r : t.getAllRows()) {
+			expected.append(r.toString()).append('\n');
+		}
+		assertEquals(expected.toString(), write(t));
+		assertEquals(expected.toString(), t.toString());
+	}
+}
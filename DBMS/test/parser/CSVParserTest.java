@@ -0,0 +1,180 @@
+package parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import elements.Column;
+import elements.DictionaryColumn;
+import elements.IntColumn;
+import elements.NumberCell;
+import elements.StringCell;
+
+/**
+ * Tests CSVParser.java
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ *
+ */
+public class CSVParserTest {
+
+	/**
+	 * Returns a buffer holding the given text.
+	 *
+	 * @param text the text to put in the buffer
+	 * @return a buffer of the bytes of <code>text</code>
+	 */
+	private static ByteBuffer bytes(String text) {
+		return ByteBuffer.wrap(text.getBytes(Charset.defaultCharset()));
+	}
+
+	/**
+	 * Returns a String column and an int column to read records into.
+	 *
+	 * @return two empty columns
+	 */
+	private static Column[] columns() {
+		return new Column[] {new DictionaryColumn(0), new IntColumn(0)};
+	}
+
+	/**
+	 * Test method for CSVParser#readRecords(Column[]). Checks every kind of
+	 * line break and quoting.
+	 */
+	@Test
+	public final void testReadRecords() {
+		Column[] cols = columns();
+		CSVParser parser = new CSVParser(bytes("a,1\r\n\"b,\"\"c\"\"\",-2\r"
+				+ "\"d\ne\",\"+3\"\n,2147483647"), true);
+
+		assertEquals(4, parser.readRecords(cols));
+		assertEquals(new StringCell("a"), cols[0].getCell(0));
+		assertEquals(new StringCell("b,\"c\""), cols[0].getCell(1));
+		assertEquals(new StringCell("d\ne"), cols[0].getCell(2));
+		assertEquals(new StringCell(""), cols[0].getCell(3));
+		assertEquals(new NumberCell(-2), cols[1].getCell(1));
+		assertEquals(new NumberCell(3), cols[1].getCell(2));
+		assertEquals(new NumberCell(Integer.MAX_VALUE), cols[1].getCell(3));
+	}
+
+	/**
+	 * Test method for CSVParser#readRecords(Column[]). A buffer that isn't
+	 * the last one stops before a record it can't finish.
+	 */
+	@Test
+	public final void testReadRecordsStopsAtIncompleteRecord() {
+		String text = "a,1\n\"b\nb\",2\nc,3";
+		for (int cut = 0; cut <= text.length(); cut++) {
+			Column[] cols = columns();
+			ByteBuffer first = bytes(text.substring(0, cut));
+			CSVParser parser = new CSVParser(first, false);
+			parser.readRecords(cols);
+
+			ByteBuffer rest = bytes(text);
+			rest.position(parser.position());
+			new CSVParser(rest, true).readRecords(cols);
+
+			assertEquals(3, cols[1].size());
+			assertEquals(new StringCell("b\nb"), cols[0].getCell(1));
+			assertEquals(new NumberCell(3), cols[1].getCell(2));
+		}
+	}
+
+	/**
+	 * Test method for CSVParser#readRecord().
+	 */
+	@Test
+	public final void testReadRecord() {
+		CSVParser parser = new CSVParser(bytes("name,\"a,b\",\n"), true);
+		assertEquals(Arrays.asList("name", "a,b", ""), parser.readRecord());
+		assertNull(parser.readRecord());
+	}
+
+	/**
+	 * Test method for CSVParser#readRecords(Column[]). An empty number field
+	 * is null, quoted or not, but a lone sign is not a number.
+	 */
+	@Test
+	public final void testReadRecordsNull() {
+		Column[] cols = columns();
+		new CSVParser(bytes("a,\n\"b\",\"\"\nc,7"), true).readRecords(cols);
+
+		assertTrue(cols[1].isNull(0));
+		assertTrue(cols[1].isNull(1));
+		assertEquals(new NumberCell(7), cols[1].getCell(2));
+	}
+
+	/**
+	 * Test method for CSVParser#readRecords(Column[]). A lone sign in an int
+	 * column is a type mismatch.
+	 */
+	@Test(expected = NumberFormatException.class)
+	public final void testReadRecordsSign() {
+		new CSVParser(bytes("a,-\n"), true).readRecords(columns());
+	}
+
+	/**
+	 * Test method for CSVParser#readRecords(Column[]). A String in an int
+	 * column is a type mismatch.
+	 */
+	@Test(expected = NumberFormatException.class)
+	public final void testReadRecordsNotANumber() {
+		new CSVParser(bytes("a,1\nb,1x\n"), true).readRecords(columns());
+	}
+
+	/**
+	 * Test method for CSVParser#readRecords(Column[]). An int that doesn't
+	 * fit in an int is a type mismatch.
+	 */
+	@Test(expected = NumberFormatException.class)
+	public final void testReadRecordsOverflow() {
+		new CSVParser(bytes("a,2147483648\n"), true).readRecords(columns());
+	}
+
+	/**
+	 * Test method for CSVParser#readRecords(Column[]). Leading zeros don't
+	 * count towards the digits an int can have, as with
+	 * {@link Integer#parseInt(String)}.
+	 */
+	@Test
+	public final void testReadRecordsZeroPadded() {
+		Column[] cols = columns();
+		new CSVParser(bytes("a,000000000042\nb,-000000000002147483648\n"
+				+ "c,0000000000000000000000\nd,\"0000000000007\"\n"), true)
+				.readRecords(cols);
+
+		assertEquals(new NumberCell(42), cols[1].getCell(0));
+		assertEquals(new NumberCell(Integer.MIN_VALUE), cols[1].getCell(1));
+		assertEquals(new NumberCell(0), cols[1].getCell(2));
+		assertEquals(new NumberCell(7), cols[1].getCell(3));
+	}
+
+	/**
+	 * Test method for CSVParser#readRecords(Column[]). An int that doesn't
+	 * fit in an int is a type mismatch, however many zeros lead it.
+	 */
+	@Test(expected = NumberFormatException.class)
+	public final void testReadRecordsZeroPaddedOverflow() {
+		new CSVParser(bytes("a,0002147483648\n"), true).readRecords(columns());
+	}
+
+	/**
+	 * Test method for CSVParser#readRecords(Column[]). A record with too
+	 * many fields doesn't fit the columns.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public final void testReadRecordsTooManyFields() {
+		new CSVParser(bytes("a,1,2\n"), true).readRecords(columns());
+	}
+}
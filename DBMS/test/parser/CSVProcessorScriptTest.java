@@ -0,0 +1,134 @@
+package parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for running scripts with CSVProcessor.java
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ *
+ */
+public class CSVProcessorScriptTest {
+
+	private final PrintStream sysOut = System.out;
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+	/**
+	 * Captures the standard output.
+	 */
+	@Before
+	public final void setUp() {
+		System.setOut(new PrintStream(output));
+	}
+
+	/**
+	 * Puts the standard output back.
+	 */
+	@After
+	public final void tearDown() {
+		System.setOut(sysOut);
+	}
+
+	/**
+	 * Runs a script.
+	 *
+	 * @param script the lines of the script
+	 * @param failFast whether to stop at the first failure
+	 * @return the exit status
+	 * @throws IOException never
+	 */
+	private static int run(String script, boolean failFast)
+			throws IOException {
+		return CSVProcessor.runScript(new BufferedReader(new StringReader(
+				script)), failFast);
+	}
+
+	/**
+	 * Test method for CSVProcessor#runScript(BufferedReader, boolean).
+	 * Every command is run and timed, past a failure, and comments and blank
+	 * lines are skipped.
+	 *
+	 * @throws IOException never
+	 */
+	@Test
+	public final void testRunScript() throws IOException {
+		assertEquals(CSVProcessor.FAILED, run("define script (Int, String)\n"
+				+ "\n# a comment\nprint script\nprint missing\n"
+				+ "print script\n", false));
+
+		String out = output.toString();
+		assertTrue(out.contains("-- line 1 ran in "));
+		assertTrue(out.contains("-- line 4 ran in "));
+		assertTrue(out.contains("-- line 5 FAILED in "));
+		assertTrue(out.contains("-- line 6 ran in "));
+		assertFalse(out.contains("-- line 3"));
+		assertTrue(out.contains(" ms, 1 failed, the first at line 5"));
+		assertTrue(out.startsWith("script is now defined."));
+	}
+
+	/**
+	 * Test method for CSVProcessor#runScript(BufferedReader, boolean).
+	 * A script asked to fail fast stops at its first failure.
+	 *
+	 * @throws IOException never
+	 */
+	@Test
+	public final void testRunScriptFailFast() throws IOException {
+		assertEquals(CSVProcessor.FAILED, run("nonsense\n"
+				+ "define fast (Int)\n", true));
+
+		String out = output.toString();
+		assertTrue(out.contains("-- line 1 FAILED in "));
+		assertFalse(out.contains("-- line 2"));
+		assertTrue(out.contains("-- 1 commands in "));
+		assertTrue(out.contains(", where the script stopped"));
+	}
+
+	/**
+	 * Test method for CSVProcessor#runScript(BufferedReader, boolean).
+	 * A script ends at exit, and succeeds if nothing failed.
+	 *
+	 * @throws IOException never
+	 */
+	@Test
+	public final void testRunScriptExit() throws IOException {
+		assertEquals(0, run("define done (Int)\nexit\nnonsense\n", true));
+
+		String out = output.toString();
+		assertTrue(out.contains(" ms, 0 failed"));
+		assertFalse(out.contains("the first at"));
+		assertFalse(out.contains("-- line 3"));
+	}
+
+	/**
+	 * Test method for CSVProcessor#batch(String[]). A script that can't be
+	 * read, or a command line that isn't right, has a status of its own.
+	 */
+	@Test
+	public final void testBatchUnreadable() {
+		PrintStream captured = System.out;
+		assertEquals(CSVProcessor.UNREADABLE,
+				CSVProcessor.batch(new String[] {"noSuchScript"}));
+		assertEquals(CSVProcessor.UNREADABLE,
+				CSVProcessor.batch(new String[] {"-failfast", "a", "b"}));
+		assertSame(captured, System.out);
+	}
+}
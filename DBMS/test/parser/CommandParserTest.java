@@ -0,0 +1,315 @@
+package parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.text.ParseException;
+
+import org.junit.Test;
+
+/**
+ * Test cases for CommandParser.java
+ *
+ * @version 2
+ *
+ * @author Prajjwal Bhandari
+ * @author Hardarshan Kahlon
+ * @author Ansar Butt
+ * @author Alvaro Naranjo
+ *
+ */
+public class CommandParserTest {
+
+	private final CommandParser parser = new CommandParser();
+
+	/**
+	 * Parses a command line.
+	 *
+	 * @param line the command line
+	 * @return whether it's a command
+	 */
+	private boolean parses(String line) {
+		try {
+			parser.parse(line);
+			return true;
+		} catch (ParseException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Parses a command line that isn't a command.
+	 *
+	 * @param line the command line
+	 * @return the offset of the mistake
+	 */
+	private int mistake(String line) {
+		try {
+			parser.parse(line);
+			fail(line);
+		} catch (ParseException e) {
+			return e.getErrorOffset();
+		}
+		return -1;
+	}
+
+	/**
+	 * Test method for CommandParser#parse(String).
+	 * test illegal characters and unknown commands are rejected.
+	 */
+	@Test
+	public final void testParse_invalid() {
+		assertTrue(parses("exit"));
+		assertTrue(parses("EXIT"));
+		assertFalse(parses("notExit"));
+		assertFalse(parses("exit now"));
+		assertFalse(parses("asd\rtasd"));
+		assertFalse(parses(""));
+		assertEquals(3, mistake("asd\rtasd"));
+		assertEquals(0, mistake("nonsense"));
+	}
+
+	/**
+	 * Test method for CommandParser#parse(String).
+	 * test save, print and define commands.
+	 *
+	 * @throws ParseException if a command isn't parsed
+	 */
+	@Test
+	public final void testParse_simple() throws ParseException {
+		Command c = parser.parse("save myT file.txt");
+		assertEquals(Command.Kind.SAVE, c.kind());
+		assertEquals("myT", c.operand(0));
+		assertEquals("file.txt", c.operand(1));
+		assertFalse(parses("save table"));
+		assertFalse(parses("saib t f"));
+		assertEquals(7, mistake("save t f1"));
+		c = parser.parse("save orderBy(t, 0 desc) sorted.csv");
+		assertEquals(Command.ORDER_BY, c.operation(c.root()));
+		assertEquals("sorted.csv", c.operand(0));
+		c = parser.parse("save outer file.csv");
+		assertEquals(-1, c.root());
+		assertEquals("outer", c.operand(0));
+		assertFalse(parses("save orderBy(t, 0)"));
+
+		assertEquals("foo", parser.parse("print foo").operand(0));
+		assertFalse(parses("print"));
+		assertFalse(parses("print foo bar baz"));
+		assertFalse(parses("foo bar"));
+		assertFalse(parses("print t f"));
+
+		c = parser.parse("define asd (String, Int)");
+		assertEquals(Command.Kind.DEFINE, c.kind());
+		assertEquals(3, c.operands());
+		assertEquals("Int", c.operand(2));
+		assertTrue(parses("define asd (String Int)"));
+		assertFalse(parses("dfine asd (String, Int)"));
+		assertEquals(7, mistake("define asd1 (String, Int)"));
+		assertFalse(parses("define asd"));
+		assertFalse(parses("define asd ()"));
+		assertEquals(12, mistake("define asd (Strng, Int)"));
+	}
+
+	/**
+	 * Test method for CommandParser#parse(String).
+	 * test load commands, with and without their options, and with tables
+	 * named like them.
+	 *
+	 * @throws ParseException if a command isn't parsed
+	 */
+	@Test
+	public final void testParse_load() throws ParseException {
+		Command c = parser.parse(" load  table from file");
+		assertEquals(Command.Kind.LOAD, c.kind());
+		assertFalse(c.has(Command.HEADED));
+		assertEquals("table", c.operand(0));
+		assertEquals("file", c.operand(1));
+
+		c = parser.parse("load headed parallel table from file");
+		assertTrue(c.has(Command.HEADED));
+		assertTrue(c.has(Command.PARALLEL));
+
+		c = parser.parse("load headed from file");
+		assertFalse(c.has(Command.HEADED));
+		assertEquals("headed", c.operand(0));
+
+		assertFalse(parses("loading table from file"));
+		assertFalse(parses("load table1 from file"));
+		assertFalse(parses("load table of file"));
+		assertEquals(20, mistake("load table from home\\file.txt"));
+		assertFalse(parses("load table from file NOW"));
+	}
+
+	/**
+	 * Test method for CommandParser#parse(String).
+	 * test check and index commands.
+	 *
+	 * @throws ParseException if a command isn't parsed
+	 */
+	@Test
+	public final void testParse_references() throws ParseException {
+		Command c = parser.parse("check tabe(pi) references tale(yu)");
+		assertEquals(Command.Kind.CHECK, c.kind());
+		assertEquals("tabe", c.operand(0));
+		assertEquals("yu", c.operand(3));
+		assertTrue(parses("check tabe(9) references tale(5)"));
+		assertTrue(parses("check \t\t\ttabe(pisdf)\t\t\treferences\t\t tale(yu)"));
+		assertFalse(parses("chck tabe(pisdf) references tale(yu)"));
+		assertFalse(parses("check tabe1(pisdf) references tale(yu)"));
+		assertFalse(parses("check tabe(pisdf) referes tale(yu)"));
+		assertFalse(parses("checktabe(pisdf)refererencestale(yu)"));
+
+		c = parser.parse("index hash wine (rating)");
+		assertEquals(Command.Kind.INDEX, c.kind());
+		assertTrue(c.has(Command.HASH));
+		assertEquals("rating", c.operand(1));
+		c = parser.parse("index hash(0)");
+		assertFalse(c.has(Command.HASH));
+		assertEquals("hash", c.operand(0));
+		assertFalse(parses("index wine(-1)"));
+	}
+
+	/**
+	 * Test method for CommandParser#parse(String).
+	 * test assignments of single commands.
+	 *
+	 * @throws ParseException if a command isn't parsed
+	 */
+	@Test
+	public final void testParse_assign() throws ParseException {
+		Command c = parser.parse("pi = rows(t, 2, >, 6)");
+		assertEquals(Command.Kind.ASSIGN, c.kind());
+		assertEquals("pi", c.operand(0));
+		int root = c.root();
+		assertEquals(Command.CALL, c.nodeKind(root));
+		assertEquals(Command.ROWS, c.operation(root));
+		assertEquals("t, 2, >, 6", c.arguments(root));
+		assertTrue(parses("pi = rows(table, columnname, <, 4)"));
+		assertEquals(19, mistake("pi = rows(file, 2, t, 5)"));
+		assertTrue(parses("pi = rows(file, pi, <, r)"));
+
+		assertTrue(parses("pi=columns(t, 2, 3)"));
+		assertTrue(parses("pi=columns(t, StudentName, StudentId)"));
+		assertFalse(parses("pi=columns(file, 2, <, 4)"));
+
+		assertTrue(parses("pi = product(ta, rer)"));
+		assertFalse(parses("pi = product(file, 2er)"));
+		assertFalse(parses("pi = product(file, 2, <, 4)"));
+
+		assertTrue(parses("pi = join(ta, rer, 4, 3)"));
+		assertTrue(parses("pi = join(ta, rer, four, three)"));
+		assertFalse(parses("pi = join(file, rer, 4)"));
+		assertFalse(parses("pi = join(file, 2, <, 4)"));
+
+		c = parser.parse("pi = outer join(ta, rer, four, three)");
+		assertEquals(Command.OUTER_JOIN, c.operation(c.root()));
+		assertEquals("outer join(ta, rer, four, three)", c.source(c.root()));
+		c = parser.parse("pi = outer naturaljoin(ta, rer)");
+		assertEquals(Command.OUTER_NATURAL_JOIN, c.operation(c.root()));
+		assertFalse(parses("pi = inner join(ta, rer, 4, 3)"));
+		assertFalse(parses("pi = naturaljoin(<, 2)"));
+
+		assertTrue(parses("pi = orderBy(ta, 1)"));
+		assertTrue(parses("pi = ORDERBY(ta, one)"));
+		assertFalse(parses("pi = orderBy(table, 2er)"));
+		assertFalse(parses("pi = orderBy(table, 2, <, 4)"));
+		c = parser.parse("pi = orderBy(ta, 1 DESC, name, 0 asc)");
+		int col = c.nextSibling(c.firstChild(c.root()));
+		assertEquals(Command.DESCENDING, c.nodeKind(col));
+		assertEquals("1 DESC", c.source(col));
+		col = c.nextSibling(col);
+		assertEquals(Command.COLUMN, c.nodeKind(col));
+		assertEquals(Command.COLUMN, c.nodeKind(c.nextSibling(col)));
+		assertEquals("0 asc", c.source(c.nextSibling(col)));
+		assertEquals(18, mistake("pi = orderBy(t, 1 down)"));
+
+		c = parser.parse("pi = top(ta, rating, 10)");
+		assertEquals(Command.TOP, c.operation(c.root()));
+		assertEquals("10", c.nodeText(c.nextSibling(c.nextSibling(
+				c.firstChild(c.root())))));
+		assertTrue(parses("pi = TOP(orderBy(ta, 0), 1, 0)"));
+		assertEquals(19, mistake("pi = top(table, 2, -1)"));
+		assertEquals(19, mistake("pi = top(table, 2, all)"));
+		assertFalse(parses("pi = top(table, 2)"));
+
+		assertFalse(parses("pi=fi()bi"));
+		assertEquals(10, mistake("pi=rows(bi"));
+		assertEquals(3, mistake("pi=fi(bi)"));
+	}
+
+	/**
+	 * Test method for CommandParser#parse(String).
+	 * test nested expressions, groupBy aggregates and explain.
+	 *
+	 * @throws ParseException if a command isn't parsed
+	 */
+	@Test
+	public final void testParse_nested() throws ParseException {
+		Command c = parser.parse("x = groupBy(rows(join(a, b, 0, 1), 2, "
+				+ "==, column(3)), 0, count(*), sum(2))");
+		int groupBy = c.root();
+		assertEquals(Command.GROUP_BY, c.operation(groupBy));
+		int rows = c.firstChild(groupBy);
+		assertEquals(Command.ROWS, c.operation(rows));
+		int join = c.firstChild(rows);
+		assertEquals("join(a, b, 0, 1)", c.source(join));
+		int other = c.nextSibling(c.nextSibling(c.nextSibling(join)));
+		assertEquals(Command.OTHER_COLUMN, c.nodeKind(other));
+		assertEquals("3", c.nodeText(other));
+		int count = c.nextSibling(c.nextSibling(rows));
+		assertEquals(Command.AGGREGATE, c.nodeKind(count));
+		assertEquals(Command.ALL, c.nodeKind(c.firstChild(count)));
+
+		int at = "x = groupBy(a, 0, ".length();
+		assertEquals(at, mistake("x = groupBy(a, 0, median(1))"));
+		assertEquals(at + 4, mistake("x = groupBy(a, 0, sum(*))"));
+
+		c = parser.parse("explain analyze x = orderBy(a, 0)");
+		assertEquals(Command.Kind.EXPLAIN, c.kind());
+		assertTrue(c.has(Command.ANALYZE));
+		assertEquals("x", c.operand(0));
+		c = parser.parse("explain analyze");
+		assertFalse(c.has(Command.ANALYZE));
+		assertEquals(Command.TABLE, c.nodeKind(c.root()));
+	}
+
+	/**
+	 * Test method for CommandParser#parseExpression(String).
+	 * test mistakes are found where they are, and the parser can be used
+	 * again after one.
+	 *
+	 * @throws ParseException if an expression isn't parsed
+	 */
+	@Test
+	public final void testParseExpression() throws ParseException {
+		try {
+			parser.parseExpression("rows(wine, 1, >, 2");
+			fail();
+		} catch (ParseException e) {
+			assertEquals(18, e.getErrorOffset());
+		}
+		try {
+			parser.parseExpression("columns(sort(wine, 1), 0)");
+			fail();
+		} catch (ParseException e) {
+			assertEquals(8, e.getErrorOffset());
+		}
+		try {
+			parser.parseExpression("rows(wine, -1, >, 2)");
+			fail();
+		} catch (ParseException e) {
+			assertEquals(11, e.getErrorOffset());
+		}
+
+		//a long expression grows the command once and still parses
+		StringBuilder expr = new StringBuilder("wine");
+		for (int i = 0; i < 100; i++) {
+			expr.insert(0, "columns(").append(", 0, name)");
+		}
+		Command c = parser.parseExpression(expr.toString());
+		assertEquals(Command.Kind.EXPRESSION, c.kind());
+		assertEquals(expr.toString(), c.source(c.root()));
+	}
+}
@@ -12,6 +12,8 @@ import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Files;
+import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -21,15 +23,22 @@ import java.util.logging.Logger;
 
 import org.junit.After;
 import org.junit.AfterClass;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import elements.Cell;
+import elements.Column;
+import elements.DictionaryColumn;
+import elements.HashIndex;
+import elements.IntColumn;
 import elements.NumberCell;
 import elements.Row;
 import elements.StringCell;
+import elements.StringColumn;
 import elements.Table;
+import elements.TableStatistics;
 
 
 /**
@@ -227,7 +236,7 @@ public class DatabaseTest {
 		// force save to be writeable
 		save.setWritable(true);
 
-		db.save("table1", "validSave.tmp");
+		assertTrue(db.save("table1", "validSave.tmp"));
 
 		// checking that the file was created can can be written to
 		assertTrue(save.exists());
@@ -286,11 +295,12 @@ public class DatabaseTest {
 			// try saving to a file that cannot be written to
 			save.setWritable(false);
 
-			// ensuring that the file was created cannot be written to
+			// ensuring that the file was created cannot be written to,
+			// which doesn't hold for a user that can write anywhere
 			assertTrue(save.exists());
-			assertFalse(save.canWrite());
+			Assume.assumeFalse(save.canWrite());
 
-			db.save("table1", save.toString());
+			assertFalse(db.save("table1", save.toString()));
 			assertEquals("The file " + save.toString()
 					+ " cannot be written to.", output.toString().trim());
 		} catch (IOException e) {
@@ -336,9 +346,17 @@ public class DatabaseTest {
 		sortedTable.add(r1.clone());
 		sortedTable.add(r2.clone());
 
+		Table unsorted = db.getTable("table1").clone();
 		assertEquals(sortedTable, db.orderBy("table1, 3"));
 		assertFalse(sortedTable.equals(testTable)); // non-destruction check
+		assertEquals(unsorted, db.getTable("table1"));
 
+		// sorted again the same way, and changed, without touching the table
+		Table again = db.orderBy("table1, 3");
+		again.add(r1.clone());
+		assertEquals(6, again.size());
+		assertEquals(unsorted, db.getTable("table1"));
+		assertEquals(sortedTable, db.orderBy("table1, 3"));
 	}
 
 	/**
@@ -468,7 +486,7 @@ public class DatabaseTest {
 			db.add("mixedTableKey", new Table(mixedTable.getDefinition()));
 
 			//check load returns true & assigns correct value to mixedTableKey
-			db.load(false, "mixedTableKey", "forTestingLoad");
+			assertTrue(db.load(false, "mixedTableKey", "forTestingLoad"));
 			assertEquals(mixedTable, db.getTable("mixedTableKey"));
 
 		} catch (IOException e) {
@@ -500,7 +518,7 @@ public class DatabaseTest {
 			db.add("mixedTableKey", new Table(mixedTable.getDefinition()));
 
 			//check load returns true & assigns correct value to mixedTableKey
-			db.load(true, "mixedTableKey", "forTestingLoad");
+			assertTrue(db.load(true, "mixedTableKey", "forTestingLoad"));
 			assertEquals(mixedTable, db.getTable("mixedTableKey"));
 
 		} catch (IOException e) {
@@ -587,7 +605,7 @@ public class DatabaseTest {
 			db.add("mixedTableKey", new Table(conflictingDef));
 
 			//check load does not change value of mixedTableKey in db
-			db.load(false, "mixedTableKey", "forTestingLoad");
+			assertFalse(db.load(false, "mixedTableKey", "forTestingLoad"));
 			assertEquals(new Table(conflictingDef),
 					db.getTable("mixedTableKey"));
 
@@ -600,6 +618,209 @@ public class DatabaseTest {
 		}
 	}
 
+	/**
+	 * Test method for Database#load(java.lang.String).
+	 * test String columns with few distinct values are loaded dictionary
+	 * encoded, and still join, filter and check like plain ones.
+	 *
+	 * @throws Exception if the test files can't be written
+	 */
+	@Test
+	public final void testLoadDictionaryEncoded() throws Exception {
+		List<Boolean> defn = Arrays.asList(false, true);
+
+		BufferedWriter bwTest = new BufferedWriter(new FileWriter(file));
+		bwTest.write("red,1\nwhite,2\nred,3\nred,4\n");
+		bwTest.close();
+		db.add("wines", new Table(defn));
+		db.load(false, "wines", "forTestingLoad");
+
+		bwTest = new BufferedWriter(new FileWriter(file));
+		bwTest.write("rose,0\nred,0\nrose,1\nred,1\n");
+		bwTest.close();
+		db.add("colours", new Table(defn));
+		db.load(false, "colours", "forTestingLoad");
+
+		Table wines = db.getTable("wines");
+		Table colours = db.getTable("colours");
+		assertTrue(wines.getColumn(0) instanceof DictionaryColumn);
+		DictionaryColumn colour = (DictionaryColumn) wines.getColumn(0);
+		assertEquals(colour.getCode(0), colour.getCode(2));
+		assertEquals(new StringCell("white"), wines.getCell(1, 0));
+
+		//filtering compares codes
+		Table red = db.rows(wines, 0, "==", new StringCell("red"));
+		assertEquals(Arrays.asList(wines.getRow(0), wines.getRow(2),
+				wines.getRow(3)), red.getAllRows());
+		assertEquals(1, db.rows(wines, 0, ">", new StringCell("rose")).size());
+
+		//joining across two dictionaries, 3 reds by 2 reds
+		Table joined = db.join(wines, colours, Arrays.asList(0),
+				Arrays.asList(0));
+		assertEquals(6, joined.size());
+		assertEquals(new NumberCell(3), joined.getCell(2, 1));
+		assertEquals(new NumberCell(1), joined.getCell(3, 3));
+
+		//only the roses are not referenced
+		assertEquals(Arrays.asList(colours.getRow(0), colours.getRow(2)),
+				db.check(colours, wines, 0, 0));
+	}
+
+	/**
+	 * Test method for Database#load(boolean, boolean, String, String).
+	 * test a parallel load reads the same table as a single threaded one,
+	 * even when chunks start inside quoted line breaks, and reports errors
+	 * the same way.
+	 *
+	 * @throws Exception if the test file can't be written
+	 */
+	@Test
+	public final void testLoadParallel() throws Exception {
+		List<Boolean> defn = Arrays.asList(false, true);
+		StringBuilder quoted = new StringBuilder("\"");
+		for (int i = 0; i < 1000; i++) {
+			quoted.append("x\n");
+		}
+		quoted.append("\"");
+
+		//plain records around a long stretch of quoted line breaks
+		BufferedWriter bwTest = new BufferedWriter(new FileWriter(file));
+		int size = 0;
+		for (int i = 0; size < 4 * Database.MIN_LOAD_CHUNK; i++) {
+			boolean middle = size > Database.MIN_LOAD_CHUNK
+					&& size < 3 * Database.MIN_LOAD_CHUNK;
+			String line = (middle ? quoted : "name" + i % 10) + "," + i + "\n";
+			bwTest.write(line);
+			size += line.length();
+		}
+		bwTest.close();
+
+		db.add("serial", new Table(defn));
+		db.load(true, false, "serial", "forTestingLoad");
+		db.add("parallel", new Table(defn));
+		db.load(true, true, "parallel", "forTestingLoad");
+		assertEquals(db.getTable("serial"), db.getTable("parallel"));
+		assertEquals(db.getTable("serial").getHeader(),
+				db.getTable("parallel").getHeader());
+		assertTrue(db.getTable("parallel").size() > 1000);
+
+		//a type mismatch at the very end still stops the load
+		bwTest = new BufferedWriter(new FileWriter(file, true));
+		bwTest.write("name,notANumber\n");
+		bwTest.close();
+		db.load(false, true, "parallel", "forTestingLoad");
+		assertEquals(db.getTable("serial"), db.getTable("parallel"));
+		assertEquals("Unable to load: The table you are loading parallel has "
+				+ "contents differing from definition",
+				output.toString().trim());
+	}
+
+	/**
+	 * Test method for Database#load(boolean, boolean, String, String).
+	 * test a quoted field left open at the end of the file stops the load,
+	 * rather than waiting for a closing quote that never comes, whether it's
+	 * read in parallel or not.
+	 *
+	 * @throws Exception if the test file can't be written
+	 */
+	@Test
+	public final void testLoadUnterminatedQuote() throws Exception {
+		List<Boolean> defn = Arrays.asList(false, true);
+		BufferedWriter bwTest = new BufferedWriter(new FileWriter(file));
+		bwTest.write("a,1\n\"b,2\n");
+		bwTest.close();
+
+		for (boolean parallel : new boolean[] {false, true}) {
+			output.reset();
+			db.add("open", new Table(defn));
+			assertFalse(db.load(false, parallel, "open", "forTestingLoad"));
+			assertEquals(0, db.getTable("open").size());
+			assertEquals("Unable to load: The table you are loading open has "
+					+ "contents differing from definition",
+					output.toString().trim());
+		}
+	}
+
+	/**
+	 * Test method for Database#save(String, String) and
+	 * Database#load(boolean, String, String).
+	 * test a table loaded from quoted csv is saved quoted, and loads back as
+	 * the same values.
+	 *
+	 * @throws Exception if the test files can't be written
+	 */
+	@Test
+	public final void testSaveAndLoadQuoted() throws Exception {
+		List<Boolean> defn = Arrays.asList(false, true);
+		BufferedWriter bwTest = new BufferedWriter(new FileWriter(file));
+		bwTest.write("\"\"\"q\"\"\",1\n\"a,b\",2\n\"line\nbreak\",3\nplain,4\n");
+		bwTest.close();
+		db.add("quoted", new Table(defn));
+		assertTrue(db.load(false, "quoted", "forTestingLoad"));
+		Table quoted = db.getTable("quoted");
+		assertEquals(new StringCell("\"q\""), quoted.getCell(0, 0));
+		assertEquals(new StringCell("a,b"), quoted.getCell(1, 0));
+
+		File saved = new File("forTestingQuoted.csv");
+		try {
+			assertTrue(db.save("quoted", saved.getName()));
+			db.add("loaded", new Table(defn));
+			assertTrue(db.load(false, "loaded", saved.getName()));
+			assertEquals(quoted, db.getTable("loaded"));
+			assertEquals("", output.toString().trim());
+		} finally {
+			saved.delete();
+		}
+	}
+
+	/**
+	 * Test method for Database#save(String, String) and
+	 * Database#load(boolean, String, String) with a binary table file.
+	 * test every kind of column, empty values and the header come back.
+	 *
+	 * @throws Exception if the test file can't be written
+	 */
+	@Test
+	public final void testSaveAndLoadTableFile() throws Exception {
+		IntColumn numbers = new IntColumn(0);
+		DictionaryColumn colours = new DictionaryColumn(0);
+		StringColumn names = new StringColumn(0);
+		for (int i = 0; i < 100; i++) {
+			if (i % 9 == 0) {
+				numbers.addNull();
+			} else {
+				numbers.addInt(i * 1000 - 50000);
+			}
+			colours.addString(i % 11 == 0 ? null : "colour" + i % 3);
+			names.addString(i % 13 == 0 ? null : "n\u00e9,\"" + i);
+		}
+		List<Boolean> defn = Arrays.asList(true, false, false);
+		Table saved = new Table(defn, Arrays.asList("num", "colour", "name"),
+				new Column[] {numbers, colours, names});
+		db.add("saved", saved);
+
+		File tableFile = new File("forTestingSave.tbl");
+		try {
+			db.save("saved", tableFile.getName());
+			db.add("loaded", new Table(defn));
+			db.load(false, "loaded", tableFile.getName());
+			Table loaded = db.getTable("loaded");
+			assertEquals(saved, loaded);
+			assertEquals(saved.getHeader(), loaded.getHeader());
+			assertTrue(loaded.getColumn(1) instanceof DictionaryColumn);
+
+			//the definition is still checked
+			db.add("wrong", new Table(Arrays.asList(true, true, false)));
+			db.load(false, "wrong", tableFile.getName());
+			assertEquals(0, db.getTable("wrong").size());
+			assertEquals("Unable to load: The table you are loading wrong has "
+					+ "contents differing from definition",
+					output.toString().trim());
+		} finally {
+			tableFile.delete();
+		}
+	}
+
 	/**
 	 * Test method for Database#load(java.lang.String).
 	 * test load assigns an empty table for a table defined without header.
@@ -672,7 +893,7 @@ public class DatabaseTest {
 			db.add("mixedTableKey", new Table(mixedTable.getDefinition()));
 
 			//check load does not change value of mixedTableKey in db
-			db.load(false, "mixedTableKey", "fileNotFound");
+			assertFalse(db.load(false, "mixedTableKey", "fileNotFound"));
 			assertEquals(new Table(mixedTable.getDefinition()),
 					db.getTable("mixedTableKey"));
 
@@ -850,6 +1071,50 @@ public class DatabaseTest {
 	}
 
 
+	/**
+	 * Test method for JoinHashTable#buckets(int). The buckets are a power of
+	 * two at most half full, up to the most an int array can be sized to,
+	 * however many rows there are.
+	 */
+	@Test
+	public final void testJoinHashTableBuckets() {
+		assertEquals(2, JoinHashTable.buckets(0));
+		assertEquals(2, JoinHashTable.buckets(1));
+		assertEquals(8, JoinHashTable.buckets(3));
+		assertEquals(8, JoinHashTable.buckets(4));
+		assertEquals(1 << 30, JoinHashTable.buckets(1 << 29));
+		assertEquals(JoinHashTable.MAX_BUCKETS,
+				JoinHashTable.buckets((1 << 30) + 1));
+		assertEquals(JoinHashTable.MAX_BUCKETS,
+				JoinHashTable.buckets(Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Test method for Database#product(String). case: the product of two
+	 * tables would have more rows than a table can hold, which is refused
+	 * before anything is built.
+	 *
+	 * @throws NoSuchTableException if Table can't be found
+	 */
+	@Test
+	public final void testProduct_tooLarge() throws NoSuchTableException {
+		int size = 50000; //50000 * 50000 rows is past Integer.MAX_VALUE
+		IntColumn keys = new IntColumn(size);
+		for (int i = 0; i < size; i++) {
+			keys.addInt(i);
+		}
+		db.add("wide", new Table(Arrays.asList(true),
+				new ArrayList<String>(), new Column[] {keys}));
+
+		try {
+			db.product("wide, wide");
+			fail("A product past Integer.MAX_VALUE rows was built");
+		} catch (IllegalArgumentException e) {
+			assertEquals("The product of wide and wide would have 2500000000 "
+					+ "rows, more than a table can hold", e.getMessage());
+		}
+	}
+
 	/**
 	 * Test method for Database#join(java.lang.String). case: the
 	 * integer pair list consists of several pairs and neither of the tables
@@ -1349,6 +1614,51 @@ public class DatabaseTest {
 		assertEquals(expectedResultTable, actualResultTable);
 	}
 
+	/**
+	 * Test method for Database#outerJoinCreate(Table, Table, List). case:
+	 * both tables hold duplicate rows, matched and unmatched.
+	 *
+	 * @throws NoSuchTableException if Table can't be found
+	 * @throws ColumnIndexOutOfBoundsException if given column number is out of
+	 * bounds
+	 */
+	@Test
+	public final void testOuterJoinCreate_DuplicateRows()
+			throws NoSuchTableException, ColumnIndexOutOfBoundsException {
+
+		Table left = new Table(Arrays.asList(true, false));
+		left.add(new Row(Arrays.asList(new NumberCell(1),
+				new StringCell("a"))));
+		left.add(new Row(Arrays.asList(new NumberCell(2),
+				new StringCell("b"))));
+		left.add(new Row(Arrays.asList(new NumberCell(1),
+				new StringCell("a"))));
+		left.add(new Row(Arrays.asList(new NumberCell(2),
+				new StringCell("b"))));
+
+		Table right = new Table(Arrays.asList(true));
+		right.add(new Row(Arrays.asList((Cell) new NumberCell(3))));
+		right.add(new Row(Arrays.asList((Cell) new NumberCell(1))));
+		right.add(new Row(Arrays.asList((Cell) new NumberCell(3))));
+
+		Table expected = new Table(Arrays.asList(true, false, true));
+		expected.add(new Row(Arrays.asList(new NumberCell(1),
+				new StringCell("a"), new NumberCell(1))));
+		expected.add(new Row(Arrays.asList(new NumberCell(1),
+				new StringCell("a"), new NumberCell(1))));
+		expected.add(new Row(Arrays.asList(new NumberCell(2),
+				new StringCell("b"), new NumberCell((Integer) null))));
+		expected.add(new Row(Arrays.asList(new NumberCell(2),
+				new StringCell("b"), new NumberCell((Integer) null))));
+		expected.add(new Row(Arrays.asList(new NumberCell((Integer) null),
+				new StringCell(null), new NumberCell(3))));
+		expected.add(new Row(Arrays.asList(new NumberCell((Integer) null),
+				new StringCell(null), new NumberCell(3))));
+
+		assertEquals(expected, db.outerJoinCreate(left, right,
+				Arrays.asList(0, 0)));
+	}
+
 	/**
 	 * Test method for Database#outerJoin(java.lang.String). case: the
 	 * tables have various definitions
@@ -1665,6 +1975,72 @@ public class DatabaseTest {
 		assertEquals(expectedResultTable, actualResultTable);
 	}
 
+	/**
+	 * Test method for Database#join(Table, Table, List, List). case: keys
+	 * repeat on both sides; the output order has to be the nested loop order
+	 * no matter which of the two tables gets hashed.
+	 *
+	 * @throws NoSuchTableException if Table can't be found
+	 * @throws ColumnIndexOutOfBoundsException if given column number is out of
+	 * bounds
+	 */
+	@Test
+	public final void testJoin_DuplicateKeysKeepOrder()
+			throws NoSuchTableException, ColumnIndexOutOfBoundsException {
+
+		Table small = new Table(Arrays.asList(true, false));
+		small.add(new Row(Arrays.asList(new NumberCell(1),
+				new StringCell("a"))));
+		small.add(new Row(Arrays.asList(new NumberCell(2),
+				new StringCell("b"))));
+		small.add(new Row(Arrays.asList(new NumberCell(1),
+				new StringCell("c"))));
+
+		Table big = new Table(Arrays.asList(false, true));
+		big.add(new Row(Arrays.asList(new StringCell("x"),
+				new NumberCell(1))));
+		big.add(new Row(Arrays.asList(new StringCell("y"),
+				new NumberCell(3))));
+		big.add(new Row(Arrays.asList(new StringCell("z"),
+				new NumberCell(1))));
+		big.add(new Row(Arrays.asList(new StringCell("w"),
+				new NumberCell(2))));
+
+		// small is hashed
+		Table expected = new Table(Arrays.asList(false, true, true, false));
+		expected.add(new Row(Arrays.asList(new StringCell("x"),
+				new NumberCell(1), new NumberCell(1), new StringCell("a"))));
+		expected.add(new Row(Arrays.asList(new StringCell("x"),
+				new NumberCell(1), new NumberCell(1), new StringCell("c"))));
+		expected.add(new Row(Arrays.asList(new StringCell("z"),
+				new NumberCell(1), new NumberCell(1), new StringCell("a"))));
+		expected.add(new Row(Arrays.asList(new StringCell("z"),
+				new NumberCell(1), new NumberCell(1), new StringCell("c"))));
+		expected.add(new Row(Arrays.asList(new StringCell("w"),
+				new NumberCell(2), new NumberCell(2), new StringCell("b"))));
+
+		assertEquals(expected, db.join(big, small,
+				new ArrayList<Integer>(Arrays.asList(1)),
+				new ArrayList<Integer>(Arrays.asList(0))));
+
+		// small is hashed, but is on the left this time
+		expected = new Table(Arrays.asList(true, false, false, true));
+		expected.add(new Row(Arrays.asList(new NumberCell(1),
+				new StringCell("a"), new StringCell("x"), new NumberCell(1))));
+		expected.add(new Row(Arrays.asList(new NumberCell(1),
+				new StringCell("a"), new StringCell("z"), new NumberCell(1))));
+		expected.add(new Row(Arrays.asList(new NumberCell(2),
+				new StringCell("b"), new StringCell("w"), new NumberCell(2))));
+		expected.add(new Row(Arrays.asList(new NumberCell(1),
+				new StringCell("c"), new StringCell("x"), new NumberCell(1))));
+		expected.add(new Row(Arrays.asList(new NumberCell(1),
+				new StringCell("c"), new StringCell("z"), new NumberCell(1))));
+
+		assertEquals(expected, db.join(small, big,
+				new ArrayList<Integer>(Arrays.asList(0)),
+				new ArrayList<Integer>(Arrays.asList(1))));
+	}
+
 	/**
 	 * Test method for Database#naturalJoin(java.lang.String). case: the tables
 	 * to be joined have many headers that are the same
@@ -2334,6 +2710,34 @@ public class DatabaseTest {
 		assertEquals(expectedResultTable, db.rows("rowTest1,0,>=,pol"));
 	}
 
+	/**
+	 * Test method for Database#rows(java.lang.String). case: the number
+	 * column has empty values, as a load makes of empty fields, which every
+	 * comparator but == leaves out, whether run alone or in a pipeline.
+	 *
+	 * @throws Exception if the test file can't be written
+	 */
+	@Test
+	public final void testRows_emptyNumbers() throws Exception {
+		BufferedWriter bwTest = new BufferedWriter(new FileWriter(file));
+		bwTest.write("a,10\nb,\nc,20\nd,15\n");
+		bwTest.close();
+		db.add("scores", new Table(Arrays.asList(false, true)));
+		assertTrue(db.load(false, "scores", "forTestingLoad"));
+
+		String[][] expected = {{"<", "a,10\n"}, {"<=", "a,10\nd,15\n"},
+			{"==", "d,15\n"}, {">=", "c,20\nd,15\n"}, {">", "c,20\n"}};
+		for (String[] e : expected) {
+			assertEquals(e[0], e[1],
+					db.rowsCheck("scores, 1, " + e[0] + ", 15").toString());
+			assertEquals(e[0], e[1], db.evaluate("rows(scores, 1, " + e[0]
+					+ ", 15)").toString());
+		}
+		//an empty number still equals itself, but isn't less or greater
+		assertEquals(4, db.evaluate("rows(scores, 1, ==, column(1))").size());
+		assertEquals(0, db.evaluate("rows(scores, 1, <, column(1))").size());
+	}
+
 	/**
 	 * Test method for Database#rows(java.lang.String). case:
 	 * None of the rows' specified column satisfies the condition.
@@ -2462,6 +2866,714 @@ public class DatabaseTest {
 		db.rowsCheck("table1asdfdadadaasdfjsasgf,4,>=,8090");
 	}
 
+	/**
+	 * Test method for Database#index(String, String).
+	 * test rows finds the same rows through the index as without it, and
+	 * the index is built again when the table is loaded or reassigned.
+	 *
+	 * @throws Exception if the test file can't be written
+	 */
+	@Test
+	public final void testIndex() throws Exception {
+		List<Boolean> defn = Arrays.asList(false, true);
+		BufferedWriter bwTest = new BufferedWriter(new FileWriter(file));
+		bwTest.write("name,year\n");
+		for (int i = 0; i < 2000; i++) {
+			bwTest.write("wine" + i + "," + (1950 + i * 37 % 70) + "\n");
+		}
+		bwTest.close();
+
+		db.add("plain", new Table(defn));
+		db.load(true, "plain", "forTestingLoad");
+		db.add("wine", new Table(defn));
+		db.index("wine", "1");
+		db.load(true, "wine", "forTestingLoad");
+		assertTrue(db.getTable("wine").getIndex(1) != null);
+		assertTrue(db.getTable("plain").getIndex(1) == null);
+		for (String comparator : Arrays.asList("<", "<=", "==", ">=", ">")) {
+			for (String year : Arrays.asList("1949", "1950", "1987", "2019",
+					"2020")) {
+				String expr = ",year," + comparator + "," + year;
+				assertEquals(db.rowsCheck("plain" + expr),
+						db.rowsCheck("wine" + expr));
+			}
+		}
+
+		//reassigning keeps the column indexed, by header too
+		db.index("wine", "year");
+		db.add("wine", db.rows("plain,1,>,2000"));
+		assertTrue(db.getTable("wine").getIndex(1) != null);
+		assertEquals(db.rows("plain,1,==,2010"), db.rows("wine,1,==,2010"));
+
+		//String columns can't have a B+tree
+		db.index("wine", "name");
+		assertTrue(db.getTable("wine").getIndex(0) == null);
+		assertTrue(output.toString().trim().endsWith(
+				"Only number columns can have a B+tree index."));
+	}
+
+	/**
+	 * Test method for Database#index(String, String, boolean).
+	 * test rows and join find the same rows through a hash index as without
+	 * it, whichever side of the join is indexed.
+	 *
+	 * @throws Exception if the test file can't be written
+	 */
+	@Test
+	public final void testIndexHash() throws Exception {
+		List<Boolean> defn = Arrays.asList(false, true);
+		BufferedWriter bwTest = new BufferedWriter(new FileWriter(file));
+		for (int i = 0; i < 500; i++) {
+			bwTest.write((i % 7 == 0 ? "" : "name" + i % 40) + "," + i % 90
+					+ "\n");
+		}
+		bwTest.close();
+
+		db.add("plain", new Table(defn));
+		db.load(false, "plain", "forTestingLoad");
+		db.add("hashed", new Table(defn));
+		db.index("hashed", "0", true);
+		db.index("hashed", "1", true);
+		db.load(false, "hashed", "forTestingLoad");
+		assertTrue(db.getTable("hashed").getIndex(0) instanceof HashIndex);
+		assertTrue(output.toString().contains(
+				"hashed(1) is now indexed, using "));
+
+		assertEquals(db.rows("plain,0,==,name3"),
+				db.rows("hashed,0,==,name3"));
+		assertEquals(db.rows("plain,1,==,12"), db.rows("hashed,1,==,12"));
+		assertEquals(db.rows("plain,1,<,12"), db.rows("hashed,1,<,12"));
+
+		//the other tables are smaller, so only the indexes avoid hashing
+		db.add("small", db.rows("plain,1,<,5"));
+		assertEquals(db.join("small,plain,0,0"), db.join("small,hashed,0,0"));
+		assertEquals(db.join("plain,small,1,1"), db.join("hashed,small,1,1"));
+		assertEquals(db.join("small,plain,1,1,0,0"),
+				db.join("small,hashed,1,1,0,0"));
+	}
+
+	/**
+	 * Test method for Database#groupBy(String).
+	 * test every aggregate, with empty values in keys and aggregated columns.
+	 *
+	 * @throws Exception if a column can't be found
+	 */
+	@Test
+	public final void testGroupBy() throws Exception {
+		Table wine = new Table(Arrays.asList(false, true, false),
+				Arrays.asList("colour", "rating", "name"));
+		String[][] rows = {{"red", "3", "b"}, {"white", "5", "a"},
+			{"red", null, "c"}, {null, "1", null}, {"red", "4", "a"},
+			{null, "2", "d"}};
+		for (String[] r : rows) {
+			wine.add(new Row(new ArrayList<Cell>(Arrays.asList(
+					new StringCell(r[0]), new NumberCell(r[1]),
+					new StringCell(r[2])))));
+		}
+		db.add("wine", wine);
+
+		Table grouped = db.groupBy("wine, colour, count(*), count(rating), "
+				+ "sum(1), min(rating), max(name), avg(rating)");
+		assertEquals(Arrays.asList("colour", "count(*)", "count(rating)",
+				"sum(rating)", "min(rating)", "max(name)", "avg(rating)"),
+				grouped.getHeader());
+		assertEquals(Arrays.asList(false, true, true, true, true, false,
+				false), grouped.getDefinition());
+		assertEquals(3, grouped.size());
+		assertEquals("red,3,2,7,3,c,3.5", grouped.getRow(0).toString());
+		assertEquals("white,1,1,5,5,a,5.0", grouped.getRow(1).toString());
+		assertEquals(",2,2,3,1,d,1.5", grouped.getRow(2).toString());
+
+		//no keys gives one group, no aggregates gives the distinct keys
+		assertEquals("6,5", db.groupBy("wine,count(*),count(2)").getRow(0)
+				.toString());
+		assertEquals(3, db.groupBy("wine,0").size());
+
+		//Strings can't be summed
+		assertEquals(0, db.groupBy("wine,0,sum(name)").size());
+		assertEquals("Only number columns can be summed or averaged.",
+				output.toString().trim());
+	}
+
+	/**
+	 * Test method for Database#groupBy(String).
+	 * test a table large enough to be aggregated in parallel gives the
+	 * groups in the order they first come up, with the right totals.
+	 *
+	 * @throws Exception if a column can't be found
+	 */
+	@Test
+	public final void testGroupBy_parallel() throws Exception {
+		int size = 4 * Database.PARALLEL_THRESHOLD + 3;
+		DictionaryColumn keys = new DictionaryColumn(size);
+		IntColumn values = new IntColumn(size);
+		for (int i = 0; i < size; i++) {
+			//keys 0 to 999 come up in reverse, then over and over
+			int key = i < 1000 ? 999 - i : i * 7919 % 1000;
+			keys.addString("k" + key);
+			values.addInt(i % 100);
+		}
+		db.add("big", new Table(Arrays.asList(false, true),
+				new ArrayList<String>(), new Column[] {keys, values}));
+
+		Table grouped = db.groupBy("big,0,count(*),sum(1),max(1),min(0)");
+		assertEquals(1000, grouped.size());
+		long count = 0;
+		long sum = 0;
+		for (int g = 0; g < 1000; g++) {
+			assertEquals(new StringCell("k" + (999 - g)),
+					grouped.getCell(g, 0));
+			assertEquals(new StringCell("k" + (999 - g)),
+					grouped.getCell(g, 4));
+			count += ((NumberCell) grouped.getCell(g, 1)).getCell();
+			sum += ((NumberCell) grouped.getCell(g, 2)).getCell();
+		}
+		long expected = 0;
+		for (int i = 0; i < size; i++) {
+			expected += i % 100;
+		}
+		assertEquals(size, count);
+		assertEquals(expected, sum);
+	}
+
+	/**
+	 * Adds a headed table of wines, with colours, ratings and names, and a
+	 * headed table of colours, with codes, to the database.
+	 */
+	private static void addWines() {
+		Table wine = new Table(Arrays.asList(false, true, false),
+				Arrays.asList("colour", "rating", "name"));
+		String[][] rows = {{"red", "3", "b"}, {"white", "5", "a"},
+			{"red", "7", "c"}, {"rose", "1", "e"}, {"red", "4", "a"},
+			{null, "2", "d"}, {"white", "6", "f"}};
+		for (String[] r : rows) {
+			wine.add(new Row(new ArrayList<Cell>(Arrays.asList(
+					new StringCell(r[0]), new NumberCell(r[1]),
+					new StringCell(r[2])))));
+		}
+		db.add("wine", wine);
+
+		Table colours = new Table(Arrays.asList(false, true),
+				Arrays.asList("colour", "code"));
+		String[][] codes = {{"white", "2"}, {"red", "1"}, {"green", "3"},
+			{"red", "9"}};
+		for (String[] r : codes) {
+			colours.add(new Row(new ArrayList<Cell>(Arrays.asList(
+					new StringCell(r[0]), new NumberCell(r[1])))));
+		}
+		db.add("colours", colours);
+	}
+
+	/**
+	 * Test method for Database#evaluate(String).
+	 * test a product with an empty table is the other table, with its own
+	 * columns, whether it's nested in another command or assigned first, as
+	 * {@link Database#product(String)} makes it, and that filters on it
+	 * agree either way.
+	 *
+	 * @throws Exception if a table or column can't be found
+	 */
+	@Test
+	public final void testEvaluate_productWithEmptyTable() throws Exception {
+		addWines();
+		db.add("none", new Table(Arrays.asList(true, false),
+				Arrays.asList("id", "label")));
+
+		db.add("step", db.product("wine, none"));
+		assertSameTable(db.getTable("wine"), db.getTable("step"));
+		assertSameTable(db.rowsCheck("step, 1, >, 3"),
+				db.evaluate("rows(product(wine, none), 1, >, 3)"));
+		assertEquals(4, db.evaluate("rows(product(wine, none), 1, >, 3)")
+				.size());
+
+		db.add("step", db.product("none, wine"));
+		assertSameTable(db.rowsCheck("step, 1, >, 3"),
+				db.evaluate("rows(product(none, wine), 1, >, 3)"));
+
+		//a nested operand that comes out empty, on either side
+		db.add("step", db.rowsCheck("colours, 1, >, 100"));
+		db.add("step", db.product("step, wine"));
+		assertSameTable(db.columnsCheck("step, name"), db.evaluate(
+				"columns(product(rows(colours, 1, >, 100), wine), name)"));
+		db.add("step", db.rowsCheck("colours, 1, >, 100"));
+		db.add("step", db.product("wine, step"));
+		assertSameTable(db.rowsCheck("step, rating, ==, 5"), db.evaluate(
+				"rows(product(wine, rows(colours, 1, >, 100)), rating, ==, 5)"));
+
+		//both empty keeps the columns of both
+		db.add("step", db.product("none, none"));
+		assertSameTable(db.getTable("step"),
+				db.evaluate("product(none, rows(none, 0, ==, 1))"));
+	}
+
+	/**
+	 * Checks that two tables have the same definition, header and rows.
+	 *
+	 * @param expected the expected table
+	 * @param actual the table to check
+	 */
+	private static void assertSameTable(Table expected, Table actual) {
+		assertEquals(expected.getDefinition(), actual.getDefinition());
+		assertEquals(expected.getHeader(), actual.getHeader());
+		assertEquals(expected.toString(), actual.toString());
+	}
+
+	/**
+	 * Test method for Database#evaluate(String).
+	 * test nested commands give what running them one at a time gives.
+	 *
+	 * @throws Exception if a table or column can't be found
+	 */
+	@Test
+	public final void testEvaluate_nested() throws Exception {
+		addWines();
+
+		db.add("step", db.join("wine, colours, colour, colour"));
+		assertSameTable(db.rowsCheck("step, rating, >, 2"), db.evaluate(
+				"rows(join(wine, colours, colour, colour), rating, >, 2)"));
+
+		db.add("step", db.orderBy("wine, name"));
+		assertSameTable(db.columnsCheck("step, name, rating"), db.evaluate(
+				"columns(orderBy(wine, name), name, rating)"));
+
+		db.add("step", db.outerJoin("wine, colours, 0, 0"));
+		db.add("step", db.columnsCheck("step, 2, 4"));
+		assertSameTable(db.orderBy("step, 0"), db.evaluate(
+				"orderBy(columns(outer join(wine, colours, 0, 0), 2, 4), 0)"));
+
+		db.add("step", db.naturalJoin("wine, colours", false));
+		assertSameTable(db.groupBy("step, colour, count(*), sum(code)"),
+				db.evaluate("groupBy(naturaljoin(wine, colours), colour, "
+						+ "count(*), sum(code))"));
+
+		db.add("step", db.rowsCheck("wine, 1, <, 5"));
+		db.add("step", db.product("step, colours"));
+		assertSameTable(db.rowsCheck("step, 4, ==, 9"), db.evaluate(
+				"rows(product(rows(wine, 1, <, 5), colours), 4, ==, 9)"));
+
+		//Strings can be compared with, which a single rows command can't
+		assertEquals("colour,rating,name\nred,3,b\nred,7,c\nred,4,a\n",
+				db.evaluate("rows(wine, colour, ==, red)").toString());
+	}
+
+	/**
+	 * Test method for Database#evaluate(String).
+	 * test pipelines longer than a batch, with duplicate keys, empty
+	 * values and an index on the hashed side, keep the order of the pairs.
+	 *
+	 * @throws Exception if a table or column can't be found
+	 */
+	@Test
+	public final void testEvaluate_manyBatches() throws Exception {
+		int size = 3 * Operator.BATCH_SIZE + 7;
+		IntColumn keys = new IntColumn(size);
+		StringColumn names = new StringColumn(size);
+		for (int i = 0; i < size; i++) {
+			if (i % 11 == 0) {
+				keys.addNull();
+			} else {
+				keys.addInt(i % 50);
+			}
+			names.addString("n" + i);
+		}
+		IntColumn small = new IntColumn(60);
+		for (int i = 0; i < 60; i++) {
+			small.addInt(i % 45);
+		}
+		db.add("big", new Table(Arrays.asList(true, false),
+				new ArrayList<String>(), new Column[] {keys, names}));
+		db.add("small", new Table(Arrays.asList(true),
+				new ArrayList<String>(), new Column[] {small}));
+
+		for (int pass = 0; pass < 2; pass++) {
+			db.add("step", db.join("big, small, 0, 0"));
+			assertSameTable(db.rows("step, 2, >, 3"),
+					db.evaluate("rows(join(big, small, 0, 0), 2, >, 3)"));
+			db.add("step", db.outerJoin("small, big, 0, 0"));
+			assertSameTable(db.getTable("step"), db.evaluate(
+					"outer join(small, big, 0, 0)"));
+			db.index("big", "0", true); //the second pass probes the index
+		}
+	}
+
+	/**
+	 * Test method for Database#evaluate(String).
+	 * test an orderBy by several columns, each ascending or descending.
+	 *
+	 * @throws Exception if a table or column can't be found
+	 */
+	@Test
+	public final void testEvaluate_orderBySeveral() throws Exception {
+		addWines();
+
+		assertEquals("colour,rating,name\nwhite,5,a\nwhite,6,f\nrose,1,e\n"
+				+ "red,3,b\nred,4,a\nred,7,c\n,2,d\n", db.evaluate(
+						"orderBy(wine, colour desc, rating)").toString());
+		assertEquals("colour,rating,name\nwhite,5,a\nred,4,a\nred,3,b\n"
+				+ "red,7,c\n,2,d\nrose,1,e\nwhite,6,f\n", db.evaluate(
+						"orderBy(wine, name asc, 0 DESC)").toString());
+		assertSameTable(db.orderBy("wine, rating"),
+				db.evaluate("orderBy(wine, rating asc)"));
+
+		//a filter is still moved below the sort
+		String explained = db.explain(
+				"rows(orderBy(wine, colour desc, name), rating, >, 3)");
+		assertTrue(explained.contains("Sort by colour desc, name\n"));
+		assertTrue(explained.contains("moved below orderBy"));
+	}
+
+	/**
+	 * Test method for Database#orderBy(String), Database#evaluate(String)
+	 * and Database#save(Command, int, String).
+	 * test a sort too large for the memory allowed is still only the order
+	 * of the rows of its table when it's kept, and spills runs to disk
+	 * merged straight into a saved file, as sorting in memory orders them.
+	 *
+	 * @throws Exception if a table or column can't be found, or the file
+	 *             read
+	 */
+	@Test
+	public final void testOrderBy_external() throws Exception {
+		int size = 5000;
+		IntColumn keys = new IntColumn(size);
+		DictionaryColumn colours = new DictionaryColumn(size);
+		StringColumn names = new StringColumn(size);
+		for (int i = 0; i < size; i++) {
+			if (i % 17 == 0) {
+				keys.addNull();
+			} else {
+				keys.addInt((i * 7919) % 301 - 150);
+			}
+			colours.addString(i % 13 == 0 ? null : "c" + i % 5);
+			names.addString("n\u00e9" + i);
+		}
+		db.add("big", new Table(Arrays.asList(true, false, false),
+				Arrays.asList("key", "colour", "name"),
+				new Column[] {keys, colours, names}));
+		Table byKey = db.orderBy("big, 0");
+		Table byBoth = db.evaluate("orderBy(big, colour desc, key)");
+		Table top = db.evaluate("top(big, key, 10)");
+
+		db.setSortMemory(ExternalSort.estimate(db.getTable("big")) / 7);
+		assertEquals(byKey.toString(), db.orderBy("big, 0").toString());
+		assertEquals(byKey.getHeader(), db.orderBy("big, key").getHeader());
+		assertEquals(byBoth.toString(),
+				db.evaluate("orderBy(big, colour desc, key)").toString());
+		assertEquals(top.toString(),
+				db.evaluate("top(big, key, 10)").toString());
+		assertFalse(db.explainAnalyze("orderBy(big, 1)").contains(
+				"external merge"));
+
+		File save = new File("sortedSave.tmp");
+		try {
+			Command command = new CommandParser().parse(
+					"save orderBy(big, colour desc, key) sortedSave.tmp");
+			assertTrue(db.save(command, command.root(), command.operand(0)));
+			//as written in the default charset
+			assertEquals(new String(byBoth.toString().getBytes()), new String(
+					Files.readAllBytes(save.toPath())));
+
+			//an empty table still has its header saved
+			command = new CommandParser().parse(
+					"save orderBy(rows(big, colour, ==, none), 0) sortedSave.tmp");
+			assertTrue(db.save(command, command.root(), command.operand(0)));
+			assertEquals("key,colour,name\n", new String(
+					Files.readAllBytes(save.toPath())));
+		} finally {
+			save.delete();
+		}
+	}
+
+	/**
+	 * Test method for Database#evaluate(String).
+	 * test a top command keeps the rows an orderBy puts first, equal keys
+	 * in the order they came in, over a table or a whole pipeline.
+	 *
+	 * @throws Exception if a table or column can't be found
+	 */
+	@Test
+	public final void testEvaluate_top() throws Exception {
+		addWines();
+
+		for (String expr : new String[] {"wine, colour", "wine, rating",
+			"join(wine, colours, colour, colour), 4",
+			"outer join(colours, wine, colour, colour), 4"}) {
+			Table sorted = db.evaluate("orderBy(" + expr + ")");
+			for (int n = 0; n <= sorted.size() + 1; n++) {
+				assertSameTable(first(sorted, n),
+						db.evaluate("top(" + expr + ", " + n + ")"));
+			}
+		}
+		assertEquals("colour,rating,name\nred,4,a\nred,3,b\n", db.evaluate(
+				"top(rows(wine, colour, ==, red), name, 2)").toString());
+		assertEquals(7, db.evaluate("top(wine, 0, 12345678901)").size());
+
+		//a filter over a top isn't moved below it
+		assertEquals("colour,rating,name\nred,3,b\n", db.evaluate(
+				"rows(top(wine, rating, 3), colour, ==, red)").toString());
+		assertTrue(db.explain("columns(top(wine, rating, 2), name)")
+				.contains("Top 2 by rating"));
+		assertTrue(db.explainAnalyze("top(wine, rating, 2)")
+				.contains("[heap of 2 rows] (time "));
+	}
+
+	/**
+	 * Test method for Database#evaluate(String).
+	 * test a top command over a table large enough to be searched in
+	 * parallel keeps the rows an orderBy puts first.
+	 *
+	 * @throws Exception if a table or column can't be found
+	 */
+	@Test
+	public final void testEvaluate_topParallel() throws Exception {
+		int size = 2 * Database.PARALLEL_THRESHOLD + 5;
+		IntColumn keys = new IntColumn(size);
+		IntColumn ids = new IntColumn(size);
+		for (int i = 0; i < size; i++) {
+			keys.addInt((int) ((i * 2654435761L) % 1000) - 500);
+			ids.addInt(i);
+		}
+		db.add("big", new Table(Arrays.asList(true, true),
+				new ArrayList<String>(), new Column[] {keys, ids}));
+
+		Table sorted = db.evaluate("orderBy(big, 0)");
+		for (int n : new int[] {1, 100, 3000}) {
+			assertSameTable(first(sorted, n),
+					db.evaluate("top(big, 0, " + n + ")"));
+		}
+		assertTrue(db.explainAnalyze("top(big, 0, 10)")
+				.contains("[heap of 10 rows per thread, merged]"));
+	}
+
+	/**
+	 * Returns the first rows of a table.
+	 *
+	 * @param table the table
+	 * @param n the most rows to return
+	 * @return its first <code>n</code> rows
+	 */
+	private static Table first(Table table, int n) {
+		int[] rows = new int[Math.min(n, table.size())];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = i;
+		}
+		return table.select(rows, rows.length);
+	}
+
+	/**
+	 * Test method for Database#evaluate(String).
+	 * test mistakes in an expression are found where they are.
+	 *
+	 * @throws Exception if a table or column can't be found
+	 */
+	@Test
+	public final void testEvaluate_invalid() throws Exception {
+		addWines();
+		try {
+			db.evaluate("rows(wine, 1, >, 2");
+			fail();
+		} catch (ParseException e) {
+			assertEquals(18, e.getErrorOffset());
+		}
+		try {
+			db.evaluate("columns(sort(wine, 1), 0)");
+			fail();
+		} catch (ParseException e) {
+			assertEquals(8, e.getErrorOffset());
+		}
+		try {
+			db.evaluate("columns(wine, price)");
+			fail();
+		} catch (ColumnIndexOutOfBoundsException e) {
+			assertTrue(e.getMessage().contains("price"));
+		}
+	}
+
+	/**
+	 * Test method for Database#evaluate(String).
+	 * test rewritten pipelines give what running the commands one at a
+	 * time gives.
+	 *
+	 * @throws Exception if a table or column can't be found
+	 */
+	@Test
+	public final void testEvaluate_rewritten() throws Exception {
+		addWines();
+
+		//a product filtered on equal columns is a join
+		db.add("step", db.product("wine, colours"));
+		Table joined = db.evaluate(
+				"rows(product(wine, colours), 0, ==, column(3))");
+		assertSameTable(db.join("wine, colours, 0, 0"), joined);
+
+		//filters go into the input of a join they only look at
+		db.add("step", db.join("wine, colours, colour, colour"));
+		assertSameTable(db.rowsCheck("step, code, >, 1"), db.evaluate(
+				"rows(join(wine, colours, colour, colour), code, >, 1)"));
+		db.add("step", db.columnsCheck("step, name, rating, code"));
+		assertSameTable(db.rowsCheck("step, rating, <, 5"), db.evaluate(
+				"rows(columns(join(wine, colours, colour, colour), "
+						+ "name, rating, code), rating, <, 5)"));
+
+		//and below orderBy, which is then given only the columns it needs
+		db.add("step", db.orderBy("wine, name"));
+		db.add("step", db.rowsCheck("step, rating, >, 2"));
+		assertSameTable(db.columnsCheck("step, name"), db.evaluate(
+				"columns(rows(orderBy(wine, name), rating, >, 2), name)"));
+
+		db.add("step", db.naturalJoin("wine, colours", false));
+		assertSameTable(db.groupBy("step, colour, max(rating)"),
+				db.evaluate("groupBy(naturaljoin(wine, colours), colour, "
+						+ "max(rating))"));
+	}
+
+	/**
+	 * Test method for Database#explain(String).
+	 * test the plan is described before and after it is rewritten.
+	 *
+	 * @throws Exception if a table or column can't be found
+	 */
+	@Test
+	public final void testExplain() throws Exception {
+		addWines();
+
+		assertEquals("Plan:\n  Filter rating > 2\n    Scan wine\n",
+				db.explain("rows(wine, rating, >, 2)"));
+
+		String explained = db.explain("columns(rows(product(wine, colours), "
+				+ "colour, ==, column(3)), name)");
+		assertTrue(explained.startsWith("Plan:\n  Project name\n"
+				+ "    Filter colour == colour\n      Product\n"));
+		assertTrue(explained.contains("Rewritten plan:\n  Project name\n"
+				+ "    Join on colour = colour\n      Scan wine\n"
+				+ "      Scan colours\n"));
+		assertTrue(explained.contains("Rewrites:\n  product and rows "
+				+ "colour == colour turned into join on colour = colour\n"));
+
+		try {
+			db.evaluate("rows(wine, colour, ==, column(rating))");
+			fail();
+		} catch (ParseException e) {
+			assertTrue(e.getMessage().contains("same type"));
+		}
+	}
+
+	/**
+	 * Test method for Database#statistics(String).
+	 * test statistics are gathered while loading, and kept up to date.
+	 *
+	 * @throws Exception if the table can't be found or the file written
+	 */
+	@Test
+	public final void testStatistics() throws Exception {
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		for (int i = 0; i < 300; i++) {
+			out.write((i % 30 - 10) + ",w" + (i % 4));
+			out.write("\n");
+		}
+		out.close();
+		db.add("loaded", new Table(Arrays.asList(true, false)));
+		db.load(false, "loaded", "forTestingLoad");
+
+		TableStatistics stats = db.statistics("loaded");
+		assertEquals(300, stats.getRowCount());
+		assertEquals(0, stats.getColumn(0).getNullCount());
+		assertEquals(new NumberCell(-10), stats.getColumn(0).getMin());
+		assertEquals(new NumberCell(19), stats.getColumn(0).getMax());
+		assertEquals(30, stats.getColumn(0).getDistinctCount(), 1);
+		assertEquals(4, stats.getColumn(1).getDistinctCount());
+
+		db.getTable("loaded").add(new Row(new ArrayList<Cell>(Arrays.asList(
+				new NumberCell(-40), new StringCell(null)))));
+		stats = db.statistics("loaded");
+		assertEquals(301, stats.getRowCount());
+		assertEquals(new NumberCell(-40), stats.getColumn(0).getMin());
+		assertEquals(1, stats.getColumn(1).getNullCount());
+		assertEquals(null, db.statistics("nonExistentTable"));
+	}
+
+	/**
+	 * Test method for Database#evaluate(String).
+	 * test joins of three tables are run in the order the statistics make
+	 * cheapest, hashing the smaller input, and give the same rows.
+	 *
+	 * @throws Exception if a table or column can't be found
+	 */
+	@Test
+	public final void testEvaluate_joinOrder() throws Exception {
+		int[] sizes = {600, 600, 2};
+		String[] names = {"left", "right", "few"};
+		for (int t = 0; t < names.length; t++) {
+			IntColumn keys = new IntColumn(sizes[t]);
+			IntColumn ids = new IntColumn(sizes[t]);
+			for (int i = 0; i < sizes[t]; i++) {
+				keys.addInt(t == 2 ? 3 + i : i % 10);
+				ids.addInt(i);
+			}
+			db.add(names[t], new Table(Arrays.asList(true, true),
+					new ArrayList<String>(), new Column[] {keys, ids}));
+		}
+
+		String expr = "join(join(left, right, 0, 0), few, 0, 0)";
+		String explained = db.explain(expr);
+		assertTrue(explained.contains("join of 3 inputs reordered"));
+		assertTrue(explained.contains("Restore the order of the joins"));
+		assertTrue(explained.contains("hashes its left input"));
+
+		db.add("step", db.join("left, right, 0, 0"));
+		assertSameTable(db.join("step, few, 0, 0"), db.evaluate(expr));
+		db.add("step", db.join("few, left, 0, 0"));
+		assertSameTable(db.join("step, right, 0, 0"), db.evaluate(
+				"join(join(few, left, 0, 0), right, 0, 0)"));
+
+		//an outer join hashing its smaller left input keeps its order too
+		db.add("step", db.rowsCheck("left, 1, <, 30"));
+		db.add("step", db.outerJoin("step, few, 1, 0"));
+		assertSameTable(db.getTable("step"), db.evaluate(
+				"outer join(rows(left, 1, <, 30), few, 1, 0)"));
+		assertTrue(db.explain("outer join(few, left, 0, 0)")
+				.contains("hashes its left input"));
+		db.add("step", db.outerJoin("few, left, 0, 0"));
+		assertSameTable(db.getTable("step"), db.evaluate(
+				"outer join(few, left, 0, 0)"));
+	}
+
+	/**
+	 * Test method for Database#explainAnalyze(String).
+	 * test each operator is given with its strategy, rows and estimate.
+	 *
+	 * @throws Exception if a table or column can't be found
+	 */
+	@Test
+	public final void testExplainAnalyze() throws Exception {
+		addWines();
+		db.index("colours", "colour", true);
+
+		String analyzed = db.explainAnalyze("columns(rows(join(wine, "
+				+ "colours, colour, colour), rating, >, 3), name, code)");
+		String[] lines = analyzed.split("\n");
+		assertEquals("Analyzed plan:", lines[0]);
+		assertTrue(lines[1].startsWith("  Project name, code (time "));
+		assertTrue(lines[1].contains("rows in 6, rows out 6, estimated "));
+		assertTrue(lines[2].startsWith("    Join on colour = colour "
+				+ "[index nested loop join, hash index of the right input "
+				+ "probed] (time "));
+		assertTrue(lines[2].contains("rows in 8, rows out 6,"));
+		assertTrue(lines[3].startsWith("      Filter rating > 3 [scan] "));
+		assertTrue(lines[3].contains("rows in 7, rows out 4, estimated "));
+		assertTrue(lines[4].startsWith("        Scan wine (time "));
+		assertTrue(lines[4].contains("rows out 7, estimated 7"));
+		assertTrue(lines[5].startsWith("      Scan colours (time "));
+		assertTrue(analyzed.contains("Rewrites:\n  rows rating > 3 moved "
+				+ "into the left input of join on colour = colour\n"));
+		assertTrue(analyzed.contains("Copying out 6 rows: "));
+		assertTrue(analyzed.contains("Total: "));
+
+		db.index("wine", "rating");
+		assertTrue(db.explainAnalyze("rows(wine, rating, >, 3)").contains(
+				"Filter rating > 3 [B+tree index lookup] (time "));
+	}
+
 	/**
 	 * Test method for Database#remove(java.lang.String). case:
 	 * table specified by tableName exists.
@@ -2541,6 +3653,33 @@ public class DatabaseTest {
 		assertEquals(Arrays.asList(tcr2), db.check(chkTest, chkTest2, 5, 5));
 	}
 
+	/**
+	 * Test method for Database#check(Table, Table, int, int).
+	 *
+	 * case: the referencing table is large enough to be checked in parallel.
+	 * @throws ColumnIndexOutOfBoundsException if column index is out of bounds
+	 */
+	@Test
+	public final void testCheckTableTableIntInt_parallelKeepsOrder()
+			throws ColumnIndexOutOfBoundsException {
+		Table referencing = new Table(Arrays.asList(true));
+		Table referenced = new Table(Arrays.asList(true));
+		List<Row> expected = new ArrayList<Row>();
+
+		//every even number is referenced, every odd one isn't
+		for (int i = 0; i < 3 * Database.PARALLEL_THRESHOLD; i++) {
+			Row r = new Row(Arrays.asList((Cell) new NumberCell(i)));
+			referencing.add(r);
+			if (i % 2 == 0) {
+				referenced.add(r);
+			} else {
+				expected.add(r);
+			}
+		}
+
+		assertEquals(expected, db.check(referencing, referenced, 0, 0));
+	}
+
 	/**
 	 * Test method for Database#check(Table, Table, int, int).
 	 *